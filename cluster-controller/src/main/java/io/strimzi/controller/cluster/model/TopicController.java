@@ -7,9 +7,11 @@ package io.strimzi.controller.cluster.model;
 import io.fabric8.kubernetes.api.model.ConfigMap;
 import io.fabric8.kubernetes.api.model.Container;
 import io.fabric8.kubernetes.api.model.EnvVar;
+import io.fabric8.kubernetes.api.model.IntOrString;
 import io.fabric8.kubernetes.api.model.extensions.Deployment;
 import io.fabric8.kubernetes.api.model.extensions.DeploymentStrategy;
 import io.fabric8.kubernetes.api.model.extensions.DeploymentStrategyBuilder;
+import io.fabric8.kubernetes.api.model.extensions.RollingUpdateDeploymentBuilder;
 import io.strimzi.controller.cluster.ClusterController;
 import io.vertx.core.json.JsonObject;
 
@@ -32,6 +34,7 @@ public class TopicController extends AbstractModel {
 
     private static final String WATCHED_NAMESPACE_FIELD = "watchedNamespace";
     private static final String IMAGE_FIELD = "image";
+    private static final String REPLICAS_FIELD = "replicas";
     private static final String RECONCILIATION_INTERVAL_FIELD_MS = "reconciliationIntervalMs";
     private static final String ZOOKEEPER_SESSION_TIMEOUT_FIELD_MS = "zookeeperSessionTimeoutMs";
     private static final String TOPIC_METADATA_MAX_ATTEMPTS_FIELD = "topicMetadataMaxAttempts";
@@ -63,6 +66,7 @@ public class TopicController extends AbstractModel {
     public static final String KEY_FULL_RECONCILIATION_INTERVAL_MS = "STRIMZI_FULL_RECONCILIATION_INTERVAL_MS";
     public static final String KEY_ZOOKEEPER_SESSION_TIMEOUT_MS = "STRIMZI_ZOOKEEPER_SESSION_TIMEOUT_MS";
     public static final String KEY_TOPIC_METADATA_MAX_ATTEMPTS = "STRIMZI_TOPIC_METADATA_MAX_ATTEMPTS";
+    public static final String KEY_LEADER_ELECTION = "STRIMZI_LEADER_ELECTION";
 
     // Kafka bootstrap servers and Zookeeper nodes can't be specified in the JSON
     private String kafkaBootstrapServers;
@@ -191,6 +195,7 @@ public class TopicController extends AbstractModel {
             JsonObject json = new JsonObject(config);
 
             topicController.setImage(json.getString(TopicController.IMAGE_FIELD, DEFAULT_IMAGE));
+            topicController.setReplicas(json.getInteger(TopicController.REPLICAS_FIELD, DEFAULT_REPLICAS));
             topicController.setWatchedNamespace(json.getString(TopicController.WATCHED_NAMESPACE_FIELD, namespace));
             topicController.setReconciliationIntervalMs(json.getString(TopicController.RECONCILIATION_INTERVAL_FIELD_MS, DEFAULT_FULL_RECONCILIATION_INTERVAL_MS));
             topicController.setZookeeperSessionTimeoutMs(json.getString(TopicController.ZOOKEEPER_SESSION_TIMEOUT_FIELD_MS, DEFAULT_ZOOKEEPER_SESSION_TIMEOUT_MS));
@@ -236,10 +241,30 @@ public class TopicController extends AbstractModel {
         return topicController;
     }
 
+    /**
+     * With more than one replica, the replicas elect a leader and the others are on standby.
+     */
+    private boolean isLeaderElection() {
+        return replicas > 1;
+    }
+
     public Deployment generateDeployment() {
-        DeploymentStrategy updateStrategy = new DeploymentStrategyBuilder()
-                .withType("Recreate")
-                .build();
+        DeploymentStrategy updateStrategy;
+        if (isLeaderElection()) {
+            // Keep a standby running throughout the update, ready to take over from the leader
+            updateStrategy = new DeploymentStrategyBuilder()
+                    .withType("RollingUpdate")
+                    .withRollingUpdate(new RollingUpdateDeploymentBuilder()
+                            .withMaxSurge(new IntOrString(1))
+                            .withMaxUnavailable(new IntOrString(0))
+                            .build())
+                    .build();
+        } else {
+            // Two controllers without leader election would fight over the topics
+            updateStrategy = new DeploymentStrategyBuilder()
+                    .withType("Recreate")
+                    .build();
+        }
 
         return createDeployment(
                 Collections.singletonList(createContainerPort(HEALTHCHECK_PORT_NAME, HEALTHCHECK_PORT, "TCP")),
@@ -260,6 +285,9 @@ public class TopicController extends AbstractModel {
         varList.add(buildEnvVar(KEY_FULL_RECONCILIATION_INTERVAL_MS, reconciliationIntervalMs));
         varList.add(buildEnvVar(KEY_ZOOKEEPER_SESSION_TIMEOUT_MS, zookeeperSessionTimeoutMs));
         varList.add(buildEnvVar(KEY_TOPIC_METADATA_MAX_ATTEMPTS, String.valueOf(topicMetadataMaxAttempts)));
+        if (isLeaderElection()) {
+            varList.add(buildEnvVar(KEY_LEADER_ELECTION, "true"));
+        }
 
         return varList;
     }
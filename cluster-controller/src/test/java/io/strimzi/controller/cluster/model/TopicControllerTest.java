@@ -16,6 +16,7 @@ import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 public class TopicControllerTest {
 
@@ -146,6 +147,24 @@ public class TopicControllerTest {
         assertEquals("Recreate", dep.getSpec().getStrategy().getType());
     }
 
+    @Test
+    public void testGenerateDeploymentWithStandby() {
+        ConfigMap cm = ResourceUtils.createKafkaClusterConfigMap(namespace, cluster, replicas, image, healthDelay, healthTimeout, metricsCmJson, storageJson, "{ \"replicas\": 2 }");
+        TopicController tc = TopicController.fromConfigMap(cm);
+
+        Deployment dep = tc.generateDeployment();
+
+        assertEquals(new Integer(2), dep.getSpec().getReplicas());
+        assertEquals("RollingUpdate", dep.getSpec().getStrategy().getType());
+        assertEquals(new Integer(0), dep.getSpec().getStrategy().getRollingUpdate().getMaxUnavailable().getIntVal());
+        assertTrue(dep.getSpec().getTemplate().getSpec().getContainers().get(0).getEnv().contains(
+                new EnvVarBuilder().withName(TopicController.KEY_LEADER_ELECTION).withValue("true").build()));
+
+        TopicController tcFromDep = TopicController.fromAssembly(namespace, cluster, dep);
+        assertEquals(2, tcFromDep.getReplicas());
+        assertEquals(tc.getEnvVars(), tcFromDep.getEnvVars());
+    }
+
     @Test
     public void testEnvVars()   {
         assertEquals(getExpectedEnvVars(), tc.getEnvVars());
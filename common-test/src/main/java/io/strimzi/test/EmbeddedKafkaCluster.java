@@ -0,0 +1,193 @@
+/*
+ * Copyright 2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.test;
+
+import kafka.metrics.KafkaMetricsReporter;
+import kafka.server.KafkaConfig;
+import kafka.server.KafkaServer;
+import org.apache.kafka.common.network.ListenerName;
+import org.apache.kafka.common.security.auth.SecurityProtocol;
+import org.apache.kafka.common.utils.Time;
+import org.apache.kafka.common.utils.Utils;
+import org.apache.zookeeper.server.NIOServerCnxnFactory;
+import org.apache.zookeeper.server.ZooKeeperServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import scala.Option;
+import scala.collection.JavaConverters;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A ZooKeeper server and some Kafka brokers running in this JVM, on ephemeral ports of localhost,
+ * for integration tests and benchmarks which need the real AdminClient and ZooKeeper behaviour,
+ * but not a Kubernetes cluster. They start in a few seconds:
+ *
+ * <pre><code>
+ * try (EmbeddedKafkaCluster cluster = new EmbeddedKafkaCluster(3).start()) {
+ *     AdminClient adminClient = AdminClient.create(singletonMap(BOOTSTRAP_SERVERS_CONFIG, cluster.bootstrapServers()));
+ *     ...
+ * }
+ * </code></pre>
+ *
+ * <p>The brokers have ids from 0, and replicate their internal topics as widely as they can, up to 3 replicas.
+ * Their data is kept in a temporary directory, which is deleted by {@link #close()}.</p>
+ */
+public class EmbeddedKafkaCluster implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EmbeddedKafkaCluster.class);
+
+    private final int numBrokers;
+    private final Map<String, String> brokerConfig;
+    /** The running brokers, by id, null for those which are stopped. */
+    private final List<KafkaServer> brokers = new ArrayList<>();
+    /** The port of each broker, so that it keeps it when restarted. */
+    private final List<Integer> ports = new ArrayList<>();
+    private File dir;
+    private ZooKeeperServer zk;
+    private NIOServerCnxnFactory zkFactory;
+
+    public EmbeddedKafkaCluster(int numBrokers) {
+        this(numBrokers, Collections.emptyMap());
+    }
+
+    /**
+     * @param brokerConfig Broker configs, overriding the defaults of this cluster.
+     */
+    public EmbeddedKafkaCluster(int numBrokers, Map<String, String> brokerConfig) {
+        if (numBrokers < 1) {
+            throw new IllegalArgumentException("A cluster needs at least one broker");
+        }
+        this.numBrokers = numBrokers;
+        this.brokerConfig = brokerConfig;
+    }
+
+    /**
+     * Start ZooKeeper, and then the brokers, returning once they're all running.
+     */
+    public EmbeddedKafkaCluster start() throws IOException, InterruptedException {
+        long t0 = System.currentTimeMillis();
+        dir = Files.createTempDirectory("strimzi-kafka").toFile();
+        File zkDir = new File(dir, "zookeeper");
+        zk = new ZooKeeperServer(zkDir, zkDir, 500);
+        zkFactory = new NIOServerCnxnFactory();
+        zkFactory.configure(new InetSocketAddress("localhost", 0), 1000);
+        zkFactory.startup(zk);
+        for (int id = 0; id < numBrokers; id++) {
+            brokers.add(null);
+            ports.add(0);
+            startBroker(id);
+        }
+        LOGGER.info("Started Kafka cluster with ZooKeeper at {} and brokers at {} in {}ms",
+                zkConnectString(), bootstrapServers(), System.currentTimeMillis() - t0);
+        return this;
+    }
+
+    /**
+     * Start the given broker, which was stopped by {@link #stopBroker(int)}, on the port it had.
+     */
+    public void startBroker(int id) {
+        if (brokers.get(id) != null) {
+            throw new IllegalStateException("Broker " + id + " is already running");
+        }
+        Map<String, String> props = new HashMap<>();
+        props.put("broker.id", Integer.toString(id));
+        props.put("zookeeper.connect", zkConnectString());
+        props.put("listeners", "PLAINTEXT://localhost:" + ports.get(id));
+        props.put("log.dirs", new File(dir, "kafka-" + id).getAbsolutePath());
+        String replicationFactor = Integer.toString(Math.min(numBrokers, 3));
+        props.put("offsets.topic.replication.factor", replicationFactor);
+        props.put("offsets.topic.num.partitions", "5");
+        props.put("transaction.state.log.replication.factor", replicationFactor);
+        props.put("transaction.state.log.min.isr", "1");
+        props.put("group.initial.rebalance.delay.ms", "0");
+        props.put("auto.create.topics.enable", "false");
+        props.put("delete.topic.enable", "true");
+        props.put("controlled.shutdown.enable", "false");
+        props.putAll(brokerConfig);
+
+        KafkaServer broker = new KafkaServer(new KafkaConfig(props), Time.SYSTEM, Option.apply("kafka-" + id),
+                JavaConverters.asScalaBufferConverter(Collections.<KafkaMetricsReporter>emptyList()).asScala());
+        broker.startup();
+        brokers.set(id, broker);
+        ports.set(id, broker.boundPort(ListenerName.forSecurityProtocol(SecurityProtocol.PLAINTEXT)));
+        LOGGER.debug("Started broker {} on port {}", id, ports.get(id));
+    }
+
+    /**
+     * Stop the given broker, returning once it has stopped.
+     */
+    public void stopBroker(int id) {
+        KafkaServer broker = brokers.get(id);
+        if (broker == null) {
+            throw new IllegalStateException("Broker " + id + " is not running");
+        }
+        broker.shutdown();
+        broker.awaitShutdown();
+        brokers.set(id, null);
+        LOGGER.debug("Stopped broker {}", id);
+    }
+
+    /**
+     * @return The number of brokers, whether they're running or not.
+     */
+    public int numBrokers() {
+        return numBrokers;
+    }
+
+    /**
+     * @return The {@code bootstrap.servers} for clients of this cluster.
+     */
+    public String bootstrapServers() {
+        StringBuilder sb = new StringBuilder();
+        for (int port : ports) {
+            if (sb.length() != 0) {
+                sb.append(",");
+            }
+            sb.append("localhost:").append(port);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return The connect string of ZooKeeper.
+     */
+    public String zkConnectString() {
+        return "localhost:" + zkFactory.getLocalPort();
+    }
+
+    /**
+     * Stop the brokers and ZooKeeper, and delete their data.
+     */
+    @Override
+    public void close() {
+        for (int id = brokers.size() - 1; id >= 0; id--) {
+            if (brokers.get(id) != null) {
+                stopBroker(id);
+            }
+        }
+        if (zkFactory != null) {
+            zkFactory.shutdown();
+        }
+        if (zk != null) {
+            zk.shutdown();
+        }
+        if (dir != null) {
+            try {
+                Utils.delete(dir);
+            } catch (IOException e) {
+                LOGGER.warn("Unable to delete {}", dir, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.test;
+
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.ExecutionException;
+
+import static java.util.Collections.singleton;
+import static org.junit.Assert.assertEquals;
+
+public class EmbeddedKafkaClusterTest {
+
+    private static int nodes(AdminClient adminClient) {
+        try {
+            return adminClient.describeCluster().nodes().get().size();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Test
+    public void testCluster() throws Exception {
+        try (EmbeddedKafkaCluster cluster = new EmbeddedKafkaCluster(2).start();
+             AdminClient adminClient = AdminClient.create(Collections.<String, Object>singletonMap(
+                     AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, cluster.bootstrapServers()))) {
+            assertEquals(2, nodes(adminClient));
+
+            adminClient.createTopics(singleton(new NewTopic("my-topic", 3, (short) 2))).all().get();
+            TopicDescription description = adminClient.describeTopics(singleton("my-topic")).all().get().get("my-topic");
+            assertEquals(3, description.partitions().size());
+            assertEquals(2, description.partitions().get(0).replicas().size());
+
+            // A restarted broker rejoins on the same port, once the metadata has been propagated
+            cluster.stopBroker(1);
+            cluster.startBroker(1);
+            TestUtils.waitFor("broker 1 to rejoin", 100, 30_000, () -> nodes(adminClient) == 2);
+            assertEquals(3, adminClient.describeTopics(singleton("my-topic")).all().get().get("my-topic").partitions().size());
+        }
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+
+/**
+ * Something which runs alongside the reconciliation of topics, while this controller is the active one,
+ * such as the collection of topic sizes. The tasks are created by {@link BackgroundTasks}, according to the config.
+ */
+interface BackgroundTask {
+
+    /**
+     * Start the task, once this controller is active.
+     */
+    void start();
+
+    /**
+     * Stop the task, abandoning any work in progress. A task which was never started can be stopped.
+     */
+    void stop();
+
+    /**
+     * Reconcile whatever this task manages, as part of a full reconciliation,
+     * calling the given handler once it's done. By default there's nothing to reconcile.
+     */
+    default void reconcileAll(Handler<AsyncResult<Void>> handler) {
+        handler.handle(Future.succeededFuture());
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import io.fabric8.kubernetes.api.model.ConfigMap;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
+import io.strimzi.controller.topic.zk.Zk;
+import io.vertx.core.Vertx;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.function.Predicate;
+
+/**
+ * Creates the optional {@linkplain BackgroundTask background tasks} which are enabled by the config:
+ * the collection of topic sizes and of consumer lag, and the quota controller.
+ */
+class BackgroundTasks {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(BackgroundTasks.class);
+
+    private BackgroundTasks() {
+    }
+
+    /**
+     * @param k8s The access to the topic ConfigMaps.
+     * @param managedTopics The topics managed through their own ConfigMap.
+     * @param k8sReads The pool for blocking reads from Kubernetes.
+     * @param k8sWrites The pool for blocking writes to Kubernetes.
+     * @param consumerLagReads The pool for collecting the lag of the consumer groups, if it's collected, otherwise null.
+     * @return The enabled tasks, not yet started.
+     */
+    static List<BackgroundTask> create(Vertx vertx, Config config, KubernetesClient kubeClient, AdminClient adminClient,
+                                       K8s k8s, Zk zk, Predicate<String> managedTopics,
+                                       WorkerPool k8sReads, WorkerPool k8sWrites, WorkerPool consumerLagReads,
+                                       Metrics metrics) {
+        List<BackgroundTask> tasks = new ArrayList<>();
+        if (config.get(Config.TOPIC_SIZE_INTERVAL_MS) > 0) {
+            tasks.add(new TopicSizeCollector(vertx, adminClient, k8s, managedTopics,
+                    config.get(Config.TOPIC_SIZE_INTERVAL_MS), config.get(Config.TOPIC_SIZE_BROKERS_PER_BATCH),
+                    config.get(Config.TOPIC_SIZE_BATCH_INTERVAL_MS), config.get(Config.TOPIC_SIZE_ANNOTATION), metrics));
+        }
+        if (config.get(Config.CONSUMER_LAG_INTERVAL_MS) > 0) {
+            Properties consumerProps = new Properties();
+            consumerProps.setProperty(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, config.get(Config.KAFKA_BOOTSTRAP_SERVERS));
+            consumerProps.setProperty(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+            consumerProps.setProperty(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, "10000");
+            tasks.add(new ConsumerLagCollector(vertx, consumerLagReads,
+                    new KafkaConsumer<>(consumerProps, new ByteArrayDeserializer(), new ByteArrayDeserializer()),
+                    new TopicFilter(config.get(Config.CONSUMER_LAG_GROUPS), ""),
+                    config.get(Config.CONSUMER_LAG_INTERVAL_MS), config.get(Config.CONSUMER_LAG_BATCH_SIZE),
+                    config.get(Config.CONSUMER_LAG_PER_PARTITION), metrics));
+        }
+        if (config.get(Config.QUOTA_CONTROLLER)) {
+            LabelPredicate quotaPredicate = config.get(Config.QUOTA_LABELS);
+            String namespace = config.get(Config.NAMESPACE);
+            QuotaController quotaController = new QuotaController(vertx,
+                    new K8sImpl(kubeClient, quotaPredicate, namespace, k8sReads, k8sWrites), zk, quotaPredicate, namespace);
+            tasks.add(new ConfigMapWatch(vertx, kubeClient, namespace, quotaPredicate, quotaController));
+            tasks.add(quotaController);
+        }
+        LOGGER.debug("Using background tasks {}", tasks);
+        return tasks;
+    }
+
+    /**
+     * Watches the ConfigMaps matching a predicate, from when it's started until it's stopped.
+     */
+    private static class ConfigMapWatch implements BackgroundTask {
+
+        private final Vertx vertx;
+        private final KubernetesClient kubeClient;
+        private final String namespace;
+        private final LabelPredicate cmPredicate;
+        private final Watcher<ConfigMap> watcher;
+        // Guarded by this
+        private Watch watch;
+        // Guarded by this
+        private boolean stopped = false;
+
+        ConfigMapWatch(Vertx vertx, KubernetesClient kubeClient, String namespace, LabelPredicate cmPredicate,
+                       Watcher<ConfigMap> watcher) {
+            this.vertx = vertx;
+            this.kubeClient = kubeClient;
+            this.namespace = namespace;
+            this.cmPredicate = cmPredicate;
+            this.watcher = watcher;
+        }
+
+        @Override
+        public void start() {
+            vertx.executeBlocking(future -> {
+                LOGGER.debug("Watching configmaps matching {}", cmPredicate);
+                Watch opened = kubeClient.configMaps().inNamespace(namespace).withLabels(cmPredicate.labels()).watch(watcher);
+                synchronized (this) {
+                    if (stopped) {
+                        opened.close();
+                    } else {
+                        watch = opened;
+                    }
+                }
+                future.complete();
+            }, ar -> {
+                    if (ar.failed()) {
+                        LOGGER.error("Error watching ConfigMaps matching {}", cmPredicate, ar.cause());
+                    }
+                });
+        }
+
+        @Override
+        public synchronized void stop() {
+            stopped = true;
+            if (watch != null) {
+                watch.close();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "ConfigMapWatch(" + cmPredicate + ")";
+        }
+    }
+}
@@ -18,10 +18,13 @@ import org.apache.kafka.common.errors.UnknownTopicOrPartitionException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
 
 /**
  * Partial implementation of {@link Kafka} omitting those methods which imply a partition assignment.
@@ -199,6 +202,72 @@ public abstract class BaseKafkaImpl implements Kafka {
         }
     }
 
+    /** Some work that depends on the description and config futures of many topics */
+    class BatchMetadataWork extends Work {
+        private final Map<String, KafkaFuture<TopicDescription>> descFutures;
+        private final Map<ConfigResource, KafkaFuture<Config>> configFutures;
+        private final Handler<AsyncResult<Map<TopicName, TopicMetadata>>> handler;
+
+        public BatchMetadataWork(Map<String, KafkaFuture<TopicDescription>> descFutures,
+                                 Map<ConfigResource, KafkaFuture<Config>> configFutures,
+                                 Handler<AsyncResult<Map<TopicName, TopicMetadata>>> handler) {
+            if (descFutures == null) {
+                throw new NullPointerException();
+            }
+            if (configFutures == null) {
+                throw new NullPointerException();
+            }
+            if (handler == null) {
+                throw new NullPointerException();
+            }
+            this.descFutures = descFutures;
+            this.configFutures = configFutures;
+            this.handler = handler;
+        }
+
+        private <T> boolean allDone(Collection<KafkaFuture<T>> futures) {
+            for (KafkaFuture<T> future : futures) {
+                if (!future.isDone()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        protected boolean complete() {
+            if (!allDone(descFutures.values()) || !allDone(configFutures.values())) {
+                LOGGER.trace("Metadata futures of {} topics are not all done", descFutures.size());
+                return false;
+            }
+            Map<TopicName, TopicMetadata> result = new HashMap<>(descFutures.size());
+            try {
+                for (Map.Entry<String, KafkaFuture<TopicDescription>> entry : descFutures.entrySet()) {
+                    ConfigResource resource = new ConfigResource(ConfigResource.Type.TOPIC, entry.getKey());
+                    TopicDescription desc;
+                    Config config;
+                    try {
+                        desc = entry.getValue().get();
+                        config = configFutures.get(resource).get();
+                    } catch (ExecutionException e) {
+                        if (e.getCause() instanceof UnknownTopicOrPartitionException) {
+                            continue;
+                        }
+                        LOGGER.debug("Metadata future for topic {} threw {}", entry.getKey(), e.toString());
+                        handler.handle(Future.failedFuture(e.getCause()));
+                        return true;
+                    }
+                    result.put(new TopicName(entry.getKey()), new TopicMetadata(desc, config));
+                }
+            } catch (InterruptedException e) {
+                handler.handle(Future.failedFuture(e));
+                return true;
+            }
+            handler.handle(Future.succeededFuture(result));
+            return true;
+        }
+    }
+
     /**
      * Queue a future and callback. The callback will be invoked (on a separate thread)
      * when the future is ready.
@@ -227,6 +296,17 @@ public abstract class BaseKafkaImpl implements Kafka {
         queueWork(new UniWork<>("updateTopicConfig", future, handler));
     }
 
+    @Override
+    public void updateTopicsConfig(Collection<Topic> topics, Handler<AsyncResult<Void>> handler) {
+        LOGGER.debug("Updating config of {} topics", topics.size());
+        Map<ConfigResource, Config> configs = new HashMap<>(topics.size());
+        for (Topic topic : topics) {
+            configs.putAll(TopicSerialization.toTopicConfig(topic));
+        }
+        KafkaFuture<Void> future = adminClient.alterConfigs(configs).all();
+        queueWork(new UniWork<>("updateTopicsConfig", future, handler));
+    }
+
     /**
      * Get a topic config via the Kafka AdminClient API, calling the given handler
      * (in a different thread) with the result.
@@ -244,6 +324,26 @@ public abstract class BaseKafkaImpl implements Kafka {
             result -> handler.handle(result)));
     }
 
+    /**
+     * Get the configs of many topics via the Kafka AdminClient API, calling the given handler
+     * (in a different thread) with the result.
+     */
+    @Override
+    public void topicsMetadata(Set<TopicName> topicNames, Handler<AsyncResult<Map<TopicName, TopicMetadata>>> handler) {
+        LOGGER.debug("Getting metadata for {} topics", topicNames.size());
+        if (topicNames.isEmpty()) {
+            handler.handle(Future.succeededFuture(Collections.emptyMap()));
+            return;
+        }
+        Set<String> names = topicNames.stream().map(TopicName::toString).collect(Collectors.toSet());
+        Set<ConfigResource> resources = names.stream()
+                .map(name -> new ConfigResource(ConfigResource.Type.TOPIC, name))
+                .collect(Collectors.toSet());
+        Map<String, KafkaFuture<TopicDescription>> descriptionFutures = adminClient.describeTopics(names).values();
+        Map<ConfigResource, KafkaFuture<Config>> configFutures = adminClient.describeConfigs(resources).values();
+        queueWork(new BatchMetadataWork(descriptionFutures, configFutures, handler));
+    }
+
     @Override
     public void listTopics(Handler<AsyncResult<Set<String>>> handler) {
         LOGGER.debug("Listing topics");
@@ -34,6 +34,17 @@ public class Config {
         }
     };
 
+    /** A Java Boolean */
+    private static final Type<? extends Boolean> BOOLEAN = new Type<Boolean>() {
+        @Override
+        Boolean parse(String s) {
+            if (!"true".equals(s) && !"false".equals(s)) {
+                throw new IllegalArgumentException("The value must be true or false");
+            }
+            return Boolean.valueOf(s);
+        }
+    };
+
     /** A Java Integer */
     private static final Type<? extends Integer> POSITIVE_INTEGER = new Type<Integer>() {
         @Override
@@ -90,20 +101,57 @@ public class Config {
     }
 
     public static final String TC_CM_LABELS = "STRIMZI_CONFIGMAP_LABELS";
+    public static final String TC_TEMPLATE_CM_LABELS = "STRIMZI_TEMPLATE_CONFIGMAP_LABELS";
     public static final String TC_KAFKA_BOOTSTRAP_SERVERS = "STRIMZI_KAFKA_BOOTSTRAP_SERVERS";
     public static final String TC_NAMESPACE = "STRIMZI_NAMESPACE";
     public static final String TC_ZK_CONNECT = "STRIMZI_ZOOKEEPER_CONNECT";
     public static final String TC_ZK_SESSION_TIMEOUT_MS = "STRIMZI_ZOOKEEPER_SESSION_TIMEOUT_MS";
     public static final String TC_PERIODIC_INTERVAL_MS = "STRIMZI_FULL_RECONCILIATION_INTERVAL_MS";
+    public static final String TC_PERIODIC_MIN_INTERVAL_MS = "STRIMZI_FULL_RECONCILIATION_MIN_INTERVAL_MS";
     public static final String TC_REASSIGN_THROTTLE = "STRIMZI_REASSIGN_THROTTLE";
     public static final String TC_REASSIGN_VERIFY_INTERVAL_MS = "STRIMZI_REASSIGN_VERIFY_INTERVAL_MS";
+    public static final String TC_REASSIGN_TIMEOUT_MS = "STRIMZI_REASSIGN_TIMEOUT_MS";
+    public static final String TC_REASSIGN_PROGRESS_ANNOTATION_INTERVAL_MS = "STRIMZI_REASSIGN_PROGRESS_ANNOTATION_INTERVAL_MS";
+    public static final String TC_REASSIGN_COMMAND_TIMEOUT_MS = "STRIMZI_REASSIGN_COMMAND_TIMEOUT_MS";
+    public static final String TC_TOPICS_INCLUDE = "STRIMZI_TOPICS_INCLUDE";
+    public static final String TC_TOPICS_EXCLUDE = "STRIMZI_TOPICS_EXCLUDE";
+    public static final String TC_RECONCILIATION_TIMEOUT_MS = "STRIMZI_RECONCILIATION_TIMEOUT_MS";
     public static final String TC_TOPIC_METADATA_MAX_ATTEMPTS = "STRIMZI_TOPIC_METADATA_MAX_ATTEMPTS";
+    public static final String TC_RECONCILIATION_CONCURRENCY = "STRIMZI_RECONCILIATION_CONCURRENCY";
+    public static final String TC_WARM_RESTART = "STRIMZI_WARM_RESTART";
+    public static final String TC_TOPIC_STORE_SWEEP_BATCH_SIZE = "STRIMZI_TOPIC_STORE_SWEEP_BATCH_SIZE";
+    public static final String TC_TOPIC_STORE_SWEEP_BATCH_INTERVAL_MS = "STRIMZI_TOPIC_STORE_SWEEP_BATCH_INTERVAL_MS";
+    public static final String TC_LEADER_ELECTION = "STRIMZI_LEADER_ELECTION";
+    public static final String TC_ZK_MIRROR = "STRIMZI_ZOOKEEPER_MIRROR";
+    public static final String TC_KAFKA_MAX_IN_FLIGHT = "STRIMZI_KAFKA_MAX_IN_FLIGHT";
+    public static final String TC_KAFKA_MAX_QUEUED = "STRIMZI_KAFKA_MAX_QUEUED";
+    public static final String TC_KAFKA_CALL_TIMEOUT_MS = "STRIMZI_KAFKA_CALL_TIMEOUT_MS";
+    public static final String TC_KAFKA_CIRCUIT_OPEN_MS = "STRIMZI_KAFKA_CIRCUIT_OPEN_MS";
+    public static final String TC_TOPIC_SIZE_INTERVAL_MS = "STRIMZI_TOPIC_SIZE_INTERVAL_MS";
+    public static final String TC_TOPIC_SIZE_BROKERS_PER_BATCH = "STRIMZI_TOPIC_SIZE_BROKERS_PER_BATCH";
+    public static final String TC_TOPIC_SIZE_BATCH_INTERVAL_MS = "STRIMZI_TOPIC_SIZE_BATCH_INTERVAL_MS";
+    public static final String TC_TOPIC_SIZE_ANNOTATION = "STRIMZI_TOPIC_SIZE_ANNOTATION";
+    public static final String TC_CONSUMER_LAG_INTERVAL_MS = "STRIMZI_CONSUMER_LAG_INTERVAL_MS";
+    public static final String TC_CONSUMER_LAG_GROUPS = "STRIMZI_CONSUMER_LAG_GROUPS";
+    public static final String TC_CONSUMER_LAG_BATCH_SIZE = "STRIMZI_CONSUMER_LAG_BATCH_SIZE";
+    public static final String TC_CONSUMER_LAG_PER_PARTITION = "STRIMZI_CONSUMER_LAG_PER_PARTITION";
+    public static final String TC_QUOTA_CONTROLLER = "STRIMZI_QUOTA_CONTROLLER";
+    public static final String TC_QUOTA_CM_LABELS = "STRIMZI_QUOTA_CONFIGMAP_LABELS";
+    public static final String TC_EVENT_QUEUE_CAPACITY = "STRIMZI_EVENT_QUEUE_CAPACITY";
+    public static final String TC_EVENT_QUEUE_MAX_IN_FLIGHT = "STRIMZI_EVENT_QUEUE_MAX_IN_FLIGHT";
+    public static final String TC_K8S_READ_THREADS = "STRIMZI_K8S_READ_THREADS";
+    public static final String TC_K8S_WRITE_THREADS = "STRIMZI_K8S_WRITE_THREADS";
+    public static final String TC_REASSIGNMENT_THREADS = "STRIMZI_REASSIGNMENT_THREADS";
+    public static final String TC_SHUTDOWN_TIMEOUT_MS = "STRIMZI_SHUTDOWN_TIMEOUT_MS";
 
     private static final Map<String, Value<?>> CONFIG_VALUES = new HashMap<>();
 
     /** A comma-separated list of key=value pairs for selecting ConfigMaps that describe topics. */
     public static final Value<LabelPredicate> LABELS = new Value<>(TC_CM_LABELS, LABEL_PREDICATE, "strimzi.io/kind=topic");
 
+    /** A comma-separated list of key=value pairs for selecting ConfigMaps that describe {@linkplain TopicTemplate topic templates}. */
+    public static final Value<LabelPredicate> TEMPLATE_LABELS = new Value<>(TC_TEMPLATE_CM_LABELS, LABEL_PREDICATE, "strimzi.io/kind=topic-template");
+
     /** A comma-separated list of kafka bootstrap servers. */
     public static final Value<String> KAFKA_BOOTSTRAP_SERVERS = new Value<>(TC_KAFKA_BOOTSTRAP_SERVERS, STRING, true);
 
@@ -116,9 +164,15 @@ public class Config {
     /** The zookeeper session timeout. */
     public static final Value<Long> ZOOKEEPER_SESSION_TIMEOUT_MS = new Value<>(TC_ZK_SESSION_TIMEOUT_MS, DURATION, "20000");
 
-    /** The period between full reconciliations. */
+    /**
+     * The maximum period between full reconciliations.
+     * The period is {@linkplain FullReconciliationInterval shorter} after drift has been detected.
+     */
     public static final Value<Long> FULL_RECONCILIATION_INTERVAL_MS = new Value<>(TC_PERIODIC_INTERVAL_MS, DURATION, "900000");
 
+    /** The minimum period between full reconciliations, used after drift has been detected. */
+    public static final Value<Long> FULL_RECONCILIATION_MIN_INTERVAL_MS = new Value<>(TC_PERIODIC_MIN_INTERVAL_MS, DURATION, "60000");
+
     /** The interbroker throttled rate to use when a topic change requires partition reassignment. */
     public static final Value<Long> REASSIGN_THROTTLE = new Value<>(TC_REASSIGN_THROTTLE, LONG, Long.toString(Long.MAX_VALUE));
 
@@ -128,20 +182,171 @@ public class Config {
      */
     public static final Value<Long> REASSIGN_VERIFY_INTERVAL_MS = new Value<>(TC_REASSIGN_VERIFY_INTERVAL_MS, DURATION, "120000");
 
+    /**
+     * The time after which a partition reassignment is reported as having timed out.
+     * The reassignment continues to be verified (so its throttles eventually get removed) even after it has timed out.
+     */
+    public static final Value<Long> REASSIGN_TIMEOUT_MS = new Value<>(TC_REASSIGN_TIMEOUT_MS, DURATION, "3600000");
+
+    /** The minimum interval between updates to the reassignment progress annotation on a topic's ConfigMap. */
+    public static final Value<Long> REASSIGN_PROGRESS_ANNOTATION_INTERVAL_MS = new Value<>(TC_REASSIGN_PROGRESS_ANNOTATION_INTERVAL_MS, DURATION, "60000");
+
+    /** The time after which a run of {@code kafka-reassign-partitions.sh} which hasn't exited is killed. */
+    public static final Value<Long> REASSIGN_COMMAND_TIMEOUT_MS = new Value<>(TC_REASSIGN_COMMAND_TIMEOUT_MS, DURATION, "300000");
+
+    /** The topics to be managed by the controller, as understood by {@link TopicFilter}. Empty means all topics. */
+    public static final Value<String> TOPICS_INCLUDE = new Value<>(TC_TOPICS_INCLUDE, STRING, "");
+
+    /** The topics to be ignored by the controller, as understood by {@link TopicFilter}. */
+    public static final Value<String> TOPICS_EXCLUDE = new Value<>(TC_TOPICS_EXCLUDE, STRING, "");
+
+    /**
+     * The time after which a reconciliation of a single topic which has not completed is failed,
+     * so that later events for the same topic are not blocked behind it.
+     */
+    public static final Value<Long> RECONCILIATION_TIMEOUT_MS = new Value<>(TC_RECONCILIATION_TIMEOUT_MS, DURATION, "300000");
+
     /** The maximum number of retries for getting topic metadata from the Kafka cluster */
     public static final Value<Integer> TOPIC_METADATA_MAX_ATTEMPTS = new Value<>(TC_TOPIC_METADATA_MAX_ATTEMPTS, POSITIVE_INTEGER, "6");
 
+    /**
+     * The number of reconciliations which may run concurrently before periodic reconciliation work is held back
+     * in favour of work driven by watch events. See {@link PriorityScheduler}.
+     */
+    public static final Value<Integer> RECONCILIATION_CONCURRENCY = new Value<>(TC_RECONCILIATION_CONCURRENCY, POSITIVE_INTEGER, "10");
+
+    /**
+     * Whether to use the {@link ControllerSnapshot} stored by the last full reconciliation to avoid reconciling,
+     * on startup, topics which haven't changed.
+     */
+    public static final Value<Boolean> WARM_RESTART = new Value<>(TC_WARM_RESTART, BOOLEAN, "true");
+
+    /** The number of topic store entries examined, and orphans removed, in each batch of a {@link TopicStoreSweeper} sweep. */
+    public static final Value<Integer> TOPIC_STORE_SWEEP_BATCH_SIZE = new Value<>(TC_TOPIC_STORE_SWEEP_BATCH_SIZE, POSITIVE_INTEGER, "100");
+
+    /** The pause between the batches of a {@link TopicStoreSweeper} sweep. */
+    public static final Value<Long> TOPIC_STORE_SWEEP_BATCH_INTERVAL_MS = new Value<>(TC_TOPIC_STORE_SWEEP_BATCH_INTERVAL_MS, DURATION, "1000");
+
+    /**
+     * Whether to elect a leader among several replicas of the controller, with the others on standby.
+     * See {@link LeaderElection}.
+     */
+    public static final Value<Boolean> LEADER_ELECTION = new Value<>(TC_LEADER_ELECTION, BOOLEAN, "false");
+
+    /**
+     * Whether to read topic metadata from a {@link ZkTopicMirror} of the topics' znodes, rather than asking Kafka,
+     * wherever the mirror is up to date.
+     */
+    public static final Value<Boolean> ZOOKEEPER_MIRROR = new Value<>(TC_ZK_MIRROR, BOOLEAN, "false");
+
+    /** The maximum number of calls to Kafka in flight at once. See {@link KafkaCircuitBreaker}. */
+    public static final Value<Integer> KAFKA_MAX_IN_FLIGHT = new Value<>(TC_KAFKA_MAX_IN_FLIGHT, POSITIVE_INTEGER, "20");
+
+    /** The maximum number of calls to Kafka waiting for one in flight to complete, beyond which calls are failed. */
+    public static final Value<Integer> KAFKA_MAX_QUEUED = new Value<>(TC_KAFKA_MAX_QUEUED, POSITIVE_INTEGER, "1000");
+
+    /** The time after which a call to Kafka which has not completed is failed. */
+    public static final Value<Long> KAFKA_CALL_TIMEOUT_MS = new Value<>(TC_KAFKA_CALL_TIMEOUT_MS, DURATION, "30000");
+
+    /** How long the {@link KafkaCircuitBreaker} stays open, failing calls to Kafka, before it probes Kafka again. */
+    public static final Value<Long> KAFKA_CIRCUIT_OPEN_MS = new Value<>(TC_KAFKA_CIRCUIT_OPEN_MS, DURATION, "30000");
+
+    /** The interval between collections of the sizes of the topics by the {@link TopicSizeCollector}, or 0 not to collect them. */
+    public static final Value<Long> TOPIC_SIZE_INTERVAL_MS = new Value<>(TC_TOPIC_SIZE_INTERVAL_MS, DURATION, "0");
+
+    /** The number of brokers whose log dirs are described at once by the {@link TopicSizeCollector}. */
+    public static final Value<Integer> TOPIC_SIZE_BROKERS_PER_BATCH = new Value<>(TC_TOPIC_SIZE_BROKERS_PER_BATCH, POSITIVE_INTEGER, "1");
+
+    /** The pause between the batches of brokers described by the {@link TopicSizeCollector}. */
+    public static final Value<Long> TOPIC_SIZE_BATCH_INTERVAL_MS = new Value<>(TC_TOPIC_SIZE_BATCH_INTERVAL_MS, DURATION, "1000");
+
+    /** Whether the {@link TopicSizeCollector} annotates the topic ConfigMaps with their size. */
+    public static final Value<Boolean> TOPIC_SIZE_ANNOTATION = new Value<>(TC_TOPIC_SIZE_ANNOTATION, BOOLEAN, "false");
+
+    /** The interval between collections of the lag of the consumer groups by the {@link ConsumerLagCollector}, or 0 not to collect it. */
+    public static final Value<Long> CONSUMER_LAG_INTERVAL_MS = new Value<>(TC_CONSUMER_LAG_INTERVAL_MS, DURATION, "0");
+
+    /** The consumer groups whose lag is collected, as patterns understood by {@link TopicFilter}, or empty for all of them. */
+    public static final Value<String> CONSUMER_LAG_GROUPS = new Value<>(TC_CONSUMER_LAG_GROUPS, STRING, "");
+
+    /** The number of partitions whose log-end offsets the {@link ConsumerLagCollector} fetches at once. */
+    public static final Value<Integer> CONSUMER_LAG_BATCH_SIZE = new Value<>(TC_CONSUMER_LAG_BATCH_SIZE, POSITIVE_INTEGER, "1000");
+
+    /** Whether the {@link ConsumerLagCollector} reports the lag of each group on each partition, as well as its total. */
+    public static final Value<Boolean> CONSUMER_LAG_PER_PARTITION = new Value<>(TC_CONSUMER_LAG_PER_PARTITION, BOOLEAN, "false");
+
+    /** Whether to manage client quotas with ConfigMaps, using the {@link QuotaController}. */
+    public static final Value<Boolean> QUOTA_CONTROLLER = new Value<>(TC_QUOTA_CONTROLLER, BOOLEAN, "false");
+
+    /** A comma-separated list of key=value pairs for selecting ConfigMaps that describe {@linkplain Quota client quotas}. */
+    public static final Value<LabelPredicate> QUOTA_LABELS = new Value<>(TC_QUOTA_CM_LABELS, LABEL_PREDICATE, "strimzi.io/kind=quota");
+
+    /** The number of watch events which may be queued for the {@link Controller} before further events are dropped and their topics resynced. */
+    public static final Value<Integer> EVENT_QUEUE_CAPACITY = new Value<>(TC_EVENT_QUEUE_CAPACITY, POSITIVE_INTEGER, "10000");
+
+    /** The number of watch events which the {@link EventIntake} hands over to the {@link Controller} at once. */
+    public static final Value<Integer> EVENT_QUEUE_MAX_IN_FLIGHT = new Value<>(TC_EVENT_QUEUE_MAX_IN_FLIGHT, POSITIVE_INTEGER, "1000");
+
+    /** The number of threads of the {@link WorkerPool} for reading ConfigMaps. */
+    public static final Value<Integer> K8S_READ_THREADS = new Value<>(TC_K8S_READ_THREADS, POSITIVE_INTEGER, "4");
+
+    /** The number of threads of the {@link WorkerPool} for changing ConfigMaps and creating Events. */
+    public static final Value<Integer> K8S_WRITE_THREADS = new Value<>(TC_K8S_WRITE_THREADS, POSITIVE_INTEGER, "4");
+
+    /** The number of threads of the {@link WorkerPool} for starting and verifying partition reassignments. */
+    public static final Value<Integer> REASSIGNMENT_THREADS = new Value<>(TC_REASSIGNMENT_THREADS, POSITIVE_INTEGER, "2");
+
+    /**
+     * The time the controller takes to stop at most, waiting for the reconciliations in flight to complete,
+     * and handing over those which don't to the next controller.
+     */
+    public static final Value<Long> SHUTDOWN_TIMEOUT_MS = new Value<>(TC_SHUTDOWN_TIMEOUT_MS, DURATION, "25000");
+
     static {
         Map<String, Value<?>> configValues = CONFIG_VALUES;
         addConfigValue(configValues, LABELS);
+        addConfigValue(configValues, TEMPLATE_LABELS);
         addConfigValue(configValues, KAFKA_BOOTSTRAP_SERVERS);
         addConfigValue(configValues, NAMESPACE);
         addConfigValue(configValues, ZOOKEEPER_CONNECT);
         addConfigValue(configValues, ZOOKEEPER_SESSION_TIMEOUT_MS);
         addConfigValue(configValues, FULL_RECONCILIATION_INTERVAL_MS);
+        addConfigValue(configValues, FULL_RECONCILIATION_MIN_INTERVAL_MS);
         addConfigValue(configValues, REASSIGN_THROTTLE);
         addConfigValue(configValues, REASSIGN_VERIFY_INTERVAL_MS);
+        addConfigValue(configValues, REASSIGN_TIMEOUT_MS);
+        addConfigValue(configValues, REASSIGN_PROGRESS_ANNOTATION_INTERVAL_MS);
+        addConfigValue(configValues, REASSIGN_COMMAND_TIMEOUT_MS);
+        addConfigValue(configValues, TOPICS_INCLUDE);
+        addConfigValue(configValues, TOPICS_EXCLUDE);
+        addConfigValue(configValues, RECONCILIATION_TIMEOUT_MS);
         addConfigValue(configValues, TOPIC_METADATA_MAX_ATTEMPTS);
+        addConfigValue(configValues, RECONCILIATION_CONCURRENCY);
+        addConfigValue(configValues, WARM_RESTART);
+        addConfigValue(configValues, TOPIC_STORE_SWEEP_BATCH_SIZE);
+        addConfigValue(configValues, TOPIC_STORE_SWEEP_BATCH_INTERVAL_MS);
+        addConfigValue(configValues, LEADER_ELECTION);
+        addConfigValue(configValues, ZOOKEEPER_MIRROR);
+        addConfigValue(configValues, KAFKA_MAX_IN_FLIGHT);
+        addConfigValue(configValues, KAFKA_MAX_QUEUED);
+        addConfigValue(configValues, KAFKA_CALL_TIMEOUT_MS);
+        addConfigValue(configValues, KAFKA_CIRCUIT_OPEN_MS);
+        addConfigValue(configValues, TOPIC_SIZE_INTERVAL_MS);
+        addConfigValue(configValues, TOPIC_SIZE_BROKERS_PER_BATCH);
+        addConfigValue(configValues, TOPIC_SIZE_BATCH_INTERVAL_MS);
+        addConfigValue(configValues, TOPIC_SIZE_ANNOTATION);
+        addConfigValue(configValues, CONSUMER_LAG_INTERVAL_MS);
+        addConfigValue(configValues, CONSUMER_LAG_GROUPS);
+        addConfigValue(configValues, CONSUMER_LAG_BATCH_SIZE);
+        addConfigValue(configValues, CONSUMER_LAG_PER_PARTITION);
+        addConfigValue(configValues, QUOTA_CONTROLLER);
+        addConfigValue(configValues, QUOTA_LABELS);
+        addConfigValue(configValues, EVENT_QUEUE_CAPACITY);
+        addConfigValue(configValues, EVENT_QUEUE_MAX_IN_FLIGHT);
+        addConfigValue(configValues, K8S_READ_THREADS);
+        addConfigValue(configValues, K8S_WRITE_THREADS);
+        addConfigValue(configValues, REASSIGNMENT_THREADS);
+        addConfigValue(configValues, SHUTDOWN_TIMEOUT_MS);
     }
 
     static void addConfigValue(Map<String, Value<?>> configValues, Value<?> cv) {
@@ -14,6 +14,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Map;
+import java.util.function.Predicate;
 
 class ConfigMapWatcher implements Watcher<ConfigMap> {
 
@@ -21,10 +22,20 @@ class ConfigMapWatcher implements Watcher<ConfigMap> {
 
     private Controller controller;
     private final LabelPredicate cmPredicate;
+    private final Predicate<String> topicFilter;
+    private final TopicTemplates topicTemplates;
+    private final Handler<KubernetesClientException> closeHandler;
 
-    public ConfigMapWatcher(Controller controller, LabelPredicate cmPredicate) {
+    /**
+     * @param closeHandler Called when the watch is closed because of an error, rather than by the client.
+     */
+    public ConfigMapWatcher(Controller controller, LabelPredicate cmPredicate, TopicTemplates topicTemplates,
+                            Handler<KubernetesClientException> closeHandler) {
         this.controller = controller;
         this.cmPredicate = cmPredicate;
+        this.topicFilter = topicTemplates.individuallyManaged();
+        this.topicTemplates = topicTemplates;
+        this.closeHandler = closeHandler;
     }
 
     public void eventReceived(Action action, ConfigMap configMap) {
@@ -32,21 +43,27 @@ class ConfigMapWatcher implements Watcher<ConfigMap> {
         Map<String, String> labels = metadata.getLabels();
         if (cmPredicate.test(configMap)) {
             String name = metadata.getName();
+            if (configMap.getData() != null && !topicFilter.test(new TopicName(configMap).toString())) {
+                LOGGER.debug("Ignoring ConfigMap watch event {} on map {} for unmanaged topic", action, name);
+                TopicTemplate template = topicTemplates.shadowing(new TopicName(configMap).toString());
+                if (template != null && action != Action.DELETED) {
+                    controller.reportShadowedConfigMap(configMap, template.getMapName().toString());
+                }
+                return;
+            }
             LOGGER.info("ConfigMap watch received event {} on map {} with labels {}", action, name, labels);
             Handler<AsyncResult<Void>> resultHandler = ar -> {
                 if (ar.succeeded()) {
                     LOGGER.info("Success processing ConfigMap watch event {} on map {} with labels {}", action, name, labels);
                 } else {
-                    String message;
                     if (ar.cause() instanceof InvalidConfigMapException) {
-                        message = "ConfigMap " + name + " has an invalid 'data' section: " + ar.cause().getMessage();
-                        LOGGER.error("{}", message);
-
+                        LOGGER.error("ConfigMap {} has an invalid 'data' section: {}", name, ar.cause().getMessage());
+                        controller.reportInvalidConfigMap(configMap, (InvalidConfigMapException) ar.cause());
                     } else {
-                        message = "Failure processing ConfigMap watch event " + action + " on map " + name + " with labels " + labels + ": " + ar.cause().getMessage();
+                        String message = "Failure processing ConfigMap watch event " + action + " on map " + name + " with labels " + labels + ": " + ar.cause().getMessage();
                         LOGGER.error("{}", message, ar.cause());
+                        controller.enqueue(controller.new Event(configMap, message, Controller.EventType.WARNING, errorResult -> { }));
                     }
-                    controller.enqueue(controller.new Event(configMap, message, Controller.EventType.WARNING, errorResult -> { }));
                 }
             };
             switch (action) {
@@ -67,5 +84,9 @@ class ConfigMapWatcher implements Watcher<ConfigMap> {
 
     public void onClose(KubernetesClientException e) {
         LOGGER.debug("Closing {}", this);
+        if (e != null) {
+            LOGGER.warn("ConfigMap watch closed with error", e);
+            closeHandler.handle(e);
+        }
     }
 }
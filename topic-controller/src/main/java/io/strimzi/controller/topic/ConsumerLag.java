@@ -0,0 +1,265 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * The committed offsets of consumer groups, and the log-end offsets of the partitions they consume,
+ * from which the lag of each group on each partition, and the total lag of each group, are computed.
+ *
+ * <p>The lag is computed incrementally: {@link #update(Listener)} only recomputes the lag of the partitions
+ * whose log-end offset, or some group's committed offset, has changed since the last update,
+ * and only reports the lags which have changed.
+ * Groups are numbered, and the groups consuming each partition are held in sorted arrays
+ * of group numbers, committed offsets and lags, which costs 20 bytes per group and partition
+ * rather than an entry object and boxed values per mapping.</p>
+ *
+ * <p>This class is not thread safe.</p>
+ */
+class ConsumerLag {
+
+    /** Told of the lags which have changed. */
+    interface Listener {
+        /** The lag of the group on the partition has changed, or is new. */
+        void partitionLag(String group, TopicPartition partition, long lag);
+
+        /** The group no longer has a committed offset for the partition. */
+        void partitionRemoved(String group, TopicPartition partition);
+
+        /** The total lag of the group over all its partitions has changed, or is new. */
+        void groupLag(String group, long lag);
+
+        /** The group no longer has any committed offsets. */
+        void groupRemoved(String group);
+    }
+
+    /** The groups which consume a partition, by number, in ascending order. */
+    private static class Partition {
+        /** The log-end offset, or -1 if it's not known yet. */
+        private long endOffset = -1;
+        private int size = 0;
+        private int[] groups = new int[1];
+        private long[] committed = new long[1];
+        /** The lag last reported, or -1 if none has been. */
+        private long[] lag = new long[1];
+
+        private int indexOf(int group) {
+            return Arrays.binarySearch(groups, 0, size, group);
+        }
+
+        private void insert(int index, int group, long offset) {
+            if (size == groups.length) {
+                int capacity = size * 2;
+                groups = Arrays.copyOf(groups, capacity);
+                committed = Arrays.copyOf(committed, capacity);
+                lag = Arrays.copyOf(lag, capacity);
+            }
+            System.arraycopy(groups, index, groups, index + 1, size - index);
+            System.arraycopy(committed, index, committed, index + 1, size - index);
+            System.arraycopy(lag, index, lag, index + 1, size - index);
+            groups[index] = group;
+            committed[index] = offset;
+            lag[index] = -1;
+            size++;
+        }
+
+        private void delete(int index) {
+            System.arraycopy(groups, index + 1, groups, index, size - index - 1);
+            System.arraycopy(committed, index + 1, committed, index, size - index - 1);
+            System.arraycopy(lag, index + 1, lag, index, size - index - 1);
+            size--;
+        }
+    }
+
+    private final Map<TopicPartition, Partition> partitions = new HashMap<>();
+    private final Map<String, Integer> groupNumbers = new HashMap<>();
+    private final List<String> groupNames = new ArrayList<>();
+    /** The numbers of groups which no longer have committed offsets, to be reused. */
+    private final Deque<Integer> freeNumbers = new ArrayDeque<>();
+    /** The total lag of each group, by number. */
+    private long[] groupLag = new long[16];
+    /** The number of partitions each group has committed offsets for, by number. */
+    private int[] groupPartitions = new int[16];
+    /** The groups whose committed offsets have been removed since the last update, to be reported. */
+    private final Set<String> removedGroups = new HashSet<>();
+    private final Set<TopicPartition> changed = new HashSet<>();
+    /** The groups, by number, whose total lag has changed since the last update. */
+    private final Set<Integer> changedGroups = new HashSet<>();
+    /** Committed offsets which have been removed since the last update, to be reported. */
+    private final Map<TopicPartition, List<String>> removed = new HashMap<>();
+
+    private int groupNumber(String group) {
+        Integer number = groupNumbers.get(group);
+        if (number == null) {
+            number = freeNumbers.poll();
+            if (number != null) {
+                groupNames.set(number, group);
+            } else {
+                number = groupNames.size();
+                groupNames.add(group);
+            }
+            groupNumbers.put(group, number);
+            if (number == groupLag.length) {
+                groupLag = Arrays.copyOf(groupLag, number * 2);
+                groupPartitions = Arrays.copyOf(groupPartitions, number * 2);
+            }
+        }
+        return number;
+    }
+
+    /**
+     * Record that the given group has committed the given offset for the given partition.
+     */
+    void commit(String group, TopicPartition tp, long offset) {
+        int number = groupNumber(group);
+        Partition partition = partitions.computeIfAbsent(tp, k -> new Partition());
+        int index = partition.indexOf(number);
+        if (index >= 0) {
+            if (partition.committed[index] == offset) {
+                return;
+            }
+            partition.committed[index] = offset;
+        } else {
+            partition.insert(-index - 1, number, offset);
+            if (groupPartitions[number]++ == 0) {
+                removedGroups.remove(group);
+            }
+        }
+        changed.add(tp);
+    }
+
+    /**
+     * Record that the given group no longer has a committed offset for the given partition,
+     * because it has expired or the group has been deleted.
+     */
+    void uncommit(String group, TopicPartition tp) {
+        Integer number = groupNumbers.get(group);
+        Partition partition = partitions.get(tp);
+        if (number == null || partition == null) {
+            return;
+        }
+        int index = partition.indexOf(number);
+        if (index < 0) {
+            return;
+        }
+        remove(partition, index, tp);
+        if (partition.size == 0) {
+            partitions.remove(tp);
+            changed.remove(tp);
+        }
+    }
+
+    private void remove(Partition partition, int index, TopicPartition tp) {
+        int number = partition.groups[index];
+        String group = groupNames.get(number);
+        if (partition.lag[index] >= 0) {
+            groupLag[number] -= partition.lag[index];
+            changedGroups.add(number);
+            removed.computeIfAbsent(tp, k -> new ArrayList<>()).add(group);
+        }
+        partition.delete(index);
+        if (--groupPartitions[number] == 0) {
+            changedGroups.remove(number);
+            groupLag[number] = 0;
+            groupNumbers.remove(group);
+            freeNumbers.add(number);
+            removedGroups.add(group);
+        }
+    }
+
+    /**
+     * Record the log-end offset of the given partition.
+     */
+    void endOffset(TopicPartition tp, long offset) {
+        Partition partition = partitions.get(tp);
+        if (partition != null && partition.endOffset != offset) {
+            partition.endOffset = offset;
+            changed.add(tp);
+        }
+    }
+
+    /**
+     * @return The partitions some group has a committed offset for, whose log-end offsets are needed.
+     */
+    Set<TopicPartition> partitions() {
+        return partitions.keySet();
+    }
+
+    /**
+     * Forget the committed offsets for partitions of topics which don't match the given predicate,
+     * because they have been deleted.
+     */
+    void retainTopics(Predicate<String> topics) {
+        for (Iterator<Map.Entry<TopicPartition, Partition>> it = partitions.entrySet().iterator(); it.hasNext();) {
+            Map.Entry<TopicPartition, Partition> entry = it.next();
+            if (!topics.test(entry.getKey().topic())) {
+                Partition partition = entry.getValue();
+                while (partition.size > 0) {
+                    remove(partition, partition.size - 1, entry.getKey());
+                }
+                changed.remove(entry.getKey());
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Recompute the lags of the partitions which have changed since the last update,
+     * and tell the given listener of those which are different.
+     * @return The number of lags which were recomputed.
+     */
+    int update(Listener listener) {
+        for (Map.Entry<TopicPartition, List<String>> entry : removed.entrySet()) {
+            for (String group : entry.getValue()) {
+                listener.partitionRemoved(group, entry.getKey());
+            }
+        }
+        removed.clear();
+        int recomputed = 0;
+        for (TopicPartition tp : changed) {
+            Partition partition = partitions.get(tp);
+            if (partition.endOffset < 0) {
+                continue;
+            }
+            for (int i = 0; i < partition.size; i++) {
+                recomputed++;
+                // A group which has committed an offset past the end we last saw isn't behind
+                long lag = Math.max(0, partition.endOffset - partition.committed[i]);
+                if (lag != partition.lag[i]) {
+                    int number = partition.groups[i];
+                    groupLag[number] += lag - Math.max(0, partition.lag[i]);
+                    partition.lag[i] = lag;
+                    changedGroups.add(number);
+                    listener.partitionLag(groupNames.get(number), tp, lag);
+                }
+            }
+        }
+        changed.clear();
+        for (Integer number : changedGroups) {
+            if (groupPartitions[number] > 0) {
+                listener.groupLag(groupNames.get(number), groupLag[number]);
+            }
+        }
+        changedGroups.clear();
+        for (String group : removedGroups) {
+            listener.groupRemoved(group);
+        }
+        removedGroups.clear();
+        return recomputed;
+    }
+}
@@ -0,0 +1,307 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.apache.kafka.common.errors.WakeupException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Periodically collects the lag of consumer groups, and reports it in the {@value #GROUP_LAG} gauges,
+ * and optionally the {@value #PARTITION_LAG} gauges.
+ *
+ * <p>The AdminClient of the version of Kafka we support can neither list the consumer groups nor fetch their
+ * committed offsets, so the committed offsets are read from the {@value #OFFSETS_TOPIC} topic,
+ * where the group coordinators record them. Only the commits since the last collection are read each time,
+ * and the log-end offsets of the partitions the groups have committed offsets for are then fetched in batches,
+ * so that only the lags which have changed need to be recomputed (see {@link ConsumerLag}).</p>
+ *
+ * <p>The consumer is only used by one collection at a time, on a thread of the given {@link WorkerPool},
+ * since reading the commits can take up to the interval between collections.</p>
+ */
+public class ConsumerLagCollector implements BackgroundTask {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(ConsumerLagCollector.class);
+
+    static final String OFFSETS_TOPIC = "__consumer_offsets";
+
+    static final String GROUP_LAG = "consumer_group_lag";
+
+    static final String PARTITION_LAG = "consumer_group_partition_lag";
+
+    /** The versions of the keys in the {@value #OFFSETS_TOPIC} topic which are for committed offsets. */
+    private static final short MAX_OFFSET_COMMIT_KEY_VERSION = 1;
+
+    private static final long POLL_MS = 1_000;
+
+    private final Vertx vertx;
+    private final WorkerPool workerPool;
+    private final Consumer<byte[], byte[]> consumer;
+    private final Predicate<String> groups;
+    private final long intervalMs;
+    private final int batchSize;
+    private final boolean perPartition;
+    private final Metrics metrics;
+    private final Metrics.Counter errors;
+    /** Only accessed by the collection in progress. */
+    private final ConsumerLag lag = new ConsumerLag();
+    private long timerId = -1;
+    private volatile boolean stopped = false;
+    // Guarded by this
+    private boolean collecting = false;
+    // Guarded by this
+    private boolean closed = false;
+
+    /**
+     * @param workerPool The pool on which collections run, whose calls may take longer than the interval.
+     * @param consumer The consumer used to read the {@value #OFFSETS_TOPIC} topic and the log-end offsets,
+     *                 which is closed when the collector is {@linkplain #stop() stopped}.
+     * @param groups The consumer groups whose lag is collected.
+     * @param intervalMs The interval between the end of one collection and the start of the next.
+     * @param batchSize The number of partitions whose log-end offsets are fetched at once.
+     * @param perPartition Whether to report the lag of each group on each partition, as well as its total.
+     */
+    public ConsumerLagCollector(Vertx vertx, WorkerPool workerPool, Consumer<byte[], byte[]> consumer, Predicate<String> groups,
+                                long intervalMs, int batchSize, boolean perPartition, Metrics metrics) {
+        this.vertx = vertx;
+        this.workerPool = workerPool;
+        this.consumer = consumer;
+        this.groups = groups;
+        this.intervalMs = intervalMs;
+        this.batchSize = batchSize;
+        this.perPartition = perPartition;
+        this.metrics = metrics;
+        this.errors = metrics.counter("consumer_lag_errors_total",
+                "The number of times the log-end offsets of a batch of partitions couldn't be fetched");
+    }
+
+    /**
+     * Collect the lag now, and every interval after that, until {@linkplain #stop() stopped}.
+     */
+    @Override
+    public void start() {
+        schedule(0);
+    }
+
+    /**
+     * Stop collecting, and close the consumer: any collection in progress is woken up and abandoned.
+     */
+    @Override
+    public void stop() {
+        this.stopped = true;
+        vertx.cancelTimer(timerId);
+        synchronized (this) {
+            if (collecting) {
+                consumer.wakeup();
+            } else {
+                close();
+            }
+        }
+    }
+
+    private synchronized void close() {
+        if (!closed) {
+            closed = true;
+            consumer.close();
+        }
+    }
+
+    private void schedule(long delayMs) {
+        if (stopped) {
+            return;
+        }
+        // Vert.x timers need a delay of at least 1ms
+        timerId = vertx.setTimer(Math.max(1, delayMs), id -> collect(ar -> {
+            if (ar.failed()) {
+                LOGGER.warn("Error collecting the lag of the consumer groups", ar.cause());
+            }
+            schedule(intervalMs);
+        }));
+    }
+
+    /**
+     * Collect the lag of the consumer groups once, then call the given handler.
+     */
+    void collect(Handler<AsyncResult<Void>> handler) {
+        workerPool.executeBlocking(future -> {
+            synchronized (this) {
+                if (stopped) {
+                    future.complete();
+                    return;
+                }
+                collecting = true;
+            }
+            try {
+                collectBlocking();
+                future.complete();
+            } catch (WakeupException e) {
+                future.complete();
+            } catch (KafkaException e) {
+                future.fail(e);
+            } finally {
+                synchronized (this) {
+                    collecting = false;
+                    if (stopped) {
+                        close();
+                    }
+                }
+            }
+        }, handler);
+    }
+
+    private void collectBlocking() {
+        long t0 = System.currentTimeMillis();
+        int commits = readOffsets(t0 + intervalMs);
+        // Forget the partitions of topics which have been deleted, whose log-end offsets can't be fetched
+        Map<String, List<PartitionInfo>> topics = consumer.listTopics();
+        lag.retainTopics(topics::containsKey);
+        List<TopicPartition> partitions = new ArrayList<>(lag.partitions());
+        for (int from = 0; from < partitions.size(); from += batchSize) {
+            List<TopicPartition> batch = partitions.subList(from, Math.min(from + batchSize, partitions.size()));
+            try {
+                for (Map.Entry<TopicPartition, Long> entry : consumer.endOffsets(batch).entrySet()) {
+                    if (entry.getValue() != null) {
+                        lag.endOffset(entry.getKey(), entry.getValue());
+                    }
+                }
+            } catch (TimeoutException e) {
+                LOGGER.warn("Unable to fetch the log-end offsets of {} partitions, keeping their last lag", batch.size(), e);
+                errors.increment();
+            }
+        }
+        int recomputed = lag.update(new ConsumerLag.Listener() {
+            @Override
+            public void partitionLag(String group, TopicPartition partition, long partitionLag) {
+                if (perPartition) {
+                    metrics.gauge(PARTITION_LAG, "The number of messages the consumer group is behind on the partition",
+                            "group", group, "topic", partition.topic(), "partition", String.valueOf(partition.partition()))
+                            .set(partitionLag);
+                }
+            }
+
+            @Override
+            public void partitionRemoved(String group, TopicPartition partition) {
+                if (perPartition) {
+                    metrics.remove(PARTITION_LAG,
+                            "group", group, "topic", partition.topic(), "partition", String.valueOf(partition.partition()));
+                }
+            }
+
+            @Override
+            public void groupLag(String group, long groupLag) {
+                metrics.gauge(GROUP_LAG, "The number of messages the consumer group is behind, over all its partitions",
+                        "group", group).set(groupLag);
+            }
+
+            @Override
+            public void groupRemoved(String group) {
+                metrics.remove(GROUP_LAG, "group", group);
+            }
+        });
+        LOGGER.debug("Read {} commits and recomputed the lag of {} of {} partitions in {}ms",
+                commits, recomputed, partitions.size(), System.currentTimeMillis() - t0);
+    }
+
+    /**
+     * Read the commits made since the last collection, until the end of the {@value #OFFSETS_TOPIC} topic
+     * when we started reading it, or the given deadline, when the rest are left for the next collection.
+     * @return The number of commits read.
+     */
+    private int readOffsets(long deadlineMs) {
+        if (consumer.assignment().isEmpty()) {
+            List<PartitionInfo> infos = consumer.partitionsFor(OFFSETS_TOPIC);
+            if (infos == null || infos.isEmpty()) {
+                // No group has committed an offset yet
+                return 0;
+            }
+            List<TopicPartition> offsetsPartitions = infos.stream()
+                    .map(info -> new TopicPartition(info.topic(), info.partition()))
+                    .collect(Collectors.toList());
+            consumer.assign(offsetsPartitions);
+            consumer.seekToBeginning(offsetsPartitions);
+        }
+        Map<TopicPartition, Long> end = consumer.endOffsets(consumer.assignment());
+        int commits = 0;
+        while (!stopped && !caughtUp(end)) {
+            if (System.currentTimeMillis() > deadlineMs) {
+                LOGGER.info("Not caught up with the commits of the consumer groups, continuing in the next collection");
+                break;
+            }
+            for (ConsumerRecord<byte[], byte[]> record : consumer.poll(POLL_MS)) {
+                try {
+                    if (apply(lag, groups, record.key(), record.value())) {
+                        commits++;
+                    }
+                } catch (BufferUnderflowException e) {
+                    LOGGER.warn("Ignoring malformed record at offset {} of {}-{}", record.offset(), record.topic(), record.partition());
+                }
+            }
+        }
+        return commits;
+    }
+
+    private boolean caughtUp(Map<TopicPartition, Long> end) {
+        for (Map.Entry<TopicPartition, Long> entry : end.entrySet()) {
+            if (consumer.position(entry.getKey()) < entry.getValue()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Apply a record from the {@value #OFFSETS_TOPIC} topic to the given lag, if it's a commit by one of the given groups.
+     * The key of a commit is its version, then the group, topic and partition, and its value is its version
+     * then the offset, followed by fields we don't need. Removing a commit leaves a tombstone.
+     * Records with other versions of key are about the groups' members, which we don't need.
+     * @return Whether the record was a commit by one of the groups.
+     */
+    static boolean apply(ConsumerLag lag, Predicate<String> groups, byte[] key, byte[] value) {
+        if (key == null) {
+            return false;
+        }
+        ByteBuffer keyBuffer = ByteBuffer.wrap(key);
+        if (keyBuffer.getShort() > MAX_OFFSET_COMMIT_KEY_VERSION) {
+            return false;
+        }
+        String group = readString(keyBuffer);
+        if (!groups.test(group)) {
+            return false;
+        }
+        TopicPartition tp = new TopicPartition(readString(keyBuffer), keyBuffer.getInt());
+        if (value == null) {
+            lag.uncommit(group, tp);
+        } else {
+            ByteBuffer valueBuffer = ByteBuffer.wrap(value);
+            valueBuffer.getShort();
+            lag.commit(group, tp, valueBuffer.getLong());
+        }
+        return true;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
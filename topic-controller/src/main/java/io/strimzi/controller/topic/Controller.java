@@ -16,6 +16,7 @@ import org.apache.kafka.common.errors.TopicExistsException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -25,6 +26,15 @@ public class Controller {
 
     private final static Logger LOGGER = LoggerFactory.getLogger(Controller.class);
     private final static Logger EVENT_LOGGER = LoggerFactory.getLogger("Event");
+
+    private static final String THREE_WAY_RECONCILIATIONS = "reconciliations_three_way_total";
+    private static final String THREE_WAY_RECONCILIATIONS_HELP =
+            "The number of reconciliations of topics which exist in Kafka, Kubernetes and the topic store";
+    private static final String UNCHANGED_RECONCILIATIONS = "reconciliations_unchanged_total";
+    private static final String UNCHANGED_RECONCILIATIONS_HELP =
+            "The number of reconciliations of topics which exist in Kafka, Kubernetes and the topic store "
+                    + "which were skipped because all three had the same content hash";
+
     private final Kafka kafka;
     private final K8s k8s;
     private final Vertx vertx;
@@ -33,6 +43,11 @@ public class Controller {
     private TopicStore topicStore;
     private final InFlight<TopicName> inFlight;
     private final Config config;
+    private final PriorityScheduler scheduler;
+    private final Metrics metrics;
+    private final EventIntake intake;
+    /** The message of the Event last raised about each invalid ConfigMap, by its name, so each problem is reported once. */
+    private final Map<String, String> invalidConfigMaps = Collections.synchronizedMap(new HashMap<>());
 
     enum EventType {
         INFO("Info"),
@@ -111,7 +126,7 @@ public class Controller {
         @Override
         public void handle(Void v) throws ControllerException {
             ConfigMap cm = TopicSerialization.toConfigMap(topic, cmPredicate);
-            k8s.createConfigMap(cm, handler);
+            k8s.createConfigMap(cm, ReconciliationStep.traced("CreateConfigMap", topic.getTopicName(), handler));
         }
 
         @Override
@@ -133,7 +148,7 @@ public class Controller {
 
         @Override
         public void handle(Void v) {
-            k8s.deleteConfigMap(mapName, handler);
+            k8s.deleteConfigMap(mapName, ReconciliationStep.traced("DeleteConfigMap", mapName, handler));
         }
 
         @Override
@@ -156,7 +171,7 @@ public class Controller {
         @Override
         public void handle(Void v) {
             ConfigMap cm = TopicSerialization.toConfigMap(topic, cmPredicate);
-            k8s.updateConfigMap(cm, handler);
+            k8s.updateConfigMap(cm, ReconciliationStep.traced("UpdateConfigMap", topic.getTopicName(), handler));
         }
 
         @Override
@@ -181,7 +196,7 @@ public class Controller {
 
         @Override
         public void handle(Void v) throws ControllerException {
-            kafka.createTopic(topic, ar -> {
+            kafka.createTopic(topic, ReconciliationStep.traced("CreateKafkaTopic", topic.getTopicName(), ar -> {
                 if (ar.succeeded()) {
                     LOGGER.info("Created topic '{}' for ConfigMap '{}'", topic.getTopicName(), topic.getMapName());
                     handler.handle(ar);
@@ -193,7 +208,7 @@ public class Controller {
                         throw new ControllerException(involvedObject, ar.cause());
                     }
                 }
-            });
+            }));
         }
 
         @Override
@@ -218,12 +233,12 @@ public class Controller {
 
         @Override
         public void handle(Void v) throws ControllerException {
-            kafka.updateTopicConfig(topic, ar -> {
+            kafka.updateTopicConfig(topic, ReconciliationStep.traced("UpdateKafkaConfig", topic.getTopicName(), ar -> {
                 if (ar.failed()) {
                     enqueue(new Event(involvedObject, ar.cause().toString(), EventType.WARNING, eventResult -> { }));
                 }
                 handler.handle(ar);
-            });
+            }));
 
         }
 
@@ -249,12 +264,12 @@ public class Controller {
 
         @Override
         public void handle(Void v) throws ControllerException {
-            kafka.increasePartitions(topic, ar -> {
+            kafka.increasePartitions(topic, ReconciliationStep.traced("IncreaseKafkaPartitions", topic.getTopicName(), ar -> {
                 if (ar.failed()) {
                     enqueue(new Event(involvedObject, ar.cause().toString(), EventType.WARNING, eventResult -> { }));
                 }
                 handler.handle(ar);
-            });
+            }));
 
         }
 
@@ -280,12 +295,12 @@ public class Controller {
 
         @Override
         public void handle(Void v) throws ControllerException {
-            kafka.changeReplicationFactor(topic, ar -> {
+            kafka.changeReplicationFactor(topic, ReconciliationStep.traced("ChangeReplicationFactor", topic.getTopicName(), ar -> {
                 if (ar.failed()) {
                     enqueue(new Event(involvedObject, ar.cause().toString(), EventType.WARNING, eventResult -> { }));
                 }
                 handler.handle(ar);
-            });
+            }));
 
         }
 
@@ -309,7 +324,7 @@ public class Controller {
         @Override
         public void handle(Void v) throws ControllerException {
             LOGGER.info("Deleting topic '{}'", topicName);
-            kafka.deleteTopic(topicName, handler);
+            kafka.deleteTopic(topicName, ReconciliationStep.traced("DeleteKafkaTopic", topicName, handler));
         }
 
         @Override
@@ -323,35 +338,60 @@ public class Controller {
                       TopicStore topicStore,
                       LabelPredicate cmPredicate,
                       String namespace,
-                      Config config) {
+                      Config config,
+                      Metrics metrics,
+                      PriorityScheduler scheduler) {
         this.kafka = kafka;
         this.k8s = k8s;
         this.vertx = vertx;
         this.cmPredicate = cmPredicate;
         this.topicStore = topicStore;
-        this.inFlight = new InFlight<>(vertx);
+        this.inFlight = new InFlight<>(vertx, config.get(Config.RECONCILIATION_TIMEOUT_MS));
         this.namespace = namespace;
         this.config = config;
+        this.scheduler = scheduler;
+        this.metrics = metrics;
+        this.intake = new EventIntake(config.get(Config.EVENT_QUEUE_CAPACITY), config.get(Config.EVENT_QUEUE_MAX_IN_FLIGHT),
+                this::resync, metrics);
+        // Registered now, so they're reported before the first three-way reconciliation
+        metrics.counter(THREE_WAY_RECONCILIATIONS, THREE_WAY_RECONCILIATIONS_HELP);
+        metrics.counter(UNCHANGED_RECONCILIATIONS, UNCHANGED_RECONCILIATIONS_HELP);
+        metrics.gauge("reconciliation_skip_ratio",
+                "The fraction of reconciliations of topics which exist in Kafka, Kubernetes and the topic store "
+                        + "which were skipped because all three had the same content hash")
+                .setSupplier(() -> {
+                    double total = metrics.counter(THREE_WAY_RECONCILIATIONS, THREE_WAY_RECONCILIATIONS_HELP).get();
+                    return total == 0 ? 0 : metrics.counter(UNCHANGED_RECONCILIATIONS, UNCHANGED_RECONCILIATIONS_HELP).get() / total;
+                });
     }
 
-    void reconcile(ConfigMap cm, TopicName topicName, Handler<AsyncResult<Void>> resultHandler) {
-
+    /**
+     * Reconcile the topic with the given name and the given ConfigMap (which may be null), as part of a full reconciliation.
+     * The result handler is called with whether the topic had drifted, meaning that reconciliation found
+     * some difference between the ConfigMap, the topic in Kafka and the topic store.
+     */
+    void reconcile(ConfigMap cm, TopicName topicName, Handler<AsyncResult<Boolean>> resultHandler) {
+        boolean[] drifted = {false};
         Handler<Future<Void>> action = new Reconciliation("reconcile") {
             @Override
             public void handle(Future<Void> fut) {
 
                 try {
                     Topic k8sTopic = cm != null ? TopicSerialization.fromConfigMap(cm) : null;
+                    if (cm != null) {
+                        invalidConfigMaps.remove(cm.getMetadata().getName());
+                    }
                     Future<Topic> topicResult = Future.future();
                     Future<TopicMetadata> metadataResult = Future.future();
-                    kafka.topicMetadata(topicName, metadataResult.completer());
-                    topicStore.read(topicName, topicResult.completer());
+                    kafka.topicMetadata(topicName, ReconciliationStep.traced("Kafka.topicMetadata", topicName, metadataResult.completer()));
+                    topicStore.read(topicName, ReconciliationStep.traced("TopicStore.read", topicName, topicResult.completer()));
                     CompositeFuture.all(topicResult, metadataResult).setHandler(ar -> {
 
                         if (ar.succeeded()) {
                             Topic privateTopic = ar.result().resultAt(0);
                             TopicMetadata kafkaTopicMeta = ar.result().resultAt(1);
                             Topic kafkaTopic = TopicSerialization.fromTopicMetadata(kafkaTopicMeta);
+                            drifted[0] = drifted(k8sTopic, kafkaTopic, privateTopic);
                             reconcile(cm, k8sTopic, kafkaTopic, privateTopic, reconcileResult -> {
                                 if (reconcileResult.succeeded()) {
                                     LOGGER.info("Success reconciling ConfigMap {}", logConfigMap(cm));
@@ -368,6 +408,7 @@ public class Controller {
                     });
                 } catch (InvalidConfigMapException e) {
                     LOGGER.error("Error reconciling ConfigMap {}: Invalid 'data' section: ", logConfigMap(cm), e.getMessage());
+                    reportInvalidConfigMap(cm, e);
                     fut.fail(e);
                 } catch (ControllerException e) {
                     LOGGER.error("Error reconciling ConfigMap {}", logConfigMap(cm), e);
@@ -375,7 +416,7 @@ public class Controller {
                 }
             }
         };
-        inFlight.enqueue(topicName, action, resultHandler);
+        inFlight.enqueue(topicName, action, ar -> resultHandler.handle(ar.map(drifted[0])));
     }
 
     /**
@@ -472,12 +513,41 @@ public class Controller {
                 }));
             } else {
                 // all three exist
+                metrics.counter(THREE_WAY_RECONCILIATIONS, THREE_WAY_RECONCILIATIONS_HELP).increment();
+                if (unchanged(k8sTopic, kafkaTopic, privateTopic)) {
+                    LOGGER.debug("All three topics have content hash {}", privateTopic.getContentHashString());
+                    metrics.counter(UNCHANGED_RECONCILIATIONS, UNCHANGED_RECONCILIATIONS_HELP).increment();
+                    reconciliationResultHandler.handle(Future.succeededFuture());
+                    return;
+                }
                 LOGGER.debug("3 way diff");
                 update3Way(involvedObject, k8sTopic, kafkaTopic, privateTopic, reconciliationResultHandler);
             }
         }
     }
 
+    /**
+     * @return true unless the topic doesn't exist anywhere, or exists everywhere and is unchanged.
+     */
+    private static boolean drifted(Topic k8sTopic, Topic kafkaTopic, Topic privateTopic) {
+        if (k8sTopic == null && kafkaTopic == null && privateTopic == null) {
+            return false;
+        }
+        return k8sTopic == null || kafkaTopic == null || privateTopic == null
+                || !unchanged(k8sTopic, kafkaTopic, privateTopic);
+    }
+
+    /**
+     * Whether all three versions of the topic have the same content,
+     * in which case there's no need to diff and merge them.
+     */
+    private static boolean unchanged(Topic k8sTopic, Topic kafkaTopic, Topic privateTopic) {
+        long hash = privateTopic.getContentHash();
+        return k8sTopic.getContentHash() == hash
+                && kafkaTopic.getContentHash() == hash
+                && privateTopic.getMapName().equals(k8sTopic.getMapName());
+    }
+
     private void update2Way(HasMetadata involvedObject, Topic k8sTopic, Topic kafkaTopic, Handler<AsyncResult<Void>> reconciliationResultHandler) {
         TopicDiff diff = TopicDiff.diff(kafkaTopic, k8sTopic);
         if (diff.isEmpty()) {
@@ -603,7 +673,7 @@ public class Controller {
                 Controller.this.reconcileOnTopicChange(topicName, null, fut.completer());
             }
         };
-        inFlight.enqueue(topicName, action, resultHandler);
+        enqueueUser(topicName, null, "topic_deleted", null, action, resultHandler);
 
     }
 
@@ -611,17 +681,17 @@ public class Controller {
         Handler<Future<Void>> action = new Reconciliation("onTopicConfigChanged") {
             @Override
             public void handle(Future<Void> fut) {
-                kafka.topicMetadata(topicName, metadataResult -> {
+                kafka.topicMetadata(topicName, ReconciliationStep.traced("Kafka.topicMetadata", topicName, metadataResult -> {
                     if (metadataResult.succeeded()) {
                         Topic topic = TopicSerialization.fromTopicMetadata(metadataResult.result());
                         Controller.this.reconcileOnTopicChange(topicName, topic, fut.completer());
                     } else {
                         fut.fail(metadataResult.cause());
                     }
-                });
+                }));
             }
         };
-        inFlight.enqueue(topicName, action, resultHandler);
+        enqueueUser(topicName, null, "topic_config_changed", null, action, resultHandler);
     }
 
     void onTopicPartitionsChanged(TopicName topicName, Handler<AsyncResult<Void>> resultHandler) {
@@ -666,23 +736,32 @@ public class Controller {
                 });
             }
         };
-        inFlight.enqueue(topicName, action, resultHandler);
+        enqueueUser(topicName, null, "topic_partitions_changed", null, action, resultHandler);
     }
 
     private void reconcileOnTopicChange(TopicName topicName, Topic kafkaTopic, Handler<AsyncResult<Void>> resultHandler) {
+        reconcileOnTopicChange(topicName, null, kafkaTopic, resultHandler);
+    }
+
+    /**
+     * @param knownMapName The name of the topic's ConfigMap, if known, otherwise null to use that in the topic store.
+     */
+    private void reconcileOnTopicChange(TopicName topicName, MapName knownMapName, Topic kafkaTopic, Handler<AsyncResult<Void>> resultHandler) {
         // TODO Here I need to lookup the name of the configmap from the name of the topic.
         // I can either do that from the topicStore, or maintain an in-memory map
         // I can then look up the CM from k8s
-        topicStore.read(topicName, storeResult -> {
+        topicStore.read(topicName, ReconciliationStep.traced("TopicStore.read", topicName, storeResult -> {
             if (storeResult.succeeded()) {
                 Topic storeTopic = storeResult.result();
                 MapName mapName = null;
-                if (storeTopic != null) {
+                if (knownMapName != null) {
+                    mapName = knownMapName;
+                } else if (storeTopic != null) {
                     mapName = storeTopic.getMapName();
                 } else {
                     mapName = topicName.asMapName();
                 }
-                k8s.getFromName(mapName, kubeResult -> {
+                k8s.getFromName(mapName, ReconciliationStep.traced("K8s.getFromName", topicName, kubeResult -> {
                     if (kubeResult.succeeded()) {
                         ConfigMap cm = kubeResult.result();
                         Topic k8sTopic = TopicSerialization.fromConfigMap(cm);
@@ -690,11 +769,11 @@ public class Controller {
                     } else {
                         resultHandler.handle(kubeResult.<Void>map((Void) null));
                     }
-                });
+                }));
             } else {
                 resultHandler.handle(storeResult.<Void>map((Void) null));
             }
-        });
+        }));
 /*
         k8s.getFromName(topicName.asMapName(), kubeResult -> {
             if (kubeResult.succeeded()) {
@@ -758,7 +837,7 @@ public class Controller {
                 kafka.topicMetadata(topicName, handler);
             }
         };
-        inFlight.enqueue(topicName, action, resultHandler);
+        enqueueUser(topicName, null, "topic_created", null, action, resultHandler);
     }
 
     /** Called when a ConfigMap is added in k8s */
@@ -771,18 +850,90 @@ public class Controller {
                 resultHandler.handle(Future.failedFuture(e));
                 return;
             }
+            invalidConfigMaps.remove(configMap.getMetadata().getName());
             Handler<Future<Void>> action = new Reconciliation("onConfigMapAdded") {
                 @Override
                 public void handle(Future<Void> fut) {
                     Controller.this.reconcileOnCmChange(configMap, k8sTopic, false, fut);
                 }
             };
-            inFlight.enqueue(new TopicName(configMap), action, resultHandler);
+            enqueueUser(new TopicName(configMap), k8sTopic.getMapName(), "configmap_added", configMap.getMetadata().getResourceVersion(), action, resultHandler);
         } else {
             resultHandler.handle(Future.succeededFuture());
         }
     }
 
+    /**
+     * Raise a warning Event about the given invalid ConfigMap, unless one has already been raised
+     * about the same problem with it. The ConfigMap is forgotten once it's valid or deleted.
+     */
+    void reportInvalidConfigMap(ConfigMap configMap, InvalidConfigMapException e) {
+        reportOnce(configMap, "ConfigMap " + configMap.getMetadata().getName() + " has an invalid 'data' section: " + e.getMessage());
+    }
+
+    /**
+     * Raise a warning Event about the given ConfigMap being ignored because its topic is managed through
+     * the template in the ConfigMap called {@code templateMapName}, unless one has already been raised.
+     */
+    void reportShadowedConfigMap(ConfigMap configMap, String templateMapName) {
+        reportOnce(configMap, "ConfigMap " + configMap.getMetadata().getName() + " is ignored: its topic "
+                + new TopicName(configMap) + " is managed through template ConfigMap " + templateMapName);
+    }
+
+    private void reportOnce(ConfigMap configMap, String message) {
+        if (!message.equals(invalidConfigMaps.put(configMap.getMetadata().getName(), message))) {
+            enqueue(new Event(configMap, message, EventType.WARNING, eventResult -> { }));
+        } else {
+            LOGGER.debug("Not raising another Event about ConfigMap {}", configMap.getMetadata().getName());
+        }
+    }
+
+    /**
+     * Enqueue an action driven by a watch event, which runs in the {@link PriorityScheduler.Lane#USER user lane}
+     * ahead of any queued periodic reconciliation work.
+     * The time until the action completes is tracked as the convergence latency of the event.
+     * If the {@link EventIntake} is full the event is dropped, and the topic is {@linkplain #resync resynced} instead,
+     * in which case the result handler is called immediately.
+     * @param mapName The name of the ConfigMap, for ConfigMap events.
+     * @param event The kind of event, for the convergence latency.
+     * @param resourceVersion The resourceVersion of the ConfigMap, for ConfigMap events.
+     */
+    private void enqueueUser(TopicName topicName, MapName mapName, String event, String resourceVersion,
+                             Handler<Future<Void>> action, Handler<AsyncResult<Void>> resultHandler) {
+        Handler<AsyncResult<Void>> tracked = intake.track(event, topicName, resourceVersion, resultHandler);
+        boolean accepted = intake.offer(topicName, mapName, delivered ->
+            inFlight.enqueue(topicName, scheduler.inUserLane(action), ar -> {
+                delivered.handle(ar);
+                tracked.handle(ar);
+            }));
+        if (!accepted) {
+            LOGGER.debug("Dropped {} event for topic {}, which will be resynced", event, topicName);
+            resultHandler.handle(Future.succeededFuture());
+        }
+    }
+
+    /**
+     * Reconcile the given topic as a whole, reading its current state in Kafka, Kubernetes and the topic store,
+     * after watch events about it were dropped by the {@link EventIntake}.
+     * @param mapName The name of its ConfigMap, if one of the dropped events was about a ConfigMap, otherwise null.
+     */
+    void resync(TopicName topicName, MapName mapName, Handler<AsyncResult<Void>> resultHandler) {
+        Handler<Future<Void>> action = new Reconciliation("resync") {
+            @Override
+            public void handle(Future<Void> fut) {
+                kafka.topicMetadata(topicName, ReconciliationStep.traced("Kafka.topicMetadata", topicName, metadataResult -> {
+                    if (metadataResult.succeeded()) {
+                        Topic topic = TopicSerialization.fromTopicMetadata(metadataResult.result());
+                        Controller.this.reconcileOnTopicChange(topicName, mapName, topic, fut.completer());
+                    } else {
+                        fut.fail(metadataResult.cause());
+                    }
+                }));
+            }
+        };
+        inFlight.enqueue(topicName, scheduler.inUserLane(action), intake.track("resync", topicName, null, resultHandler));
+    }
+
     abstract class Reconciliation implements Handler<Future<Void>> {
         private final String name;
 
@@ -806,13 +957,14 @@ public class Controller {
                 resultHandler.handle(Future.failedFuture(e));
                 return;
             }
+            invalidConfigMaps.remove(configMap.getMetadata().getName());
             Reconciliation action = new Reconciliation("onConfigMapModified") {
                 @Override
                 public void handle(Future<Void> fut) {
                     Controller.this.reconcileOnCmChange(configMap, k8sTopic, true, fut);
                 }
             };
-            inFlight.enqueue(new TopicName(configMap), action, resultHandler);
+            enqueueUser(new TopicName(configMap), k8sTopic.getMapName(), "configmap_modified", configMap.getMetadata().getResourceVersion(), action, resultHandler);
         } else {
             resultHandler.handle(Future.succeededFuture());
         }
@@ -822,8 +974,8 @@ public class Controller {
         TopicName topicName = new TopicName(configMap);
         Future<TopicMetadata> f1 = Future.future();
         Future<Topic> f2 = Future.future();
-        kafka.topicMetadata(topicName, f1.completer());
-        topicStore.read(topicName, f2.completer());
+        kafka.topicMetadata(topicName, ReconciliationStep.traced("Kafka.topicMetadata", topicName, f1.completer()));
+        topicStore.read(topicName, ReconciliationStep.traced("TopicStore.read", topicName, f2.completer()));
         CompositeFuture.all(f1, f2).setHandler(ar -> {
             if (ar.succeeded()) {
                 TopicMetadata topicMetadata = ar.result().resultAt(0);
@@ -843,13 +995,15 @@ public class Controller {
     /** Called when a ConfigMap is deleted in k8s */
     void onConfigMapDeleted(ConfigMap configMap, Handler<AsyncResult<Void>> resultHandler) {
         if (cmPredicate.test(configMap)) {
+            invalidConfigMaps.remove(configMap.getMetadata().getName());
             Reconciliation action = new Reconciliation("onConfigMapDeleted") {
                 @Override
                 public void handle(Future<Void> fut) {
                     Controller.this.reconcileOnCmChange(configMap, null, false, fut);
                 }
             };
-            inFlight.enqueue(new TopicName(configMap), action, resultHandler);
+            // The ConfigMap is gone, so if this event is dropped a resync finds its name in the topic store
+            enqueueUser(new TopicName(configMap), null, "configmap_deleted", configMap.getMetadata().getResourceVersion(), action, resultHandler);
         } else {
             resultHandler.handle(Future.succeededFuture());
         }
@@ -868,12 +1022,12 @@ public class Controller {
 
         @Override
         public void handle(Void v) throws ControllerException {
-            topicStore.update(topic, ar -> {
+            topicStore.update(topic, ReconciliationStep.traced("UpdateInTopicStore", topic.getTopicName(), ar -> {
                 if (ar.failed()) {
                     enqueue(new Event(involvedObject, ar.cause().toString(), EventType.WARNING, eventResult -> { }));
                 }
                 handler.handle(ar);
-            });
+            }));
         }
 
         @Override
@@ -897,7 +1051,7 @@ public class Controller {
         @Override
         public void handle(Void v) throws ControllerException {
             LOGGER.debug("Executing {}", this);
-            topicStore.create(topic, ar -> {
+            topicStore.create(topic, ReconciliationStep.traced("CreateInTopicStore", topic.getTopicName(), ar -> {
                 LOGGER.debug("Completing {}", this);
                 if (ar.failed()) {
                     LOGGER.debug("{} failed", this);
@@ -906,7 +1060,7 @@ public class Controller {
                     LOGGER.debug("{} succeeded", this);
                 }
                 handler.handle(ar);
-            });
+            }));
         }
 
         @Override
@@ -929,12 +1083,12 @@ public class Controller {
 
         @Override
         public void handle(Void v) throws ControllerException {
-            topicStore.delete(topicName, ar -> {
+            topicStore.delete(topicName, ReconciliationStep.traced("DeleteFromTopicStore", topicName, ar -> {
                 if (ar.failed()) {
                     enqueue(new Event(involvedObject, ar.cause().toString(), EventType.WARNING, eventResult -> { }));
                 }
                 handler.handle(ar);
-            });
+            }));
         }
 
         @Override
@@ -944,7 +1098,54 @@ public class Controller {
     }
 
     public boolean isWorkInflight() {
-        return inFlight.size() > 0;
+        return inFlight.size() > 0 || intake.size() > 0;
+    }
+
+    /**
+     * Stop taking on watch events, for shutdown, and call the given handler once the work already in flight
+     * has completed, or the given timeout has elapsed, whichever is sooner.
+     * Events which have not been handed over yet are dropped, and their topics, and those of any work still
+     * in flight at the timeout, are passed to the handler, with the name of their ConfigMap, if known,
+     * so that they can be {@linkplain #resync resynced} by whichever controller takes over.
+     */
+    void drain(long timeoutMs, Handler<AsyncResult<Map<TopicName, MapName>>> handler) {
+        Map<TopicName, MapName> unfinished = intake.close();
+        Future<Void> drained = Future.future();
+        long timerId = vertx.setTimer(Math.max(1, timeoutMs), id -> {
+            if (drained.tryFail(new ControllerException("Timed out after " + timeoutMs + "ms"))) {
+                LOGGER.warn("Inflight work did not complete within {}ms: {}", timeoutMs, describeInflight());
+            }
+        });
+        inFlight.whenDrained(v -> drained.tryComplete());
+        drained.setHandler(ar -> {
+            vertx.cancelTimer(timerId);
+            if (ar.failed()) {
+                for (TopicName topicName : inFlight.keys()) {
+                    unfinished.putIfAbsent(topicName, null);
+                }
+            }
+            // Events which raced with the closing of the intake
+            intake.close().forEach((topicName, mapName) -> {
+                if (unfinished.get(topicName) == null) {
+                    unfinished.put(topicName, mapName);
+                }
+            });
+            handler.handle(Future.succeededFuture(unfinished));
+        });
+    }
+
+    /**
+     * Describe the inflight actions for each topic, for debugging.
+     */
+    String describeInflight() {
+        return inFlight.describeJson().encodePrettily();
+    }
+
+    /**
+     * Describe the slowest recent convergences of topics following watch events, for debugging.
+     */
+    String describeConvergence() {
+        return intake.describeSlowestConvergences().encodePrettily();
     }
 
     /**
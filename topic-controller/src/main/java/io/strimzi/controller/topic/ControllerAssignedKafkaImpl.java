@@ -7,8 +7,8 @@ package io.strimzi.controller.topic;
 import com.fasterxml.jackson.core.JsonEncoding;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.vertx.core.AsyncResult;
-import io.vertx.core.CompositeFuture;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
@@ -17,6 +17,7 @@ import org.apache.kafka.clients.admin.NewPartitions;
 import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.common.KafkaFuture;
 import org.apache.kafka.common.Node;
+import org.apache.kafka.common.TopicPartition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -31,7 +32,9 @@ import java.io.Writer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
@@ -47,11 +50,24 @@ import java.util.regex.Pattern;
 public class ControllerAssignedKafkaImpl extends BaseKafkaImpl {
 
     private final static Logger LOGGER = LoggerFactory.getLogger(ControllerAssignedKafkaImpl.class);
+    /** The number of consecutive errors running --verify after which we stop verifying a reassignment. */
+    private static final int MAX_VERIFY_ERRORS = 10;
     private final Config config;
+    private final OperationStore operationStore;
+    private final ReassignmentProgressReporter progressReporter;
+    private final WorkerPool reassignments;
 
-    public ControllerAssignedKafkaImpl(AdminClient adminClient, Vertx vertx, Config config) {
+    /**
+     * @param reassignments The pool for running {@code kafka-reassign-partitions.sh}, and reading the replicas' progress.
+     */
+    public ControllerAssignedKafkaImpl(AdminClient adminClient, Vertx vertx, Config config,
+                                       OperationStore operationStore, ReassignmentProgressReporter progressReporter,
+                                       WorkerPool reassignments) {
         super(adminClient, vertx);
         this.config = config;
+        this.operationStore = operationStore;
+        this.progressReporter = progressReporter;
+        this.reassignments = reassignments;
     }
 
     @Override
@@ -62,6 +78,16 @@ public class ControllerAssignedKafkaImpl extends BaseKafkaImpl {
         queueWork(new UniWork<>("increasePartitions", future, handler));
     }
 
+    @Override
+    public void increaseTopicsPartitions(Collection<Topic> topics, Handler<AsyncResult<Void>> handler) {
+        final Map<String, NewPartitions> request = new HashMap<>(topics.size());
+        for (Topic topic : topics) {
+            request.put(topic.getTopicName().toString(), NewPartitions.increaseTo(topic.getNumPartitions()));
+        }
+        KafkaFuture<Void> future = adminClient.createPartitions(request).all();
+        queueWork(new UniWork<>("increaseTopicsPartitions", future, handler));
+    }
+
     /**
      * Create a new topic via the Kafka AdminClient API, calling the given handler
      * (in a different thread) with the result.
@@ -82,93 +108,68 @@ public class ControllerAssignedKafkaImpl extends BaseKafkaImpl {
         LOGGER.info("Changing replication factor of topic {} to {}", topic.getTopicName(), topic.getNumReplicas());
 
         final String zookeeper = config.get(Config.ZOOKEEPER_CONNECT);
-        Future<File> generateFuture = Future.future();
+        final Long throttle = config.get(Config.REASSIGN_THROTTLE);
+        Future<String> generateFuture = Future.future();
 
         // generate a reassignment
-        vertx.executeBlocking(fut -> {
+        reassignments.executeBlocking(fut -> {
             try {
                 LOGGER.debug("Generating reassignment json for topic {}", topic.getTopicName());
                 String reassignment = generateReassignment(topic, zookeeper);
                 LOGGER.debug("Reassignment json for topic {}: {}", topic.getTopicName(), reassignment);
-                File reassignmentJsonFile = createTmpFile("-reassignment.json");
-                try (Writer w = new OutputStreamWriter(new FileOutputStream(reassignmentJsonFile), StandardCharsets.UTF_8)) {
-                    w.write(reassignment);
-                }
-                fut.complete(reassignmentJsonFile);
+                fut.complete(reassignment);
             } catch (Exception e) {
                 fut.fail(e);
             }
         },
             generateFuture.completer());
 
-        Future<File> executeFuture = Future.future();
+        Future<Operation> persistFuture = Future.future();
+
+        generateFuture.compose(reassignment -> {
+            // persist the operation before executing it, so that if we're restarted
+            // we will still verify it, and so remove the throttles
+            Operation operation = new Operation(Operation.Type.CHANGE_REPLICATION_FACTOR,
+                    Collections.singletonList(topic.getTopicName().toString()),
+                    throttle, System.currentTimeMillis(), reassignment, 0, 0);
+            operationStore.create(operation, ar -> persistFuture.handle(ar.map(operation)));
+        }, persistFuture);
+
+        Future<Operation> executeFuture = Future.future();
 
-        generateFuture.compose(reassignmentJsonFile -> {
+        persistFuture.compose(operation -> {
             // execute the reassignment
-            vertx.executeBlocking(fut -> {
-                final Long throttle = config.get(Config.REASSIGN_THROTTLE);
+            reassignments.executeBlocking(fut -> {
                 try {
                     LOGGER.debug("Starting reassignment for topic {} with throttle {}", topic.getTopicName(), throttle);
-                    executeReassignment(reassignmentJsonFile, zookeeper, throttle);
-                    fut.complete(reassignmentJsonFile);
+                    executeReassignment(operation, zookeeper);
+                    fut.complete(operation);
                 } catch (Exception e) {
                     fut.fail(e);
                 }
             },
-                executeFuture.completer());
-        }, executeFuture);
-
-        Future<Void> periodicFuture = Future.future();
-        Future<Void> reassignmentFinishedFuture = Future.future();
-
-        executeFuture.compose(reassignmentJsonFile -> {
-            // Poll repeatedly, calling --verify to remove the throttle
-            long timeout = 10_000;
-            long first = System.currentTimeMillis();
-            final Long periodMs = config.get(Config.REASSIGN_VERIFY_INTERVAL_MS);
-            LOGGER.debug("Verifying reassignment every {} seconds", TimeUnit.SECONDS.convert(periodMs, TimeUnit.MILLISECONDS));
-            vertx.setPeriodic(periodMs, timerId ->
-                vertx.<Boolean>executeBlocking(fut -> {
-                    LOGGER.debug(String.format("Verifying reassignment for topic {} (timer id=%s)", topic.getTopicName(), timerId));
-
-                    final Long throttle = config.get(Config.REASSIGN_THROTTLE);
-                    final boolean reassignmentComplete;
-                    try {
-                        reassignmentComplete = verifyReassignment(reassignmentJsonFile, zookeeper, throttle);
-                    } catch (Exception e) {
-                        fut.fail(e);
-                        return;
-                    }
-                    fut.complete(reassignmentComplete);
-                },
-                    ar -> {
-                        if (ar.succeeded()) {
-                            if (ar.result()) {
-                                LOGGER.info("Reassignment complete");
-                                delete(reassignmentJsonFile);
-                                LOGGER.debug("Cancelling timer " + timerId);
-                                vertx.cancelTimer(timerId);
-                                reassignmentFinishedFuture.complete();
-                            } else if (System.currentTimeMillis() - first > timeout) {
-                                LOGGER.error("Reassignment timed out");
-                                delete(reassignmentJsonFile);
-                                LOGGER.debug("Cancelling timer " + timerId);
-                                vertx.cancelTimer(timerId);
-                                reassignmentFinishedFuture.fail("Timeout");
+                ar -> {
+                    if (ar.succeeded()) {
+                        executeFuture.complete(operation);
+                    } else {
+                        // The reassignment didn't start, so there is nothing to track
+                        operationStore.delete(operation.getId(), deleteResult -> {
+                            if (deleteResult.failed()) {
+                                LOGGER.warn("Error removing operation {} from the operation store", operation, deleteResult.cause());
                             }
-                        } else {
-                            //reassignmentFinishedFuture.fail(ar.cause());
-                            LOGGER.error("Error while verifying reassignment", ar.cause());
-                        }
+                            executeFuture.fail(ar.cause());
+                        });
                     }
-                )
-            );
-            periodicFuture.complete();
-        },
-            periodicFuture);
-
+                });
+        }, executeFuture);
 
-        CompositeFuture.all(periodicFuture, reassignmentFinishedFuture).map((Void) null).setHandler(handler);
+        executeFuture.setHandler(ar -> {
+            if (ar.succeeded()) {
+                trackOperation(ar.result(), handler);
+            } else {
+                handler.handle(ar.map((Void) null));
+            }
+        });
 
         // TODO The algorithm should really be more like this:
         // 1. Use the cmdline tool to generate an assignment
@@ -182,10 +183,165 @@ public class ControllerAssignedKafkaImpl extends BaseKafkaImpl {
         // though we aren't relieved of the statefullness wrt removing throttles :-(
     }
 
+    /**
+     * Resume tracking the operations which were in progress when the controller last stopped,
+     * so that they get verified (and their throttles removed) once they're complete.
+     */
+    public void resumeOperations(Handler<AsyncResult<Void>> handler) {
+        operationStore.list(ar -> {
+            if (ar.succeeded()) {
+                for (Operation operation : ar.result()) {
+                    LOGGER.info("Resuming {}", operation);
+                    trackOperation(operation, trackResult -> {
+                        if (trackResult.failed()) {
+                            LOGGER.warn("Resumed {} failed", operation, trackResult.cause());
+                        }
+                    });
+                }
+                handler.handle(Future.succeededFuture());
+            } else {
+                handler.handle(ar.map((Void) null));
+            }
+        });
+    }
+
+    /**
+     * Poll repeatedly, calling --verify (which removes the throttles when the reassignment is complete),
+     * until the given operation is complete, at which point it is removed from the operation store.
+     * The given handler is called when the reassignment is complete, or with a failure if it's not
+     * complete within the configured timeout, in which case we carry on verifying it.
+     * If --verify reports that partitions failed to move we stop, once none is still moving,
+     * as we do if running --verify fails {@value #MAX_VERIFY_ERRORS} times in a row.
+     */
+    private void trackOperation(Operation operation, Handler<AsyncResult<Void>> handler) {
+        final Long periodMs = config.get(Config.REASSIGN_VERIFY_INTERVAL_MS);
+        LOGGER.debug("Verifying reassignment every {} seconds", TimeUnit.SECONDS.convert(periodMs, TimeUnit.MILLISECONDS));
+        vertx.setPeriodic(periodMs, new OperationTracker(operation, handler));
+    }
+
+    /**
+     * Periodically verifies an {@link Operation}, recording its progress in the operation store
+     * and reporting it via the {@link ReassignmentProgressReporter}.
+     * Only accessed on the context.
+     */
+    private class OperationTracker implements Handler<Long> {
+        private final String zookeeper = config.get(Config.ZOOKEEPER_CONNECT);
+        private final long timeout = config.get(Config.REASSIGN_TIMEOUT_MS);
+        private final Handler<AsyncResult<Void>> handler;
+        private Operation operation;
+        private boolean verifying = false;
+        private boolean handled = false;
+        /** The number of consecutive verifications which have failed with an error. */
+        private int errors = 0;
+
+        OperationTracker(Operation operation, Handler<AsyncResult<Void>> handler) {
+            this.operation = operation;
+            this.handler = handler;
+        }
+
+        @Override
+        public void handle(Long timerId) {
+            if (verifying) {
+                // The previous --verify is still running
+                return;
+            }
+            verifying = true;
+            reassignments.<ReassignmentProgress>executeBlocking(fut -> {
+                LOGGER.debug("Verifying reassignment for topics {} (timer id={})", operation.getTopics(), timerId);
+                ReassignmentProgress progress;
+                try {
+                    VerifyLineParser verified = verifyReassignment(operation, zookeeper);
+                    if (verified.failed > 0 && verified.inProgress == 0) {
+                        // Nothing is still moving, so that --verify has removed the throttles
+                        fut.fail(new ControllerException("Reassignment of " + verified.failed + " partitions failed"));
+                        return;
+                    }
+                    progress = new ReassignmentProgress(verified.complete + verified.failed, verified.inProgress);
+                } catch (Exception e) {
+                    fut.fail(e);
+                    return;
+                }
+                if (!progress.isComplete()) {
+                    try {
+                        progress = new ReplicaCatchUp(adminClient, config.get(Config.KAFKA_CALL_TIMEOUT_MS))
+                                .measure(operation, targetReplicas(operation.getReassignment()), progress);
+                    } catch (Exception e) {
+                        // The progress in terms of partitions is still useful
+                        LOGGER.debug("Unable to determine catch-up of new replicas for topics {}", operation.getTopics(), e);
+                    }
+                }
+                fut.complete(progress);
+            },
+                ar -> {
+                    verifying = false;
+                    if (ar.succeeded()) {
+                        errors = 0;
+                        ReassignmentProgress progress = ar.result();
+                        if (progress.isComplete()) {
+                            LOGGER.info("Reassignment complete");
+                            finish(timerId, Future.succeededFuture());
+                        } else {
+                            updateProgress(progress);
+                            progressReporter.progress(operation, progress);
+                            if (!handled && System.currentTimeMillis() - operation.getStartTime() > timeout) {
+                                LOGGER.error("Reassignment timed out, it will continue to be verified until it is complete");
+                                complete(Future.failedFuture("Timeout"));
+                            }
+                        }
+                    } else if (ar.cause() instanceof ControllerException
+                            && !(ar.cause() instanceof TransientControllerException)) {
+                        LOGGER.error("Reassignment of topics {} failed", operation.getTopics(), ar.cause());
+                        finish(timerId, Future.failedFuture(ar.cause()));
+                    } else if (++errors < MAX_VERIFY_ERRORS) {
+                        LOGGER.error("Error while verifying reassignment, will retry", ar.cause());
+                    } else {
+                        LOGGER.error("Giving up verifying reassignment of topics {} after {} consecutive errors, "
+                                + "its throttles may need to be removed by running kafka-reassign-partitions --verify",
+                                operation.getTopics(), errors, ar.cause());
+                        finish(timerId, Future.failedFuture(ar.cause()));
+                    }
+                });
+        }
+
+        /**
+         * Stop verifying the operation, and remove it from the operation store.
+         */
+        private void finish(Long timerId, AsyncResult<Void> result) {
+            LOGGER.debug("Cancelling timer " + timerId);
+            vertx.cancelTimer(timerId);
+            progressReporter.complete(operation);
+            operationStore.delete(operation.getId(), deleteResult -> {
+                if (deleteResult.failed()) {
+                    LOGGER.warn("Error removing operation {} from the operation store", operation, deleteResult.cause());
+                }
+                complete(result);
+            });
+        }
+
+        private void updateProgress(ReassignmentProgress progress) {
+            if (progress.getPartitionsComplete() != operation.getPartitionsComplete()
+                    || progress.getPartitionsInProgress() != operation.getPartitionsInProgress()) {
+                operation = operation.withProgress(progress.getPartitionsComplete(), progress.getPartitionsInProgress());
+                operationStore.update(operation, updateResult -> {
+                    if (updateResult.failed()) {
+                        LOGGER.warn("Error updating progress of {}", operation, updateResult.cause());
+                    }
+                });
+            }
+        }
+
+        private void complete(AsyncResult<Void> result) {
+            if (!handled) {
+                handled = true;
+                handler.handle(result);
+            }
+        }
+    }
+
     private static void delete(File file) {
-        /*if (!file.delete()) {
-            logger.warn("Unable to delete temporary file {}", file);
-        }*/
+        if (file != null && !file.delete()) {
+            LOGGER.warn("Unable to delete temporary file {}", file);
+        }
     }
 
     private static File createTmpFile(String suffix) throws IOException {
@@ -193,19 +349,37 @@ public class ControllerAssignedKafkaImpl extends BaseKafkaImpl {
         if (LOGGER.isTraceEnabled()) {
             LOGGER.trace("Created temporary file {}", tmpFile);
         }
-        /*tmpFile.deleteOnExit();*/
+        tmpFile.deleteOnExit();
         return tmpFile;
     }
 
+    /**
+     * Write the reassignment JSON of the given operation to a new temporary file,
+     * which the caller is responsible for deleting.
+     */
+    private static File createReassignmentJsonFile(Operation operation) throws IOException {
+        File reassignmentJsonFile = createTmpFile("-reassignment.json");
+        try (Writer w = new OutputStreamWriter(new FileOutputStream(reassignmentJsonFile), StandardCharsets.UTF_8)) {
+            w.write(operation.getReassignment());
+        } catch (IOException e) {
+            delete(reassignmentJsonFile);
+            throw e;
+        }
+        return reassignmentJsonFile;
+    }
+
     private static class VerifyLineParser implements Function<String, Void> {
         int complete = 0;
         int inProgress = 0;
+        int failed = 0;
 
         @Override
         public Void apply(String line) {
-            if (line.contains("Partitions reassignment failed due to")
-                    || Pattern.matches("Reassignment of partition .* failed", line)) {
-                throw new ControllerException("Reassigment failed: " + line);
+            if (line.contains("Partitions reassignment failed due to")) {
+                // The tool itself failed, for example to connect to ZooKeeper
+                throw new TransientControllerException("Reassignment verification failed: " + line);
+            } else if (Pattern.matches("Reassignment of partition .* failed", line)) {
+                failed++;
             } else if (Pattern.matches("Reassignment of partition .* completed successfully", line)) {
                 complete++;
             } else if (Pattern.matches("Reassignment of partition .* is still in progress", line)) {
@@ -215,49 +389,63 @@ public class ControllerAssignedKafkaImpl extends BaseKafkaImpl {
         }
     }
 
-    private boolean verifyReassignment(File reassignmentJsonFile, String zookeeper, Long throttle) throws IOException, InterruptedException {
-        List<String> verifyArgs = new ArrayList<>();
-        addJavaArgs(verifyArgs);
-        // command args
-        verifyArgs.add("--zookeeper");
-        verifyArgs.add(zookeeper);
-        if (throttle != null) {
-            verifyArgs.add("--throttle");
-            verifyArgs.add(Long.toString(throttle));
+    private VerifyLineParser verifyReassignment(Operation operation, String zookeeper) throws IOException, InterruptedException {
+        File reassignmentJsonFile = createReassignmentJsonFile(operation);
+        try {
+            List<String> verifyArgs = new ArrayList<>();
+            addJavaArgs(verifyArgs);
+            // command args
+            verifyArgs.add("--zookeeper");
+            verifyArgs.add(zookeeper);
+            if (operation.getThrottle() != null) {
+                verifyArgs.add("--throttle");
+                verifyArgs.add(Long.toString(operation.getThrottle()));
+            }
+            verifyArgs.add("--reassignment-json-file");
+            verifyArgs.add(reassignmentJsonFile.toString());
+            verifyArgs.add("--verify");
+            VerifyLineParser verifyLineParser = new VerifyLineParser();
+            try (ProcessResult processResult = executeSubprocess(verifyArgs)) {
+                processResult.forEachLineStdout(verifyLineParser);
+            }
+            return verifyLineParser;
+        } finally {
+            delete(reassignmentJsonFile);
         }
-        verifyArgs.add("--reassignment-json-file");
-        verifyArgs.add(reassignmentJsonFile.toString());
-        verifyArgs.add("--verify");
-        VerifyLineParser verifyLineParser = new VerifyLineParser();
-        executeSubprocess(verifyArgs).forEachLineStdout(verifyLineParser);
-        return verifyLineParser.inProgress == 0;
     }
 
-    private void executeReassignment(File reassignmentJsonFile, String zookeeper, Long throttle) throws IOException, InterruptedException {
-        List<String> executeArgs = new ArrayList<>();
-        addJavaArgs(executeArgs);
-        executeArgs.add("--zookeeper");
-        executeArgs.add(zookeeper);
-        if (throttle != null) {
-            executeArgs.add("--throttle");
-            executeArgs.add(Long.toString(throttle));
-        }
-        executeArgs.add("--reassignment-json-file");
-        executeArgs.add(reassignmentJsonFile.toString());
-        executeArgs.add("--execute");
-
-        if (!executeSubprocess(executeArgs).forEachLineStdout(line -> {
-            if (line.contains("Partitions reassignment failed due to")
-                    || line.contains("There is an existing assignment running")
-                    || line.contains("Failed to reassign partitions")) {
-                throw new TransientControllerException("Reassigment failed: " + line);
-            } else if (line.contains("Successfully started reassignment of partitions.")) {
-                return true;
-            } else {
-                return null;
+    private void executeReassignment(Operation operation, String zookeeper) throws IOException, InterruptedException {
+        File reassignmentJsonFile = createReassignmentJsonFile(operation);
+        try {
+            List<String> executeArgs = new ArrayList<>();
+            addJavaArgs(executeArgs);
+            executeArgs.add("--zookeeper");
+            executeArgs.add(zookeeper);
+            if (operation.getThrottle() != null) {
+                executeArgs.add("--throttle");
+                executeArgs.add(Long.toString(operation.getThrottle()));
             }
-        })) {
-            throw new TransientControllerException("Reassignment execution neither failed nor finished");
+            executeArgs.add("--reassignment-json-file");
+            executeArgs.add(reassignmentJsonFile.toString());
+            executeArgs.add("--execute");
+
+            try (ProcessResult processResult = executeSubprocess(executeArgs)) {
+                if (!processResult.forEachLineStdout(line -> {
+                    if (line.contains("Partitions reassignment failed due to")
+                            || line.contains("There is an existing assignment running")
+                            || line.contains("Failed to reassign partitions")) {
+                        throw new TransientControllerException("Reassigment failed: " + line);
+                    } else if (line.contains("Successfully started reassignment of partitions.")) {
+                        return true;
+                    } else {
+                        return null;
+                    }
+                })) {
+                    throw new TransientControllerException("Reassignment execution neither failed nor finished");
+                }
+            }
+        } finally {
+            delete(reassignmentJsonFile);
         }
     }
 
@@ -287,13 +475,27 @@ public class ControllerAssignedKafkaImpl extends BaseKafkaImpl {
         executeArgs.add(brokerList());
         executeArgs.add("--generate");
 
-        final ProcessResult processResult = executeSubprocess(executeArgs);
-        delete(topicsToMove);
-        String json = processResult.forEachLineStdout(new ReassignmentLineParser());
-        return json;
+        try (ProcessResult processResult = executeSubprocess(executeArgs)) {
+            return processResult.forEachLineStdout(new ReassignmentLineParser());
+        } finally {
+            delete(topicsToMove);
+        }
 
     }
 
+    /** Parse the given reassignment JSON, returning the target replicas of each partition */
+    @SuppressWarnings("unchecked")
+    static Map<TopicPartition, List<Integer>> targetReplicas(String reassignment) throws IOException {
+        Map<String, Object> root = new ObjectMapper().readValue(reassignment, Map.class);
+        List<Map<String, Object>> partitions = (List<Map<String, Object>>) root.getOrDefault("partitions", Collections.emptyList());
+        Map<TopicPartition, List<Integer>> result = new HashMap<>(partitions.size());
+        for (Map<String, Object> partition : partitions) {
+            result.put(new TopicPartition((String) partition.get("topic"), ((Number) partition.get("partition")).intValue()),
+                    (List<Integer>) partition.get("replicas"));
+        }
+        return result;
+    }
+
     /** Use the AdminClient to get a comma-separated list of the broker ids in the Kafka cluster */
     private String brokerList() throws InterruptedException, ExecutionException {
         StringBuilder sb = new StringBuilder();
@@ -329,21 +531,39 @@ public class ControllerAssignedKafkaImpl extends BaseKafkaImpl {
             throw new ControllerException("Command " + verifyArgs + " lacks an executable arg[0]");
         }
 
+        long timeoutMs = config.get(Config.REASSIGN_COMMAND_TIMEOUT_MS);
         ProcessBuilder pb = new ProcessBuilder(verifyArgs);
-        // If we redirect stderr to stdout we could break the predicates because the
-        // characters will be jumbled.
-        // Reading two pipes without deadlocking on the blocking is difficult, so let's just write stderr to a file.
-        File stdout = createTmpFile(".out");
-        File stderr = createTmpFile(".err");
-        pb.redirectError(stderr);
-        pb.redirectOutput(stdout);
-        Process p = pb.start();
-        LOGGER.info("Started process {} with command line {}", p, verifyArgs);
-        p.getOutputStream().close();
-        int exitCode = p.waitFor();
-        // TODO timeout on wait
-        LOGGER.info("Process {}: exited with status {}", p, exitCode);
-        return new ProcessResult(p, stdout, stderr);
+        File stdout = null;
+        File stderr = null;
+        Process p = null;
+        boolean exited = false;
+        try {
+            // If we redirect stderr to stdout we could break the predicates because the
+            // characters will be jumbled.
+            // Reading two pipes without deadlocking on the blocking is difficult, so let's just write stderr to a file.
+            stdout = createTmpFile(".out");
+            stderr = createTmpFile(".err");
+            pb.redirectError(stderr);
+            pb.redirectOutput(stdout);
+            p = pb.start();
+            LOGGER.info("Started process {} with command line {}", p, verifyArgs);
+            p.getOutputStream().close();
+            if (!p.waitFor(timeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new TransientControllerException("Process " + p + " did not exit within " + timeoutMs + "ms");
+            }
+            exited = true;
+            LOGGER.info("Process {}: exited with status {}", p, p.exitValue());
+            return new ProcessResult(p, stdout, stderr);
+        } finally {
+            if (!exited) {
+                // It timed out, or couldn't be started or waited for: kill it, and remove its output
+                if (p != null) {
+                    p.destroyForcibly();
+                }
+                delete(stdout);
+                delete(stderr);
+            }
+        }
     }
 
 
@@ -382,7 +602,7 @@ public class ControllerAssignedKafkaImpl extends BaseKafkaImpl {
         }
 
         @Override
-        public void close() throws Exception {
+        public void close() {
             delete(stdout);
             delete(stderr);
         }
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.fabric8.kubernetes.api.model.ConfigMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A compact snapshot of the topic ConfigMaps as of the end of a full reconciliation, which lets a restarted controller
+ * avoid reconciling the topics which haven't changed while it was down.
+ *
+ * <p>The snapshot holds the content hash of each topic's ConfigMap and the resourceVersion of the list of ConfigMaps,
+ * from which the ConfigMap watch can be resumed. Once {@linkplain ZkSnapshotStore stored} it also has the ZooKeeper
+ * zxid at which it was written: a topic whose znodes haven't been modified since then, and whose ConfigMap still has the
+ * same hash, was reconciled by that full reconciliation and hasn't changed since.</p>
+ */
+public class ControllerSnapshot {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(ControllerSnapshot.class);
+
+    private static final int VERSION = 1;
+    private static final String JSON_KEY_VERSION = "version";
+    private static final String JSON_KEY_RESOURCE_VERSION = "resource-version";
+    private static final String JSON_KEY_TOPICS = "topics";
+
+    private final String resourceVersion;
+    private final Map<String, Long> hashes;
+    private final long zxid;
+
+    ControllerSnapshot(String resourceVersion, Map<String, Long> hashes, long zxid) {
+        this.resourceVersion = resourceVersion;
+        this.hashes = hashes;
+        this.zxid = zxid;
+    }
+
+    /**
+     * @return A snapshot of the given topic ConfigMaps, which were listed at the given resourceVersion,
+     * ignoring those which are invalid or for topics which don't pass the given filter.
+     */
+    public static ControllerSnapshot of(String resourceVersion, Collection<ConfigMap> cms, Predicate<String> topicFilter) {
+        Map<String, Long> hashes = new HashMap<>(cms.size());
+        for (ConfigMap cm : cms) {
+            try {
+                Topic topic = TopicSerialization.fromConfigMap(cm);
+                String topicName = topic.getTopicName().toString();
+                if (topicFilter.test(topicName)) {
+                    hashes.put(topicName, topic.getContentHash());
+                }
+            } catch (InvalidConfigMapException e) {
+                LOGGER.debug("Omitting invalid ConfigMap {} from snapshot", cm.getMetadata().getName());
+            }
+        }
+        return new ControllerSnapshot(resourceVersion, hashes, -1);
+    }
+
+    /**
+     * @return The resourceVersion at which the ConfigMaps were listed.
+     */
+    public String getResourceVersion() {
+        return resourceVersion;
+    }
+
+    /**
+     * @return The zxid at which the snapshot was stored, or -1 if it has not been stored.
+     */
+    public long getZxid() {
+        return zxid;
+    }
+
+    /**
+     * @return The number of topics in the snapshot.
+     */
+    public int size() {
+        return hashes.size();
+    }
+
+    /**
+     * @return true if the given ConfigMap is valid, and has the same content hash as when the snapshot was taken.
+     */
+    public boolean unchanged(ConfigMap cm) {
+        try {
+            Topic topic = TopicSerialization.fromConfigMap(cm);
+            Long hash = hashes.get(topic.getTopicName().toString());
+            return hash != null && hash == topic.getContentHash();
+        } catch (InvalidConfigMapException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return The gzipped JSON representation of this snapshot.
+     */
+    public byte[] toBytes() {
+        ObjectMapper mapper = new ObjectMapper();
+        ObjectNode root = mapper.createObjectNode();
+        root.put(JSON_KEY_VERSION, VERSION);
+        root.put(JSON_KEY_RESOURCE_VERSION, resourceVersion);
+        ObjectNode topics = root.putObject(JSON_KEY_TOPICS);
+        for (Map.Entry<String, Long> entry : hashes.entrySet()) {
+            topics.put(entry.getKey(), String.format("%016x", entry.getValue()));
+        }
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(baos)) {
+            mapper.writeValue(out, root);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return baos.toByteArray();
+    }
+
+    /**
+     * @return The snapshot represented by the given bytes (as returned by {@link #toBytes()}) which was stored at the given zxid,
+     * or null if the bytes are in an unknown format.
+     */
+    public static ControllerSnapshot fromBytes(byte[] bytes, long zxid) {
+        JsonNode root;
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            root = new ObjectMapper().readTree(in);
+        } catch (IOException e) {
+            LOGGER.warn("Ignoring snapshot which could not be read", e);
+            return null;
+        }
+        if (root.path(JSON_KEY_VERSION).asInt() != VERSION) {
+            LOGGER.warn("Ignoring snapshot with unknown version {}", root.path(JSON_KEY_VERSION));
+            return null;
+        }
+        JsonNode topics = root.path(JSON_KEY_TOPICS);
+        Map<String, Long> hashes = new HashMap<>(topics.size());
+        for (Iterator<Map.Entry<String, JsonNode>> it = topics.fields(); it.hasNext();) {
+            Map.Entry<String, JsonNode> entry = it.next();
+            hashes.put(entry.getKey(), Long.parseUnsignedLong(entry.getValue().asText(), 16));
+        }
+        JsonNode resourceVersion = root.path(JSON_KEY_RESOURCE_VERSION);
+        return new ControllerSnapshot(resourceVersion.isTextual() ? resourceVersion.asText() : null, hashes, zxid);
+    }
+
+    @Override
+    public String toString() {
+        return "ControllerSnapshot(topics=" + hashes.size() + ", resourceVersion=" + resourceVersion + ", zxid=" + zxid + ")";
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Measures how long it takes from when the controller is notified of a change, by a ConfigMap watch event
+ * or a ZooKeeper watch, until the topic has converged, meaning the reconciliation it triggered has completed,
+ * so the topic in Kafka, its ConfigMap and the topic store agree.
+ *
+ * <p>The latencies are observed in the {@code convergence_seconds} histogram, labelled with the {@code event},
+ * and the most recent {@value #RECENT} are kept so the slowest of them can be {@linkplain #describeSlowest() described}.</p>
+ */
+class ConvergenceTracker {
+
+    /** The number of most recent convergences which are kept. */
+    static final int RECENT = 256;
+
+    /** The number of the slowest recent convergences which are described. */
+    static final int SLOWEST = 20;
+
+    /** A completed convergence. */
+    private static class Convergence {
+        private final String event;
+        private final TopicName topicName;
+        private final String resourceVersion;
+        private final long receivedMs;
+        private final double seconds;
+
+        Convergence(String event, TopicName topicName, String resourceVersion, long receivedMs, double seconds) {
+            this.event = event;
+            this.topicName = topicName;
+            this.resourceVersion = resourceVersion;
+            this.receivedMs = receivedMs;
+            this.seconds = seconds;
+        }
+
+        JsonObject toJson() {
+            JsonObject json = new JsonObject()
+                    .put("topic", topicName.toString())
+                    .put("event", event)
+                    .put("received", Instant.ofEpochMilli(receivedMs).toString())
+                    .put("seconds", seconds);
+            if (resourceVersion != null) {
+                json.put("resourceVersion", resourceVersion);
+            }
+            return json;
+        }
+    }
+
+    private final Metrics metrics;
+
+    // Both guarded by this
+    private final Convergence[] recent = new Convergence[RECENT];
+    private long converged = 0;
+
+    ConvergenceTracker(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Stamp the given event as received now, and wrap the handler of the result of its reconciliation
+     * so the latency is recorded when it completes.
+     * @param event The kind of event, for example {@code configmap_modified} or {@code topic_config_changed}.
+     * @param topicName The topic.
+     * @param resourceVersion The resourceVersion of the ConfigMap for ConfigMap events, otherwise null.
+     * @param handler The handler of the result of the reconciliation.
+     * @return The wrapped handler.
+     */
+    Handler<AsyncResult<Void>> track(String event, TopicName topicName, String resourceVersion,
+                                     Handler<AsyncResult<Void>> handler) {
+        long receivedMs = System.currentTimeMillis();
+        long received = System.nanoTime();
+        return ar -> {
+            double seconds = (System.nanoTime() - received) / 1e9;
+            if (ar.succeeded()) {
+                metrics.histogram("convergence_seconds",
+                        "The time from when the controller is notified of a change until Kafka, the ConfigMap and the topic store agree",
+                        Metrics.DEFAULT_SECONDS_BUCKETS, "event", event).observe(seconds);
+                add(new Convergence(event, topicName, resourceVersion, receivedMs, seconds));
+            } else {
+                metrics.counter("convergence_failures_total",
+                        "The number of changes whose reconciliation failed, so they didn't converge until a later reconciliation",
+                        "event", event).increment();
+            }
+            handler.handle(ar);
+        };
+    }
+
+    private synchronized void add(Convergence convergence) {
+        recent[(int) (converged++ % RECENT)] = convergence;
+    }
+
+    /**
+     * @return A JSON array of the slowest of the recent convergences, slowest first.
+     */
+    JsonArray describeSlowest() {
+        List<Convergence> convergences = new ArrayList<>(RECENT);
+        synchronized (this) {
+            for (Convergence convergence : recent) {
+                if (convergence != null) {
+                    convergences.add(convergence);
+                }
+            }
+        }
+        convergences.sort(Comparator.comparingDouble((Convergence c) -> c.seconds).reversed());
+        JsonArray result = new JsonArray();
+        for (Convergence convergence : convergences.subList(0, Math.min(SLOWEST, convergences.size()))) {
+            result.add(convergence.toJson());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonArray;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A bounded queue between the watchers and the {@link Controller}, so that a flood of watch events
+ * (for example when thousands of ConfigMaps are changed at once) can't exhaust the heap with queued reconciliations.
+ *
+ * <ul>
+ *     <li>At most {@code maxInFlight} events are handed over to the controller at once,
+ *     and at most {@code capacity} more are queued.</li>
+ *     <li>When the queue is full further events are dropped, and their topics marked dirty.</li>
+ *     <li>Dirty topics are resynced (reconciled as a whole, reading their current state) ahead of the queued events.
+ *     An event about a topic which is already dirty is dropped, since the resync covers it.</li>
+ *     <li>A topic's resync waits until its own queued events have been handed over, since they can hold
+ *     an older state of the topic (such as the ConfigMap of an old modification) which would otherwise
+ *     undo the resync.</li>
+ * </ul>
+ *
+ * <p>So the memory used is bounded by the capacity and the number of topics, however many events there are.
+ * The depth of the queue, the number of dirty topics and the number of dropped events are reported as {@link Metrics}.
+ * The time each event takes to converge, from when it's received, is measured by a {@link ConvergenceTracker}.
+ * All the methods of this class are thread safe.</p>
+ */
+class EventIntake {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(EventIntake.class);
+
+    /** Reconciles a topic as a whole. */
+    interface Resync {
+        /**
+         * @param mapName The name of the topic's ConfigMap, if a dropped event was about a ConfigMap, otherwise null.
+         */
+        void resync(TopicName topicName, MapName mapName, Handler<AsyncResult<Void>> handler);
+    }
+
+    private static class Event {
+        private final TopicName topicName;
+        private final MapName mapName;
+        private final Handler<Future<Void>> delivery;
+
+        Event(TopicName topicName, MapName mapName, Handler<Future<Void>> delivery) {
+            this.topicName = topicName;
+            this.mapName = mapName;
+            this.delivery = delivery;
+        }
+    }
+
+    private final int capacity;
+    private final int maxInFlight;
+    private final Resync resync;
+    private final ArrayDeque<Event> queue = new ArrayDeque<>();
+    /** The dirty topics, in the order they were marked, with the name of their ConfigMap, if known. */
+    private final LinkedHashMap<TopicName, MapName> dirty = new LinkedHashMap<>();
+    /** The number of queued events about each topic which has any. */
+    private final Map<TopicName, Integer> queuedPerTopic = new HashMap<>();
+    private final Metrics.Counter overflows;
+    private final Metrics.Counter coalesced;
+    private final ConvergenceTracker convergence;
+    private int inFlight = 0;
+    private boolean closed = false;
+
+    EventIntake(int capacity, int maxInFlight, Resync resync, Metrics metrics) {
+        this.capacity = capacity;
+        this.maxInFlight = maxInFlight;
+        this.resync = resync;
+        this.convergence = new ConvergenceTracker(metrics);
+        this.overflows = metrics.counter("event_queue_overflow_total",
+                "The number of watch events dropped because the event queue was full, whose topics were resynced instead");
+        this.coalesced = metrics.counter("event_queue_coalesced_total",
+                "The number of watch events dropped because their topic was already awaiting a resync");
+        metrics.gauge("event_queue_depth", "The number of watch events queued for the controller")
+                .setSupplier(this::queued);
+        metrics.gauge("event_queue_dirty_topics", "The number of topics awaiting a resync because their watch events were dropped")
+                .setSupplier(this::dirty);
+    }
+
+    /**
+     * Stamp the given event as received now, and wrap the handler of the result of its reconciliation
+     * so the time it takes to converge is recorded when it completes.
+     * @see ConvergenceTracker#track(String, TopicName, String, Handler)
+     */
+    Handler<AsyncResult<Void>> track(String event, TopicName topicName, String resourceVersion,
+                                     Handler<AsyncResult<Void>> handler) {
+        return convergence.track(event, topicName, resourceVersion, handler);
+    }
+
+    /**
+     * @return A JSON array of the slowest of the recent convergences, slowest first.
+     */
+    JsonArray describeSlowestConvergences() {
+        return convergence.describeSlowest();
+    }
+
+    /**
+     * Hand the given event over to the controller, now or once there's room, or, if the queue is full, drop it
+     * and mark its topic dirty.
+     * @param mapName The name of the ConfigMap the event is about, or null if it's not about a ConfigMap.
+     * @param delivery Hands the event over to the controller, completing its argument future once it has been handled.
+     * @return Whether the event was accepted. If it wasn't the delivery is never run.
+     */
+    boolean offer(TopicName topicName, MapName mapName, Handler<Future<Void>> delivery) {
+        List<Runnable> jobs;
+        synchronized (this) {
+            if (closed) {
+                // Handed over by the next close()
+                dirty.putIfAbsent(topicName, mapName);
+                return false;
+            } else if (dirty.containsKey(topicName)) {
+                if (mapName != null) {
+                    dirty.put(topicName, mapName);
+                }
+                coalesced.increment();
+                return false;
+            } else if (queue.size() >= capacity) {
+                LOGGER.debug("Event queue full, marking topic {} dirty", topicName);
+                dirty.put(topicName, mapName);
+                overflows.increment();
+                return false;
+            }
+            queue.add(new Event(topicName, mapName, delivery));
+            queuedPerTopic.merge(topicName, 1, Integer::sum);
+            jobs = next();
+        }
+        run(jobs);
+        return true;
+    }
+
+    /**
+     * Take the next jobs to run while there's room, the resyncs of dirty topics first. Must be called holding the lock.
+     */
+    private List<Runnable> next() {
+        List<Runnable> jobs = new ArrayList<>();
+        while (!closed && inFlight < maxInFlight) {
+            TopicName topicName = nextResync();
+            if (topicName != null) {
+                MapName mapName = dirty.remove(topicName);
+                jobs.add(job(topicName, fut -> resync.resync(topicName, mapName, ar -> {
+                    if (ar.failed()) {
+                        // The next full reconciliation will find it
+                        LOGGER.warn("Error resyncing topic {}", topicName, ar.cause());
+                    }
+                    fut.handle(ar);
+                })));
+            } else if (!queue.isEmpty()) {
+                Event event = queue.poll();
+                queuedPerTopic.computeIfPresent(event.topicName, (name, count) -> count > 1 ? count - 1 : null);
+                jobs.add(job(event.topicName, event.delivery));
+            } else {
+                break;
+            }
+            inFlight++;
+        }
+        return jobs;
+    }
+
+    /**
+     * @return The first dirty topic without queued events, which can be resynced now, or null if there is none.
+     * Must be called holding the lock.
+     */
+    private TopicName nextResync() {
+        for (TopicName topicName : dirty.keySet()) {
+            if (!queuedPerTopic.containsKey(topicName)) {
+                return topicName;
+            }
+        }
+        return null;
+    }
+
+    private Runnable job(TopicName topicName, Handler<Future<Void>> action) {
+        Future<Void> fut = Future.future();
+        fut.setHandler(ar -> completed());
+        return () -> {
+            try {
+                action.handle(fut);
+            } catch (Throwable t) {
+                LOGGER.error("Error handling event about topic {}", topicName, t);
+                fut.tryFail(t);
+            }
+        };
+    }
+
+    private void completed() {
+        List<Runnable> jobs;
+        synchronized (this) {
+            inFlight--;
+            jobs = next();
+        }
+        run(jobs);
+    }
+
+    private static void run(List<Runnable> jobs) {
+        for (Runnable job : jobs) {
+            job.run();
+        }
+    }
+
+    /**
+     * Stop handing events over to the controller, for shutdown.
+     * The events already handed over are left to complete, but the rest are dropped,
+     * as are any offered from now on, to be handed over by a later call.
+     * @return The topics of the events dropped since the last call, and the dirty topics,
+     * with the name of their ConfigMap, if known.
+     */
+    synchronized Map<TopicName, MapName> close() {
+        closed = true;
+        Map<TopicName, MapName> pending = new LinkedHashMap<>(dirty);
+        for (Event event : queue) {
+            if (pending.get(event.topicName) == null) {
+                pending.put(event.topicName, event.mapName);
+            }
+        }
+        dirty.clear();
+        queue.clear();
+        queuedPerTopic.clear();
+        return pending;
+    }
+
+    synchronized int queued() {
+        return queue.size();
+    }
+
+    synchronized int dirty() {
+        return dirty.size();
+    }
+
+    /**
+     * The number of events queued or being handled, and topics awaiting a resync.
+     */
+    synchronized int size() {
+        return queue.size() + inFlight + dirty.size();
+    }
+}
@@ -0,0 +1,389 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import io.fabric8.kubernetes.api.model.ConfigMap;
+import io.fabric8.kubernetes.api.model.ConfigMapList;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.strimzi.controller.topic.zk.Zk;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Runs the full reconciliations of a {@link Session}: of all the topics in Kafka and all the topic ConfigMaps,
+ * and of whatever the {@linkplain BackgroundTask background tasks} manage.
+ * Each is scheduled after the {@linkplain FullReconciliationInterval interval} implied by the drift found so far,
+ * and when it has completed a {@link ControllerSnapshot} is stored, for a warm restart.
+ */
+class FullReconciler {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(FullReconciler.class);
+
+    private final Vertx vertx;
+    private final Config config;
+    private final KubernetesClient kubeClient;
+    private final Controller controller;
+    private final Kafka topicKafka;
+    private final K8s k8s;
+    private final Predicate<String> topicFilter;
+    private final TopicTemplates topicTemplates;
+    private final Predicate<String> managedTopics;
+    private final PriorityScheduler scheduler;
+    private final ZkSnapshotStore snapshotStore;
+    private final TopicStoreSweeper topicStoreSweeper;
+    private final List<BackgroundTask> backgroundTasks;
+    private final FullReconciliationInterval fullReconciliationInterval;
+    // Guarded by this
+    private long fullReconciliationTimerId = -1;
+    // Guarded by this
+    private long nextFullReconciliation;
+    // Guarded by this
+    private boolean stopped = false;
+
+    /**
+     * @param topicKafka The Kafka used for topics.
+     * @param topicFilter The topics this controller manages, whether individually or through a template.
+     * @param topicStoreSweeper The sweeper of orphans from the private topic store, after each full reconciliation.
+     * @param backgroundTasks The tasks whose {@link BackgroundTask#reconcileAll(Handler)} is part of each full reconciliation.
+     */
+    FullReconciler(Vertx vertx, Config config, KubernetesClient kubeClient, Controller controller, Kafka topicKafka, K8s k8s,
+                   Predicate<String> topicFilter, TopicTemplates topicTemplates, PriorityScheduler scheduler, Zk zk,
+                   TopicStoreSweeper topicStoreSweeper, List<BackgroundTask> backgroundTasks, Metrics metrics) {
+        this.vertx = vertx;
+        this.config = config;
+        this.kubeClient = kubeClient;
+        this.controller = controller;
+        this.topicKafka = topicKafka;
+        this.k8s = k8s;
+        this.topicFilter = topicFilter;
+        this.topicTemplates = topicTemplates;
+        this.managedTopics = topicTemplates.individuallyManaged();
+        this.scheduler = scheduler;
+        this.snapshotStore = new ZkSnapshotStore(zk);
+        this.topicStoreSweeper = topicStoreSweeper;
+        this.backgroundTasks = backgroundTasks;
+        this.fullReconciliationInterval = new FullReconciliationInterval(config.get(Config.FULL_RECONCILIATION_MIN_INTERVAL_MS),
+                config.get(Config.FULL_RECONCILIATION_INTERVAL_MS), metrics);
+    }
+
+    /**
+     * Start with an initial full reconciliation, and periodically after that.
+     * If a snapshot is given, topics which haven't changed since it was stored aren't reconciled initially.
+     */
+    void start(ControllerSnapshot snapshot) {
+        fullReconciliation("initial", snapshot);
+    }
+
+    /**
+     * Stop scheduling full reconciliations. One in progress runs to completion.
+     */
+    synchronized void stop() {
+        stopped = true;
+        if (fullReconciliationTimerId != -1) {
+            vertx.cancelTimer(fullReconciliationTimerId);
+        }
+    }
+
+    /**
+     * Load the snapshot stored by the last full reconciliation, calling the given handler with null if there is none,
+     * or if warm restarts are disabled.
+     */
+    void loadSnapshot(Handler<ControllerSnapshot> handler) {
+        if (!config.get(Config.WARM_RESTART)) {
+            handler.handle(null);
+            return;
+        }
+        snapshotStore.load(ar -> {
+            if (ar.failed()) {
+                LOGGER.warn("Unable to load the snapshot, so all topics will be reconciled", ar.cause());
+                handler.handle(null);
+            } else {
+                handler.handle(ar.result());
+            }
+        });
+    }
+
+    /**
+     * Store a snapshot of the topic ConfigMaps, for a warm restart.
+     */
+    private void saveSnapshot() {
+        LabelPredicate cmPredicate = config.get(Config.LABELS);
+        String namespace = config.get(Config.NAMESPACE);
+        vertx.<ControllerSnapshot>executeBlocking(future -> {
+            try {
+                ConfigMapList list = kubeClient.configMaps().inNamespace(namespace).withLabels(cmPredicate.labels()).list();
+                future.complete(ControllerSnapshot.of(list.getMetadata().getResourceVersion(), list.getItems(), managedTopics));
+            } catch (Exception e) {
+                future.fail(e);
+            }
+        }, ar -> {
+                if (ar.succeeded()) {
+                    snapshotStore.save(ar.result(), saveResult -> {
+                        if (saveResult.failed()) {
+                            LOGGER.error("Error saving snapshot", saveResult.cause());
+                        }
+                    });
+                } else {
+                    LOGGER.error("Unable to list ConfigMaps for the snapshot", ar.cause());
+                }
+            });
+    }
+
+    /**
+     * Run a full reconciliation, and when it has completed store a {@link ControllerSnapshot} and schedule the next one
+     * after the {@linkplain FullReconciliationInterval interval} implied by the drift it found.
+     * If a snapshot is given, topics which haven't changed since it was stored aren't reconciled.
+     */
+    private void fullReconciliation(String reconciliationType, ControllerSnapshot snapshot) {
+        fullReconciliationInterval.started();
+        for (BackgroundTask task : backgroundTasks) {
+            task.reconcileAll(ar -> {
+                if (ar.failed()) {
+                    LOGGER.error("Error performing {} full reconciliation of {}", reconciliationType, task, ar.cause());
+                }
+            });
+        }
+        reconcileTopics(reconciliationType, snapshot, ar -> {
+            long delayMs;
+            if (ar.succeeded()) {
+                delayMs = fullReconciliationInterval.completed(ar.result());
+                saveSnapshot();
+            } else {
+                delayMs = fullReconciliationInterval.current();
+            }
+            scheduleFullReconciliation(delayMs);
+        });
+    }
+
+    private synchronized void scheduleFullReconciliation(long delayMs) {
+        if (stopped) {
+            return;
+        }
+        if (fullReconciliationTimerId != -1) {
+            vertx.cancelTimer(fullReconciliationTimerId);
+        }
+        LOGGER.info("Next full reconciliation in {}ms", delayMs);
+        nextFullReconciliation = System.currentTimeMillis() + delayMs;
+        fullReconciliationTimerId = vertx.setTimer(delayMs, timerId -> {
+            synchronized (FullReconciler.this) {
+                if (fullReconciliationTimerId != timerId) {
+                    // Rescheduled
+                    return;
+                }
+                fullReconciliationTimerId = -1;
+            }
+            fullReconciliation("periodic", null);
+        });
+    }
+
+    /**
+     * Bring the next full reconciliation forward after drift has been detected outside of a full reconciliation.
+     */
+    synchronized void drift(String source) {
+        long delayMs = fullReconciliationInterval.drift(source);
+        // While a full reconciliation is in progress there's no timer: the next is scheduled when it completes
+        if (fullReconciliationTimerId != -1 && nextFullReconciliation - System.currentTimeMillis() > delayMs) {
+            scheduleFullReconciliation(delayMs);
+        }
+    }
+
+    /**
+     * List the template ConfigMaps.
+     */
+    void listTemplates(Handler<AsyncResult<List<ConfigMap>>> handler) {
+        LabelPredicate templatePredicate = config.get(Config.TEMPLATE_LABELS);
+        String namespace = config.get(Config.NAMESPACE);
+        vertx.executeBlocking(future -> {
+            try {
+                future.complete(kubeClient.configMaps().inNamespace(namespace).withLabels(templatePredicate.labels()).list().getItems());
+            } catch (Exception e) {
+                future.fail(e);
+            }
+        }, handler);
+    }
+
+    void reconcileTopics(String reconciliationType) {
+        reconcileTopics(reconciliationType, null, ar -> { });
+    }
+
+    /**
+     * Reconcile all the topics in Kafka and all the topic ConfigMaps, and when all the reconciliations have completed,
+     * call the given handler with the number of topics which had drifted.
+     * If a snapshot is given, topics which haven't changed since it was stored aren't reconciled.
+     */
+    private void reconcileTopics(String reconciliationType, ControllerSnapshot snapshot, Handler<AsyncResult<Integer>> handler) {
+        LOGGER.info("Starting {} reconciliation", reconciliationType);
+        // Refresh the templates first, so we know which topics they manage
+        listTemplates(templatesResult -> {
+            if (templatesResult.succeeded()) {
+                topicTemplates.replaceAll(templatesResult.result());
+            } else {
+                LOGGER.error("Unable to list template ConfigMaps, using the templates from earlier", templatesResult.cause());
+            }
+            topicKafka.listTopics(arx -> {
+                if (arx.succeeded()) {
+                    Set<String> kafkaTopics = arx.result().stream().filter(topicFilter).collect(Collectors.toSet());
+                    // Topics which match a template are reconciled in one batch
+                    topicTemplates.apply(kafkaTopics, applyResult -> {
+                        if (applyResult.succeeded()) {
+                            LOGGER.info("Success {} applying templates", reconciliationType);
+                        } else {
+                            LOGGER.error("Error {} applying templates", reconciliationType, applyResult.cause());
+                        }
+                    });
+                    k8s.listMaps(ar -> {
+                        Map<String, ConfigMap> configMaps = new HashMap<>();
+                        Set<String> liveTopics = new HashSet<>(kafkaTopics);
+                        if (ar.succeeded()) {
+                            for (ConfigMap cm : ar.result()) {
+                                configMaps.put(cm.getMetadata().getName(), cm);
+                                liveTopics.add(new TopicName(cm).toString());
+                            }
+                        } else {
+                            LOGGER.error("Unable to list ConfigMaps", ar.cause());
+                        }
+                        reconcileTopicsAndMaps(reconciliationType, snapshot, kafkaTopics, configMaps, reconcileResult -> {
+                            // Without the ConfigMaps we can't tell which entries in the private store are orphans
+                            if (ar.succeeded()) {
+                                sweepTopicStore(liveTopics);
+                            }
+                            handler.handle(reconcileResult);
+                        });
+                    });
+                } else {
+                    LOGGER.error("Error performing {} reconciliation", reconciliationType, arx.cause());
+                    handler.handle(Future.failedFuture(arx.cause()));
+                }
+            });
+        });
+    }
+
+    private void reconcileTopicsAndMaps(String reconciliationType, ControllerSnapshot snapshot,
+                                        Set<String> kafkaTopics, Map<String, ConfigMap> configMaps,
+                                        Handler<AsyncResult<Integer>> handler) {
+        AtomicInteger drifted = new AtomicInteger();
+        AtomicInteger unchanged = new AtomicInteger();
+        List<Future> reconciliations = new ArrayList<>();
+        LOGGER.debug("Reconciling kafka topics {}", kafkaTopics);
+        // First reconcile the topics in kafka
+        for (String name : kafkaTopics) {
+            if (topicTemplates.matches(name)) {
+                continue;
+            }
+            LOGGER.debug("{} reconciliation of topic {}", reconciliationType, name);
+            TopicName topicName = new TopicName(name);
+            ConfigMap cm = configMaps.get(topicName.asMapName().toString());
+            if (snapshot != null && cm != null && snapshot.unchanged(cm)) {
+                reconciliations.add(reconcileIfChangedInKafka(reconciliationType, snapshot, topicName, drifted, unchanged));
+            } else {
+                reconciliations.add(submitReconciliation(reconciliationType, topicName, drifted));
+            }
+        }
+
+        // Then those in k8s which aren't in kafka
+        for (ConfigMap cm : configMaps.values()) {
+            TopicTemplate template = topicTemplates.shadowing(new TopicName(cm).toString());
+            if (template != null) {
+                controller.reportShadowedConfigMap(cm, template.getMapName().toString());
+            }
+        }
+        configMaps.keySet().removeAll(kafkaTopics);
+        configMaps.values().removeIf(cm -> !managedTopics.test(new TopicName(cm).toString()));
+        LOGGER.debug("Reconciling configmaps: {}", configMaps.keySet());
+        for (ConfigMap cm : configMaps.values()) {
+            LOGGER.debug("{} reconciliation of configmap {}", reconciliationType, cm.getMetadata().getName());
+            TopicName topicName = new TopicName(cm);
+            Future<Void> reconciliation = Future.future();
+            reconciliations.add(reconciliation);
+            scheduler.submit(PriorityScheduler.Lane.BACKGROUND,
+                fut -> reconcile(reconciliationType, cm, topicName, drifted, fut),
+                reconciliation.completer());
+        }
+
+        CompositeFuture.all(reconciliations).setHandler(all -> {
+            LOGGER.info("Completed {} reconciliation of {} topics, {} had drifted, {} were unchanged since the snapshot",
+                    reconciliationType, reconciliations.size(), drifted.get(), unchanged.get());
+            handler.handle(Future.succeededFuture(drifted.get()));
+        });
+    }
+
+    /**
+     * Finally remove the entries in the private store for topics which are in neither Kafka nor k8s.
+     * This is done in the background, without holding up the completion of the full reconciliation.
+     */
+    private void sweepTopicStore(Set<String> liveTopics) {
+        topicStoreSweeper.sweep(liveTopics, ar -> {
+            if (ar.failed()) {
+                LOGGER.error("Error sweeping the topic store for orphans", ar.cause());
+            }
+        });
+    }
+
+    /**
+     * Reconcile the topic with the given name in the background lane, getting its ConfigMap when it starts.
+     */
+    private Future<Void> submitReconciliation(String reconciliationType, TopicName topicName, AtomicInteger drifted) {
+        Future<Void> reconciliation = Future.future();
+        scheduler.submit(PriorityScheduler.Lane.BACKGROUND,
+            fut -> k8s.getFromName(topicName.asMapName(),
+                ar -> reconcile(reconciliationType, ar.result(), topicName, drifted, fut)),
+            reconciliation.completer());
+        return reconciliation;
+    }
+
+    /**
+     * Reconcile the topic with the given name, whose ConfigMap is unchanged since the given snapshot,
+     * only if it has changed in Kafka since the snapshot.
+     */
+    private Future<Void> reconcileIfChangedInKafka(String reconciliationType, ControllerSnapshot snapshot, TopicName topicName,
+                                                   AtomicInteger drifted, AtomicInteger unchanged) {
+        Future<Void> reconciliation = Future.future();
+        snapshotStore.changedInKafkaSince(topicName, snapshot.getZxid(), ar -> {
+            if (ar.succeeded() && !ar.result()) {
+                LOGGER.debug("Topic {} is unchanged since the snapshot", topicName);
+                unchanged.incrementAndGet();
+                reconciliation.complete();
+            } else {
+                submitReconciliation(reconciliationType, topicName, drifted).setHandler(reconciliation.completer());
+            }
+        });
+        return reconciliation;
+    }
+
+    /**
+     * Reconcile a single topic as part of a full reconciliation, counting it if it had drifted,
+     * then complete the given future.
+     */
+    private void reconcile(String reconciliationType, ConfigMap cm, TopicName topicName, AtomicInteger drifted, Future<Void> fut) {
+        controller.reconcile(cm, topicName, reconcileResult -> {
+            if (reconcileResult.succeeded()) {
+                LOGGER.info("Success {} reconciling ConfigMap {} topic {}",
+                        reconciliationType, Controller.logConfigMap(cm), topicName);
+                if (reconcileResult.result()) {
+                    drifted.incrementAndGet();
+                }
+            } else {
+                LOGGER.error("Error {} reconciling ConfigMap {} topic {}",
+                        reconciliationType, Controller.logConfigMap(cm), topicName, reconcileResult.cause());
+            }
+            fut.complete();
+        });
+    }
+}
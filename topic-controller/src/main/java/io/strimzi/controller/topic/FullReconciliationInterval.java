@@ -0,0 +1,101 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The interval between full reconciliations, which adapts to the drift they find.
+ *
+ * <p>Drift is anything which suggests that the watches may have missed a change: a full reconciliation
+ * which finds a topic which needed reconciling, a reconnection of a watch or the expiry of the ZooKeeper session.
+ * After drift the interval is reset to its minimum, and after each full reconciliation which finds
+ * no drift it doubles, up to its maximum.</p>
+ *
+ * <p>All the methods of this class are thread safe.</p>
+ */
+public class FullReconciliationInterval {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(FullReconciliationInterval.class);
+
+    /** The source of drift found by a full reconciliation. */
+    public static final String RECONCILIATION = "reconciliation";
+    /** The source of drift when a watch of ConfigMaps was closed and had to be re-established. */
+    public static final String WATCH_RECONNECT = "watch_reconnect";
+    /** The source of drift when the connection to ZooKeeper was lost and later re-established. */
+    public static final String ZK_RECONNECT = "zk_reconnect";
+    /** The source of drift when the ZooKeeper session expired. */
+    public static final String ZK_SESSION_EXPIRED = "zk_session_expired";
+
+    private final long minMs;
+    private final long maxMs;
+    private final Metrics metrics;
+    private long currentMs;
+    private boolean driftSinceStarted = false;
+
+    /**
+     * @param minMs The minimum interval. If this is greater than the maximum, the maximum is used, so the interval is fixed.
+     * @param maxMs The maximum interval.
+     */
+    public FullReconciliationInterval(long minMs, long maxMs, Metrics metrics) {
+        this.maxMs = maxMs;
+        this.minMs = Math.min(minMs, maxMs);
+        this.metrics = metrics;
+        this.currentMs = this.minMs;
+        metrics.gauge("full_reconciliation_interval_seconds", "The current interval between full reconciliations")
+                .setSupplier(() -> current() / 1000.0);
+        for (String source : new String[] {RECONCILIATION, WATCH_RECONNECT, ZK_RECONNECT, ZK_SESSION_EXPIRED}) {
+            driftCounter(source);
+        }
+    }
+
+    private Metrics.Counter driftCounter(String source) {
+        return metrics.counter("drift_total", "The number of times drift was detected", "source", source);
+    }
+
+    /**
+     * @return The current interval, in milliseconds.
+     */
+    public synchronized long current() {
+        return currentMs;
+    }
+
+    /**
+     * Record that a full reconciliation has started.
+     */
+    public synchronized void started() {
+        driftSinceStarted = false;
+    }
+
+    /**
+     * Record that a full reconciliation has completed, having found the given number of topics which had drifted.
+     * @return The interval until the next full reconciliation, in milliseconds.
+     */
+    public synchronized long completed(int drifted) {
+        if (drifted > 0) {
+            driftCounter(RECONCILIATION).increment(drifted);
+        }
+        if (drifted > 0 || driftSinceStarted) {
+            currentMs = minMs;
+        } else {
+            currentMs = Math.min(2 * currentMs, maxMs);
+        }
+        LOGGER.debug("Full reconciliation found {} drifted topics, next in {}ms", drifted, currentMs);
+        return currentMs;
+    }
+
+    /**
+     * Record drift detected outside of a full reconciliation, from the given source.
+     * @return The interval until the next full reconciliation, in milliseconds.
+     */
+    public synchronized long drift(String source) {
+        LOGGER.info("Drift detected: {}", source);
+        driftCounter(source).increment();
+        driftSinceStarted = true;
+        currentMs = minMs;
+        return currentMs;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * The HTTP server for the health checks of all the {@link Session}s in the process,
+ * which also exposes the {@link Metrics} for Prometheus.
+ */
+public class HealthServer {
+
+    public static final int PORT = 8080;
+
+    private final Vertx vertx;
+    private final Metrics metrics;
+    private final Map<String, Session> sessions;
+
+    /**
+     * @param metrics The registry shared by the sessions.
+     * @param sessions The sessions, keyed by tenant name.
+     */
+    public HealthServer(Vertx vertx, Metrics metrics, Map<String, Session> sessions) {
+        this.vertx = vertx;
+        this.metrics = metrics;
+        this.sessions = sessions;
+    }
+
+    private boolean isHealthy() {
+        return sessions.values().stream().allMatch(Session::isHealthy);
+    }
+
+    /**
+     * The given description of the session, or with several tenants an object with that of each tenant.
+     */
+    private String describe(Function<Session, String> description) {
+        if (sessions.size() == 1) {
+            return description.apply(sessions.values().iterator().next());
+        }
+        JsonObject result = new JsonObject();
+        for (Map.Entry<String, Session> entry : sessions.entrySet()) {
+            String json = description.apply(entry.getValue());
+            result.put(entry.getKey(), json.startsWith("[") ? new JsonArray(json) : new JsonObject(json));
+        }
+        return result.encodePrettily();
+    }
+
+    public HttpServer start() {
+        return this.vertx.createHttpServer()
+                .requestHandler(request -> {
+
+                    if (request.path().equals("/healthy")) {
+                        request.response().setStatusCode(isHealthy() ? 200 : 503).end();
+                    } else if (request.path().equals("/ready")) {
+                        request.response().setStatusCode(200).end();
+                    } else if (request.path().equals("/debug/inflight")) {
+                        request.response().setStatusCode(200)
+                                .putHeader("Content-Type", "application/json")
+                                .end(describe(Session::describeInflight));
+                    } else if (request.path().equals("/debug/convergence")) {
+                        request.response().setStatusCode(200)
+                                .putHeader("Content-Type", "application/json")
+                                .end(describe(Session::describeConvergence));
+                    } else if (request.path().equals("/metrics")) {
+                        request.response().setStatusCode(200)
+                                .putHeader("Content-Type", "text/plain; version=0.0.4")
+                                .end(metrics.scrape());
+                    }
+                })
+                .listen(PORT);
+    }
+}
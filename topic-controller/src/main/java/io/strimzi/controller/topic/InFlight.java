@@ -8,9 +8,20 @@ import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -42,19 +53,33 @@ class InFlight<T> {
 
     private final Vertx vertx;
 
+    private final long actionTimeoutMs;
+
     private final ConcurrentHashMap<T, InflightHandler> map = new ConcurrentHashMap<>();
 
+    // Guarded by this
+    private List<Handler<Void>> drainedHandlers = new ArrayList<>();
+
     class InflightHandler implements Handler<AsyncResult<Void>> {
 
         private final Handler<AsyncResult<Void>> h1;
         private final Handler<AsyncResult<Void>> h2;
+        private final T key;
         private final String fur;
         private Handler<AsyncResult<Void>> h3;
         private final Future<Void> fut;
+        private final long enqueuedAt = System.currentTimeMillis();
+        private final ReconciliationStep waiting;
+        private ReconciliationStep running;
+        private volatile long startedAt = -1;
+        private volatile InflightHandler previous;
+        private volatile long timerId = -1;
 
         public InflightHandler(T key, String fur, Handler<AsyncResult<Void>> h1) {
+            this.key = key;
             this.fur = fur;
             this.h1 = h1;
+            this.waiting = ReconciliationStep.begin("InFlight.wait", key, fur);
             this.h2 = x -> {
                 // remove from map if fut is the current key
                 map.compute(key, (k2, v) -> {
@@ -65,6 +90,9 @@ class InFlight<T> {
                         return v;
                     }
                 });
+                if (map.isEmpty()) {
+                    drained();
+                }
             };
             Future<Void> fut = Future.future();
             this.fut = fut;
@@ -73,6 +101,12 @@ class InFlight<T> {
 
         @Override
         public void handle(AsyncResult<Void> event) {
+            if (timerId != -1) {
+                vertx.cancelTimer(timerId);
+            }
+            if (running != null) {
+                running.end(event);
+            }
             h1.handle(event);
             h2.handle(event);
             if (h3 != null) {
@@ -84,13 +118,63 @@ class InFlight<T> {
             this.h3 = h3;
         }
 
+        /**
+         * Run the given action, giving it a future of its own, so that if the watchdog has already
+         * failed this handler the action completing late doesn't throw.
+         */
+        void run(Handler<Future<Void>> action) {
+            previous = null;
+            startedAt = System.currentTimeMillis();
+            waiting.end("started");
+            running = ReconciliationStep.begin("InFlight.run", key, fur);
+            if (actionTimeoutMs > 0) {
+                timerId = vertx.setTimer(actionTimeoutMs, id -> {
+                    if (fut.tryFail(new ControllerException("Action " + this + " timed out after " + actionTimeoutMs + "ms"))) {
+                        LOGGER.error("Action {} did not complete within {}ms, failing it so that subsequent actions can proceed",
+                                this, actionTimeoutMs);
+                    }
+                });
+            }
+            Future<Void> actionFut = Future.future();
+            actionFut.setHandler(ar -> {
+                if (!(ar.succeeded() ? fut.tryComplete() : fut.tryFail(ar.cause()))) {
+                    LOGGER.warn("Action {} completed after it had timed out", this);
+                }
+            });
+            action.handle(actionFut);
+        }
+
         public String toString() {
             return fur;
         }
     }
 
+    /**
+     * The state of an action in the queue for some key, as returned by {@link #describe()}.
+     */
+    static class ActionState {
+        final String action;
+        final boolean running;
+        final long ageMs;
+
+        ActionState(String action, boolean running, long ageMs) {
+            this.action = action;
+            this.running = running;
+            this.ageMs = ageMs;
+        }
+    }
+
     public InFlight(Vertx vertx) {
+        this(vertx, 0);
+    }
+
+    /**
+     * @param actionTimeoutMs If positive, the time after which an action which has not completed its future
+     *                        is failed, so that the actions queued behind it are not blocked indefinitely.
+     */
+    public InFlight(Vertx vertx, long actionTimeoutMs) {
         this.vertx = vertx;
+        this.actionTimeoutMs = actionTimeoutMs;
     }
 
 
@@ -100,6 +184,8 @@ class InFlight<T> {
      * or when the other actions with the given {@code key} have completed.
      * When the given {@code action} is complete it must complete its argument future,
      * which will complete the given {@code resultHandler}.
+     * If the action does not complete its future within the action timeout
+     * the {@code resultHandler} is called with a failure and the next action for the key is run.
      */
     public void enqueue(T key, Handler<Future<Void>> action, Handler<AsyncResult<Void>> resultHandler) {
         InflightHandler fut = new InflightHandler(key, action.toString(), resultHandler);
@@ -107,14 +193,15 @@ class InFlight<T> {
         map.compute(key, (k, current) -> {
             if (current == null) {
                 LOGGER.debug("Queueing {} for immediate execution", action);
-                vertx.runOnContext(ignored -> action.handle(fut.fut));
+                vertx.runOnContext(ignored -> fut.run(action));
                 return fut;
             } else {
                 LOGGER.debug("Queueing {} for deferred execution after {}", action, current);
+                fut.previous = current;
                 current.setHandler(ar -> {
                     LOGGER.debug("Queueing {} after deferred execution", action);
-                    vertx.runOnContext(ar2 ->
-                            action.handle(fut.fut));
+                    fut.previous = null;
+                    vertx.runOnContext(ar2 -> fut.run(action));
                 });
                 return fut;
             }
@@ -127,4 +214,73 @@ class InFlight<T> {
     public int size() {
         return map.size();
     }
+
+    /**
+     * The keys with inflight actions.
+     */
+    public Set<T> keys() {
+        return new HashSet<>(map.keySet());
+    }
+
+    /**
+     * Call the given handler once there are no inflight actions: immediately if there are none now,
+     * otherwise when the last of those inflight has completed.
+     */
+    public void whenDrained(Handler<Void> handler) {
+        synchronized (this) {
+            drainedHandlers.add(handler);
+        }
+        if (map.isEmpty()) {
+            drained();
+        }
+    }
+
+    private void drained() {
+        List<Handler<Void>> handlers;
+        synchronized (this) {
+            handlers = drainedHandlers;
+            drainedHandlers = new ArrayList<>();
+        }
+        for (Handler<Void> handler : handlers) {
+            handler.handle(null);
+        }
+    }
+
+    /**
+     * Describe the actions currently queued for each key, the running (or next to run) action first.
+     */
+    public Map<T, List<ActionState>> describe() {
+        long now = System.currentTimeMillis();
+        Map<T, List<ActionState>> result = new HashMap<>();
+        for (Map.Entry<T, InflightHandler> entry : map.entrySet()) {
+            LinkedList<ActionState> queue = new LinkedList<>();
+            InflightHandler handler = entry.getValue();
+            while (handler != null) {
+                long startedAt = handler.startedAt;
+                boolean running = startedAt != -1;
+                queue.addFirst(new ActionState(handler.toString(), running, now - (running ? startedAt : handler.enqueuedAt)));
+                handler = handler.previous;
+            }
+            result.put(entry.getKey(), queue);
+        }
+        return result;
+    }
+
+    /**
+     * {@linkplain #describe() Describe} the actions currently queued for each key as JSON, ordered by key.
+     */
+    public JsonObject describeJson() {
+        Map<String, JsonArray> sorted = new TreeMap<>();
+        for (Map.Entry<T, List<ActionState>> entry : describe().entrySet()) {
+            JsonArray queue = new JsonArray();
+            for (ActionState state : entry.getValue()) {
+                queue.add(new JsonObject()
+                        .put("action", state.action)
+                        .put("state", state.running ? "running" : "queued")
+                        .put("ageMs", state.ageMs));
+            }
+            sorted.put(String.valueOf(entry.getKey()), queue);
+        }
+        return new JsonObject(new LinkedHashMap<>(sorted));
+    }
 }
@@ -29,4 +29,10 @@ public interface K8s {
     void getFromName(MapName mapName, Handler<AsyncResult<ConfigMap>> handler);
 
     void createEvent(Event event, Handler<AsyncResult<Void>> handler);
+
+    /**
+     * Set the annotation with the given key on the ConfigMap with the given name to the given value,
+     * or remove the annotation if the value is null. It is not an error if the ConfigMap does not exist.
+     */
+    void annotateConfigMap(MapName mapName, String key, String value, Handler<AsyncResult<Void>> handler);
 }
@@ -5,16 +5,18 @@
 package io.strimzi.controller.topic;
 
 import io.fabric8.kubernetes.api.model.ConfigMap;
+import io.fabric8.kubernetes.api.model.DoneableConfigMap;
 import io.fabric8.kubernetes.api.model.Event;
 import io.fabric8.kubernetes.client.KubernetesClient;
 import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.dsl.Resource;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Handler;
-import io.vertx.core.Vertx;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.List;
+import java.util.Map;
 
 public class K8sImpl implements K8s {
 
@@ -25,18 +27,25 @@ public class K8sImpl implements K8s {
 
     private KubernetesClient client;
 
-    private Vertx vertx;
+    private final WorkerPool reads;
 
-    public K8sImpl(Vertx vertx, KubernetesClient client, LabelPredicate cmPredicate, String namespace) {
-        this.vertx = vertx;
+    private final WorkerPool writes;
+
+    /**
+     * @param reads The pool for reading ConfigMaps.
+     * @param writes The pool for changing ConfigMaps and creating Events.
+     */
+    public K8sImpl(KubernetesClient client, LabelPredicate cmPredicate, String namespace, WorkerPool reads, WorkerPool writes) {
         this.client = client;
         this.cmPredicate = cmPredicate;
         this.namespace = namespace;
+        this.reads = reads;
+        this.writes = writes;
     }
 
     @Override
     public void createConfigMap(ConfigMap cm, Handler<AsyncResult<Void>> handler) {
-        vertx.executeBlocking(future -> {
+        writes.executeBlocking(future -> {
             try {
                 client.configMaps().inNamespace(namespace).create(cm);
                 future.complete();
@@ -48,7 +57,7 @@ public class K8sImpl implements K8s {
 
     @Override
     public void updateConfigMap(ConfigMap cm, Handler<AsyncResult<Void>> handler) {
-        vertx.executeBlocking(future -> {
+        writes.executeBlocking(future -> {
             try {
                 client.configMaps().inNamespace(namespace).createOrReplace(cm);
                 future.complete();
@@ -60,7 +69,7 @@ public class K8sImpl implements K8s {
 
     @Override
     public void deleteConfigMap(MapName mapName, Handler<AsyncResult<Void>> handler) {
-        vertx.executeBlocking(future -> {
+        writes.executeBlocking(future -> {
             try {
                 // Delete the CM by the topic name, because neither ZK nor Kafka know the CM name
                 client.configMaps().inNamespace(namespace).withName(mapName.toString()).delete();
@@ -73,7 +82,7 @@ public class K8sImpl implements K8s {
 
     @Override
     public void listMaps(Handler<AsyncResult<List<ConfigMap>>> handler) {
-        vertx.executeBlocking(future -> {
+        reads.executeBlocking(future -> {
             try {
                 future.complete(client.configMaps().inNamespace(namespace).withLabels(cmPredicate.labels()).list().getItems());
             } catch (Exception e) {
@@ -84,7 +93,7 @@ public class K8sImpl implements K8s {
 
     @Override
     public void getFromName(MapName mapName, Handler<AsyncResult<ConfigMap>> handler) {
-        vertx.executeBlocking(future -> {
+        reads.executeBlocking(future -> {
             try {
                 future.complete(client.configMaps().inNamespace(namespace).withName(mapName.toString()).get());
             } catch (Exception e) {
@@ -99,7 +108,7 @@ public class K8sImpl implements K8s {
      */
     @Override
     public void createEvent(Event event, Handler<AsyncResult<Void>> handler) {
-        vertx.executeBlocking(future -> {
+        writes.executeBlocking(future -> {
             try {
                 try {
                     LOGGER.debug("Creating event {}", event);
@@ -113,4 +122,25 @@ public class K8sImpl implements K8s {
             }
         }, handler);
     }
+
+    @Override
+    public void annotateConfigMap(MapName mapName, String key, String value, Handler<AsyncResult<Void>> handler) {
+        writes.executeBlocking(future -> {
+            try {
+                Resource<ConfigMap, DoneableConfigMap> resource = client.configMaps().inNamespace(namespace).withName(mapName.toString());
+                ConfigMap cm = resource.get();
+                if (cm != null) {
+                    Map<String, String> annotations = cm.getMetadata().getAnnotations();
+                    if (value != null) {
+                        resource.edit().editMetadata().addToAnnotations(key, value).endMetadata().done();
+                    } else if (annotations != null && annotations.containsKey(key)) {
+                        resource.edit().editMetadata().removeFromAnnotations(key).endMetadata().done();
+                    }
+                }
+                future.complete();
+            } catch (Exception e) {
+                future.fail(e);
+            }
+        }, handler);
+    }
 }
@@ -7,6 +7,8 @@ package io.strimzi.controller.topic;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Handler;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -39,6 +41,14 @@ public interface Kafka {
      */
     void updateTopicConfig(Topic topic, Handler<AsyncResult<Void>> handler);
 
+    /**
+     * Asynchronously update the configs of all the given topics in Kafka, using a single request.
+     * Invoke the given handler with the result. If the operation fails for any of the topics the given handler
+     * will be called with a failed AsyncResult whose {@code cause()} is the
+     * KafkaException (not an ExecutionException).
+     */
+    void updateTopicsConfig(Collection<Topic> topics, Handler<AsyncResult<Void>> handler);
+
     /**
      * Asynchronously increase the topic's partitions in Kafka. Invoke the given
      * handler with the result. If the operation fails the given handler
@@ -47,6 +57,14 @@ public interface Kafka {
      */
     void increasePartitions(Topic topic, Handler<AsyncResult<Void>> handler);
 
+    /**
+     * Asynchronously increase the partitions of all the given topics in Kafka, using a single request.
+     * Invoke the given handler with the result. If the operation fails for any of the topics the given handler
+     * will be called with a failed AsyncResult whose {@code cause()} is the
+     * KafkaException (not an ExecutionException).
+     */
+    void increaseTopicsPartitions(Collection<Topic> topics, Handler<AsyncResult<Void>> handler);
+
     /**
      * Asynchronously change the topic's replication factor in Kafka. Invoke the given
      * handler with the result. If the operation fails the given handler
@@ -64,6 +82,16 @@ public interface Kafka {
      */
     void topicMetadata(TopicName topicName, Handler<AsyncResult<TopicMetadata>> handler);
 
+    /**
+     * Asynchronously fetch the metadata of all the given topics in Kafka, using a single request
+     * for the descriptions and another for the configs. Invoke the given
+     * handler with the result. If the operation fails the given handler
+     * will be called with a failed AsyncResult whose {@code cause()} is the
+     * KafkaException (not an ExecutionException).
+     * Topics which do not exist are absent from the {@link AsyncResult#result()}.
+     */
+    void topicsMetadata(Set<TopicName> topicNames, Handler<AsyncResult<Map<TopicName, TopicMetadata>>> handler);
+
     /**
      * Asynchronously list the topics available in Kafka. Invoke the given
      * handler with the result. If the operation fails the given handler
@@ -0,0 +1,329 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import org.apache.kafka.common.errors.RetriableException;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.apache.kafka.common.errors.UnknownTopicOrPartitionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Limits the number of calls to Kafka which are in flight at once, queueing any more,
+ * and stops calling Kafka for a while once too many calls have failed because it is unavailable.
+ *
+ * <p>The breaker is closed while Kafka is healthy. It opens when at least half of the last
+ * {@value #WINDOW} calls (and at least {@value #MIN_CALLS}) failed with a timeout or another retriable error.
+ * While it's open calls fail immediately with a {@link TransientControllerException}, as do those already queued,
+ * so the topics concerned are reconciled again by the next full reconciliation.
+ * Once it has been open for a while it's half-open: a single call is let through as a probe,
+ * and the breaker closes if the probe succeeds, or opens again if it fails.</p>
+ *
+ * <p>{@link #changeReplicationFactor(Topic, Handler)} is passed straight through, since it reassigns partitions
+ * using ZooKeeper rather than the AdminClient, and completes only once the reassignment does.</p>
+ *
+ * <p>A call which takes longer than the call timeout is failed with a {@link TimeoutException}, freeing its place,
+ * even though the request may still be in progress in the AdminClient.</p>
+ */
+public class KafkaCircuitBreaker implements Kafka {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(KafkaCircuitBreaker.class);
+
+    /** The number of most recent calls whose outcomes determine whether the breaker opens. */
+    static final int WINDOW = 20;
+
+    /** The fewest calls in the window for the breaker to open. */
+    static final int MIN_CALLS = 10;
+
+    enum State {
+        CLOSED,     // = 0
+        HALF_OPEN,  // = 1
+        OPEN        // = 2
+    }
+
+    private final Vertx vertx;
+    private final Kafka kafka;
+    private final int maxInFlight;
+    private final int maxQueued;
+    private final long callTimeoutMs;
+    private final long openMs;
+    private final Metrics.Counter rejected;
+    private final Metrics.Counter timedOut;
+    private final Metrics.Counter opened;
+
+    // All guarded by this
+    private State state = State.CLOSED;
+    private long openedAt;
+    private boolean probing = false;
+    private int inFlight = 0;
+    private final ArrayDeque<Call<?>> queue = new ArrayDeque<>();
+    private final boolean[] window = new boolean[WINDOW];
+    private int windowCalls = 0;
+    private int windowFailures = 0;
+
+    /**
+     * @param maxInFlight The maximum number of calls in flight at once.
+     * @param maxQueued The maximum number of calls waiting for one of those in flight to complete.
+     * @param callTimeoutMs The time after which a call which has not completed is failed.
+     * @param openMs How long the breaker stays open before it lets a probe through.
+     */
+    public KafkaCircuitBreaker(Vertx vertx, Kafka kafka, int maxInFlight, int maxQueued, long callTimeoutMs, long openMs,
+                               Metrics metrics) {
+        this.vertx = vertx;
+        this.kafka = kafka;
+        this.maxInFlight = maxInFlight;
+        this.maxQueued = maxQueued;
+        this.callTimeoutMs = callTimeoutMs;
+        this.openMs = openMs;
+        this.rejected = metrics.counter("kafka_calls_rejected_total",
+                "The number of calls to Kafka which were failed without being made, because the circuit breaker was open or too many were queued");
+        this.timedOut = metrics.counter("kafka_calls_timed_out_total",
+                "The number of calls to Kafka which were failed because they did not complete in time");
+        this.opened = metrics.counter("kafka_circuit_opened_total",
+                "The number of times the circuit breaker around Kafka has opened");
+        metrics.gauge("kafka_circuit_state", "The state of the circuit breaker around Kafka: 0 closed, 1 half-open, 2 open")
+                .setSupplier(() -> state().ordinal());
+        metrics.gauge("kafka_calls_in_flight", "The number of calls to Kafka in flight")
+                .setSupplier(this::inFlight);
+        metrics.gauge("kafka_calls_queued", "The number of calls to Kafka waiting for a call in flight to complete")
+                .setSupplier(this::queued);
+    }
+
+    /** A call to Kafka and the handler of its result. */
+    private class Call<T> {
+        private final String name;
+        private final Consumer<Handler<AsyncResult<T>>> operation;
+        private final Handler<AsyncResult<T>> handler;
+        // Guarded by KafkaCircuitBreaker.this
+        private boolean probe = false;
+        private boolean done = false;
+
+        Call(String name, Consumer<Handler<AsyncResult<T>>> operation, Handler<AsyncResult<T>> handler) {
+            this.name = name;
+            this.operation = operation;
+            this.handler = handler;
+        }
+
+        void start() {
+            long timerId = vertx.setTimer(callTimeoutMs, id -> complete(this,
+                    Future.failedFuture(new TimeoutException(name + " did not complete within " + callTimeoutMs + "ms")), true));
+            operation.accept(ar -> {
+                vertx.cancelTimer(timerId);
+                complete(this, ar, false);
+            });
+        }
+
+        void reject(String reason) {
+            rejected.increment();
+            handler.handle(Future.failedFuture(new TransientControllerException(
+                    "Not calling " + name + " because " + reason + ", it will be retried by the next full reconciliation")));
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    synchronized State state() {
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openMs) {
+            LOGGER.info("Circuit breaker around Kafka is half-open, probing");
+            state = State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    private synchronized int inFlight() {
+        return inFlight;
+    }
+
+    private synchronized int queued() {
+        return queue.size();
+    }
+
+    private <T> void submit(String name, Consumer<Handler<AsyncResult<T>>> operation, Handler<AsyncResult<T>> handler) {
+        Call<T> call = new Call<>(name, operation, handler);
+        String rejection = null;
+        boolean start = false;
+        synchronized (this) {
+            switch (state()) {
+                case OPEN:
+                    rejection = "the circuit breaker is open";
+                    break;
+                case HALF_OPEN:
+                    if (probing) {
+                        rejection = "the circuit breaker is half-open";
+                    } else {
+                        probing = true;
+                        call.probe = true;
+                        inFlight++;
+                        start = true;
+                    }
+                    break;
+                default:
+                    if (inFlight < maxInFlight) {
+                        inFlight++;
+                        start = true;
+                    } else if (queue.size() < maxQueued) {
+                        queue.add(call);
+                    } else {
+                        rejection = "too many calls are queued";
+                    }
+                    break;
+            }
+        }
+        if (start) {
+            call.start();
+        } else if (rejection != null) {
+            call.reject(rejection);
+        }
+    }
+
+    /**
+     * Complete the given call, unless it has already completed (or timed out), then start any queued calls
+     * which can now be made.
+     */
+    private <T> void complete(Call<T> call, AsyncResult<T> result, boolean timeout) {
+        List<Call<?>> shed = new ArrayList<>();
+        List<Call<?>> next = new ArrayList<>();
+        synchronized (this) {
+            if (call.done) {
+                return;
+            }
+            call.done = true;
+            if (timeout) {
+                timedOut.increment();
+            }
+            inFlight--;
+            boolean unavailable = result.failed() && isUnavailable(result.cause());
+            if (call.probe) {
+                probing = false;
+                if (unavailable) {
+                    open(shed);
+                } else {
+                    LOGGER.info("Circuit breaker around Kafka is closed");
+                    state = State.CLOSED;
+                }
+            } else if (state == State.CLOSED && record(unavailable)) {
+                open(shed);
+            }
+            while (state == State.CLOSED && inFlight < maxInFlight && !queue.isEmpty()) {
+                inFlight++;
+                next.add(queue.poll());
+            }
+        }
+        call.handler.handle(result);
+        for (Call<?> c : shed) {
+            c.reject("the circuit breaker is open");
+        }
+        for (Call<?> c : next) {
+            c.start();
+        }
+    }
+
+    /**
+     * Record the outcome of a call in the window.
+     * @return Whether the breaker should open.
+     */
+    private boolean record(boolean unavailable) {
+        int index = windowCalls % WINDOW;
+        if (windowCalls >= WINDOW && window[index]) {
+            windowFailures--;
+        }
+        window[index] = unavailable;
+        if (unavailable) {
+            windowFailures++;
+        }
+        windowCalls++;
+        return Math.min(windowCalls, WINDOW) >= MIN_CALLS && windowFailures * 2 >= Math.min(windowCalls, WINDOW);
+    }
+
+    /**
+     * Open the breaker, adding the queued calls to those to be shed.
+     */
+    private void open(List<Call<?>> shed) {
+        LOGGER.warn("Circuit breaker around Kafka is open, shedding {} queued calls and making none for {}ms",
+                queue.size(), openMs);
+        state = State.OPEN;
+        openedAt = System.currentTimeMillis();
+        opened.increment();
+        shed.addAll(queue);
+        queue.clear();
+        windowCalls = 0;
+        windowFailures = 0;
+    }
+
+    /**
+     * Whether the given failure indicates Kafka is unavailable or overloaded,
+     * rather than a problem with the particular request.
+     */
+    static boolean isUnavailable(Throwable cause) {
+        return cause instanceof RetriableException
+                && !(cause instanceof UnknownTopicOrPartitionException);
+    }
+
+    @Override
+    public void createTopic(Topic newTopic, Handler<AsyncResult<Void>> handler) {
+        submit("createTopic", h -> kafka.createTopic(newTopic, h), handler);
+    }
+
+    @Override
+    public void deleteTopic(TopicName topicName, Handler<AsyncResult<Void>> handler) {
+        submit("deleteTopic", h -> kafka.deleteTopic(topicName, h), handler);
+    }
+
+    @Override
+    public void updateTopicConfig(Topic topic, Handler<AsyncResult<Void>> handler) {
+        submit("updateTopicConfig", h -> kafka.updateTopicConfig(topic, h), handler);
+    }
+
+    @Override
+    public void updateTopicsConfig(Collection<Topic> topics, Handler<AsyncResult<Void>> handler) {
+        submit("updateTopicsConfig", h -> kafka.updateTopicsConfig(topics, h), handler);
+    }
+
+    @Override
+    public void increasePartitions(Topic topic, Handler<AsyncResult<Void>> handler) {
+        submit("increasePartitions", h -> kafka.increasePartitions(topic, h), handler);
+    }
+
+    @Override
+    public void increaseTopicsPartitions(Collection<Topic> topics, Handler<AsyncResult<Void>> handler) {
+        submit("increaseTopicsPartitions", h -> kafka.increaseTopicsPartitions(topics, h), handler);
+    }
+
+    @Override
+    public void changeReplicationFactor(Topic topic, Handler<AsyncResult<Void>> handler) {
+        // This isn't an AdminClient call, and the reassignment takes as long as it takes
+        kafka.changeReplicationFactor(topic, handler);
+    }
+
+    @Override
+    public void topicMetadata(TopicName topicName, Handler<AsyncResult<TopicMetadata>> handler) {
+        submit("topicMetadata", h -> kafka.topicMetadata(topicName, h), handler);
+    }
+
+    @Override
+    public void topicsMetadata(Set<TopicName> topicNames, Handler<AsyncResult<Map<TopicName, TopicMetadata>>> handler) {
+        submit("topicsMetadata", h -> kafka.topicsMetadata(topicNames, h), handler);
+    }
+
+    @Override
+    public void listTopics(Handler<AsyncResult<Set<String>>> handler) {
+        submit("listTopics", kafka::listTopics, handler);
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import io.strimzi.controller.topic.zk.AclBuilder;
+import io.strimzi.controller.topic.zk.AclBuilder.Permission;
+import io.strimzi.controller.topic.zk.Zk;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.data.ACL;
+import org.apache.zookeeper.data.Stat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Elects a single leader among the replicas of the topic controller, using an ephemeral znode.
+ *
+ * <p>The replica which creates the znode is the leader until its ZooKeeper session ends. The others are
+ * standbys which watch the znode and try to create it as soon as it's deleted. When the leader stops cleanly
+ * its session is closed and the znode deleted immediately; when it fails the znode is deleted once its
+ * session times out.</p>
+ */
+public class LeaderElection {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(LeaderElection.class);
+
+    public static final String LEADER_PATH = "/strimzi/leader";
+
+    private static final long RETRY_DELAY_MS = 1_000;
+
+    private final Vertx vertx;
+    private final Zk zk;
+    private final String identity;
+    private final List<ACL> acl;
+    private volatile boolean leader = false;
+    private volatile boolean stopped = false;
+    // Only accessed on the vertx context
+    private boolean campaigning = false;
+    private Handler<Void> electedHandler;
+
+    public LeaderElection(Vertx vertx, Zk zk, String identity, Metrics metrics) {
+        this.vertx = vertx;
+        this.zk = zk;
+        this.identity = identity;
+        this.acl = new AclBuilder().setWorld(Permission.values()).build();
+        metrics.gauge("leader", "1 if this replica is the leader, 0 if it is a standby")
+                .setSupplier(() -> leader ? 1 : 0);
+    }
+
+    /**
+     * Start campaigning to become the leader, calling the given handler once this replica has been elected.
+     */
+    public void start(Handler<Void> electedHandler) {
+        this.electedHandler = electedHandler;
+        campaign();
+    }
+
+    /**
+     * Stop campaigning. If this replica is the leader it remains so until its ZooKeeper session is closed.
+     */
+    public void stop() {
+        this.stopped = true;
+        zk.unwatchExists(LEADER_PATH);
+    }
+
+    /**
+     * @return Whether this replica is the leader.
+     */
+    public boolean isLeader() {
+        return leader;
+    }
+
+    /**
+     * Record that the ZooKeeper session has expired, so the znode, and any leadership, has been lost.
+     * @return Whether this replica was the leader.
+     */
+    public boolean sessionExpired() {
+        boolean wasLeader = leader;
+        leader = false;
+        return wasLeader;
+    }
+
+    private void campaign() {
+        if (stopped) {
+            return;
+        }
+        campaigning = true;
+        zk.create(LEADER_PATH, identity.getBytes(StandardCharsets.UTF_8), acl, CreateMode.EPHEMERAL, result -> {
+            campaigning = false;
+            if (result.succeeded()) {
+                LOGGER.info("{} elected leader", identity);
+                leader = true;
+                electedHandler.handle(null);
+            } else if (result.cause() instanceof KeeperException.NodeExistsException) {
+                standBy();
+            } else if (result.cause() instanceof KeeperException.NoNodeException) {
+                createParent();
+            } else {
+                LOGGER.warn("Error campaigning for leadership, retrying in {}ms", RETRY_DELAY_MS, result.cause());
+                vertx.setTimer(RETRY_DELAY_MS, timerId -> campaign());
+            }
+        });
+    }
+
+    private void createParent() {
+        zk.create("/strimzi", null, acl, CreateMode.PERSISTENT, result -> {
+            if (result.failed() && !(result.cause() instanceof KeeperException.NodeExistsException)) {
+                LOGGER.warn("Error creating /strimzi, retrying in {}ms", RETRY_DELAY_MS, result.cause());
+                vertx.setTimer(RETRY_DELAY_MS, timerId -> campaign());
+            } else {
+                campaign();
+            }
+        });
+    }
+
+    /**
+     * Watch the leader's znode, and campaign again when it's deleted.
+     */
+    private void standBy() {
+        zk.getData(LEADER_PATH, result -> {
+            if (result.succeeded()) {
+                LOGGER.info("{} is on standby while {} is the leader", identity, new String(result.result(), StandardCharsets.UTF_8));
+            }
+        });
+        zk.watchExists(LEADER_PATH, this::onLeaderChanged);
+        zk.exists(LEADER_PATH, this::onLeaderChanged);
+    }
+
+    private void onLeaderChanged(AsyncResult<Stat> result) {
+        // Both the watch and the initial exists() can report the same deletion
+        if (!leader && !campaigning && leaderGone(result)) {
+            LOGGER.info("The leader has gone, {} is campaigning to replace it", identity);
+            zk.unwatchExists(LEADER_PATH);
+            campaign();
+        }
+    }
+
+    private static boolean leaderGone(AsyncResult<Stat> result) {
+        return result.succeeded() ? result.result() == null : result.cause() instanceof KeeperException.NoNodeException;
+    }
+}
@@ -6,43 +6,104 @@ package io.strimzi.controller.topic;
 
 import io.fabric8.kubernetes.client.DefaultKubernetesClient;
 import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
  * The entry-point to the topic controller.
  * Main responsibility is to deploy a {@link Session} with an appropriate Config and KubeClient,
  * redeploying if the config changes.
+ *
+ * <p>If {@value #TC_TENANTS} is set, a Session is deployed for each of the tenants it lists instead.
+ * The sessions share the Vert.x instance (and so its worker pool), the Kubernetes client, the {@link HealthServer}
+ * and the metrics registry, in which each tenant's metrics have a {@code tenant} label.
+ * Each has its own Kafka and ZooKeeper clients, worker pools, watches, queues and reconciliations.</p>
  */
 public class Main {
 
     private final static Logger LOGGER = LoggerFactory.getLogger(Main.class);
 
+    /**
+     * A JSON object mapping the name of each tenant to an object of the config values for that tenant,
+     * which override those given in the environment.
+     * For example {@code {"orders": {"STRIMZI_NAMESPACE": "orders", "STRIMZI_KAFKA_BOOTSTRAP_SERVERS": "orders-kafka:9092",
+     * "STRIMZI_ZOOKEEPER_CONNECT": "orders-zookeeper:2181"}, "payments": {...}}}.
+     */
+    public static final String TC_TENANTS = "STRIMZI_TENANTS";
+
+    /** The name of the only tenant when {@value #TC_TENANTS} isn't set. */
+    static final String DEFAULT_TENANT = "default";
+
     public static void main(String[] args) {
         Main main = new Main();
         main.run();
     }
 
     public void run() {
-        Map<String, String> m = new HashMap<>(System.getenv());
+        deploy(tenantConfigs(System.getenv()));
+    }
+
+    /**
+     * @return The config of each tenant given in the given environment, keyed by tenant name.
+     * @throws IllegalArgumentException If a tenant's config is invalid, or two tenants have the same Kafka cluster or ZooKeeper.
+     */
+    static Map<String, Config> tenantConfigs(Map<String, String> env) {
+        Map<String, String> m = new HashMap<>(env);
         m.keySet().retainAll(Config.keyNames());
-        Config config = new Config(m);
-        deploy(config);
+        Map<String, Config> configs = new LinkedHashMap<>();
+        String tenants = env.get(TC_TENANTS);
+        if (tenants == null || tenants.trim().isEmpty()) {
+            configs.put(DEFAULT_TENANT, new Config(m));
+            return configs;
+        }
+        Map<String, String> bootstrapServers = new HashMap<>();
+        Map<String, String> zookeepers = new HashMap<>();
+        JsonObject json = new JsonObject(tenants);
+        for (String tenant : json.fieldNames()) {
+            Map<String, String> tenantMap = new HashMap<>(m);
+            for (Map.Entry<String, Object> entry : json.getJsonObject(tenant)) {
+                tenantMap.put(entry.getKey(), String.valueOf(entry.getValue()));
+            }
+            Config config = new Config(tenantMap);
+            // The znodes each session keeps under /strimzi, and the topics of the Kafka cluster, are the same for every tenant
+            checkUnshared(bootstrapServers, tenant, Config.KAFKA_BOOTSTRAP_SERVERS, config.get(Config.KAFKA_BOOTSTRAP_SERVERS));
+            checkUnshared(zookeepers, tenant, Config.ZOOKEEPER_CONNECT, config.get(Config.ZOOKEEPER_CONNECT));
+            configs.put(tenant, config);
+        }
+        return configs;
+    }
+
+    private static void checkUnshared(Map<String, String> tenantsByValue, String tenant, Config.Value<String> key, String value) {
+        String other = tenantsByValue.putIfAbsent(value.trim(), tenant);
+        if (other != null) {
+            throw new IllegalArgumentException("Tenants " + other + " and " + tenant + " have the same " + key.key
+                    + ", " + value + ", but each tenant needs its own Kafka cluster and ZooKeeper");
+        }
     }
 
-    private void deploy(Config config) {
+    private void deploy(Map<String, Config> configs) {
         DefaultKubernetesClient kubeClient = new DefaultKubernetesClient();
         Vertx vertx = Vertx.vertx();
-        Session session = new Session(kubeClient, config);
-        vertx.deployVerticle(session, ar -> {
-            if (ar.succeeded()) {
-                LOGGER.info("Session deployed");
-            } else {
-                LOGGER.error("Error deploying Session", ar.cause());
-            }
-        });
+        Metrics metrics = new Metrics();
+        Map<String, Session> sessions = new LinkedHashMap<>();
+        for (Map.Entry<String, Config> entry : configs.entrySet()) {
+            String tenant = entry.getKey();
+            Metrics tenantMetrics = configs.size() == 1 ? metrics : metrics.withLabels("tenant", tenant);
+            Session session = new Session(kubeClient, entry.getValue(), tenantMetrics, tenant);
+            sessions.put(tenant, session);
+            vertx.deployVerticle(session, ar -> {
+                if (ar.succeeded()) {
+                    LOGGER.info("Session for tenant {} deployed", tenant);
+                } else {
+                    LOGGER.error("Error deploying Session for tenant {}", tenant, ar.cause());
+                }
+            });
+        }
+        new HealthServer(vertx, metrics, sessions).start();
     }
 }
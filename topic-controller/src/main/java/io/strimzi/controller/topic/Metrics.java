@@ -0,0 +1,327 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+/**
+ * A minimal registry of counters, gauges and histograms which can be
+ * {@linkplain #scrape() rendered} in the Prometheus text exposition format.
+ *
+ * <p>Metrics are identified by name and an optional list of label names and values,
+ * given as alternating {@code name, value} pairs, e.g.
+ * {@code metrics.gauge("reassignment_progress_ratio", "...", "topic", "my-topic")}.
+ * Asking for the same name and labels again returns the same instance.
+ * All the methods of this class are thread safe.</p>
+ *
+ * <p>A registry can be {@linkplain #withLabels(String...) viewed} with extra labels, so that several
+ * components (for example the tenants of a multi-tenant controller) can share it without their metrics clashing.</p>
+ */
+public class Metrics {
+
+    /** The prefix for the names of all metrics in the registry. */
+    public static final String PREFIX = "strimzi_topic_controller_";
+
+    /** The default buckets for histograms of durations in seconds. */
+    static final double[] DEFAULT_SECONDS_BUCKETS = {0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60, 300};
+
+    private enum Type {
+        COUNTER, GAUGE, HISTOGRAM;
+
+        String lowerName() {
+            return name().toLowerCase(Locale.ENGLISH);
+        }
+    }
+
+    private static class Family {
+        final String name;
+        final String help;
+        final Type type;
+        // Keyed on the rendered labels, so the output is ordered
+        final Map<String, Metric> metrics = new TreeMap<>();
+
+        Family(String name, String help, Type type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+    }
+
+    private interface Metric {
+        void render(StringBuilder sb, String name, String labels);
+    }
+
+    /** A monotonically increasing count. */
+    public static class Counter implements Metric {
+        private final DoubleAdder value = new DoubleAdder();
+
+        public void increment() {
+            value.add(1);
+        }
+
+        public void increment(double amount) {
+            if (amount < 0) {
+                throw new IllegalArgumentException("Counters can only increase");
+            }
+            value.add(amount);
+        }
+
+        public double get() {
+            return value.sum();
+        }
+
+        @Override
+        public void render(StringBuilder sb, String name, String labels) {
+            sample(sb, name, labels, get());
+        }
+    }
+
+    /** A value which can go up or down, either set explicitly or computed when scraped. */
+    public static class Gauge implements Metric {
+        private final AtomicLong bits = new AtomicLong(Double.doubleToLongBits(0));
+        private volatile DoubleSupplier supplier;
+
+        public void set(double value) {
+            bits.set(Double.doubleToLongBits(value));
+        }
+
+        public void add(double delta) {
+            long prev;
+            long next;
+            do {
+                prev = bits.get();
+                next = Double.doubleToLongBits(Double.longBitsToDouble(prev) + delta);
+            } while (!bits.compareAndSet(prev, next));
+        }
+
+        public void increment() {
+            add(1);
+        }
+
+        public void decrement() {
+            add(-1);
+        }
+
+        /** Compute the value of this gauge using the given supplier, each time it's read. */
+        public void setSupplier(DoubleSupplier supplier) {
+            this.supplier = supplier;
+        }
+
+        public double get() {
+            DoubleSupplier supplier = this.supplier;
+            return supplier != null ? supplier.getAsDouble() : Double.longBitsToDouble(bits.get());
+        }
+
+        @Override
+        public void render(StringBuilder sb, String name, String labels) {
+            sample(sb, name, labels, get());
+        }
+    }
+
+    /** Observations counted in cumulative buckets. */
+    public static class Histogram implements Metric {
+        private final double[] buckets;
+        private final LongAdder[] counts;
+        private final DoubleAdder sum = new DoubleAdder();
+        private final LongAdder count = new LongAdder();
+
+        Histogram(double[] buckets) {
+            this.buckets = buckets.clone();
+            Arrays.sort(this.buckets);
+            this.counts = new LongAdder[this.buckets.length];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = new LongAdder();
+            }
+        }
+
+        public void observe(double value) {
+            for (int i = 0; i < buckets.length; i++) {
+                if (value <= buckets[i]) {
+                    counts[i].increment();
+                    break;
+                }
+            }
+            sum.add(value);
+            count.increment();
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public double getSum() {
+            return sum.sum();
+        }
+
+        @Override
+        public void render(StringBuilder sb, String name, String labels) {
+            long cumulative = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                cumulative += counts[i].sum();
+                sample(sb, name + "_bucket", withLabel(labels, "le", format(buckets[i])), cumulative);
+            }
+            // Read count once, so that +Inf is never less than the finite buckets
+            long total = Math.max(cumulative, count.sum());
+            sample(sb, name + "_bucket", withLabel(labels, "le", "+Inf"), total);
+            sample(sb, name + "_sum", labels, sum.sum());
+            sample(sb, name + "_count", labels, total);
+        }
+    }
+
+    private final ConcurrentHashMap<String, Family> families;
+    private final String[] commonLabels;
+
+    public Metrics() {
+        this(new ConcurrentHashMap<>(), new String[0]);
+    }
+
+    private Metrics(ConcurrentHashMap<String, Family> families, String[] commonLabels) {
+        this.families = families;
+        this.commonLabels = commonLabels;
+    }
+
+    /**
+     * @return A view of this registry in which all the metrics have the given labels, as well as any they're given
+     * individually. Metrics created through the view are scraped along with all the others in this registry.
+     */
+    public Metrics withLabels(String... labels) {
+        // Check they're pairs
+        renderLabels(labels);
+        return new Metrics(families, withCommonLabels(labels));
+    }
+
+    private String[] withCommonLabels(String[] labels) {
+        if (commonLabels.length == 0) {
+            return labels;
+        }
+        String[] combined = Arrays.copyOf(commonLabels, commonLabels.length + labels.length);
+        System.arraycopy(labels, 0, combined, commonLabels.length, labels.length);
+        return combined;
+    }
+
+    public Counter counter(String name, String help, String... labels) {
+        return (Counter) get(name, help, Type.COUNTER, labels, Counter::new);
+    }
+
+    public Gauge gauge(String name, String help, String... labels) {
+        return (Gauge) get(name, help, Type.GAUGE, labels, Gauge::new);
+    }
+
+    public Histogram histogram(String name, String help, double[] buckets, String... labels) {
+        return (Histogram) get(name, help, Type.HISTOGRAM, labels, () -> new Histogram(buckets));
+    }
+
+    /**
+     * Remove the metric with the given name and labels, for example when the
+     * entity which it describes no longer exists.
+     */
+    public void remove(String name, String... labels) {
+        Family family = families.get(PREFIX + name);
+        if (family != null) {
+            synchronized (family) {
+                family.metrics.remove(renderLabels(withCommonLabels(labels)));
+            }
+        }
+    }
+
+    private Metric get(String name, String help, Type type, String[] labels, Supplier<Metric> factory) {
+        String fullName = PREFIX + name;
+        Family family = families.computeIfAbsent(fullName, n -> new Family(n, help, type));
+        if (family.type != type) {
+            throw new IllegalArgumentException("Metric " + fullName + " is a " + family.type.lowerName() + ", not a " + type.lowerName());
+        }
+        String renderedLabels = renderLabels(withCommonLabels(labels));
+        synchronized (family) {
+            return family.metrics.computeIfAbsent(renderedLabels, l -> factory.get());
+        }
+    }
+
+    /**
+     * Render all the metrics in the Prometheus text exposition format (version 0.0.4).
+     */
+    public String scrape() {
+        StringBuilder sb = new StringBuilder();
+        for (Family family : new TreeMap<>(families).values()) {
+            synchronized (family) {
+                if (family.metrics.isEmpty()) {
+                    continue;
+                }
+                sb.append("# HELP ").append(family.name).append(' ').append(escapeHelp(family.help)).append('\n');
+                sb.append("# TYPE ").append(family.name).append(' ').append(family.type.lowerName()).append('\n');
+                for (Map.Entry<String, Metric> entry : family.metrics.entrySet()) {
+                    entry.getValue().render(sb, family.name, entry.getKey());
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String renderLabels(String[] labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be given as name, value pairs");
+        }
+        String result = "";
+        for (int i = 0; i < labels.length; i += 2) {
+            result = withLabel(result, labels[i], labels[i + 1]);
+        }
+        return result;
+    }
+
+    private static String withLabel(String labels, String name, String value) {
+        StringBuilder sb = new StringBuilder(labels.length() + name.length() + value.length() + 5);
+        if (labels.isEmpty()) {
+            sb.append('{');
+        } else {
+            sb.append(labels, 0, labels.length() - 1).append(',');
+        }
+        sb.append(name).append("=\"");
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            switch (ch) {
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                default:
+                    sb.append(ch);
+            }
+        }
+        return sb.append("\"}").toString();
+    }
+
+    private static String escapeHelp(String help) {
+        return help.replace("\\", "\\\\").replace("\n", "\\n");
+    }
+
+    private static void sample(StringBuilder sb, String name, String labels, double value) {
+        sb.append(name).append(labels).append(' ').append(format(value)).append('\n');
+    }
+
+    private static String format(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        } else if (Double.isInfinite(value)) {
+            return value > 0 ? "+Inf" : "-Inf";
+        } else if (Double.compare(value, Math.rint(value)) == 0 && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        } else {
+            return Double.toString(value);
+        }
+    }
+}
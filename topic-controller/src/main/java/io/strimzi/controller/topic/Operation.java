@@ -0,0 +1,163 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A long-running operation on one or more topics (for example a partition reassignment),
+ * whose state is persisted in an {@link OperationStore} so that it can be resumed,
+ * and its side effects (such as replication throttles) cleaned up,
+ * if the controller restarts before the operation has finished.
+ */
+public class Operation {
+
+    // These are the keys in the JSON we store in ZK
+    public static final String JSON_KEY_TYPE = "type";
+    public static final String JSON_KEY_TOPICS = "topics";
+    public static final String JSON_KEY_THROTTLE = "throttle";
+    public static final String JSON_KEY_START_TIME = "start-time";
+    public static final String JSON_KEY_REASSIGNMENT = "reassignment";
+    public static final String JSON_KEY_PARTITIONS_COMPLETE = "partitions-complete";
+    public static final String JSON_KEY_PARTITIONS_IN_PROGRESS = "partitions-in-progress";
+
+    enum Type {
+        /** A partition reassignment started due to a change in the replication factor */
+        CHANGE_REPLICATION_FACTOR
+    }
+
+    private final Type type;
+    private final List<String> topics;
+    private final Long throttle;
+    private final long startTime;
+    private final String reassignment;
+    private final int partitionsComplete;
+    private final int partitionsInProgress;
+
+    public Operation(Type type, List<String> topics, Long throttle, long startTime, String reassignment,
+                     int partitionsComplete, int partitionsInProgress) {
+        if (topics == null || topics.isEmpty()) {
+            throw new IllegalArgumentException("An operation must involve at least one topic");
+        }
+        this.type = type;
+        this.topics = Collections.unmodifiableList(new ArrayList<>(topics));
+        this.throttle = throttle;
+        this.startTime = startTime;
+        this.reassignment = reassignment;
+        this.partitionsComplete = partitionsComplete;
+        this.partitionsInProgress = partitionsInProgress;
+    }
+
+    /**
+     * The identity of this operation in the {@link OperationStore}.
+     * Since at most one operation can be running for a given topic, this is the name of the (first) topic.
+     */
+    public String getId() {
+        return topics.get(0);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public List<String> getTopics() {
+        return topics;
+    }
+
+    public Long getThrottle() {
+        return throttle;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /** The reassignment JSON, as understood by {@code kafka-reassign-partitions.sh --reassignment-json-file}. */
+    public String getReassignment() {
+        return reassignment;
+    }
+
+    public int getPartitionsComplete() {
+        return partitionsComplete;
+    }
+
+    public int getPartitionsInProgress() {
+        return partitionsInProgress;
+    }
+
+    /**
+     * Return a copy of this operation with the given progress.
+     */
+    public Operation withProgress(int partitionsComplete, int partitionsInProgress) {
+        return new Operation(type, topics, throttle, startTime, reassignment, partitionsComplete, partitionsInProgress);
+    }
+
+    /**
+     * Returns the UTF-8 encoded JSON to reflect this operation.
+     * This is what is stored in the znodes owned by the {@link ZkOperationStore}.
+     */
+    public byte[] toJson() {
+        ObjectMapper mapper = new ObjectMapper();
+        ObjectNode root = mapper.createObjectNode();
+        root.put(JSON_KEY_TYPE, type.name());
+        ArrayNode topicsNode = root.putArray(JSON_KEY_TOPICS);
+        for (String topic : topics) {
+            topicsNode.add(topic);
+        }
+        if (throttle != null) {
+            root.put(JSON_KEY_THROTTLE, throttle);
+        }
+        root.put(JSON_KEY_START_TIME, startTime);
+        root.put(JSON_KEY_REASSIGNMENT, reassignment);
+        root.put(JSON_KEY_PARTITIONS_COMPLETE, partitionsComplete);
+        root.put(JSON_KEY_PARTITIONS_IN_PROGRESS, partitionsInProgress);
+        try {
+            return mapper.writeValueAsBytes(root);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Returns the operation represented by the given UTF-8 encoded JSON.
+     */
+    @SuppressWarnings("unchecked")
+    public static Operation fromJson(byte[] json) {
+        Map<String, Object> root;
+        try {
+            root = new ObjectMapper().readValue(json, Map.class);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        Number throttle = (Number) root.get(JSON_KEY_THROTTLE);
+        return new Operation(Type.valueOf((String) root.get(JSON_KEY_TYPE)),
+                (List<String>) root.get(JSON_KEY_TOPICS),
+                throttle != null ? throttle.longValue() : null,
+                ((Number) root.get(JSON_KEY_START_TIME)).longValue(),
+                (String) root.get(JSON_KEY_REASSIGNMENT),
+                ((Number) root.getOrDefault(JSON_KEY_PARTITIONS_COMPLETE, 0)).intValue(),
+                ((Number) root.getOrDefault(JSON_KEY_PARTITIONS_IN_PROGRESS, 0)).intValue());
+    }
+
+    @Override
+    public String toString() {
+        return "Operation{" +
+                "type=" + type +
+                ", topics=" + topics +
+                ", throttle=" + throttle +
+                ", startTime=" + startTime +
+                ", partitionsComplete=" + partitionsComplete +
+                ", partitionsInProgress=" + partitionsInProgress +
+                '}';
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+
+import java.util.List;
+
+/**
+ * Represents a persistent data store where the controller can record the state
+ * of long-running {@link Operation}s, so they survive a restart of the controller.
+ */
+public interface OperationStore {
+
+    /**
+     * Asynchronously persist the given operation in the store
+     * and run the given handler on the context when done.
+     * Any existing operation with the same {@linkplain Operation#getId() id} is replaced.
+     */
+    void create(Operation operation, Handler<AsyncResult<Void>> handler);
+
+    /**
+     * Asynchronously update the given operation in the store
+     * and run the given handler on the context when done.
+     */
+    void update(Operation operation, Handler<AsyncResult<Void>> handler);
+
+    /**
+     * Asynchronously delete the operation with the given id from the store
+     * and run the given handler on the context when done.
+     * Deleting an operation which does not exist is not an error.
+     */
+    void delete(String id, Handler<AsyncResult<Void>> handler);
+
+    /**
+     * Asynchronously list all the operations in the store
+     * and run the given handler on the context with the result.
+     */
+    void list(Handler<AsyncResult<List<Operation>>> handler);
+}
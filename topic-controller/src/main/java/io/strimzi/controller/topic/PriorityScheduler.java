@@ -0,0 +1,179 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Locale;
+
+/**
+ * Schedules reconciliation work in two {@linkplain Lane lanes}, so that work driven by watch events
+ * (a user changing a ConfigMap, or a topic changing in ZooKeeper) isn't stuck behind the thousands of jobs
+ * of a periodic full reconciliation.
+ *
+ * <ul>
+ *     <li>{@link Lane#USER} jobs always start immediately.</li>
+ *     <li>{@link Lane#BACKGROUND} jobs are queued, and only started while fewer than {@code maxConcurrent} jobs
+ *     (of either lane) are running. So user work pre-empts queued background work.</li>
+ *     <li>To protect the background lane from starvation, at least one background job may always run,
+ *     however much user work there is.</li>
+ * </ul>
+ *
+ * <p>The time each job spends queued and the time until it completes are reported as per-lane {@link Metrics}.
+ * All the methods of this class are thread safe.</p>
+ */
+public class PriorityScheduler {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(PriorityScheduler.class);
+
+    /** The lanes in which work can be scheduled, in priority order. */
+    public enum Lane {
+        /** Work driven by watch events. */
+        USER,
+        /** Work driven by periodic reconciliation. */
+        BACKGROUND;
+
+        final String label = name().toLowerCase(Locale.ENGLISH);
+    }
+
+    /** The number of background jobs which may always run, to prevent starvation. */
+    static final int MIN_BACKGROUND_CONCURRENCY = 1;
+
+    private final Vertx vertx;
+    private final int maxConcurrent;
+    private final Metrics metrics;
+    private final ArrayDeque<Job> backgroundQueue = new ArrayDeque<>();
+    private final int[] running = new int[Lane.values().length];
+
+    private class Job {
+        private final Lane lane;
+        private final Handler<Future<Void>> action;
+        private final Handler<AsyncResult<Void>> handler;
+        private final long submitted = System.nanoTime();
+
+        Job(Lane lane, Handler<Future<Void>> action, Handler<AsyncResult<Void>> handler) {
+            this.lane = lane;
+            this.action = action;
+            this.handler = handler;
+        }
+
+        void run() {
+            metrics.histogram("scheduler_wait_seconds", "The time jobs spend queued before they start",
+                    Metrics.DEFAULT_SECONDS_BUCKETS, "lane", lane.label).observe(secondsSince(submitted));
+            Future<Void> fut = Future.future();
+            fut.setHandler(ar -> {
+                completed(this);
+                metrics.histogram("scheduler_latency_seconds", "The time from when jobs are submitted until they complete",
+                        Metrics.DEFAULT_SECONDS_BUCKETS, "lane", lane.label).observe(secondsSince(submitted));
+                handler.handle(ar);
+            });
+            try {
+                action.handle(fut);
+            } catch (Throwable t) {
+                LOGGER.error("Error running {} job {}", lane.label, action, t);
+                fut.tryFail(t);
+            }
+        }
+    }
+
+    public PriorityScheduler(Vertx vertx, int maxConcurrent, Metrics metrics) {
+        if (maxConcurrent < MIN_BACKGROUND_CONCURRENCY) {
+            throw new IllegalArgumentException("maxConcurrent must be at least " + MIN_BACKGROUND_CONCURRENCY);
+        }
+        this.vertx = vertx;
+        this.maxConcurrent = maxConcurrent;
+        this.metrics = metrics;
+        for (Lane lane : Lane.values()) {
+            metrics.gauge("scheduler_running", "The number of jobs which are running", "lane", lane.label)
+                    .setSupplier(() -> running(lane));
+        }
+        metrics.gauge("scheduler_queued", "The number of jobs which are queued", "lane", Lane.BACKGROUND.label)
+                .setSupplier(this::queued);
+    }
+
+    private static double secondsSince(long nanoTime) {
+        return (System.nanoTime() - nanoTime) / 1e9;
+    }
+
+    /**
+     * Run the given action in the given lane, calling the given handler when the future passed to the action completes.
+     */
+    public void submit(Lane lane, Handler<Future<Void>> action, Handler<AsyncResult<Void>> handler) {
+        Job job = new Job(lane, action, handler);
+        synchronized (this) {
+            if (lane == Lane.USER) {
+                running[lane.ordinal()]++;
+            } else {
+                backgroundQueue.add(job);
+                job = nextBackgroundJob();
+            }
+        }
+        if (job != null) {
+            job.run();
+        }
+    }
+
+    /**
+     * @return An action which runs the given action in the given lane.
+     */
+    public Handler<Future<Void>> wrap(Lane lane, Handler<Future<Void>> action) {
+        return new Handler<Future<Void>>() {
+            @Override
+            public void handle(Future<Void> fut) {
+                submit(lane, action, fut.completer());
+            }
+
+            @Override
+            public String toString() {
+                return action.toString();
+            }
+        };
+    }
+
+    /**
+     * @return An action which runs the given action in the {@link Lane#USER user lane}.
+     */
+    public Handler<Future<Void>> inUserLane(Handler<Future<Void>> action) {
+        return wrap(Lane.USER, action);
+    }
+
+    /** Must be called holding the lock. */
+    private Job nextBackgroundJob() {
+        int background = running[Lane.BACKGROUND.ordinal()];
+        int total = background + running[Lane.USER.ordinal()];
+        if (!backgroundQueue.isEmpty()
+                && (total < maxConcurrent || background < MIN_BACKGROUND_CONCURRENCY)) {
+            running[Lane.BACKGROUND.ordinal()]++;
+            return backgroundQueue.poll();
+        }
+        return null;
+    }
+
+    private void completed(Job job) {
+        Job next;
+        synchronized (this) {
+            running[job.lane.ordinal()]--;
+            next = nextBackgroundJob();
+        }
+        if (next != null) {
+            // Not directly, so that jobs which complete synchronously can't recurse without limit
+            vertx.runOnContext(v -> next.run());
+        }
+    }
+
+    public synchronized int running(Lane lane) {
+        return running[lane.ordinal()];
+    }
+
+    public synchronized int queued() {
+        return backgroundQueue.size();
+    }
+}
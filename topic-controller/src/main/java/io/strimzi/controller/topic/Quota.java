@@ -0,0 +1,298 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.fabric8.kubernetes.api.model.ConfigMap;
+import io.fabric8.kubernetes.api.model.ConfigMapBuilder;
+import org.apache.kafka.common.config.ConfigDef;
+import org.apache.kafka.common.config.ConfigDef.Importance;
+import org.apache.kafka.common.config.ConfigDef.Type;
+import org.apache.kafka.common.config.ConfigException;
+import org.apache.kafka.common.utils.Sanitizer;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The quotas of a Kafka client id or user, as held in a quota ConfigMap, in the {@code /config/clients}
+ * or {@code /config/users} znodes read by the brokers, and in the {@link QuotaController}'s private store.
+ */
+public class Quota {
+
+    /** The kinds of entity which can have quotas, with the name of the znode holding their configs. */
+    public enum EntityType {
+        CLIENTS("clients"),
+        USERS("users");
+
+        final String path;
+
+        EntityType(String path) {
+            this.path = path;
+        }
+
+        static EntityType fromPath(String path) {
+            for (EntityType type : values()) {
+                if (type.path.equals(path)) {
+                    return type;
+                }
+            }
+            return null;
+        }
+    }
+
+    // These are the keys in the ConfigMap data
+    public static final String CM_KEY_TYPE = "type";
+    public static final String CM_KEY_NAME = "name";
+    public static final String CM_KEY_CONFIG = "config";
+
+    // These are the keys in the JSON we store in ZK, and that Kafka stores
+    static final String JSON_KEY_VERSION = "version";
+    static final String JSON_KEY_CONFIG = "config";
+    static final String JSON_KEY_MAP_NAME = "map-name";
+
+    /** The name of the quotas which apply to the clients or users without quotas of their own. */
+    static final String DEFAULT_ENTITY = "<default>";
+
+    public static final String PRODUCER_BYTE_RATE = "producer_byte_rate";
+    public static final String CONSUMER_BYTE_RATE = "consumer_byte_rate";
+    public static final String REQUEST_PERCENTAGE = "request_percentage";
+
+    /** The quota configs which the broker accepts, as in {@code kafka.server.DynamicConfig.Client}. */
+    private static final ConfigDef CONFIG_DEF = new ConfigDef()
+            .define(PRODUCER_BYTE_RATE, Type.LONG, ConfigDef.NO_DEFAULT_VALUE, Importance.MEDIUM, "")
+            .define(CONSUMER_BYTE_RATE, Type.LONG, ConfigDef.NO_DEFAULT_VALUE, Importance.MEDIUM, "")
+            .define(REQUEST_PERCENTAGE, Type.DOUBLE, ConfigDef.NO_DEFAULT_VALUE, Importance.MEDIUM, "");
+
+    private final EntityType type;
+    private final String name;
+    private final MapName mapName;
+    private final Map<String, String> config;
+
+    public Quota(EntityType type, String name, MapName mapName, Map<String, String> config) {
+        this.type = type;
+        this.name = name;
+        this.mapName = mapName;
+        this.config = Collections.unmodifiableMap(new TreeMap<>(config));
+    }
+
+    public EntityType getType() {
+        return type;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return The name of the ConfigMap for this quota: the name of the ConfigMap it was read from,
+     * or one derived from the entity, for a quota which was created in Kafka.
+     */
+    public MapName getMapName() {
+        return mapName != null ? mapName : TopicName.asMapName("quota-" + type.path + "-" + name);
+    }
+
+    public Map<String, String> getConfig() {
+        return config;
+    }
+
+    /**
+     * @return The path of the entity under {@code /config}, which is also how Kafka's change notifications
+     * refer to it, such as {@code clients/my-client}.
+     */
+    public String getEntityPath() {
+        return entityPath(type, name);
+    }
+
+    static String entityPath(EntityType type, String name) {
+        // Kafka stores the names sanitized, except the default
+        return type.path + "/" + (DEFAULT_ENTITY.equals(name) ? name : Sanitizer.sanitize(name));
+    }
+
+    public Quota withMapName(MapName mapName) {
+        return new Quota(type, name, mapName, config);
+    }
+
+    public Quota withConfig(Map<String, String> config) {
+        return new Quota(type, name, mapName, config);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Quota quota = (Quota) o;
+        return type == quota.type
+                && name.equals(quota.name)
+                && getMapName().equals(quota.getMapName())
+                && config.equals(quota.config);
+    }
+
+    @Override
+    public int hashCode() {
+        return (type.hashCode() * 31 + name.hashCode()) * 31 + config.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "Quota(" + getEntityPath() + ", map=" + getMapName() + ", config=" + config + ")";
+    }
+
+    /**
+     * Create a Quota to reflect the given quota ConfigMap.
+     * @throws InvalidConfigMapException If the ConfigMap's 'data' section is invalid.
+     */
+    @SuppressWarnings("unchecked")
+    public static Quota fromConfigMap(ConfigMap cm) {
+        Map<String, String> data = cm.getData() != null ? cm.getData() : Collections.emptyMap();
+        EntityType type = EntityType.fromPath(data.get(CM_KEY_TYPE));
+        if (type == null) {
+            throw new InvalidConfigMapException(cm, "ConfigMap's 'data' section lacks required key '" +
+                    CM_KEY_TYPE + "', which should be '" + EntityType.CLIENTS.path + "' or '" + EntityType.USERS.path + "'");
+        }
+        String name = data.get(CM_KEY_NAME);
+        if (name == null || name.isEmpty()) {
+            throw new InvalidConfigMapException(cm, "ConfigMap's 'data' section lacks required key '" +
+                    CM_KEY_NAME + "', which should be the client id or user, or '" + DEFAULT_ENTITY + "'");
+        }
+        Map<String, Object> config;
+        try {
+            String value = data.get(CM_KEY_CONFIG);
+            config = value == null || value.isEmpty() ? Collections.emptyMap() : new ObjectMapper().readValue(value, Map.class);
+        } catch (IOException e) {
+            throw new InvalidConfigMapException(cm, "ConfigMap's 'data' section has invalid key '" +
+                    CM_KEY_CONFIG + "': " + e.getMessage());
+        }
+        Map<String, String> result = new HashMap<>();
+        for (Map.Entry<String, Object> entry : config.entrySet()) {
+            String invalid = validate(entry.getKey(), entry.getValue());
+            if (invalid != null) {
+                throw new InvalidConfigMapException(cm, "ConfigMap's 'data' section has invalid key '" +
+                        CM_KEY_CONFIG + "': " + invalid);
+            }
+            result.put(entry.getKey(), String.valueOf(entry.getValue()));
+        }
+        return new Quota(type, name, new MapName(cm), result);
+    }
+
+    /**
+     * @return null if the given quota config would be accepted by the broker, otherwise a description of what's wrong with it.
+     */
+    private static String validate(String key, Object value) {
+        ConfigDef.ConfigKey configKey = CONFIG_DEF.configKeys().get(key);
+        if (configKey == null) {
+            return "The key '" + key + "' is not a quota config";
+        } else if (value == null) {
+            return "The value of the quota config '" + key + "' is null";
+        }
+        try {
+            ConfigDef.parseType(key, String.valueOf(value), configKey.type);
+        } catch (ConfigException e) {
+            return e.getMessage();
+        }
+        return null;
+    }
+
+    /**
+     * Create a ConfigMap to reflect this quota.
+     */
+    public ConfigMap toConfigMap(LabelPredicate cmPredicate) {
+        Map<String, String> data = new HashMap<>();
+        data.put(CM_KEY_TYPE, type.path);
+        data.put(CM_KEY_NAME, name);
+        try {
+            data.put(CM_KEY_CONFIG, new ObjectMapper().writeValueAsString(config));
+        } catch (IOException e) {
+            throw new RuntimeException("Error converting the config of quota '" + getEntityPath() + "' to a string", e);
+        }
+        return new ConfigMapBuilder().withApiVersion("v1")
+                .withNewMetadata()
+                    .withName(getMapName().toString())
+                    .withLabels(cmPredicate.labels())
+                .endMetadata()
+                .withData(data)
+                .build();
+    }
+
+    /**
+     * Returns the UTF-8 encoded JSON to reflect this quota, in the format of the {@code /config/clients}
+     * and {@code /config/users} znodes, optionally with the name of the ConfigMap, for the private store.
+     */
+    byte[] toJson(boolean withMapName) {
+        ObjectMapper mapper = new ObjectMapper();
+        ObjectNode root = mapper.createObjectNode();
+        root.put(JSON_KEY_VERSION, 1);
+        ObjectNode configNode = root.putObject(JSON_KEY_CONFIG);
+        for (Map.Entry<String, String> entry : config.entrySet()) {
+            configNode.put(entry.getKey(), entry.getValue());
+        }
+        if (withMapName) {
+            root.put(JSON_KEY_MAP_NAME, getMapName().toString());
+        }
+        try {
+            return mapper.writeValueAsBytes(root);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Returns the UTF-8 encoded JSON of the given {@code /config/clients} or {@code /config/users} znode,
+     * or of a new one if it's null, with its quota configs replaced by those of this quota.
+     * Its other configs, such as a user's SCRAM credentials, are kept as they are.
+     */
+    byte[] toKafkaJson(byte[] existing) {
+        ObjectMapper mapper = new ObjectMapper();
+        try {
+            ObjectNode root = existing != null && existing.length > 0
+                    ? (ObjectNode) mapper.readTree(existing) : mapper.createObjectNode();
+            if (!root.has(JSON_KEY_VERSION)) {
+                root.put(JSON_KEY_VERSION, 1);
+            }
+            ObjectNode configNode = root.has(JSON_KEY_CONFIG) ? (ObjectNode) root.get(JSON_KEY_CONFIG) : root.putObject(JSON_KEY_CONFIG);
+            configNode.remove(CONFIG_DEF.names());
+            for (Map.Entry<String, String> entry : config.entrySet()) {
+                configNode.put(entry.getKey(), entry.getValue());
+            }
+            return mapper.writeValueAsBytes(root);
+        } catch (IOException | ClassCastException e) {
+            throw new RuntimeException("Error merging quota '" + getEntityPath() + "' into its znode", e);
+        }
+    }
+
+    /**
+     * Returns the quota represented by the given UTF-8 encoded JSON, written by Kafka or by {@link #toJson(boolean)},
+     * or null if it has no quota configs, which is how Kafka records that an entity's quotas have been removed.
+     * Configs which aren't quotas, such as a user's SCRAM credentials, are ignored.
+     */
+    @SuppressWarnings("unchecked")
+    static Quota fromJson(EntityType type, String name, byte[] json) {
+        Map<String, Object> root;
+        try {
+            root = new ObjectMapper().readValue(json, Map.class);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        Map<String, Object> config = (Map<String, Object>) root.get(JSON_KEY_CONFIG);
+        if (config == null) {
+            return null;
+        }
+        Map<String, String> result = new HashMap<>();
+        for (Map.Entry<String, Object> entry : config.entrySet()) {
+            if (CONFIG_DEF.names().contains(entry.getKey())) {
+                result.put(entry.getKey(), String.valueOf(entry.getValue()));
+            }
+        }
+        if (result.isEmpty()) {
+            return null;
+        }
+        String mapName = (String) root.get(JSON_KEY_MAP_NAME);
+        return new Quota(type, name, mapName != null ? new MapName(mapName) : null, result);
+    }
+}
@@ -0,0 +1,410 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import io.fabric8.kubernetes.api.model.ConfigMap;
+import io.fabric8.kubernetes.api.model.EventBuilder;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.Watcher;
+import io.strimzi.controller.topic.zk.Zk;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import org.apache.kafka.common.utils.Sanitizer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Reconciles the client quotas in quota ConfigMaps with those the brokers apply, which are held in the
+ * {@code /config/clients} and {@code /config/users} znodes, in the same way as the {@link Controller}
+ * reconciles topics: a private copy of each quota is kept (by {@link ZkQuotas}), so that when a ConfigMap
+ * and the quota in Kafka differ we can tell which of them changed, and merge the changes if they don't conflict.
+ *
+ * <p>Changes to the ConfigMaps are seen by watching them, and changes made in Kafka (for example by
+ * {@code kafka-configs.sh}) are seen by watching the change notifications which accompany them.
+ * The quotas of each entity are reconciled one at a time, and all of them in each full reconciliation.</p>
+ */
+public class QuotaController implements Watcher<ConfigMap>, BackgroundTask {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(QuotaController.class);
+
+    private final Vertx vertx;
+    private final K8s k8s;
+    private final ZkQuotas zkQuotas;
+    private final Zk zk;
+    private final LabelPredicate cmPredicate;
+    private final String namespace;
+    private final InFlight<String> inFlight;
+    /** The last change notification which has been seen. Only accessed on the context. */
+    private String lastNotification = null;
+    private volatile boolean stopped = false;
+
+    /**
+     * @param k8s The access to the quota ConfigMaps, which are those matching the given {@code cmPredicate}.
+     */
+    public QuotaController(Vertx vertx, K8s k8s, Zk zk, LabelPredicate cmPredicate, String namespace) {
+        this.vertx = vertx;
+        this.k8s = k8s;
+        this.zk = zk;
+        this.zkQuotas = new ZkQuotas(zk);
+        this.cmPredicate = cmPredicate;
+        this.namespace = namespace;
+        this.inFlight = new InFlight<>(vertx);
+    }
+
+    /**
+     * Start watching the change notifications, to see the changes to quotas made in Kafka.
+     * The notifications which already exist are skipped: the next full reconciliation covers those.
+     */
+    @Override
+    public void start() {
+        zk.watchChildren(ZkQuotas.CHANGES_PATH, ar -> {
+            if (stopped) {
+                zk.unwatchChildren(ZkQuotas.CHANGES_PATH);
+            } else if (ar.failed()) {
+                LOGGER.error("Error on znode {} children", ZkQuotas.CHANGES_PATH, ar.cause());
+            } else {
+                onNotifications(ar.result());
+            }
+        }).children(ZkQuotas.CHANGES_PATH, ar -> {
+            if (ar.succeeded()) {
+                lastNotification = ar.result().stream().max(String::compareTo).orElse("");
+            } else {
+                LOGGER.error("Error on znode {} children", ZkQuotas.CHANGES_PATH, ar.cause());
+            }
+        });
+    }
+
+    @Override
+    public void stop() {
+        stopped = true;
+        zk.unwatchChildren(ZkQuotas.CHANGES_PATH);
+    }
+
+    /**
+     * Reconcile the entities mentioned by the change notifications which haven't been seen yet.
+     * The notifications are named by a sequence number, so are ordered by name.
+     */
+    void onNotifications(List<String> notifications) {
+        if (lastNotification == null) {
+            // Not started yet
+            return;
+        }
+        String last = lastNotification;
+        for (String notification : notifications) {
+            if (notification.startsWith(ZkQuotas.CHANGE_PREFIX) && notification.compareTo(last) > 0) {
+                if (notification.compareTo(lastNotification) > 0) {
+                    lastNotification = notification;
+                }
+                zk.getData(ZkQuotas.CHANGES_PATH + "/" + notification, ar -> {
+                    if (ar.succeeded()) {
+                        onNotification(new JsonObject(new String(ar.result(), StandardCharsets.UTF_8)).getString("entity_path"));
+                    } else {
+                        // Kafka deletes the notifications after a while, and the next full reconciliation covers it
+                        LOGGER.debug("Unable to read change notification {}", notification, ar.cause());
+                    }
+                });
+            }
+        }
+    }
+
+    private void onNotification(String entityPath) {
+        String[] parts = entityPath == null ? new String[0] : entityPath.split("/");
+        Quota.EntityType type = parts.length == 2 ? Quota.EntityType.fromPath(parts[0]) : null;
+        if (type == null) {
+            // Not a quota, or the quota of a client of a particular user, which we don't manage
+            return;
+        }
+        String name = Quota.DEFAULT_ENTITY.equals(parts[1]) ? parts[1] : Sanitizer.desanitize(parts[1]);
+        LOGGER.info("Quota {} changed in Kafka", entityPath);
+        reconcile(type, name, null, logResult("change in Kafka to quota " + entityPath));
+    }
+
+    @Override
+    public void eventReceived(Action action, ConfigMap configMap) {
+        String name = configMap.getMetadata().getName();
+        LOGGER.info("Quota ConfigMap watch received event {} on map {}", action, name);
+        final Quota quota;
+        try {
+            quota = Quota.fromConfigMap(configMap);
+        } catch (InvalidConfigMapException e) {
+            LOGGER.error("Quota ConfigMap {} is invalid: {}", name, e.getMessage());
+            if (action != Action.DELETED) {
+                event(configMap, e.getMessage());
+            }
+            return;
+        }
+        switch (action) {
+            case ADDED:
+            case MODIFIED:
+            case DELETED:
+                reconcile(quota.getType(), quota.getName(), new MapName(configMap),
+                        logResult(action + " of quota ConfigMap " + name));
+                break;
+            case ERROR:
+                LOGGER.error("Watch received action=ERROR for quota ConfigMap " + name);
+        }
+    }
+
+    @Override
+    public void onClose(KubernetesClientException e) {
+        LOGGER.debug("Closing {}", this);
+    }
+
+    private static Handler<AsyncResult<Void>> logResult(String what) {
+        return ar -> {
+            if (ar.succeeded()) {
+                LOGGER.debug("Success reconciling {}", what);
+            } else {
+                LOGGER.warn("Error reconciling {}", what, ar.cause());
+            }
+        };
+    }
+
+    /**
+     * Reconcile the quotas of all the entities which have a quota in a ConfigMap, in Kafka or in the private store.
+     */
+    @Override
+    public void reconcileAll(Handler<AsyncResult<Void>> handler) {
+        Future<List<ConfigMap>> maps = Future.future();
+        k8s.listMaps(maps);
+        Future<List<Quota>> kafkaQuotas = Future.future();
+        zkQuotas.listKafka(kafkaQuotas);
+        Future<List<Quota>> storedQuotas = Future.future();
+        zkQuotas.listStored(storedQuotas);
+        CompositeFuture.all(maps, kafkaQuotas, storedQuotas).setHandler(ar -> {
+            if (ar.failed()) {
+                handler.handle(Future.failedFuture(ar.cause()));
+                return;
+            }
+            // The entities, by path, with the name of their ConfigMap, if known
+            Map<String, Quota> entities = new HashMap<>();
+            for (Quota quota : kafkaQuotas.result()) {
+                entities.put(quota.getEntityPath(), quota.withMapName(null));
+            }
+            for (Quota quota : storedQuotas.result()) {
+                entities.put(quota.getEntityPath(), quota);
+            }
+            for (ConfigMap cm : maps.result()) {
+                try {
+                    Quota quota = Quota.fromConfigMap(cm);
+                    entities.put(quota.getEntityPath(), quota);
+                } catch (InvalidConfigMapException e) {
+                    LOGGER.error("Quota ConfigMap {} is invalid: {}", cm.getMetadata().getName(), e.getMessage());
+                }
+            }
+            LOGGER.info("Reconciling {} quotas", entities.size());
+            List<Future> results = new ArrayList<>();
+            for (Quota quota : entities.values()) {
+                Future<Void> result = Future.future();
+                results.add(result);
+                reconcile(quota.getType(), quota.getName(), quota.getMapName(), result);
+            }
+            CompositeFuture.join(results).setHandler(all -> handler.handle(all.mapEmpty()));
+        });
+    }
+
+    /**
+     * Reconcile the quotas of the given entity, after any reconciliation of it which is in progress.
+     * @param mapName The name of its ConfigMap, or null to use the name in the private store.
+     */
+    void reconcile(Quota.EntityType type, String name, MapName mapName, Handler<AsyncResult<Void>> handler) {
+        inFlight.enqueue(Quota.entityPath(type, name), fut -> {
+            zkQuotas.readStored(type, name, storedResult -> {
+                if (storedResult.failed()) {
+                    fut.fail(storedResult.cause());
+                    return;
+                }
+                Quota stored = storedResult.result();
+                MapName cmName = mapName != null ? mapName
+                        : stored != null ? stored.getMapName() : new Quota(type, name, null, new HashMap<>()).getMapName();
+                Future<ConfigMap> cmFuture = Future.future();
+                k8s.getFromName(cmName, cmFuture);
+                Future<Quota> kafkaFuture = Future.future();
+                zkQuotas.readKafka(type, name, kafkaFuture);
+                CompositeFuture.all(cmFuture, kafkaFuture).setHandler(ar -> {
+                    if (ar.failed()) {
+                        fut.fail(ar.cause());
+                        return;
+                    }
+                    ConfigMap cm = cmFuture.result();
+                    Quota k8sQuota;
+                    try {
+                        k8sQuota = cm != null ? Quota.fromConfigMap(cm) : null;
+                    } catch (InvalidConfigMapException e) {
+                        fut.fail(e);
+                        return;
+                    }
+                    if (k8sQuota != null && !k8sQuota.getEntityPath().equals(Quota.entityPath(type, name))) {
+                        // The ConfigMap is now for another entity
+                        k8sQuota = null;
+                    }
+                    reconcile(cm, k8sQuota, kafkaFuture.result(), stored, fut);
+                });
+            });
+        }, handler);
+    }
+
+    /**
+     * Reconcile the quota in a ConfigMap, in Kafka and in the private store, any of which may be null,
+     * in the same way as {@link Controller#reconcile(io.fabric8.kubernetes.api.model.HasMetadata, Topic, Topic, Topic, Handler)}.
+     */
+    void reconcile(ConfigMap cm, Quota k8sQuota, Quota kafkaQuota, Quota privateQuota, Handler<AsyncResult<Void>> handler) {
+        if (privateQuota == null) {
+            if (k8sQuota == null) {
+                if (kafkaQuota == null) {
+                    handler.handle(Future.succeededFuture());
+                } else {
+                    LOGGER.debug("Quota {} created in Kafka => creating the ConfigMap and storing it", kafkaQuota.getEntityPath());
+                    k8s.createConfigMap(kafkaQuota.toConfigMap(cmPredicate), then(handler, () -> zkQuotas.writeStored(kafkaQuota, handler)));
+                }
+            } else if (kafkaQuota == null) {
+                if (k8sQuota.getConfig().isEmpty()) {
+                    // Kafka doesn't distinguish no quota from an empty one
+                    handler.handle(Future.succeededFuture());
+                } else {
+                    LOGGER.debug("Quota {} created in a ConfigMap => setting it in Kafka and storing it", k8sQuota.getEntityPath());
+                    zkQuotas.writeKafka(k8sQuota, then(handler, () -> zkQuotas.writeStored(k8sQuota, handler)));
+                }
+            } else {
+                Quota merged = k8sQuota.withConfig(merge(new HashMap<>(), k8sQuota.getConfig(), kafkaQuota.getConfig()));
+                if (merged.getConfig().equals(kafkaQuota.getConfig()) && !merged.getConfig().equals(k8sQuota.getConfig())) {
+                    event(cm, "ConfigMap is incompatible with the quota in Kafka. The quota in Kafka will be treated as canonical.");
+                }
+                update(k8sQuota, kafkaQuota, merged, handler);
+            }
+        } else if (k8sQuota == null) {
+            if (kafkaQuota == null) {
+                zkQuotas.deleteStored(privateQuota.getType(), privateQuota.getName(), handler);
+            } else {
+                LOGGER.debug("Quota {} ConfigMap deleted => removing it from Kafka and the store", kafkaQuota.getEntityPath());
+                zkQuotas.deleteKafka(kafkaQuota.getType(), kafkaQuota.getName(),
+                    then(handler, () -> zkQuotas.deleteStored(privateQuota.getType(), privateQuota.getName(), handler)));
+            }
+        } else if (kafkaQuota == null) {
+            LOGGER.debug("Quota {} removed in Kafka => deleting the ConfigMap and removing it from the store", k8sQuota.getEntityPath());
+            k8s.deleteConfigMap(k8sQuota.getMapName(),
+                then(handler, () -> zkQuotas.deleteStored(privateQuota.getType(), privateQuota.getName(), handler)));
+        } else {
+            Map<String, String> merged = merge3(privateQuota.getConfig(), k8sQuota.getConfig(), kafkaQuota.getConfig());
+            if (merged == null) {
+                String message = "ConfigMap and quota in Kafka both changed in a conflicting way: ConfigMap has "
+                        + k8sQuota.getConfig() + ", Kafka has " + kafkaQuota.getConfig();
+                event(cm, message);
+                handler.handle(Future.failedFuture(new ControllerException(cm, message)));
+            } else {
+                update(k8sQuota, kafkaQuota, k8sQuota.withConfig(merged), handler);
+            }
+        }
+    }
+
+    /**
+     * Bring the ConfigMap, Kafka and the private store up to date with the given merged quota, skipping those which already are.
+     */
+    private void update(Quota k8sQuota, Quota kafkaQuota, Quota merged, Handler<AsyncResult<Void>> handler) {
+        Handler<Void> store = v -> zkQuotas.writeStored(merged, handler);
+        Handler<Void> kafka = kafkaQuota.getConfig().equals(merged.getConfig()) ? store
+                : v -> zkQuotas.writeKafka(merged, then(handler, () -> store.handle(null)));
+        if (k8sQuota.getConfig().equals(merged.getConfig())) {
+            kafka.handle(null);
+        } else {
+            k8s.updateConfigMap(merged.toConfigMap(cmPredicate), then(handler, () -> kafka.handle(null)));
+        }
+    }
+
+    /**
+     * @return A handler which runs the given next step if the result succeeded, or fails the given handler if it didn't.
+     */
+    private static Handler<AsyncResult<Void>> then(Handler<AsyncResult<Void>> handler, Runnable next) {
+        return ar -> {
+            if (ar.succeeded()) {
+                next.run();
+            } else {
+                handler.handle(ar);
+            }
+        };
+    }
+
+    /**
+     * Merge two configs which have no common history: where they have different values for the same key
+     * the value in {@code theirs} wins, so the result is {@code theirs} unless the keys are disjoint.
+     */
+    static Map<String, String> merge(Map<String, String> result, Map<String, String> ours, Map<String, String> theirs) {
+        Set<String> common = new HashSet<>(ours.keySet());
+        common.retainAll(theirs.keySet());
+        if (!common.isEmpty()) {
+            result.putAll(theirs);
+            return result;
+        }
+        result.putAll(ours);
+        result.putAll(theirs);
+        return result;
+    }
+
+    /**
+     * Merge the changes made to the given base config in each of two others.
+     * @return The merged config, or null if both changed the same key in different ways.
+     */
+    static Map<String, String> merge3(Map<String, String> base, Map<String, String> ours, Map<String, String> theirs) {
+        Set<String> keys = new HashSet<>(base.keySet());
+        keys.addAll(ours.keySet());
+        keys.addAll(theirs.keySet());
+        Map<String, String> result = new HashMap<>();
+        for (String key : keys) {
+            String baseValue = base.get(key);
+            String ourValue = ours.get(key);
+            String theirValue = theirs.get(key);
+            String value;
+            if (Objects.equals(ourValue, theirValue) || Objects.equals(baseValue, theirValue)) {
+                value = ourValue;
+            } else if (Objects.equals(baseValue, ourValue)) {
+                value = theirValue;
+            } else {
+                return null;
+            }
+            if (value != null) {
+                result.put(key, value);
+            }
+        }
+        return result;
+    }
+
+    private void event(ConfigMap cm, String message) {
+        LOGGER.warn("{}", message);
+        EventBuilder evtb = new EventBuilder().withApiVersion("v1");
+        if (cm != null) {
+            evtb.withNewInvolvedObject()
+                    .withKind("ConfigMap")
+                    .withName(cm.getMetadata().getName())
+                    .withApiVersion(cm.getApiVersion())
+                    .withNamespace(cm.getMetadata().getNamespace())
+                    .withUid(cm.getMetadata().getUid())
+                    .endInvolvedObject();
+        }
+        evtb.withType(Controller.EventType.WARNING.name)
+                .withMessage(message)
+                .withNewMetadata().withLabels(cmPredicate.labels()).withGenerateName("topic-controller").withNamespace(namespace).endMetadata()
+                .withNewSource()
+                .withComponent(QuotaController.class.getName())
+                .endSource();
+        k8s.createEvent(evtb.build(), ar -> {
+            if (ar.failed()) {
+                LOGGER.error("Error creating event about ConfigMap {}", cm != null ? cm.getMetadata().getName() : null, ar.cause());
+            }
+        });
+    }
+}
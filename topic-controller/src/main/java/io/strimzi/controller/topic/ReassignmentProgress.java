@@ -0,0 +1,99 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+/**
+ * A snapshot of the progress of a partition reassignment, as determined by a
+ * {@code --verify} and (when the brokers support it) by comparing the size of
+ * the logs on the new replicas with the size of the largest replica of each partition.
+ */
+public class ReassignmentProgress {
+
+    /** Indicates that the number of bytes or offsets is not known. */
+    public static final long UNKNOWN = -1;
+
+    private final int partitionsComplete;
+    private final int partitionsInProgress;
+    private final long bytesTotal;
+    private final long bytesCaughtUp;
+    private final long offsetLag;
+
+    public ReassignmentProgress(int partitionsComplete, int partitionsInProgress) {
+        this(partitionsComplete, partitionsInProgress, UNKNOWN, UNKNOWN, UNKNOWN);
+    }
+
+    public ReassignmentProgress(int partitionsComplete, int partitionsInProgress,
+                                long bytesTotal, long bytesCaughtUp, long offsetLag) {
+        this.partitionsComplete = partitionsComplete;
+        this.partitionsInProgress = partitionsInProgress;
+        this.bytesTotal = bytesTotal;
+        this.bytesCaughtUp = bytesCaughtUp;
+        this.offsetLag = offsetLag;
+    }
+
+    /**
+     * Return a copy of this progress with the given replica catch-up information.
+     */
+    public ReassignmentProgress withBytes(long bytesTotal, long bytesCaughtUp, long offsetLag) {
+        return new ReassignmentProgress(partitionsComplete, partitionsInProgress, bytesTotal, bytesCaughtUp, offsetLag);
+    }
+
+    public int getPartitionsComplete() {
+        return partitionsComplete;
+    }
+
+    public int getPartitionsInProgress() {
+        return partitionsInProgress;
+    }
+
+    public boolean isComplete() {
+        return partitionsInProgress == 0;
+    }
+
+    /** The total number of bytes the replicas in the target assignment need to have, or {@link #UNKNOWN}. */
+    public long getBytesTotal() {
+        return bytesTotal;
+    }
+
+    /** The number of bytes the replicas in the target assignment have so far, or {@link #UNKNOWN}. */
+    public long getBytesCaughtUp() {
+        return bytesCaughtUp;
+    }
+
+    /** The number of bytes yet to be copied to replicas in the target assignment, or {@link #UNKNOWN}. */
+    public long getBytesRemaining() {
+        return bytesTotal == UNKNOWN ? UNKNOWN : bytesTotal - bytesCaughtUp;
+    }
+
+    /** The total number of offsets the replicas in the target assignment are behind their leaders, or {@link #UNKNOWN}. */
+    public long getOffsetLag() {
+        return offsetLag;
+    }
+
+    /**
+     * The fraction of the reassignment which is complete, between 0 and 1.
+     * This is based on the bytes caught up if they're known, otherwise on the number of partitions.
+     */
+    public double getRatio() {
+        if (isComplete()) {
+            return 1.0;
+        } else if (bytesTotal > 0) {
+            return Math.min(1.0, (double) bytesCaughtUp / bytesTotal);
+        } else {
+            return (double) partitionsComplete / (partitionsComplete + partitionsInProgress);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ReassignmentProgress{" +
+                "partitionsComplete=" + partitionsComplete +
+                ", partitionsInProgress=" + partitionsInProgress +
+                ", bytesTotal=" + bytesTotal +
+                ", bytesCaughtUp=" + bytesCaughtUp +
+                ", offsetLag=" + offsetLag +
+                '}';
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reports the progress (and an estimate of the time remaining) of partition reassignments
+ * as {@link Metrics} and as a rate-limited {@link #ANNOTATION annotation} on the ConfigMap of each topic involved.
+ * Only accessed on the context.
+ */
+public class ReassignmentProgressReporter {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(ReassignmentProgressReporter.class);
+
+    /** The annotation on the topic ConfigMap where the progress of a reassignment is reported. */
+    public static final String ANNOTATION = "strimzi.io/reassignment-progress";
+
+    private static final String LABEL_TOPIC = "topic";
+
+    private static final String PARTITIONS_COMPLETE = "reassignment_partitions_complete";
+    private static final String PARTITIONS_IN_PROGRESS = "reassignment_partitions_in_progress";
+    private static final String PROGRESS_RATIO = "reassignment_progress_ratio";
+    private static final String BYTES_REMAINING = "reassignment_bytes_remaining";
+    private static final String OFFSET_LAG = "reassignment_offset_lag";
+    private static final String ETA_SECONDS = "reassignment_eta_seconds";
+    private static final String THROTTLE = "reassignment_throttle_bytes_per_second";
+
+    private final K8s k8s;
+    private final Metrics metrics;
+    private final long annotationIntervalMs;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private static class Tracked {
+        final long firstSampleTime;
+        final double firstSampleRatio;
+        long lastAnnotated = 0;
+
+        Tracked(long firstSampleTime, double firstSampleRatio) {
+            this.firstSampleTime = firstSampleTime;
+            this.firstSampleRatio = firstSampleRatio;
+        }
+    }
+
+    private final Map<String, Tracked> tracked = new HashMap<>();
+
+    public ReassignmentProgressReporter(K8s k8s, Metrics metrics, long annotationIntervalMs) {
+        this.k8s = k8s;
+        this.metrics = metrics;
+        this.annotationIntervalMs = annotationIntervalMs;
+    }
+
+    /**
+     * Estimate the number of seconds until the reassignment is complete, by extrapolating the
+     * average rate of progress since we started observing it. Returns NaN if there's no basis for an estimate.
+     */
+    static double etaSeconds(long firstSampleTime, double firstSampleRatio, long now, double ratio) {
+        double elapsedSeconds = (now - firstSampleTime) / 1000.0;
+        double done = ratio - firstSampleRatio;
+        if (ratio >= 1.0) {
+            return 0;
+        } else if (elapsedSeconds <= 0 || done <= 0) {
+            return Double.NaN;
+        } else {
+            return (1.0 - ratio) * elapsedSeconds / done;
+        }
+    }
+
+    /**
+     * Report the given progress of the given operation, which is still in progress.
+     */
+    public void progress(Operation operation, ReassignmentProgress progress) {
+        long now = System.currentTimeMillis();
+        double ratio = progress.getRatio();
+        Tracked t = tracked.computeIfAbsent(operation.getId(), id -> new Tracked(now, ratio));
+        double eta = etaSeconds(t.firstSampleTime, t.firstSampleRatio, now, ratio);
+        LOGGER.info("Reassignment of topics {}: {}/{} partitions complete, {}% done, ETA {}s",
+                operation.getTopics(), progress.getPartitionsComplete(),
+                progress.getPartitionsComplete() + progress.getPartitionsInProgress(),
+                Math.round(ratio * 100), Double.isNaN(eta) ? "unknown" : Math.round(eta));
+
+        for (String topic : operation.getTopics()) {
+            metrics.gauge(PARTITIONS_COMPLETE, "The number of partitions whose reassignment is complete",
+                    LABEL_TOPIC, topic).set(progress.getPartitionsComplete());
+            metrics.gauge(PARTITIONS_IN_PROGRESS, "The number of partitions whose reassignment is still in progress",
+                    LABEL_TOPIC, topic).set(progress.getPartitionsInProgress());
+            metrics.gauge(PROGRESS_RATIO, "The fraction of the reassignment which is complete",
+                    LABEL_TOPIC, topic).set(ratio);
+            metrics.gauge(ETA_SECONDS, "The estimated number of seconds until the reassignment is complete",
+                    LABEL_TOPIC, topic).set(eta);
+            if (progress.getBytesTotal() != ReassignmentProgress.UNKNOWN) {
+                metrics.gauge(BYTES_REMAINING, "The number of bytes yet to be copied to the new replicas",
+                        LABEL_TOPIC, topic).set(progress.getBytesRemaining());
+                metrics.gauge(OFFSET_LAG, "The total number of offsets the new replicas are behind their leaders",
+                        LABEL_TOPIC, topic).set(progress.getOffsetLag());
+            }
+            if (operation.getThrottle() != null) {
+                metrics.gauge(THROTTLE, "The replication throttle used for the reassignment",
+                        LABEL_TOPIC, topic).set(operation.getThrottle());
+            }
+        }
+
+        if (now - t.lastAnnotated >= annotationIntervalMs) {
+            t.lastAnnotated = now;
+            String annotation = annotation(operation, progress, ratio, eta, now);
+            for (String topic : operation.getTopics()) {
+                annotate(topic, annotation);
+            }
+        }
+    }
+
+    /**
+     * Report that the given operation is complete (or has been abandoned),
+     * removing its metrics and annotations.
+     */
+    public void complete(Operation operation) {
+        tracked.remove(operation.getId());
+        for (String topic : operation.getTopics()) {
+            for (String name : new String[]{PARTITIONS_COMPLETE, PARTITIONS_IN_PROGRESS, PROGRESS_RATIO,
+                BYTES_REMAINING, OFFSET_LAG, ETA_SECONDS, THROTTLE}) {
+                metrics.remove(name, LABEL_TOPIC, topic);
+            }
+            annotate(topic, null);
+        }
+    }
+
+    private String annotation(Operation operation, ReassignmentProgress progress, double ratio, double eta, long now) {
+        ObjectNode root = mapper.createObjectNode();
+        root.put("partitionsComplete", progress.getPartitionsComplete());
+        root.put("partitionsInProgress", progress.getPartitionsInProgress());
+        root.put("progress", Math.round(ratio * 1000) / 1000.0);
+        if (progress.getBytesTotal() != ReassignmentProgress.UNKNOWN) {
+            root.put("bytesRemaining", progress.getBytesRemaining());
+        }
+        if (!Double.isNaN(eta)) {
+            root.put("etaSeconds", Math.round(eta));
+        }
+        if (operation.getThrottle() != null) {
+            root.put("throttle", operation.getThrottle());
+        }
+        root.put("updated", Instant.ofEpochMilli(now).toString());
+        try {
+            return mapper.writeValueAsString(root);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void annotate(String topic, String value) {
+        MapName mapName = new TopicName(topic).asMapName();
+        k8s.annotateConfigMap(mapName, ANNOTATION, value, ar -> {
+            if (ar.failed()) {
+                LOGGER.warn("Error annotating ConfigMap {} with reassignment progress", mapName, ar.cause());
+            }
+        });
+    }
+}
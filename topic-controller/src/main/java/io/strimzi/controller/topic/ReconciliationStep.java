@@ -0,0 +1,85 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+
+/**
+ * A step in the reconciliation of a topic, such as a call to Kafka, Kubernetes or the topic store,
+ * recorded as a Java Flight Recorder event (see {@link ReconciliationStepEvent}) with the topic, the step,
+ * its duration and its outcome, so that a recording shows where the time of each reconciliation went.
+ *
+ * <p>The events cost next to nothing unless a recording has them enabled.
+ * On a JVM without the JFR event API (before Java 8u262) nothing is recorded.</p>
+ */
+class ReconciliationStep {
+
+    private static final boolean JFR = jfrAvailable();
+
+    private static final ReconciliationStep NOT_RECORDED = new ReconciliationStep(null);
+
+    /** The {@link ReconciliationStepEvent}, kept as an Object so this class can be loaded without JFR. */
+    private final Object event;
+
+    private ReconciliationStep(Object event) {
+        this.event = event;
+    }
+
+    private static boolean jfrAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * Begin the given step in the reconciliation of the given topic.
+     */
+    static ReconciliationStep begin(String step, Object topic) {
+        return begin(step, topic, null);
+    }
+
+    /**
+     * Begin the given step of the given {@link InFlight} action for the given topic.
+     */
+    static ReconciliationStep begin(String step, Object topic, String action) {
+        Object event = JFR ? ReconciliationStepEvent.begin(step, String.valueOf(topic), action) : null;
+        return event != null ? new ReconciliationStep(event) : NOT_RECORDED;
+    }
+
+    /**
+     * End the step, with the given result.
+     */
+    void end(AsyncResult<?> result) {
+        end(result.succeeded() ? "success" : String.valueOf(result.cause() != null ? result.cause().getClass().getName() : null));
+    }
+
+    /**
+     * End the step, with the given outcome.
+     */
+    void end(String outcome) {
+        if (event != null) {
+            ReconciliationStepEvent.end(event, outcome);
+        }
+    }
+
+    /**
+     * Begin the given step in the reconciliation of the given topic,
+     * returning a handler which ends it with the result, before calling the given handler.
+     */
+    static <T> Handler<AsyncResult<T>> traced(String step, Object topic, Handler<AsyncResult<T>> handler) {
+        ReconciliationStep traced = begin(step, topic);
+        if (traced == NOT_RECORDED) {
+            return handler;
+        }
+        return ar -> {
+            traced.end(ar);
+            handler.handle(ar);
+        };
+    }
+}
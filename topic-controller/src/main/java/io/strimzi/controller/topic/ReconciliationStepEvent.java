@@ -0,0 +1,68 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The Java Flight Recorder event for a {@link ReconciliationStep}.
+ * Only {@link ReconciliationStep} uses this class, and only once it knows the JVM supports JFR events.
+ */
+@Name("io.strimzi.controller.topic.ReconciliationStep")
+@Label("Topic Reconciliation Step")
+@Category({"Strimzi", "Topic Controller"})
+@Description("A step in the reconciliation of a topic: a call to Kafka, Kubernetes or the topic store in ZooKeeper, "
+        + "or an action waiting for, or running after, the other actions for the same topic")
+@StackTrace(false)
+class ReconciliationStepEvent extends Event {
+
+    @Label("Topic")
+    String topic;
+
+    @Label("Step")
+    String step;
+
+    @Label("Action")
+    @Description("The action waiting or running, for the InFlight steps")
+    String action;
+
+    @Label("Outcome")
+    @Description("\"success\", or the class of the exception the step failed with")
+    String outcome;
+
+    /**
+     * @return The begun event, or null if the event is not enabled in any recording.
+     */
+    static Object begin(String step, String topic, String action) {
+        ReconciliationStepEvent event = new ReconciliationStepEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.step = step;
+        event.topic = topic;
+        event.action = action;
+        event.begin();
+        return event;
+    }
+
+    static void end(Object begun, String outcome) {
+        ReconciliationStepEvent event = (ReconciliationStepEvent) begun;
+        event.end();
+        if (event.shouldCommit()) {
+            event.outcome = outcome;
+            event.commit();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ReconciliationStepEvent(topic=" + topic + ", step=" + step + ", action=" + action + ", outcome=" + outcome + ")";
+    }
+}
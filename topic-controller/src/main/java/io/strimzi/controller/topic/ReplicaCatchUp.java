@@ -0,0 +1,103 @@
+/*
+ * Copyright 2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.TopicPartitionInfo;
+import org.apache.kafka.common.protocol.Errors;
+import org.apache.kafka.common.requests.DescribeLogDirsResponse;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Measures how far the replicas in the target assignment of a reassignment have caught up,
+ * using the AdminClient to describe the log dirs of the brokers involved.
+ * The calls block, so this is used on the reassignments worker pool.
+ */
+class ReplicaCatchUp {
+
+    private final AdminClient adminClient;
+    private final long timeoutMs;
+
+    ReplicaCatchUp(AdminClient adminClient, long timeoutMs) {
+        this.adminClient = adminClient;
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * Describe the log dirs of the brokers with replicas of the partitions of the given operation,
+     * and so determine how far the replicas in the given target assignment have caught up with the largest replica of each partition.
+     * @return The given progress, with the number of bytes caught up.
+     */
+    ReassignmentProgress measure(Operation operation, Map<TopicPartition, List<Integer>> targets, ReassignmentProgress progress)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        Map<TopicPartition, Map<Integer, DescribeLogDirsResponse.ReplicaInfo>> replicas = new HashMap<>(targets.size());
+        Map<Integer, Map<String, DescribeLogDirsResponse.LogDirInfo>> logDirs = adminClient.describeLogDirs(
+                replicaBrokers(operation, targets)).all().get(timeoutMs, TimeUnit.MILLISECONDS);
+        for (Map.Entry<Integer, Map<String, DescribeLogDirsResponse.LogDirInfo>> brokerDirs : logDirs.entrySet()) {
+            for (DescribeLogDirsResponse.LogDirInfo logDir : brokerDirs.getValue().values()) {
+                if (logDir.error != Errors.NONE) {
+                    continue;
+                }
+                for (Map.Entry<TopicPartition, DescribeLogDirsResponse.ReplicaInfo> replica : logDir.replicaInfos.entrySet()) {
+                    if (targets.containsKey(replica.getKey()) && !replica.getValue().isFuture) {
+                        replicas.computeIfAbsent(replica.getKey(), tp -> new HashMap<>()).put(brokerDirs.getKey(), replica.getValue());
+                    }
+                }
+            }
+        }
+        long total = 0;
+        long caughtUp = 0;
+        long offsetLag = 0;
+        for (Map.Entry<TopicPartition, List<Integer>> target : targets.entrySet()) {
+            Map<Integer, DescribeLogDirsResponse.ReplicaInfo> partitionReplicas = replicas.getOrDefault(target.getKey(), Collections.emptyMap());
+            long largest = 0;
+            for (DescribeLogDirsResponse.ReplicaInfo info : partitionReplicas.values()) {
+                largest = Math.max(largest, info.size);
+            }
+            for (Integer broker : target.getValue()) {
+                total += largest;
+                DescribeLogDirsResponse.ReplicaInfo info = partitionReplicas.get(broker);
+                if (info != null) {
+                    caughtUp += Math.min(info.size, largest);
+                    offsetLag += info.offsetLag;
+                }
+            }
+        }
+        return progress.withBytes(total, caughtUp, offsetLag);
+    }
+
+    /**
+     * @return The ids of the brokers with replicas of the partitions of the given operation,
+     * either as currently assigned or in the given target assignment.
+     */
+    private Set<Integer> replicaBrokers(Operation operation, Map<TopicPartition, List<Integer>> targets)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        Set<Integer> brokers = new HashSet<>();
+        for (List<Integer> targetBrokers : targets.values()) {
+            brokers.addAll(targetBrokers);
+        }
+        for (TopicDescription description : adminClient.describeTopics(operation.getTopics()).all()
+                .get(timeoutMs, TimeUnit.MILLISECONDS).values()) {
+            for (TopicPartitionInfo partition : description.partitions()) {
+                for (Node replica : partition.replicas()) {
+                    brokers.add(replica.id());
+                }
+            }
+        }
+        return brokers;
+    }
+}
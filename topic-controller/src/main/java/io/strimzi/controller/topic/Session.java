@@ -4,49 +4,88 @@
  */
 package io.strimzi.controller.topic;
 
-import io.fabric8.kubernetes.api.model.ConfigMap;
 import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.KubernetesClientException;
 import io.fabric8.kubernetes.client.Watch;
 import io.strimzi.controller.topic.zk.Zk;
 import io.vertx.core.AbstractVerticle;
 import io.vertx.core.Future;
-import io.vertx.core.http.HttpServer;
+import io.vertx.core.Handler;
 import org.apache.kafka.clients.admin.AdminClient;
 import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.zookeeper.Watcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.Properties;
-import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
+import java.util.function.Predicate;
 
 public class Session extends AbstractVerticle {
 
     private final static Logger LOGGER = LoggerFactory.getLogger(Session.class);
 
-    private static final int HEALTH_SERVER_PORT = 8080;
-
     private final Config config;
     private final KubernetesClient kubeClient;
 
     ControllerAssignedKafkaImpl kafka;
+    /**
+     * The Kafka used for topics, whose calls go through a {@link KafkaCircuitBreaker},
+     * and which reads through the {@link #mirror} if there is one.
+     */
+    private Kafka topicKafka;
+    private ZkTopicMirror mirror;
     AdminClient adminClient;
     K8sImpl k8s;
     Controller controller;
     Watch topicCmWatch;
+    Watch templateCmWatch;
     TopicsWatcher topicsWatcher;
     TopicConfigsWatcher topicConfigsWatcher;
     TopicWatcher topicWatcher;
     private volatile boolean stopped = false;
     private Zk zk;
-    private volatile HttpServer healthServer;
+    private final Metrics metrics;
+    private final String tenant;
+    private TopicTemplates topicTemplates;
+    private Predicate<String> managedTopics;
+    private FullReconciler fullReconciler;
+    private ZkDirtyTopicStore dirtyTopicStore;
+    /** The optional tasks which run alongside the reconciliation of topics, while this controller is active. */
+    private final List<BackgroundTask> backgroundTasks = new ArrayList<>();
+    private final List<WorkerPool> workerPools = new ArrayList<>();
+    private LeaderElection leaderElection;
+    private volatile boolean zkDisconnected = false;
+    private volatile boolean healthy = true;
 
     public Session(KubernetesClient kubeClient, Config config) {
+        this(kubeClient, config, new Metrics());
+    }
+
+    /**
+     * @param kubeClient The Kubernetes client, which may be shared with other sessions.
+     * @param metrics The metrics registry, which may be a {@linkplain Metrics#withLabels(String...) view} of one
+     *                shared with other sessions.
+     */
+    public Session(KubernetesClient kubeClient, Config config, Metrics metrics) {
+        this(kubeClient, config, metrics, Main.DEFAULT_TENANT);
+    }
+
+    /**
+     * @param kubeClient The Kubernetes client, which may be shared with other sessions.
+     * @param metrics The metrics registry, which may be a {@linkplain Metrics#withLabels(String...) view} of one
+     *                shared with other sessions.
+     * @param tenant The name of the tenant whose topics this session manages.
+     */
+    public Session(KubernetesClient kubeClient, Config config, Metrics metrics, String tenant) {
         this.kubeClient = kubeClient;
         this.config = config;
+        this.metrics = metrics;
+        this.tenant = tenant;
         StringBuilder sb = new StringBuilder(System.lineSeparator());
         for (Config.Value<?> v: Config.keys()) {
             sb.append("\t").append(v.key).append(": ").append(config.get(v)).append(System.lineSeparator());
@@ -55,188 +94,366 @@ public class Session extends AbstractVerticle {
     }
 
     /**
-     * Stop the controller.
+     * Stop the controller: stop watching, wait for the reconciliations in flight to complete,
+     * hand over the topics whose reconciliation is unfinished to the next controller, and disconnect,
+     * all within the {@link Config#SHUTDOWN_TIMEOUT_MS}.
      */
     @Override
     public void stop(Future<Void> stopFuture) throws Exception {
         this.stopped = true;
-        vertx.executeBlocking(blockingResult -> {
-            long t0 = System.currentTimeMillis();
-            long timeout = 120_000L;
-            LOGGER.info("Stopping");
+        long deadline = System.currentTimeMillis() + config.get(Config.SHUTDOWN_TIMEOUT_MS);
+        stopBackgroundTasks();
+        fullReconciler.stop();
+        LOGGER.info("Stopping");
+        vertx.executeBlocking(watchesClosed -> {
             LOGGER.debug("Stopping kube watch");
-            topicCmWatch.close();
+            closeConfigMapWatches();
             LOGGER.debug("Stopping zk watches");
             topicsWatcher.stop();
-
-            while (controller.isWorkInflight()) {
-                if (System.currentTimeMillis() - t0 > timeout) {
-                    LOGGER.error("Timeout waiting for inflight work to finish");
-                    break;
+            watchesClosed.complete();
+        }, watchesClosed -> handOff(deadline, handedOff -> {
+            // Only give up the leadership once the next leader can see what's unfinished
+            if (leaderElection != null) {
+                leaderElection.stop();
+            }
+            vertx.executeBlocking(blockingResult -> {
+                LOGGER.debug("Stopping kafka {}", kafka);
+                kafka.stop();
+                for (WorkerPool pool : workerPools) {
+                    pool.close();
                 }
-                LOGGER.debug("Waiting for inflight work to finish");
                 try {
-                    Thread.sleep(1_000);
+                    LOGGER.debug("Disconnecting from zookeeper {}", zk);
+                    zk.disconnect();
                 } catch (InterruptedException e) {
                     Thread.currentThread().interrupt();
                 }
+                LOGGER.debug("Closing AdminClient {}", adminClient);
+                adminClient.close(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+
+                LOGGER.info("Stopped");
+                blockingResult.complete();
+            }, stopFuture);
+        }));
+    }
+
+    /**
+     * Wait for the reconciliations in flight to complete, for most of the time until the given deadline,
+     * and store the topics whose reconciliation is unfinished, for the next controller to resync first.
+     * The given handler is called when they've been stored, or at the deadline, whichever is sooner.
+     */
+    private void handOff(long deadline, Handler<Void> handler) {
+        Future<Void> handedOff = Future.future();
+        handedOff.setHandler(ar -> handler.handle(null));
+        long timerId = vertx.setTimer(Math.max(1, deadline - System.currentTimeMillis()), id -> {
+            if (handedOff.tryComplete()) {
+                LOGGER.error("Timeout handing over unfinished reconciliations");
             }
-            LOGGER.debug("Stopping kafka {}", kafka);
-            kafka.stop();
-            try {
-                LOGGER.debug("Disconnecting from zookeeper {}", zk);
-                zk.disconnect();
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+        });
+        // Leave a quarter of the time for storing the unfinished topics and disconnecting
+        controller.drain((deadline - System.currentTimeMillis()) * 3 / 4, drained -> {
+            Map<TopicName, MapName> unfinished = drained.result();
+            if (unfinished.isEmpty()) {
+                vertx.cancelTimer(timerId);
+                handedOff.tryComplete();
+                return;
             }
-            LOGGER.debug("Closing AdminClient {}", adminClient);
-            adminClient.close(timeout - (System.currentTimeMillis() - t0), TimeUnit.MILLISECONDS);
+            LOGGER.info("Handing over {} topics with unfinished reconciliations: {}", unfinished.size(), unfinished.keySet());
+            dirtyTopicStore.add(unfinished, ar -> {
+                if (ar.failed()) {
+                    LOGGER.error("Error handing over unfinished reconciliations, they'll wait for a full reconciliation", ar.cause());
+                }
+                vertx.cancelTimer(timerId);
+                handedOff.tryComplete();
+            });
+        });
+    }
 
-            HttpServer healthServer = this.healthServer;
-            if (healthServer != null) {
-                healthServer.close();
+    /**
+     * Resync the topics whose reconciliation a controller left unfinished when it stopped,
+     * ahead of the initial full reconciliation.
+     */
+    private void resumeHandOff() {
+        dirtyTopicStore.read(ar -> {
+            if (ar.failed()) {
+                LOGGER.error("Error reading the topics handed over, they'll wait for the full reconciliation", ar.cause());
+                return;
             }
+            if (!ar.result().isEmpty()) {
+                LOGGER.info("Resyncing {} topics handed over by the last controller", ar.result().size());
+            }
+            for (Map.Entry<TopicName, MapName> entry : ar.result().entrySet()) {
+                TopicName topicName = entry.getKey();
+                controller.resync(topicName, entry.getValue(), resyncResult -> {
+                    if (resyncResult.succeeded()) {
+                        dirtyTopicStore.remove(topicName, removeResult -> {
+                            if (removeResult.failed()) {
+                                LOGGER.warn("Error removing handed over topic {}", topicName, removeResult.cause());
+                            }
+                        });
+                    } else {
+                        LOGGER.warn("Error resyncing handed over topic {}", topicName, resyncResult.cause());
+                    }
+                });
+            }
+        });
+    }
+
+    private WorkerPool workerPool(String name, int size, long maxExecuteTimeMs) {
+        WorkerPool pool = new WorkerPool(vertx, tenant, name, size, maxExecuteTimeMs, metrics);
+        workerPools.add(pool);
+        LOGGER.debug("Using {}", pool);
+        return pool;
+    }
 
-            LOGGER.info("Stopped");
-            blockingResult.complete();
-        }, stopFuture);
+    /**
+     * Stop the tasks which run alongside the reconciliation of topics, those which are enabled.
+     */
+    private void stopBackgroundTasks() {
+        for (BackgroundTask task : backgroundTasks) {
+            task.stop();
+        }
+    }
+
+    private void closeConfigMapWatches() {
+        // On a standby these were never opened
+        if (topicCmWatch != null) {
+            topicCmWatch.close();
+        }
+        if (templateCmWatch != null) {
+            templateCmWatch.close();
+        }
     }
 
     @Override
     public void start() {
         LOGGER.info("Starting");
-        Properties adminClientProps = new Properties();
-        adminClientProps.setProperty(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, config.get(Config.KAFKA_BOOTSTRAP_SERVERS));
-        this.adminClient = AdminClient.create(adminClientProps);
+        this.adminClient = AdminClient.create(Collections.<String, Object>singletonMap(
+                AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, config.get(Config.KAFKA_BOOTSTRAP_SERVERS)));
         LOGGER.debug("Using AdminClient {}", adminClient);
-        this.kafka = new ControllerAssignedKafkaImpl(adminClient, vertx, config);
-        LOGGER.debug("Using Kafka {}", kafka);
+
+        this.zk = Zk.create(vertx, config.get(Config.ZOOKEEPER_CONNECT), this.config.get(Config.ZOOKEEPER_SESSION_TIMEOUT_MS).intValue());
+        LOGGER.debug("Using ZooKeeper {}", zk);
+
+        ZkOperationStore operationStore = new ZkOperationStore(zk);
+        LOGGER.debug("Using OperationStore {}", operationStore);
+
         LabelPredicate cmPredicate = config.get(Config.LABELS);
 
         String namespace = config.get(Config.NAMESPACE);
         LOGGER.debug("Using namespace {}", namespace);
-        this.k8s = new K8sImpl(vertx, kubeClient, cmPredicate, namespace);
+        // Slow calls to one dependency mustn't hold up those to another
+        WorkerPool k8sReads = workerPool("k8s-reads", config.get(Config.K8S_READ_THREADS), 60_000);
+        WorkerPool k8sWrites = workerPool("k8s-writes", config.get(Config.K8S_WRITE_THREADS), 60_000);
+        this.k8s = new K8sImpl(kubeClient, cmPredicate, namespace, k8sReads, k8sWrites);
         LOGGER.debug("Using k8s {}", k8s);
 
-        this.zk = Zk.create(vertx, config.get(Config.ZOOKEEPER_CONNECT), this.config.get(Config.ZOOKEEPER_SESSION_TIMEOUT_MS).intValue());
-        LOGGER.debug("Using ZooKeeper {}", zk);
+        ReassignmentProgressReporter progressReporter = new ReassignmentProgressReporter(k8s, metrics,
+                config.get(Config.REASSIGN_PROGRESS_ANNOTATION_INTERVAL_MS));
+        this.kafka = new ControllerAssignedKafkaImpl(adminClient, vertx, config, operationStore, progressReporter,
+                workerPool("reassignments", config.get(Config.REASSIGNMENT_THREADS), 600_000));
+        LOGGER.debug("Using Kafka {}", kafka);
+        // Calls to Kafka are limited, and stop while it's unavailable,
+        // and topic metadata is read through the mirror, where it can be
+        this.topicKafka = new KafkaCircuitBreaker(vertx, kafka, config.get(Config.KAFKA_MAX_IN_FLIGHT),
+                config.get(Config.KAFKA_MAX_QUEUED), config.get(Config.KAFKA_CALL_TIMEOUT_MS),
+                config.get(Config.KAFKA_CIRCUIT_OPEN_MS), metrics);
+        if (config.get(Config.ZOOKEEPER_MIRROR)) {
+            this.mirror = new ZkTopicMirror(topicKafka, metrics);
+            this.topicKafka = mirror;
+        }
 
         ZkTopicStore topicStore = new ZkTopicStore(zk);
         LOGGER.debug("Using TopicStore {}", topicStore);
+        this.dirtyTopicStore = new ZkDirtyTopicStore(zk);
 
-        this.controller = new Controller(vertx, kafka, k8s, topicStore, cmPredicate, namespace, config);
+        PriorityScheduler scheduler = new PriorityScheduler(vertx, config.get(Config.RECONCILIATION_CONCURRENCY), metrics);
+        this.controller = new Controller(vertx, topicKafka, k8s, topicStore, cmPredicate, namespace, config, metrics, scheduler);
         LOGGER.debug("Using Controller {}", controller);
 
-        this.topicConfigsWatcher = new TopicConfigsWatcher(controller);
+        TopicFilter topicFilter = new TopicFilter(config.get(Config.TOPICS_INCLUDE), config.get(Config.TOPICS_EXCLUDE));
+        LOGGER.debug("Using {}", topicFilter);
+
+        this.topicTemplates = new TopicTemplates(topicKafka, topicFilter);
+        LOGGER.debug("Using TopicTemplates {}", topicTemplates);
+        // Topics which match a template are managed only through the template
+        this.managedTopics = topicTemplates.individuallyManaged();
+        TopicStoreSweeper topicStoreSweeper = topicStore.sweeper(vertx, managedTopics,
+                config.get(Config.TOPIC_STORE_SWEEP_BATCH_SIZE), config.get(Config.TOPIC_STORE_SWEEP_BATCH_INTERVAL_MS), metrics);
+        backgroundTasks.add(topicStoreSweeper);
+        // A collection of the consumer lag reads the commits for up to its interval, so it has a thread of its own
+        long consumerLagIntervalMs = config.get(Config.CONSUMER_LAG_INTERVAL_MS);
+        WorkerPool consumerLagReads = consumerLagIntervalMs > 0
+                ? workerPool("consumer-lag", 1, consumerLagIntervalMs + 60_000) : null;
+        backgroundTasks.addAll(BackgroundTasks.create(vertx, config, kubeClient, adminClient, k8s, zk, managedTopics,
+                k8sReads, k8sWrites, consumerLagReads, metrics));
+        this.fullReconciler = new FullReconciler(vertx, config, kubeClient, controller, topicKafka, k8s,
+                topicFilter, topicTemplates, scheduler, zk, topicStoreSweeper, backgroundTasks, metrics);
+        LOGGER.debug("Using FullReconciler {}", fullReconciler);
+        zk.connectionStateHandler(this::onZkConnectionState);
+
+        this.topicConfigsWatcher = new TopicConfigsWatcher(controller, managedTopics, mirror);
         LOGGER.debug("Using TopicConfigsWatcher {}", topicConfigsWatcher);
-        this.topicWatcher = new TopicWatcher(controller);
+        this.topicWatcher = new TopicWatcher(controller, managedTopics, mirror);
         LOGGER.debug("Using TopicWatcher {}", topicWatcher);
-        this.topicsWatcher = new TopicsWatcher(controller, topicConfigsWatcher, topicWatcher);
+        this.topicsWatcher = new TopicsWatcher(controller, topicConfigsWatcher, topicWatcher, managedTopics, topicTemplates, mirror);
         LOGGER.debug("Using TopicsWatcher {}", topicsWatcher);
-        topicsWatcher.start(zk);
 
-        Thread configMapThread = new Thread(() -> {
-            LOGGER.debug("Watching configmaps matching {}", cmPredicate);
-            Session.this.topicCmWatch = kubeClient.configMaps().inNamespace(kubeClient.getNamespace()).watch(new ConfigMapWatcher(controller, cmPredicate));
-            LOGGER.debug("Watching setup");
-
-            // start the HTTP server for healthchecks
-            healthServer = this.startHealthServer();
-
-        }, "configmap-watcher");
-        LOGGER.debug("Starting {}", configMapThread);
-        configMapThread.start();
-
-        // Reconcile initially
-        reconcileTopics("initial");
-        // And periodically after that
-        vertx.setPeriodic(this.config.get(Config.FULL_RECONCILIATION_INTERVAL_MS),
-            timerId -> {
-                if (stopped) {
-                    vertx.cancelTimer(timerId);
-                    return;
+        if (config.get(Config.LEADER_ELECTION)) {
+            String identity = System.getenv().getOrDefault("HOSTNAME", UUID.randomUUID().toString());
+            this.leaderElection = new LeaderElection(vertx, zk, identity, metrics);
+            // While on standby keep the connections open, and the templates and the mirror up to date, ready to take over
+            fullReconciler.listTemplates(ar -> {
+                if (ar.succeeded()) {
+                    topicTemplates.replaceAll(ar.result());
                 }
-                reconcileTopics("periodic");
             });
+            if (mirror != null) {
+                topicsWatcher.startMirroring(zk);
+            }
+            leaderElection.start(elected -> activate());
+        } else {
+            activate();
+        }
         LOGGER.info("Started");
     }
 
-    void reconcileTopics(String reconciliationType) {
-        LOGGER.info("Starting {} reconciliation", reconciliationType);
-        kafka.listTopics(arx -> {
-            if (arx.succeeded()) {
-                Set<String> kafkaTopics = arx.result();
-                LOGGER.debug("Reconciling kafka topics {}", kafkaTopics);
-                // First reconcile the topics in kafka
-                for (String name : kafkaTopics) {
-                    LOGGER.debug("{} reconciliation of topic {}", reconciliationType, name);
-                    TopicName topicName = new TopicName(name);
-                    k8s.getFromName(topicName.asMapName(), ar -> {
-                        ConfigMap cm = ar.result();
-
-                        controller.reconcile(cm, topicName, reconcileResult -> {
-                            if (reconcileResult.succeeded()) {
-                                LOGGER.info("Success {} reconciling ConfigMap {} topic {}",
-                                        reconciliationType, Controller.logConfigMap(cm), topicName);
-                            } else {
-                                LOGGER.error("Error {} reconciling ConfigMap {} topic {}",
-                                        reconciliationType, Controller.logConfigMap(cm), topicName, reconcileResult.cause());
-                            }
-                        });
-                    });
-                }
+    /**
+     * Start watching and reconciling topics: as soon as the controller starts, or when using leader election,
+     * once this replica has been elected leader.
+     */
+    private void activate() {
+        LOGGER.info("Activating");
+        // On a standby with a mirror the topics are already watched, so this only starts reconciling their changes
+        topicsWatcher.start(zk);
 
-                LOGGER.debug("Reconciling configmaps");
-                // Then those in k8s which aren't in kafka
-                k8s.listMaps(ar -> {
-                    if (ar.succeeded()) {
-                        List<ConfigMap> configMaps = ar.result();
-                        Map<String, ConfigMap> configMapsMap = configMaps.stream().collect(Collectors.toMap(
-                            cm -> cm.getMetadata().getName(),
-                            cm -> cm));
-                        configMapsMap.keySet().removeAll(kafkaTopics);
-                        LOGGER.debug("Reconciling configmaps: {}", configMapsMap.keySet());
-                        for (ConfigMap cm : configMapsMap.values()) {
-                            LOGGER.debug("{} reconciliation of configmap {}", reconciliationType, cm.getMetadata().getName());
-
-                            TopicName topicName = new TopicName(cm);
-                            controller.reconcile(cm, topicName, reconcileResult -> {
-                                if (reconcileResult.succeeded()) {
-                                    LOGGER.info("Success {} reconciling ConfigMap {}",
-                                            reconciliationType, Controller.logConfigMap(cm));
-                                } else {
-                                    LOGGER.error("Error {} reconciling ConfigMap {}",
-                                            reconciliationType, Controller.logConfigMap(cm), reconcileResult.cause());
-                                }
-                            });
-                        }
-                    } else {
-                        LOGGER.error("Unable to list ConfigMaps", ar.cause());
+        LabelPredicate cmPredicate = config.get(Config.LABELS);
+        LabelPredicate templatePredicate = config.get(Config.TEMPLATE_LABELS);
+        fullReconciler.loadSnapshot(snapshot -> {
+            vertx.executeBlocking(future -> {
+                LOGGER.debug("Watching configmaps matching {}", cmPredicate);
+                watchConfigMaps(cmPredicate, snapshot != null ? snapshot.getResourceVersion() : null);
+                LOGGER.debug("Watching template configmaps matching {}", templatePredicate);
+                Session.this.templateCmWatch = kubeClient.configMaps().inNamespace(config.get(Config.NAMESPACE)).withLabels(templatePredicate.labels()).watch(topicTemplates);
+                LOGGER.debug("Watching setup");
+                future.complete();
+            }, ar -> {
+                    if (ar.failed()) {
+                        LOGGER.error("Error watching ConfigMaps", ar.cause());
                     }
-
-                    // Finally those in private store which we've not dealt with so far...
-                    // TODO ^^
                 });
-            } else {
-                LOGGER.error("Error performing {} reconciliation", reconciliationType, arx.cause());
+
+            // Resume any reassignments which were in progress when we last stopped
+            kafka.resumeOperations(ar -> {
+                if (ar.failed()) {
+                    LOGGER.error("Error resuming operations", ar.cause());
+                }
+            });
+
+            for (BackgroundTask task : backgroundTasks) {
+                task.start();
             }
+
+            // The topics left unfinished by the last controller first
+            resumeHandOff();
+
+            // Reconcile initially, and periodically after that
+            fullReconciler.start(snapshot);
         });
     }
 
     /**
-     * Start an HTTP health server
+     * Watch the topic ConfigMaps, from the given resourceVersion if it's not null and is still available.
      */
-    private HttpServer startHealthServer() {
+    private void watchConfigMaps(LabelPredicate cmPredicate, String resourceVersion) {
+        ConfigMapWatcher watcher = new ConfigMapWatcher(controller, cmPredicate, topicTemplates, this::onConfigMapWatchClosed);
+        if (resourceVersion != null) {
+            try {
+                this.topicCmWatch = kubeClient.configMaps().inNamespace(config.get(Config.NAMESPACE)).watch(resourceVersion, watcher);
+                LOGGER.info("Resumed ConfigMap watch from resourceVersion {}", resourceVersion);
+                return;
+            } catch (KubernetesClientException e) {
+                LOGGER.warn("Unable to resume ConfigMap watch from resourceVersion {}", resourceVersion, e);
+            }
+        }
+        this.topicCmWatch = kubeClient.configMaps().inNamespace(config.get(Config.NAMESPACE)).watch(watcher);
+    }
 
-        return this.vertx.createHttpServer()
-                .requestHandler(request -> {
+    /**
+     * Re-establish the ConfigMap watch after it was closed because of an error.
+     * Any changes made while it was closed are found by bringing forward the next full reconciliation.
+     */
+    private void onConfigMapWatchClosed(KubernetesClientException e) {
+        if (stopped) {
+            return;
+        }
+        fullReconciler.drift(FullReconciliationInterval.WATCH_RECONNECT);
+        vertx.executeBlocking(future -> {
+            LOGGER.info("Re-establishing the ConfigMap watch");
+            watchConfigMaps(config.get(Config.LABELS), null);
+            future.complete();
+        }, ar -> {
+                if (ar.failed()) {
+                    LOGGER.error("Error re-establishing the ConfigMap watch", ar.cause());
+                }
+            });
+    }
 
-                    if (request.path().equals("/healthy")) {
-                        request.response().setStatusCode(200).end();
-                    } else if (request.path().equals("/ready")) {
-                        request.response().setStatusCode(200).end();
-                    }
-                })
-                .listen(HEALTH_SERVER_PORT);
+    private void onZkConnectionState(Watcher.Event.KeeperState state) {
+        if (mirror != null) {
+            mirror.connectionState(state);
+        }
+        switch (state) {
+            case Disconnected:
+                zkDisconnected = true;
+                break;
+            case SyncConnected:
+                if (zkDisconnected) {
+                    zkDisconnected = false;
+                    fullReconciler.drift(FullReconciliationInterval.ZK_RECONNECT);
+                }
+                break;
+            case Expired:
+                fullReconciler.drift(FullReconciliationInterval.ZK_SESSION_EXPIRED);
+                if (leaderElection != null) {
+                    // The leader's znode went with the session, so another replica may already have taken over,
+                    // and without a session this one can't campaign again, so it needs restarting
+                    LOGGER.error("ZooKeeper session expired while {}, failing the liveness check",
+                            leaderElection.sessionExpired() ? "leader" : "on standby");
+                    this.stopped = true;
+                    this.healthy = false;
+                    fullReconciler.stop();
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    void reconcileTopics(String reconciliationType) {
+        fullReconciler.reconcileTopics(reconciliationType);
+    }
+
+    /**
+     * @return false if this session has failed in a way which requires the process to be restarted.
+     */
+    boolean isHealthy() {
+        return healthy;
+    }
+
+    /**
+     * @return A JSON description of the in-flight actions of the controller.
+     */
+    String describeInflight() {
+        Controller controller = this.controller;
+        return controller != null ? controller.describeInflight() : "{}";
+    }
+
+    /**
+     * @return A JSON description of the slowest recent convergences of topics following watch events.
+     */
+    String describeConvergence() {
+        Controller controller = this.controller;
+        return controller != null ? controller.describeConvergence() : "[]";
     }
 }
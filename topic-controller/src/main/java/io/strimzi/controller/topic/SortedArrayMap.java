@@ -0,0 +1,132 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A compact, immutable map of strings, used for topic configs.
+ * The keys are held in a sorted array (so lookup is by binary search) with the values in a parallel array,
+ * which costs two arrays per map rather than a table and an entry object per mapping.
+ * Keys and short values are {@linkplain #intern(String) interned}, since the same handful of config names and
+ * values (such as {@code cleanup.policy=compact}) recur across thousands of topics.
+ * Iteration is in key order.
+ */
+final class SortedArrayMap extends AbstractMap<String, String> {
+
+    private static final SortedArrayMap EMPTY = new SortedArrayMap(new String[0], new String[0]);
+
+    /** Values longer than this are unlikely to be shared between topics, so aren't interned. */
+    private static final int MAX_INTERNED_LENGTH = 64;
+
+    /** Bounds the interned strings, so that unusual values can't make them grow without limit. */
+    private static final int MAX_INTERNED = 16_384;
+
+    private static final ConcurrentHashMap<String, String> INTERNED = new ConcurrentHashMap<>();
+
+    private final String[] keys;
+    private final String[] values;
+
+    private SortedArrayMap(String[] keys, String[] values) {
+        this.keys = keys;
+        this.values = values;
+    }
+
+    /**
+     * @return An immutable copy of the given map.
+     */
+    static Map<String, String> copyOf(Map<String, String> map) {
+        if (map instanceof SortedArrayMap) {
+            return map;
+        } else if (map.isEmpty()) {
+            return EMPTY;
+        }
+        String[] keys = map.keySet().toArray(new String[map.size()]);
+        Arrays.sort(keys);
+        String[] values = new String[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            values[i] = intern(map.get(keys[i]));
+            keys[i] = intern(keys[i]);
+        }
+        return new SortedArrayMap(keys, values);
+    }
+
+    /**
+     * @return A canonical instance equal to the given string, or the string itself if it's too long to be worth interning,
+     * or there are already too many interned strings.
+     */
+    static String intern(String s) {
+        if (s == null || s.length() > MAX_INTERNED_LENGTH) {
+            return s;
+        }
+        String existing = INTERNED.get(s);
+        if (existing != null) {
+            return existing;
+        } else if (INTERNED.size() >= MAX_INTERNED) {
+            return s;
+        }
+        existing = INTERNED.putIfAbsent(s, s);
+        return existing != null ? existing : s;
+    }
+
+    private int indexOf(Object key) {
+        return key instanceof String ? Arrays.binarySearch(keys, key) : -1;
+    }
+
+    @Override
+    public int size() {
+        return keys.length;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public String get(Object key) {
+        int index = indexOf(key);
+        return index >= 0 ? values[index] : null;
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        return new AbstractSet<Entry<String, String>>() {
+            @Override
+            public Iterator<Entry<String, String>> iterator() {
+                return new Iterator<Entry<String, String>>() {
+                    private int index = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return index < keys.length;
+                    }
+
+                    @Override
+                    public Entry<String, String> next() {
+                        if (index >= keys.length) {
+                            throw new NoSuchElementException();
+                        }
+                        Entry<String, String> entry = new SimpleImmutableEntry<>(keys[index], values[index]);
+                        index++;
+                        return entry;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return keys.length;
+            }
+        };
+    }
+}
@@ -4,10 +4,14 @@
  */
 package io.strimzi.controller.topic;
 
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * The state of a topic: its name, the number of partitions and replicas and its config.
+ * The config holds only those entries which differ from the defaults, in a compact immutable map,
+ * since there can be many thousands of topics in memory at once.
+ */
 public class Topic {
 
     public static class Builder {
@@ -124,6 +128,9 @@ public class Topic {
 
     private final short numReplicas;
 
+    // Lazily computed, like String.hashCode()
+    private long contentHash;
+
     public TopicName getTopicName() {
         return topicName;
     }
@@ -157,7 +164,48 @@ public class Topic {
         this.mapName = mapName;
         this.numPartitions = numPartitions;
         this.numReplicas = numReplicas;
-        this.config = Collections.unmodifiableMap(config);
+        this.config = SortedArrayMap.copyOf(config);
+    }
+
+    /**
+     * A hash of the name, number of partitions and replicas, and the config of this topic,
+     * which is stable across JVMs, so it can be persisted and compared with the hashes of other representations
+     * of the topic to detect drift cheaply. The map name is not part of the content.
+     */
+    public long getContentHash() {
+        long h = contentHash;
+        if (h == 0) {
+            // 64-bit FNV-1a
+            h = 0xcbf29ce484222325L;
+            h = hash(h, topicName.toString());
+            h = hash(h, Integer.toString(numPartitions));
+            h = hash(h, Short.toString(numReplicas));
+            // The config is a SortedArrayMap, so the iteration order is stable
+            for (Map.Entry<String, String> entry : config.entrySet()) {
+                h = hash(h, entry.getKey());
+                h = hash(h, entry.getValue());
+            }
+            contentHash = h;
+        }
+        return h;
+    }
+
+    private static long hash(long h, String s) {
+        if (s == null) {
+            return (h ^ 0xfffe) * 0x100000001b3L;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            h = (h ^ s.charAt(i)) * 0x100000001b3L;
+        }
+        // Terminate each string, so that ("ab", "c") and ("a", "bc") differ
+        return (h ^ 0xffff) * 0x100000001b3L;
+    }
+
+    /**
+     * @return The {@link #getContentHash() content hash} as a hex string.
+     */
+    public String getContentHashString() {
+        return String.format("%016x", getContentHash());
     }
 
     @Override
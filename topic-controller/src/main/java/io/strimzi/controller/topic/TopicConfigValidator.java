@@ -0,0 +1,111 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import org.apache.kafka.common.config.ConfigDef;
+import org.apache.kafka.common.config.ConfigDef.Importance;
+import org.apache.kafka.common.config.ConfigDef.Type;
+import org.apache.kafka.common.config.ConfigException;
+import org.apache.kafka.common.config.TopicConfig;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.apache.kafka.common.config.ConfigDef.Range.atLeast;
+import static org.apache.kafka.common.config.ConfigDef.Range.between;
+import static org.apache.kafka.common.config.ConfigDef.ValidString.in;
+
+/**
+ * Validates topic configs against the definitions of the topic configs the broker accepts,
+ * so that invalid configs in a ConfigMap can be rejected without asking Kafka.
+ *
+ * <p>The definitions are those of the broker's {@code kafka.log.LogConfig} for the version of Kafka we support,
+ * which isn't on the controller's classpath, so they're repeated here (and compared with LogConfig's in the tests).</p>
+ */
+class TopicConfigValidator {
+
+    static final String LEADER_REPLICATION_THROTTLED_REPLICAS_CONFIG = "leader.replication.throttled.replicas";
+    static final String FOLLOWER_REPLICATION_THROTTLED_REPLICAS_CONFIG = "follower.replication.throttled.replicas";
+
+    /** The smallest segment the broker accepts: the overhead of a single v0 record. */
+    private static final int MIN_SEGMENT_BYTES = 14;
+
+    private static final ConfigDef CONFIG_DEF = new ConfigDef()
+            .define(TopicConfig.SEGMENT_BYTES_CONFIG, Type.INT, ConfigDef.NO_DEFAULT_VALUE, atLeast(MIN_SEGMENT_BYTES), Importance.MEDIUM, "")
+            .define(TopicConfig.SEGMENT_MS_CONFIG, Type.LONG, ConfigDef.NO_DEFAULT_VALUE, atLeast(0), Importance.MEDIUM, "")
+            .define(TopicConfig.SEGMENT_JITTER_MS_CONFIG, Type.LONG, ConfigDef.NO_DEFAULT_VALUE, atLeast(0), Importance.MEDIUM, "")
+            .define(TopicConfig.SEGMENT_INDEX_BYTES_CONFIG, Type.INT, ConfigDef.NO_DEFAULT_VALUE, atLeast(0), Importance.MEDIUM, "")
+            .define(TopicConfig.FLUSH_MESSAGES_INTERVAL_CONFIG, Type.LONG, ConfigDef.NO_DEFAULT_VALUE, atLeast(0), Importance.MEDIUM, "")
+            .define(TopicConfig.FLUSH_MS_CONFIG, Type.LONG, ConfigDef.NO_DEFAULT_VALUE, atLeast(0), Importance.MEDIUM, "")
+            .define(TopicConfig.RETENTION_BYTES_CONFIG, Type.LONG, ConfigDef.NO_DEFAULT_VALUE, null, Importance.MEDIUM, "")
+            .define(TopicConfig.RETENTION_MS_CONFIG, Type.LONG, ConfigDef.NO_DEFAULT_VALUE, null, Importance.MEDIUM, "")
+            .define(TopicConfig.MAX_MESSAGE_BYTES_CONFIG, Type.INT, ConfigDef.NO_DEFAULT_VALUE, atLeast(0), Importance.MEDIUM, "")
+            .define(TopicConfig.INDEX_INTERVAL_BYTES_CONFIG, Type.INT, ConfigDef.NO_DEFAULT_VALUE, atLeast(0), Importance.MEDIUM, "")
+            .define(TopicConfig.DELETE_RETENTION_MS_CONFIG, Type.LONG, ConfigDef.NO_DEFAULT_VALUE, atLeast(0), Importance.MEDIUM, "")
+            .define(TopicConfig.MIN_COMPACTION_LAG_MS_CONFIG, Type.LONG, ConfigDef.NO_DEFAULT_VALUE, atLeast(0), Importance.MEDIUM, "")
+            .define(TopicConfig.FILE_DELETE_DELAY_MS_CONFIG, Type.LONG, ConfigDef.NO_DEFAULT_VALUE, atLeast(0), Importance.MEDIUM, "")
+            .define(TopicConfig.MIN_CLEANABLE_DIRTY_RATIO_CONFIG, Type.DOUBLE, ConfigDef.NO_DEFAULT_VALUE, between(0, 1), Importance.MEDIUM, "")
+            .define(TopicConfig.CLEANUP_POLICY_CONFIG, Type.LIST, ConfigDef.NO_DEFAULT_VALUE,
+                    ConfigDef.ValidList.in(TopicConfig.CLEANUP_POLICY_COMPACT, TopicConfig.CLEANUP_POLICY_DELETE), Importance.MEDIUM, "")
+            .define(TopicConfig.UNCLEAN_LEADER_ELECTION_ENABLE_CONFIG, Type.BOOLEAN, ConfigDef.NO_DEFAULT_VALUE, null, Importance.MEDIUM, "")
+            .define(TopicConfig.MIN_IN_SYNC_REPLICAS_CONFIG, Type.INT, ConfigDef.NO_DEFAULT_VALUE, atLeast(1), Importance.MEDIUM, "")
+            .define(TopicConfig.COMPRESSION_TYPE_CONFIG, Type.STRING, ConfigDef.NO_DEFAULT_VALUE,
+                    in("uncompressed", "snappy", "lz4", "gzip", "producer"), Importance.MEDIUM, "")
+            .define(TopicConfig.PREALLOCATE_CONFIG, Type.BOOLEAN, ConfigDef.NO_DEFAULT_VALUE, null, Importance.MEDIUM, "")
+            .define(TopicConfig.MESSAGE_FORMAT_VERSION_CONFIG, Type.STRING, ConfigDef.NO_DEFAULT_VALUE, null, Importance.MEDIUM, "")
+            .define(TopicConfig.MESSAGE_TIMESTAMP_TYPE_CONFIG, Type.STRING, ConfigDef.NO_DEFAULT_VALUE,
+                    in("CreateTime", "LogAppendTime"), Importance.MEDIUM, "")
+            .define(TopicConfig.MESSAGE_TIMESTAMP_DIFFERENCE_MAX_MS_CONFIG, Type.LONG, ConfigDef.NO_DEFAULT_VALUE, atLeast(0), Importance.MEDIUM, "")
+            .define(LEADER_REPLICATION_THROTTLED_REPLICAS_CONFIG, Type.LIST, ConfigDef.NO_DEFAULT_VALUE,
+                    TopicConfigValidator::ensureThrottledReplicas, Importance.MEDIUM, "")
+            .define(FOLLOWER_REPLICATION_THROTTLED_REPLICAS_CONFIG, Type.LIST, ConfigDef.NO_DEFAULT_VALUE,
+                    TopicConfigValidator::ensureThrottledReplicas, Importance.MEDIUM, "");
+
+    private TopicConfigValidator() {
+    }
+
+    /**
+     * The throttled replicas are either {@code *} or a list of {@code partitionId:brokerId}.
+     */
+    private static void ensureThrottledReplicas(String name, Object value) {
+        List<?> replicas = (List<?>) value;
+        boolean valid = replicas.stream().allMatch(r -> String.valueOf(r).trim().matches("([0-9]+:[0-9]+)?"))
+                || !replicas.isEmpty() && "*".equals(String.valueOf(replicas.get(0)).trim());
+        if (!valid) {
+            throw new ConfigException(name, value, "Should be a list of partitionId:brokerId, or *");
+        }
+    }
+
+    /**
+     * @return The names of the topic configs which the broker accepts.
+     */
+    static Set<String> names() {
+        return CONFIG_DEF.names();
+    }
+
+    /**
+     * Check that the given topic config would be accepted by the broker.
+     * @return null if the config is valid, otherwise a description of what's wrong with it.
+     */
+    static String validate(Map<String, String> config) {
+        Map<String, ConfigDef.ConfigKey> keys = CONFIG_DEF.configKeys();
+        for (Map.Entry<String, String> entry : config.entrySet()) {
+            ConfigDef.ConfigKey key = keys.get(entry.getKey());
+            if (key == null) {
+                return "The key '" + entry.getKey() + "' is not a topic config";
+            }
+            try {
+                Object value = ConfigDef.parseType(key.name, entry.getValue(), key.type);
+                if (key.validator != null) {
+                    key.validator.ensureValid(key.name, value);
+                }
+            } catch (ConfigException e) {
+                return e.getMessage();
+            }
+        }
+        return null;
+    }
+}
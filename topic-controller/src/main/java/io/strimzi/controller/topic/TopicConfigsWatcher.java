@@ -6,6 +6,8 @@ package io.strimzi.controller.topic;
 
 import io.vertx.core.Handler;
 
+import java.util.function.Predicate;
+
 /**
  * ZooKeeper watcher for child znodes of {@code /configs/topics},
  * calling {@link Controller#onTopicConfigChanged(TopicName, Handler)}
@@ -15,8 +17,32 @@ class TopicConfigsWatcher extends ZkWatcher {
 
     private static final String CONFIGS_ZNODE = "/config/topics";
 
-    TopicConfigsWatcher(Controller controller) {
-        super(controller, CONFIGS_ZNODE);
+    private final ZkTopicMirror mirror;
+
+    TopicConfigsWatcher(Controller controller, Predicate<String> topicFilter) {
+        this(controller, topicFilter, null);
+    }
+
+    /**
+     * @param mirror the mirror to update with the topics' config, or null
+     */
+    TopicConfigsWatcher(Controller controller, Predicate<String> topicFilter, ZkTopicMirror mirror) {
+        super(controller, CONFIGS_ZNODE, topicFilter);
+        this.mirror = mirror;
+    }
+
+    @Override
+    protected void onData(String child, byte[] data) {
+        if (mirror != null) {
+            mirror.configChanged(child, data);
+        }
+    }
+
+    @Override
+    protected void onRemoved(String child) {
+        if (mirror != null) {
+            mirror.configRemoved(child);
+        }
     }
 
     @Override
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Decides which topics the controller manages, according to lists of include and exclude patterns.
+ * A topic is managed if it matches some include pattern (or there are no include patterns)
+ * and it doesn't match any exclude pattern.
+ *
+ * <p>Patterns are given as a comma-separated list, where each pattern is one of:</p>
+ * <ul>
+ *     <li>{@code prefix*}, matching topic names which start with {@code prefix},</li>
+ *     <li>{@code *suffix}, matching topic names which end with {@code suffix},</li>
+ *     <li>{@code /regex/}, matching topic names which {@linkplain java.util.regex.Matcher#matches() match} the
+ *     Java regular expression {@code regex}, or</li>
+ *     <li>a topic name, matching only that topic.</li>
+ * </ul>
+ *
+ * <p>Prefixes and suffixes are held in tries, so they cost a single pass over the topic name
+ * however many there are, and all the regular expressions are combined into a single pattern.
+ * Topic names which are excluded are ignored by the watchers and by full reconciliation.</p>
+ */
+public class TopicFilter implements Predicate<String> {
+
+    /** A filter which matches every topic. */
+    public static final TopicFilter ALL = new TopicFilter("", "");
+
+    private final Patterns include;
+    private final Patterns exclude;
+    private final String includeSpec;
+    private final String excludeSpec;
+
+    public TopicFilter(String include, String exclude) {
+        this.includeSpec = include == null ? "" : include;
+        this.excludeSpec = exclude == null ? "" : exclude;
+        this.include = new Patterns(includeSpec);
+        this.exclude = new Patterns(excludeSpec);
+    }
+
+    /**
+     * @return true if the topic with the given name should be managed by the controller.
+     */
+    @Override
+    public boolean test(String topicName) {
+        return (include.isEmpty() || include.matches(topicName))
+                && !exclude.matches(topicName);
+    }
+
+    public boolean test(TopicName topicName) {
+        return test(topicName.toString());
+    }
+
+    @Override
+    public String toString() {
+        return "TopicFilter(include=" + includeSpec + ", exclude=" + excludeSpec + ")";
+    }
+
+    /** A parsed list of patterns. */
+    private static class Patterns {
+        private final Set<String> names = new HashSet<>();
+        private final Trie prefixes = new Trie();
+        private final Trie suffixes = new Trie();
+        private final Pattern regex;
+
+        Patterns(String spec) {
+            StringBuilder regexes = new StringBuilder();
+            for (String pattern : spec.split(",")) {
+                pattern = pattern.trim();
+                if (pattern.isEmpty()) {
+                    continue;
+                }
+                if (pattern.length() >= 2 && pattern.startsWith("/") && pattern.endsWith("/")) {
+                    String re = pattern.substring(1, pattern.length() - 1);
+                    // Validate it on its own, for a better error message
+                    Pattern.compile(re);
+                    if (regexes.length() > 0) {
+                        regexes.append('|');
+                    }
+                    regexes.append("(?:").append(re).append(')');
+                } else if (pattern.endsWith("*") && pattern.indexOf('*') == pattern.length() - 1) {
+                    prefixes.add(pattern.substring(0, pattern.length() - 1), false);
+                } else if (pattern.startsWith("*") && pattern.lastIndexOf('*') == 0) {
+                    suffixes.add(pattern.substring(1), true);
+                } else if (pattern.indexOf('*') >= 0) {
+                    throw new IllegalArgumentException("Invalid topic pattern '" + pattern
+                            + "': '*' may only be used at the start or end of a pattern; use /regex/ for anything more complex");
+                } else {
+                    names.add(pattern);
+                }
+            }
+            this.regex = regexes.length() > 0 ? Pattern.compile(regexes.toString()) : null;
+        }
+
+        boolean isEmpty() {
+            return names.isEmpty() && prefixes.isEmpty() && suffixes.isEmpty() && regex == null;
+        }
+
+        boolean matches(String topicName) {
+            return names.contains(topicName)
+                    || prefixes.matchesPrefixOf(topicName, false)
+                    || suffixes.matchesPrefixOf(topicName, true)
+                    || regex != null && regex.matcher(topicName).matches();
+        }
+    }
+
+    /**
+     * A trie of strings, which can determine whether any of those strings is a prefix
+     * (or, when reversed, a suffix) of a given string in time proportional to the length of the matched string.
+     */
+    static class Trie {
+        private final Node root = new Node();
+
+        private static class Node {
+            boolean terminal;
+            // Sorted, for binary search
+            char[] chars = new char[0];
+            Node[] children = new Node[0];
+
+            Node child(char ch) {
+                int index = Arrays.binarySearch(chars, ch);
+                return index >= 0 ? children[index] : null;
+            }
+
+            Node addChild(char ch) {
+                int index = Arrays.binarySearch(chars, ch);
+                if (index >= 0) {
+                    return children[index];
+                }
+                int insert = -index - 1;
+                char[] newChars = new char[chars.length + 1];
+                Node[] newChildren = new Node[children.length + 1];
+                System.arraycopy(chars, 0, newChars, 0, insert);
+                System.arraycopy(children, 0, newChildren, 0, insert);
+                newChars[insert] = ch;
+                Node child = new Node();
+                newChildren[insert] = child;
+                System.arraycopy(chars, insert, newChars, insert + 1, chars.length - insert);
+                System.arraycopy(children, insert, newChildren, insert + 1, children.length - insert);
+                chars = newChars;
+                children = newChildren;
+                return child;
+            }
+        }
+
+        private boolean empty = true;
+
+        void add(String s, boolean reversed) {
+            Node node = root;
+            int length = s.length();
+            for (int i = 0; i < length; i++) {
+                node = node.addChild(s.charAt(reversed ? length - 1 - i : i));
+            }
+            node.terminal = true;
+            empty = false;
+        }
+
+        boolean isEmpty() {
+            return empty;
+        }
+
+        boolean matchesPrefixOf(String s, boolean reversed) {
+            if (empty) {
+                return false;
+            }
+            Node node = root;
+            int length = s.length();
+            for (int i = 0; ; i++) {
+                if (node.terminal) {
+                    return true;
+                }
+                if (i == length) {
+                    return false;
+                }
+                node = node.child(s.charAt(reversed ? length - 1 - i : i));
+                if (node == null) {
+                    return false;
+                }
+            }
+        }
+    }
+}
@@ -60,14 +60,21 @@ class TopicName {
      * prefix and the concatenation of the prefix and hash is returned.
      */
     public MapName asMapName() {
+        return asMapName(name);
+    }
+
+    /**
+     * Return a valid map name for the given name, in the same way as {@link #asMapName()}.
+     */
+    static MapName asMapName(String name) {
         MapName mname;
-        if (MapName.isValidResourceName(this.name)) {
-            mname = new MapName(this.name);
+        if (MapName.isValidResourceName(name)) {
+            mname = new MapName(name);
         } else {
             StringBuilder n = new StringBuilder();
-            for (int i = 0; i < this.name.length(); i++) {
-                char next = i < this.name.length() - 1 ? this.name.charAt(i + 1) : '\0';
-                char ch = this.name.charAt(i);
+            for (int i = 0; i < name.length(); i++) {
+                char next = i < name.length() - 1 ? name.charAt(i + 1) : '\0';
+                char ch = name.charAt(i);
                 if (isInRange('a', ch, 'z')
                         || isInRange('0', ch, '9')) {
                     n.append(ch);
@@ -107,7 +114,7 @@ class TopicName {
                 throw new RuntimeException("Couldn't get SHA1 MessageDigest", e);
             }
             final int sha1HexLength = 40;
-            byte[] sha1sum = md.digest(this.name.getBytes(StandardCharsets.UTF_8));
+            byte[] sha1sum = md.digest(name.getBytes(StandardCharsets.UTF_8));
             int truncate = n.length() + sha1HexLength + SEP.length() - MapName.MAX_RESOURCE_NAME_LENGTH;
             if (truncate > 0) {
                 n.setLength(MapName.MAX_RESOURCE_NAME_LENGTH - (sha1HexLength + SEP.length()));
@@ -125,7 +132,7 @@ class TopicName {
         return mname;
     }
 
-    private boolean isInRange(char a, char ch, char z) {
+    private static boolean isInRange(char a, char ch, char z) {
         return a <= ch && ch <= z;
     }
 }
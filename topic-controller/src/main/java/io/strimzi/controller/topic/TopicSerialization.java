@@ -39,6 +39,7 @@ public class TopicSerialization {
     public static final String CM_KEY_REPLICAS = "replicas";
     public static final String CM_KEY_NAME = "name";
     public static final String CM_KEY_CONFIG = "config";
+    public static final String CM_KEY_PATTERN = "pattern";
 
     // These are the keys in the JSON we store in ZK
     public static final String JSON_KEY_TOPIC_NAME = "topic-name";
@@ -86,6 +87,11 @@ public class TopicSerialization {
                         CM_KEY_CONFIG + "': The key '" + key + "' of the topic config is invalid: " + msg);
             }
         }
+        String invalid = TopicConfigValidator.validate((Map<String, String>) result);
+        if (invalid != null) {
+            throw new InvalidConfigMapException(cm, "ConfigMap's 'data' section has invalid key '" +
+                    CM_KEY_CONFIG + "': " + invalid);
+        }
         return (Map<String, String>) result;
     }
 
@@ -113,6 +119,36 @@ public class TopicSerialization {
         return builder.build();
     }
 
+    /**
+     * Create a TopicTemplate to reflect the given template ConfigMap.
+     * @throws InvalidConfigMapException
+     */
+    public static TopicTemplate fromTemplateConfigMap(ConfigMap cm) {
+        if (cm == null) {
+            return null;
+        }
+        return new TopicTemplate(new MapName(cm),
+                getPattern(cm),
+                getPartitions(cm),
+                getReplicas(cm),
+                topicConfigFromConfigMapString(cm));
+    }
+
+    private static TopicFilter getPattern(ConfigMap cm) {
+        Map<String, String> mapData = cm.getData();
+        String str = mapData.get(CM_KEY_PATTERN);
+        if (str == null || str.trim().isEmpty()) {
+            throw new InvalidConfigMapException(cm, "ConfigMap's 'data' section lacks required key '" +
+                    CM_KEY_PATTERN + "', which should be a comma-separated list of topic name patterns");
+        }
+        try {
+            return new TopicFilter(str, "");
+        } catch (IllegalArgumentException e) {
+            throw new InvalidConfigMapException(cm, "ConfigMap's 'data' section has invalid key '" +
+                    CM_KEY_PATTERN + "': " + e.getMessage());
+        }
+    }
+
     private static String getTopicName(ConfigMap cm) {
         Map<String, String> mapData = cm.getData();
         String prefix = "ConfigMap's 'data' section has invalid '" + CM_KEY_NAME + "' key: ";
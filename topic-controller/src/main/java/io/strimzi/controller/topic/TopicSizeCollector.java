@@ -0,0 +1,274 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.common.KafkaFuture;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.protocol.Errors;
+import org.apache.kafka.common.requests.DescribeLogDirsResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Periodically collects the size on disk of each topic's replicas on each broker, using
+ * {@link AdminClient#describeLogDirs(java.util.Collection)}, and reports it in the {@value #SIZE} gauges,
+ * and optionally in the {@value #ANNOTATION} annotation on the ConfigMap of each managed topic.
+ *
+ * <p>The brokers are described in batches with a pause between them, so that even with a great many partitions
+ * each response is bounded by the partitions on a few brokers, and the brokers aren't all asked at once.
+ * The gauges are only updated once all the brokers have been described, and a broker which can't be described
+ * keeps the sizes it had in the last collection.
+ * A topic's annotation is only updated when its size has changed by more than {@value #ANNOTATION_CHANGE_RATIO}
+ * of the size last annotated, and at most {@value #ANNOTATIONS_PER_BATCH} annotations are updated at once.</p>
+ *
+ * <p>Only accessed on the context.</p>
+ */
+public class TopicSizeCollector implements BackgroundTask {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(TopicSizeCollector.class);
+
+    /** The annotation on the topic ConfigMap with the total size of the topic's replicas, in bytes. */
+    public static final String ANNOTATION = "strimzi.io/size-bytes";
+
+    /** The fraction by which a topic's size needs to change for its annotation to be updated. */
+    static final double ANNOTATION_CHANGE_RATIO = 0.1;
+
+    /** The number of annotations updated in each batch. */
+    static final int ANNOTATIONS_PER_BATCH = 100;
+
+    static final String SIZE = "topic_size_bytes";
+
+    private final Vertx vertx;
+    private final AdminClient adminClient;
+    private final K8s k8s;
+    private final Predicate<String> managedTopics;
+    private final long intervalMs;
+    private final int brokersPerBatch;
+    private final long batchIntervalMs;
+    private final boolean annotate;
+    private final Metrics metrics;
+    private final Metrics.Counter errors;
+
+    /** The sizes found by the last collection, by topic and broker. */
+    private Map<String, Map<Integer, Long>> sizes = new HashMap<>();
+    /** The size last annotated on each topic's ConfigMap. */
+    private final Map<String, Long> annotated = new HashMap<>();
+    private long timerId = -1;
+    private volatile boolean stopped = false;
+
+    /**
+     * @param intervalMs The interval between the end of one collection and the start of the next.
+     * @param brokersPerBatch The number of brokers described at once.
+     * @param batchIntervalMs The pause between batches of brokers, and between batches of annotations.
+     * @param annotate Whether to annotate the topic ConfigMaps with their size.
+     */
+    public TopicSizeCollector(Vertx vertx, AdminClient adminClient, K8s k8s, Predicate<String> managedTopics,
+                              long intervalMs, int brokersPerBatch, long batchIntervalMs, boolean annotate,
+                              Metrics metrics) {
+        this.vertx = vertx;
+        this.adminClient = adminClient;
+        this.k8s = k8s;
+        this.managedTopics = managedTopics;
+        this.intervalMs = intervalMs;
+        this.brokersPerBatch = brokersPerBatch;
+        this.batchIntervalMs = batchIntervalMs;
+        this.annotate = annotate;
+        this.metrics = metrics;
+        this.errors = metrics.counter("topic_size_errors_total",
+                "The number of times the sizes of the topics on a batch of brokers couldn't be collected");
+    }
+
+    /**
+     * Collect the sizes now, and every interval after that, until {@linkplain #stop() stopped}.
+     */
+    @Override
+    public void start() {
+        schedule(0);
+    }
+
+    /**
+     * Stop collecting: any collection in progress is abandoned after its current batch.
+     */
+    @Override
+    public void stop() {
+        this.stopped = true;
+        vertx.cancelTimer(timerId);
+    }
+
+    private void schedule(long delayMs) {
+        if (stopped) {
+            return;
+        }
+        // Vert.x timers need a delay of at least 1ms
+        timerId = vertx.setTimer(Math.max(1, delayMs), id -> collect(ar -> {
+            if (ar.failed()) {
+                LOGGER.warn("Error collecting the sizes of the topics", ar.cause());
+            }
+            schedule(intervalMs);
+        }));
+    }
+
+    /**
+     * Collect the sizes of the topics on all the brokers once, then call the given handler.
+     */
+    void collect(Handler<AsyncResult<Void>> handler) {
+        long t0 = System.currentTimeMillis();
+        blocking(adminClient.describeCluster().nodes(), nodesResult -> {
+            if (nodesResult.failed()) {
+                handler.handle(Future.failedFuture(nodesResult.cause()));
+                return;
+            }
+            List<Integer> brokers = nodesResult.result().stream().map(Node::id).sorted().collect(Collectors.toList());
+            collectBatch(brokers, 0, new HashMap<>(), collected -> {
+                LOGGER.debug("Collected the sizes of {} topics on {} brokers in {}ms",
+                        collected.size(), brokers.size(), System.currentTimeMillis() - t0);
+                handler.handle(Future.succeededFuture());
+            });
+        });
+    }
+
+    private void collectBatch(List<Integer> brokers, int from, Map<String, Map<Integer, Long>> collected,
+                              Handler<Map<String, Map<Integer, Long>>> handler) {
+        if (stopped) {
+            return;
+        }
+        if (from >= brokers.size()) {
+            publish(collected);
+            handler.handle(collected);
+            return;
+        }
+        List<Integer> batch = brokers.subList(from, Math.min(from + brokersPerBatch, brokers.size()));
+        blocking(adminClient.describeLogDirs(batch).all(), ar -> {
+            if (ar.succeeded()) {
+                add(collected, ar.result());
+            } else {
+                LOGGER.warn("Unable to describe the log dirs of brokers {}, keeping their last sizes", batch, ar.cause());
+                errors.increment();
+                keepLast(collected, batch);
+            }
+            int next = from + brokersPerBatch;
+            if (next < brokers.size()) {
+                vertx.setTimer(Math.max(1, batchIntervalMs), id -> collectBatch(brokers, next, collected, handler));
+            } else {
+                collectBatch(brokers, next, collected, handler);
+            }
+        });
+    }
+
+    /**
+     * Add the sizes of the replicas in the given log dirs of each broker to the given sizes.
+     * Future replicas, which are being moved between log dirs, and offline log dirs aren't counted.
+     */
+    static void add(Map<String, Map<Integer, Long>> sizes, Map<Integer, Map<String, DescribeLogDirsResponse.LogDirInfo>> logDirs) {
+        for (Map.Entry<Integer, Map<String, DescribeLogDirsResponse.LogDirInfo>> broker : logDirs.entrySet()) {
+            for (DescribeLogDirsResponse.LogDirInfo logDir : broker.getValue().values()) {
+                if (logDir.error != Errors.NONE) {
+                    continue;
+                }
+                for (Map.Entry<TopicPartition, DescribeLogDirsResponse.ReplicaInfo> replica : logDir.replicaInfos.entrySet()) {
+                    if (!replica.getValue().isFuture) {
+                        sizes.computeIfAbsent(replica.getKey().topic(), topic -> new HashMap<>())
+                                .merge(broker.getKey(), replica.getValue().size, Long::sum);
+                    }
+                }
+            }
+        }
+    }
+
+    private void keepLast(Map<String, Map<Integer, Long>> collected, List<Integer> brokers) {
+        for (Map.Entry<String, Map<Integer, Long>> topic : sizes.entrySet()) {
+            for (Integer broker : brokers) {
+                Long size = topic.getValue().get(broker);
+                if (size != null) {
+                    collected.computeIfAbsent(topic.getKey(), t -> new HashMap<>()).put(broker, size);
+                }
+            }
+        }
+    }
+
+    /**
+     * Update the gauges, removing those of topics and brokers which have gone, and the annotations.
+     */
+    private void publish(Map<String, Map<Integer, Long>> collected) {
+        for (Map.Entry<String, Map<Integer, Long>> topic : sizes.entrySet()) {
+            Map<Integer, Long> current = collected.get(topic.getKey());
+            for (Integer broker : topic.getValue().keySet()) {
+                if (current == null || !current.containsKey(broker)) {
+                    metrics.remove(SIZE, "topic", topic.getKey(), "broker", String.valueOf(broker));
+                }
+            }
+        }
+        for (Map.Entry<String, Map<Integer, Long>> topic : collected.entrySet()) {
+            for (Map.Entry<Integer, Long> broker : topic.getValue().entrySet()) {
+                metrics.gauge(SIZE, "The size on disk of the topic's replicas on the broker, in bytes",
+                        "topic", topic.getKey(), "broker", String.valueOf(broker.getKey())).set(broker.getValue());
+            }
+        }
+        sizes = collected;
+        if (annotate) {
+            annotated.keySet().retainAll(collected.keySet());
+            List<Map.Entry<String, Long>> changed = new ArrayList<>();
+            for (Map.Entry<String, Map<Integer, Long>> topic : collected.entrySet()) {
+                long total = topic.getValue().values().stream().mapToLong(Long::longValue).sum();
+                Long last = annotated.get(topic.getKey());
+                if (managedTopics.test(topic.getKey())
+                        && (last == null || Math.abs(total - last) > ANNOTATION_CHANGE_RATIO * last)) {
+                    changed.add(new AbstractMap.SimpleImmutableEntry<>(topic.getKey(), total));
+                }
+            }
+            annotateBatch(changed, 0);
+        }
+    }
+
+    private void annotateBatch(List<Map.Entry<String, Long>> changed, int from) {
+        if (stopped || from >= changed.size()) {
+            return;
+        }
+        for (Map.Entry<String, Long> topic : changed.subList(from, Math.min(from + ANNOTATIONS_PER_BATCH, changed.size()))) {
+            k8s.annotateConfigMap(new TopicName(topic.getKey()).asMapName(), ANNOTATION, Long.toString(topic.getValue()), ar -> {
+                if (ar.succeeded()) {
+                    annotated.put(topic.getKey(), topic.getValue());
+                } else {
+                    LOGGER.warn("Unable to annotate the ConfigMap of topic {} with its size", topic.getKey(), ar.cause());
+                }
+            });
+        }
+        int next = from + ANNOTATIONS_PER_BATCH;
+        if (next < changed.size()) {
+            vertx.setTimer(Math.max(1, batchIntervalMs), id -> annotateBatch(changed, next));
+        }
+    }
+
+    /**
+     * Wait for the given future on a worker thread, then call the given handler on the context.
+     */
+    private <T> void blocking(KafkaFuture<T> future, Handler<AsyncResult<T>> handler) {
+        vertx.executeBlocking(result -> {
+            try {
+                result.complete(future.get());
+            } catch (ExecutionException e) {
+                result.fail(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                result.fail(e);
+            }
+        }, false, handler);
+    }
+}
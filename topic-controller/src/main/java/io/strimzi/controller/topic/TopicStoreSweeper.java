@@ -0,0 +1,207 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import io.strimzi.controller.topic.zk.Zk;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.Op;
+import org.apache.zookeeper.data.Stat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Removes orphans from the {@link ZkTopicStore}: entries for topics which exist neither in Kafka nor as a ConfigMap,
+ * and which would otherwise accumulate forever.
+ *
+ * <p>An entry is only removed when it is still an orphan, and hasn't been modified, on the sweep after the one
+ * which found it. This gives any in-flight creation of the topic a full reconciliation interval to appear in
+ * Kafka or Kubernetes, and the znode version guards against it having been rewritten in the meantime.</p>
+ *
+ * <p>The entries are examined in batches with a pause between them, so a large backlog of orphans doesn't
+ * swamp ZooKeeper, and the removals in each batch are made in a single {@linkplain Zk#multi(Iterable, Handler) multi}.</p>
+ */
+public class TopicStoreSweeper implements BackgroundTask {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(TopicStoreSweeper.class);
+
+    private final Vertx vertx;
+    private final Zk zk;
+    private final Predicate<String> managedTopics;
+    private final int batchSize;
+    private final long batchIntervalMs;
+    private final Metrics.Counter found;
+    private final Metrics.Counter removed;
+    private final AtomicBoolean sweeping = new AtomicBoolean(false);
+    private volatile boolean stopped = false;
+
+    /** The orphans found by the last sweep, and the version of their znode. Only accessed by the sweep in progress. */
+    private Map<String, Integer> suspects = new HashMap<>();
+
+    public TopicStoreSweeper(Vertx vertx, Zk zk, Predicate<String> managedTopics, int batchSize, long batchIntervalMs,
+                             Metrics metrics) {
+        this.vertx = vertx;
+        this.zk = zk;
+        this.managedTopics = managedTopics;
+        this.batchSize = batchSize;
+        this.batchIntervalMs = batchIntervalMs;
+        this.found = metrics.counter("topic_store_orphans_found_total",
+                "The number of orphaned entries found in the private topic store");
+        this.removed = metrics.counter("topic_store_orphans_removed_total",
+                "The number of orphaned entries removed from the private topic store");
+    }
+
+    private static String getTopicPath(String topicName) {
+        return ZkTopicStore.TOPICS_PATH + "/" + topicName;
+    }
+
+    /**
+     * Sweep the topic store for entries whose topic is not one of the given live topics,
+     * calling the given handler with the number of entries removed.
+     * If a sweep is already in progress this does nothing, and the handler is called with 0.
+     */
+    public void sweep(Set<String> liveTopics, Handler<AsyncResult<Integer>> handler) {
+        if (!sweeping.compareAndSet(false, true)) {
+            LOGGER.debug("Topic store sweep already in progress");
+            handler.handle(Future.succeededFuture(0));
+            return;
+        }
+        zk.children(ZkTopicStore.TOPICS_PATH, childrenResult -> {
+            if (childrenResult.failed()) {
+                sweeping.set(false);
+                handler.handle(Future.failedFuture(childrenResult.cause()));
+                return;
+            }
+            List<String> orphans = childrenResult.result().stream()
+                    .filter(managedTopics)
+                    .filter(name -> !liveTopics.contains(name))
+                    .collect(Collectors.toList());
+            LOGGER.debug("Topic store sweep found {} orphans, {} suspected from the last sweep", orphans.size(), suspects.size());
+            suspects.keySet().retainAll(new HashSet<>(orphans));
+            sweepBatch(orphans, 0, new HashMap<>(), 0, handler);
+        });
+    }
+
+    /**
+     * Nothing to start: a sweep is made as part of each full reconciliation.
+     */
+    @Override
+    public void start() {
+    }
+
+    /**
+     * Stop sweeping: any sweep in progress is abandoned after its current batch.
+     */
+    @Override
+    public void stop() {
+        this.stopped = true;
+    }
+
+    private void sweepBatch(List<String> orphans, int from, Map<String, Integer> nextSuspects, int removedSoFar,
+                            Handler<AsyncResult<Integer>> handler) {
+        if (from >= orphans.size() || stopped) {
+            suspects = nextSuspects;
+            sweeping.set(false);
+            LOGGER.info("Topic store sweep removed {} orphans, {} more will be removed next time if they're still orphaned",
+                    removedSoFar, nextSuspects.size());
+            handler.handle(Future.succeededFuture(removedSoFar));
+            return;
+        }
+        List<String> batch = orphans.subList(from, Math.min(from + batchSize, orphans.size()));
+        List<Future> stats = new ArrayList<>(batch.size());
+        for (String name : batch) {
+            Future<Stat> stat = Future.future();
+            zk.exists(getTopicPath(name), stat.completer());
+            stats.add(stat);
+        }
+        CompositeFuture.join(stats).setHandler(ignored -> {
+            Map<String, Integer> deletions = new LinkedHashMap<>();
+            for (int i = 0; i < batch.size(); i++) {
+                Future<Stat> stat = stats.get(i);
+                if (stat.failed() || stat.result() == null) {
+                    continue;
+                }
+                String name = batch.get(i);
+                int version = stat.result().getVersion();
+                Integer suspectedVersion = suspects.get(name);
+                if (suspectedVersion != null && suspectedVersion == version) {
+                    deletions.put(name, version);
+                } else {
+                    if (suspectedVersion == null) {
+                        found.increment();
+                    }
+                    nextSuspects.put(name, version);
+                }
+            }
+            deleteAll(deletions, deleted -> {
+                removed.increment(deleted);
+                int next = from + batchSize;
+                if (next < orphans.size()) {
+                    vertx.setTimer(batchIntervalMs, timerId -> sweepBatch(orphans, next, nextSuspects, removedSoFar + deleted, handler));
+                } else {
+                    sweepBatch(orphans, next, nextSuspects, removedSoFar + deleted, handler);
+                }
+            });
+        });
+    }
+
+    /**
+     * Delete the entries for the given topics, iff their znodes still have the given versions,
+     * calling the given handler with the number deleted.
+     * They're deleted in a single multi, falling back to deleting them one by one if that fails.
+     */
+    private void deleteAll(Map<String, Integer> deletions, Handler<Integer> handler) {
+        if (deletions.isEmpty()) {
+            handler.handle(0);
+            return;
+        }
+        List<Op> ops = new ArrayList<>(deletions.size());
+        for (Map.Entry<String, Integer> entry : deletions.entrySet()) {
+            ops.add(Op.delete(getTopicPath(entry.getKey()), entry.getValue()));
+        }
+        zk.multi(ops, multiResult -> {
+            if (multiResult.succeeded()) {
+                LOGGER.debug("Removed orphaned topic store entries {}", deletions.keySet());
+                handler.handle(deletions.size());
+                return;
+            }
+            LOGGER.debug("Unable to remove orphaned topic store entries together, removing them one by one", multiResult.cause());
+            AtomicInteger deleted = new AtomicInteger();
+            List<Future> results = new ArrayList<>(deletions.size());
+            for (Map.Entry<String, Integer> entry : deletions.entrySet()) {
+                Future<Void> result = Future.future();
+                results.add(result);
+                zk.delete(getTopicPath(entry.getKey()), entry.getValue(), deleteResult -> {
+                    if (deleteResult.succeeded()) {
+                        deleted.incrementAndGet();
+                    } else if (deleteResult.cause() instanceof KeeperException.NoNodeException
+                            || deleteResult.cause() instanceof KeeperException.BadVersionException) {
+                        LOGGER.debug("Orphaned topic store entry {} was changed before it could be removed", entry.getKey());
+                    } else {
+                        LOGGER.warn("Error removing orphaned topic store entry {}", entry.getKey(), deleteResult.cause());
+                    }
+                    result.complete();
+                });
+            }
+            CompositeFuture.all(results).setHandler(all -> handler.handle(deleted.get()));
+        });
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The desired state of a family of topics, as described by a template ConfigMap:
+ * a {@link TopicFilter pattern} for the topic names together with the number of partitions and replicas
+ * and the config which all the matching topics should have.
+ */
+public class TopicTemplate {
+
+    private final MapName mapName;
+    private final TopicFilter pattern;
+    private final int numPartitions;
+    private final short numReplicas;
+    private final Map<String, String> config;
+
+    public TopicTemplate(MapName mapName, TopicFilter pattern, int numPartitions, short numReplicas, Map<String, String> config) {
+        this.mapName = mapName;
+        this.pattern = pattern;
+        this.numPartitions = numPartitions;
+        this.numReplicas = numReplicas;
+        this.config = Collections.unmodifiableMap(new HashMap<>(config));
+    }
+
+    public MapName getMapName() {
+        return mapName;
+    }
+
+    public int getNumPartitions() {
+        return numPartitions;
+    }
+
+    public short getNumReplicas() {
+        return numReplicas;
+    }
+
+    public Map<String, String> getConfig() {
+        return config;
+    }
+
+    /**
+     * @return true if the topic with the given name belongs to the family described by this template.
+     */
+    public boolean matches(String topicName) {
+        return pattern.test(topicName);
+    }
+
+    /**
+     * @return The Topic with the given name, as described by this template.
+     */
+    public Topic toTopic(TopicName topicName) {
+        return new Topic.Builder(topicName, numPartitions, numReplicas, config).build();
+    }
+
+    @Override
+    public String toString() {
+        return "TopicTemplate(mapName=" + mapName + ", pattern=" + pattern + ", numPartitions=" + numPartitions
+                + ", numReplicas=" + numReplicas + ", config=" + config + ")";
+    }
+}
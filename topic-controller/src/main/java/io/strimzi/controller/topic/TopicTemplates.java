@@ -0,0 +1,255 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import io.fabric8.kubernetes.api.model.ConfigMap;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.Watcher;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * The {@link TopicTemplate}s described by template ConfigMaps, and the means of applying them to the
+ * Kafka topics whose names they match.
+ *
+ * <p>A topic which matches a template is managed only through that template: it has no ConfigMap of its own
+ * and no entry in the {@link TopicStore}. Where more than one template matches a topic,
+ * the template whose ConfigMap name sorts first wins.
+ * Templates are applied using a single batch of AdminClient requests for all the matching topics,
+ * and only to those topics which differ from their template.
+ * Templates only ever increase the number of partitions and do not change the replication factor.</p>
+ *
+ * <p>This is also the watcher for template ConfigMaps. All the methods of this class are thread safe.</p>
+ */
+public class TopicTemplates implements Watcher<ConfigMap> {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(TopicTemplates.class);
+
+    private final Kafka kafka;
+    private final Predicate<String> topicFilter;
+
+    // Keyed on the name of the ConfigMap, which determines precedence
+    private final ConcurrentSkipListMap<String, TopicTemplate> templates = new ConcurrentSkipListMap<>();
+
+    public TopicTemplates(Kafka kafka, Predicate<String> topicFilter) {
+        this.kafka = kafka;
+        this.topicFilter = topicFilter;
+    }
+
+    /**
+     * @return The template which applies to the topic with the given name, or null if there is none.
+     */
+    public TopicTemplate templateFor(String topicName) {
+        for (TopicTemplate template : templates.values()) {
+            if (template.matches(topicName)) {
+                return template;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return true if the topic with the given name is managed through a template.
+     */
+    public boolean matches(String topicName) {
+        return templateFor(topicName) != null;
+    }
+
+    /**
+     * @return The template which takes over the topic with the given name from the topic's own ConfigMap,
+     * or null if the topic doesn't pass the topic filter or no template matches it.
+     */
+    public TopicTemplate shadowing(String topicName) {
+        return topicFilter.test(topicName) ? templateFor(topicName) : null;
+    }
+
+    /**
+     * @return The topics which pass the topic filter and are managed through their own ConfigMap,
+     * because no template matches them.
+     */
+    public Predicate<String> individuallyManaged() {
+        return name -> topicFilter.test(name) && !matches(name);
+    }
+
+    /**
+     * Add or update the template described by the given ConfigMap.
+     * @throws InvalidConfigMapException If the ConfigMap doesn't describe a valid template.
+     */
+    public TopicTemplate update(ConfigMap cm) {
+        TopicTemplate template = TopicSerialization.fromTemplateConfigMap(cm);
+        templates.put(template.getMapName().toString(), template);
+        return template;
+    }
+
+    /**
+     * Remove the template described by the given ConfigMap.
+     */
+    public void remove(ConfigMap cm) {
+        templates.remove(new MapName(cm).toString());
+    }
+
+    /**
+     * Replace all the templates with those described by the given ConfigMaps.
+     * Invalid ConfigMaps are logged and otherwise ignored.
+     */
+    public void replaceAll(List<ConfigMap> cms) {
+        Map<String, TopicTemplate> parsed = new HashMap<>(cms.size());
+        for (ConfigMap cm : cms) {
+            try {
+                TopicTemplate template = TopicSerialization.fromTemplateConfigMap(cm);
+                parsed.put(template.getMapName().toString(), template);
+            } catch (InvalidConfigMapException e) {
+                LOGGER.error("Template ConfigMap {} is invalid: {}", cm.getMetadata().getName(), e.getMessage());
+            }
+        }
+        templates.keySet().retainAll(parsed.keySet());
+        templates.putAll(parsed);
+    }
+
+    /**
+     * Apply the templates to those of the given topics which match a template,
+     * ignoring the others.
+     */
+    public void apply(Collection<String> topicNames, Handler<AsyncResult<Void>> handler) {
+        Map<TopicName, TopicTemplate> matched = new HashMap<>();
+        for (String name : topicNames) {
+            if (topicFilter.test(name)) {
+                TopicTemplate template = templateFor(name);
+                if (template != null) {
+                    matched.put(new TopicName(name), template);
+                }
+            }
+        }
+        if (matched.isEmpty()) {
+            handler.handle(Future.succeededFuture());
+            return;
+        }
+        kafka.topicsMetadata(matched.keySet(), metadataResult -> {
+            if (metadataResult.failed()) {
+                handler.handle(Future.failedFuture(metadataResult.cause()));
+                return;
+            }
+            List<Topic> configChanges = new ArrayList<>();
+            List<Topic> partitionChanges = new ArrayList<>();
+            for (Map.Entry<TopicName, TopicMetadata> entry : metadataResult.result().entrySet()) {
+                diff(matched.get(entry.getKey()), TopicSerialization.fromTopicMetadata(entry.getValue()),
+                        configChanges, partitionChanges);
+            }
+            LOGGER.info("Applying templates to {} topics: {} need config changes, {} need more partitions",
+                    matched.size(), configChanges.size(), partitionChanges.size());
+            submit(configChanges, partitionChanges, handler);
+        });
+    }
+
+    /**
+     * Add the desired state of the given topic to the given lists of changes, according to how it differs from the template.
+     */
+    private static void diff(TopicTemplate template, Topic actual, List<Topic> configChanges, List<Topic> partitionChanges) {
+        TopicName topicName = actual.getTopicName();
+        Topic desired = template.toTopic(topicName);
+        if (!actual.getConfig().equals(desired.getConfig())) {
+            configChanges.add(desired);
+        }
+        if (desired.getNumPartitions() > actual.getNumPartitions()) {
+            partitionChanges.add(desired);
+        } else if (desired.getNumPartitions() < actual.getNumPartitions()) {
+            LOGGER.warn("Topic {} has {} partitions, but template {} has {}: the number of partitions cannot be decreased",
+                    topicName, actual.getNumPartitions(), template.getMapName(), desired.getNumPartitions());
+        }
+        if (desired.getNumReplicas() != actual.getNumReplicas()) {
+            LOGGER.warn("Topic {} has {} replicas, but template {} has {}: templates do not change the replication factor",
+                    topicName, actual.getNumReplicas(), template.getMapName(), desired.getNumReplicas());
+        }
+    }
+
+    /**
+     * Make the given changes, using one request for all the config changes and one for all the partition changes.
+     */
+    private void submit(List<Topic> configChanges, List<Topic> partitionChanges, Handler<AsyncResult<Void>> handler) {
+        Future<Void> configFuture = Future.future();
+        if (configChanges.isEmpty()) {
+            configFuture.complete();
+        } else {
+            kafka.updateTopicsConfig(configChanges, configFuture.completer());
+        }
+        Future<Void> partitionsFuture = Future.future();
+        if (partitionChanges.isEmpty()) {
+            partitionsFuture.complete();
+        } else {
+            kafka.increaseTopicsPartitions(partitionChanges, partitionsFuture.completer());
+        }
+        CompositeFuture.all(configFuture, partitionsFuture).setHandler(ar -> {
+            if (ar.succeeded()) {
+                handler.handle(Future.succeededFuture());
+            } else {
+                handler.handle(Future.failedFuture(ar.cause()));
+            }
+        });
+    }
+
+    /**
+     * Apply the given template to all the Kafka topics for which it is the template.
+     */
+    void applyAll(TopicTemplate template) {
+        kafka.listTopics(ar -> {
+            if (ar.failed()) {
+                LOGGER.error("Error listing topics to apply template {}", template.getMapName(), ar.cause());
+                return;
+            }
+            List<String> topicNames = ar.result().stream()
+                    .filter(name -> templateFor(name) == template)
+                    .collect(Collectors.toList());
+            apply(topicNames, applyResult -> {
+                if (applyResult.succeeded()) {
+                    LOGGER.info("Success applying template {} to {} topics", template.getMapName(), topicNames.size());
+                } else {
+                    LOGGER.error("Error applying template {}", template.getMapName(), applyResult.cause());
+                }
+            });
+        });
+    }
+
+    @Override
+    public void eventReceived(Action action, ConfigMap configMap) {
+        String name = configMap.getMetadata().getName();
+        LOGGER.info("Template ConfigMap watch received event {} on map {}", action, name);
+        switch (action) {
+            case ADDED:
+            case MODIFIED:
+                TopicTemplate template;
+                try {
+                    template = update(configMap);
+                } catch (InvalidConfigMapException e) {
+                    LOGGER.error("Template ConfigMap {} is invalid: {}", name, e.getMessage());
+                    return;
+                }
+                applyAll(template);
+                break;
+            case DELETED:
+                remove(configMap);
+                break;
+            case ERROR:
+                LOGGER.error("Watch received action=ERROR for template ConfigMap " + name);
+        }
+    }
+
+    @Override
+    public void onClose(KubernetesClientException e) {
+        LOGGER.debug("Closing {}", this);
+    }
+}
@@ -6,6 +6,8 @@ package io.strimzi.controller.topic;
 
 import io.vertx.core.Handler;
 
+import java.util.function.Predicate;
+
 /**
  * ZooKeeper watcher for child znodes of {@code /brokers/topics},
  * calling {@link Controller#onTopicPartitionsChanged(TopicName, Handler)}
@@ -15,8 +17,32 @@ public class TopicWatcher extends ZkWatcher {
 
     private static final String TOPICS_ZNODE = "/brokers/topics";
 
-    TopicWatcher(Controller controller) {
-        super(controller, TOPICS_ZNODE);
+    private final ZkTopicMirror mirror;
+
+    TopicWatcher(Controller controller, Predicate<String> topicFilter) {
+        this(controller, topicFilter, null);
+    }
+
+    /**
+     * @param mirror the mirror to update with the topics' partitions, or null
+     */
+    TopicWatcher(Controller controller, Predicate<String> topicFilter, ZkTopicMirror mirror) {
+        super(controller, TOPICS_ZNODE, topicFilter);
+        this.mirror = mirror;
+    }
+
+    @Override
+    protected void onData(String child, byte[] data) {
+        if (mirror != null) {
+            mirror.partitionsChanged(child, data);
+        }
+    }
+
+    @Override
+    protected void onRemoved(String child) {
+        if (mirror != null) {
+            mirror.partitionsRemoved(child);
+        }
     }
 
     @Override
@@ -11,6 +11,7 @@ import org.slf4j.LoggerFactory;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Predicate;
 
 /**
  * ZooKeeper watcher for child znodes of {@code /brokers/topics},
@@ -26,10 +27,16 @@ class TopicsWatcher {
     private final Controller controller;
     private final TopicConfigsWatcher tcw;
     private final TopicWatcher tw;
+    private final Predicate<String> topicFilter;
+    private final TopicTemplates templates;
+    private final ZkTopicMirror mirror;
 
     private List<String> children;
 
     private volatile int state = 0;
+    /** Whether the topics are only mirrored, without telling the controller of changes. */
+    private volatile boolean mirrorOnly = false;
+    private boolean watching = false;
 
     /**
      * Constructor
@@ -37,11 +44,45 @@ class TopicsWatcher {
      * @param controller    Controller instance
      * @param tcw   watcher for the topics config changes
      * @param tw    watcher for the topics partitions changes
+     * @param topicFilter   filter for the topics to be managed; changes to other topics are ignored
      */
-    TopicsWatcher(Controller controller, TopicConfigsWatcher tcw, TopicWatcher tw) {
+    TopicsWatcher(Controller controller, TopicConfigsWatcher tcw, TopicWatcher tw, Predicate<String> topicFilter) {
+        this(controller, tcw, tw, topicFilter, null);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param controller    Controller instance
+     * @param tcw   watcher for the topics config changes
+     * @param tw    watcher for the topics partitions changes
+     * @param topicFilter   filter for the topics to be managed individually; changes to other topics are ignored
+     * @param templates the templates to apply to newly created topics, or null
+     */
+    TopicsWatcher(Controller controller, TopicConfigsWatcher tcw, TopicWatcher tw, Predicate<String> topicFilter,
+                  TopicTemplates templates) {
+        this(controller, tcw, tw, topicFilter, templates, null);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param controller    Controller instance
+     * @param tcw   watcher for the topics config changes
+     * @param tw    watcher for the topics partitions changes
+     * @param topicFilter   filter for the topics to be managed individually; changes to other topics are ignored
+     * @param templates the templates to apply to newly created topics, or null
+     * @param mirror the mirror to update with the topics, or null. With a mirror the existing topics are watched
+     *               from the start too, so that the mirror has them.
+     */
+    TopicsWatcher(Controller controller, TopicConfigsWatcher tcw, TopicWatcher tw, Predicate<String> topicFilter,
+                  TopicTemplates templates, ZkTopicMirror mirror) {
         this.controller = controller;
         this.tcw = tcw;
         this.tw = tw;
+        this.topicFilter = topicFilter;
+        this.templates = templates;
+        this.mirror = mirror;
     }
 
     void stop() {
@@ -54,7 +95,49 @@ class TopicsWatcher {
         return this.state == 1;
     }
 
+    /**
+     * Topics matching a template are excluded by the topicFilter, so the template gets applied here instead.
+     */
+    private void applyTemplates(Set<String> created) {
+        if (templates != null && !created.isEmpty()) {
+            Set<String> candidates = new HashSet<>(created);
+            templates.apply(candidates, ar -> {
+                if (ar.failed()) {
+                    LOGGER.warn("Error applying templates to created topics {}", candidates, ar.cause());
+                }
+            });
+        }
+    }
+
+    /**
+     * Start telling the controller of changes to the topics,
+     * whether or not they're already being watched for the mirror by {@link #startMirroring(Zk)}.
+     */
     void start(Zk zk) {
+        setMirrorOnly(false);
+        if (!watching) {
+            watch(zk);
+        }
+    }
+
+    /**
+     * Start watching the topics only to keep the mirror up to date, without telling the controller of changes,
+     * as a standby does so that it's ready to take over. Changes it misses meanwhile are found by the
+     * full reconciliation once it does.
+     */
+    void startMirroring(Zk zk) {
+        setMirrorOnly(true);
+        watch(zk);
+    }
+
+    private void setMirrorOnly(boolean mirrorOnly) {
+        this.mirrorOnly = mirrorOnly;
+        tcw.mirrorOnly(mirrorOnly);
+        tw.mirrorOnly(mirrorOnly);
+    }
+
+    private void watch(Zk zk) {
+        watching = true;
         children = null;
         tcw.start(zk);
         tw.start(zk);
@@ -74,46 +157,77 @@ class TopicsWatcher {
             Set<String> created = new HashSet<>(result);
             created.removeAll(this.children);
             this.children = result;
-
-            if (!deleted.isEmpty()) {
-                LOGGER.info("Deleted topics: {}", deleted);
-                for (String topicName : deleted) {
-                    tcw.removeChild(topicName);
-                    tw.removeChild(topicName);
-                    controller.onTopicDeleted(new TopicName(topicName), ar -> {
-                        if (ar.succeeded()) {
-                            LOGGER.debug("Success responding to deletion of topic {}", topicName);
-                        } else {
-                            LOGGER.warn("Error responding to deletion of topic {}", topicName, ar.cause());
-                        }
-                    });
-                }
+            if (mirror != null) {
+                mirror.topicsChanged(result);
             }
-
-            if (!created.isEmpty()) {
-                LOGGER.info("Created topics: {}", created);
-                for (String topicName : created) {
-                    tcw.addChild(topicName);
-                    tw.addChild(topicName);
-                    controller.onTopicCreated(new TopicName(topicName), ar -> {
-                        if (ar.succeeded()) {
-                            LOGGER.debug("Success responding to creation of topic {}", topicName);
-                        } else {
-                            LOGGER.warn("Error responding to creation of topic {}", topicName, ar.cause());
-                        }
-                    });
-                }
+            if (!mirrorOnly) {
+                applyTemplates(created);
             }
+            // Excluded topics cost nothing more than this
+            deleted.removeIf(topicFilter.negate());
+            created.removeIf(topicFilter.negate());
 
+            deleted(deleted);
+            created(created);
         }).children(TOPICS_ZNODE, childResult -> {
             if (childResult.failed()) {
                 LOGGER.error("Error on znode {} children", TOPICS_ZNODE, childResult.cause());
                 return;
             }
-            List<String> result = childResult.result();
-            LOGGER.debug("Setting initial children {}", result);
-            this.children = result;
-            this.state = 1;
+            setInitialChildren(childResult.result());
         });
     }
+
+    private void deleted(Set<String> deleted) {
+        if (!deleted.isEmpty()) {
+            LOGGER.info("Deleted topics: {}", deleted);
+            for (String topicName : deleted) {
+                tcw.removeChild(topicName);
+                tw.removeChild(topicName);
+                if (mirrorOnly) {
+                    continue;
+                }
+                controller.onTopicDeleted(new TopicName(topicName), ar -> {
+                    if (ar.succeeded()) {
+                        LOGGER.debug("Success responding to deletion of topic {}", topicName);
+                    } else {
+                        LOGGER.warn("Error responding to deletion of topic {}", topicName, ar.cause());
+                    }
+                });
+            }
+        }
+    }
+
+    private void created(Set<String> created) {
+        if (!created.isEmpty()) {
+            LOGGER.info("Created topics: {}", created);
+            for (String topicName : created) {
+                tcw.addChild(topicName);
+                tw.addChild(topicName);
+                if (mirrorOnly) {
+                    continue;
+                }
+                controller.onTopicCreated(new TopicName(topicName), ar -> {
+                    if (ar.succeeded()) {
+                        LOGGER.debug("Success responding to creation of topic {}", topicName);
+                    } else {
+                        LOGGER.warn("Error responding to creation of topic {}", topicName, ar.cause());
+                    }
+                });
+            }
+        }
+    }
+
+    private void setInitialChildren(List<String> result) {
+        LOGGER.debug("Setting initial children {}", result);
+        this.children = result;
+        if (mirror != null) {
+            mirror.topicsChanged(result);
+            for (String topicName : result) {
+                tcw.addChild(topicName);
+                tw.addChild(topicName);
+            }
+        }
+        this.state = 1;
+    }
 }
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.WorkerExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A named, fixed size pool of worker threads for the blocking calls to one dependency, so that slow calls to
+ * one dependency (such as a reassignment which takes minutes to verify) don't hold up those to another
+ * (such as updating a ConfigMap), as they would sharing Vert.x's ordered worker pool.
+ *
+ * <p>Blocking code is run unordered, so as many calls as there are threads run at once.
+ * The number of calls queued and running, the saturation of the pool (the fraction of its threads in use)
+ * and the time calls spend queued are reported as {@link Metrics}, labelled with the {@code pool}.
+ * All the methods of this class are thread safe.</p>
+ */
+public class WorkerPool {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(WorkerPool.class);
+
+    /**
+     * The size and number of users of each shared executor of each Vert.x instance, keyed by executor name.
+     * Vert.x gives a pool with the name of one which is still open the same threads, whatever its size.
+     */
+    private static final Map<Vertx, Map<String, int[]>> SHARED = new WeakHashMap<>();
+
+    private final Vertx vertx;
+    private final String executorName;
+    private final String name;
+    private final int size;
+    private final WorkerExecutor executor;
+    private final Metrics.Gauge queued;
+    private final Metrics.Gauge active;
+    private final Metrics.Histogram waitSeconds;
+
+    /**
+     * @param maxExecuteTimeMs How long a call may run before Vert.x warns that the thread is blocked.
+     */
+    public WorkerPool(Vertx vertx, String name, int size, long maxExecuteTimeMs, Metrics metrics) {
+        this(vertx, Main.DEFAULT_TENANT, name, size, maxExecuteTimeMs, metrics);
+    }
+
+    /**
+     * @param tenant The tenant whose pool this is, so that each tenant has its own threads.
+     * @param maxExecuteTimeMs How long a call may run before Vert.x warns that the thread is blocked.
+     */
+    public WorkerPool(Vertx vertx, String tenant, String name, int size, long maxExecuteTimeMs, Metrics metrics) {
+        this.vertx = vertx;
+        this.executorName = "strimzi-" + tenant + "-" + name;
+        this.name = name;
+        this.size = share(vertx, executorName, size);
+        this.executor = vertx.createSharedWorkerExecutor(executorName, size, TimeUnit.MILLISECONDS.toNanos(maxExecuteTimeMs));
+        this.queued = metrics.gauge("worker_pool_queued", "The number of blocking calls waiting for a thread", "pool", name);
+        this.active = metrics.gauge("worker_pool_active", "The number of blocking calls running", "pool", name);
+        metrics.gauge("worker_pool_saturation_ratio", "The fraction of the threads of the pool which are in use", "pool", name)
+                .setSupplier(() -> active.get() / size);
+        metrics.gauge("worker_pool_size", "The number of threads of the pool", "pool", name).set(size);
+        this.waitSeconds = metrics.histogram("worker_pool_wait_seconds", "The time blocking calls spend waiting for a thread",
+                Metrics.DEFAULT_SECONDS_BUCKETS, "pool", name);
+    }
+
+    /**
+     * Run the given blocking code on a thread of this pool, calling the given handler with its result on the caller's context.
+     */
+    public <T> void executeBlocking(Handler<Future<T>> blockingCode, Handler<AsyncResult<T>> resultHandler) {
+        long submitted = System.nanoTime();
+        queued.increment();
+        executor.<T>executeBlocking(fut -> {
+            queued.decrement();
+            active.increment();
+            waitSeconds.observe((System.nanoTime() - submitted) / 1e9);
+            try {
+                blockingCode.handle(fut);
+            } finally {
+                active.decrement();
+            }
+        }, false, resultHandler);
+    }
+
+    /**
+     * @return The size of the shared executor with the given name, which is the given size unless it's already open.
+     */
+    private static int share(Vertx vertx, String executorName, int size) {
+        synchronized (SHARED) {
+            int[] shared = SHARED.computeIfAbsent(vertx, v -> new HashMap<>()).computeIfAbsent(executorName, n -> new int[]{size, 0});
+            shared[1]++;
+            if (shared[0] != size) {
+                LOGGER.warn("Worker pool {} already has {} threads, so the configured size of {} is ignored",
+                        executorName, shared[0], size);
+            }
+            return shared[0];
+        }
+    }
+
+    public void close() {
+        executor.close();
+        synchronized (SHARED) {
+            Map<String, int[]> executors = SHARED.get(vertx);
+            int[] shared = executors != null ? executors.get(executorName) : null;
+            if (shared != null && --shared[1] == 0) {
+                executors.remove(executorName);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "WorkerPool(" + executorName + ", size=" + size + ")";
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import io.strimzi.controller.topic.zk.AclBuilder;
+import io.strimzi.controller.topic.zk.AclBuilder.Permission;
+import io.strimzi.controller.topic.zk.Zk;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.data.ACL;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stores the topics whose reconciliation a controller left unfinished when it stopped,
+ * as children of {@code /strimzi/dirty-topics}, so that whichever controller takes over resyncs them first.
+ * The data of each znode is the name of the topic's ConfigMap, if it's known.
+ */
+public class ZkDirtyTopicStore {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(ZkDirtyTopicStore.class);
+    public static final String DIRTY_TOPICS_PATH = "/strimzi/dirty-topics";
+
+    private final Zk zk;
+
+    private final List<ACL> acl;
+
+    public ZkDirtyTopicStore(Zk zk) {
+        this.zk = zk;
+        acl = new AclBuilder().setWorld(Permission.values()).build();
+        createParent("/strimzi");
+        createParent(DIRTY_TOPICS_PATH);
+    }
+
+    private void createParent(String path) {
+        zk.create(path, null, acl, CreateMode.PERSISTENT, result -> {
+            if (result.failed()) {
+                if (!(result.cause() instanceof KeeperException.NodeExistsException)) {
+                    LOGGER.error("Error creating {}", path, result.cause());
+                    throw new RuntimeException(result.cause());
+                }
+            }
+        });
+    }
+
+    private static String getTopicPath(TopicName topicName) {
+        return DIRTY_TOPICS_PATH + "/" + topicName;
+    }
+
+    /**
+     * Mark the given topics dirty, with the name of their ConfigMap, or null if it's not known.
+     */
+    public void add(Map<TopicName, MapName> topics, Handler<AsyncResult<Void>> handler) {
+        List<Future> futures = new ArrayList<>();
+        for (Map.Entry<TopicName, MapName> entry : topics.entrySet()) {
+            String path = getTopicPath(entry.getKey());
+            byte[] data = entry.getValue() != null ? entry.getValue().toString().getBytes(StandardCharsets.UTF_8) : null;
+            Future<Void> future = Future.future();
+            futures.add(future);
+            LOGGER.debug("create znode {}", path);
+            zk.create(path, data, acl, CreateMode.PERSISTENT, result -> {
+                if (result.failed() && result.cause() instanceof KeeperException.NodeExistsException) {
+                    // Left unfinished by an earlier controller too
+                    zk.setData(path, data, -1, future.completer());
+                } else {
+                    future.handle(result);
+                }
+            });
+        }
+        CompositeFuture.all(futures).setHandler(ar -> handler.handle(ar.mapEmpty()));
+    }
+
+    /**
+     * Read the dirty topics, with the name of their ConfigMap, or null if it's not known.
+     */
+    public void read(Handler<AsyncResult<Map<TopicName, MapName>>> handler) {
+        zk.children(DIRTY_TOPICS_PATH, childrenResult -> {
+            if (childrenResult.failed()) {
+                handler.handle(childrenResult.map((Map<TopicName, MapName>) null));
+                return;
+            }
+            Map<TopicName, MapName> topics = new LinkedHashMap<>();
+            List<Future> futures = new ArrayList<>();
+            for (String child : childrenResult.result()) {
+                TopicName topicName = new TopicName(child);
+                Future<Void> future = Future.future();
+                futures.add(future);
+                zk.getData(getTopicPath(topicName), dataResult -> {
+                    if (dataResult.succeeded()) {
+                        byte[] data = dataResult.result();
+                        synchronized (topics) {
+                            topics.put(topicName, data != null && data.length > 0
+                                    ? new MapName(new String(data, StandardCharsets.UTF_8)) : null);
+                        }
+                        future.complete();
+                    } else if (dataResult.cause() instanceof KeeperException.NoNodeException) {
+                        // Removed since we listed it
+                        future.complete();
+                    } else {
+                        future.fail(dataResult.cause());
+                    }
+                });
+            }
+            CompositeFuture.all(futures).setHandler(ar -> handler.handle(ar.map(topics)));
+        });
+    }
+
+    /**
+     * Remove the given topic, once it has been resynced.
+     */
+    public void remove(TopicName topicName, Handler<AsyncResult<Void>> handler) {
+        String path = getTopicPath(topicName);
+        LOGGER.debug("delete znode {}", path);
+        zk.delete(path, -1, result -> {
+            if (result.failed() && result.cause() instanceof KeeperException.NoNodeException) {
+                handler.handle(Future.succeededFuture());
+            } else {
+                handler.handle(result);
+            }
+        });
+    }
+}
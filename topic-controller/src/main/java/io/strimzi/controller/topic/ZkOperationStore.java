@@ -0,0 +1,137 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import io.strimzi.controller.topic.zk.AclBuilder;
+import io.strimzi.controller.topic.zk.AclBuilder.Permission;
+import io.strimzi.controller.topic.zk.Zk;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.data.ACL;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Implementation of {@link OperationStore} that stores the operation state in ZooKeeper,
+ * as children of {@code /strimzi/operations}.
+ */
+public class ZkOperationStore implements OperationStore {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(ZkOperationStore.class);
+    public static final String OPERATIONS_PATH = "/strimzi/operations";
+
+    private final Zk zk;
+
+    private final List<ACL> acl;
+
+    public ZkOperationStore(Zk zk) {
+        this.zk = zk;
+        acl = new AclBuilder().setWorld(Permission.values()).build();
+        createParent("/strimzi");
+        createParent(OPERATIONS_PATH);
+    }
+
+    private void createParent(String path) {
+        zk.create(path, null, acl, CreateMode.PERSISTENT, result -> {
+            if (result.failed()) {
+                if (!(result.cause() instanceof KeeperException.NodeExistsException)) {
+                    LOGGER.error("Error creating {}", path, result.cause());
+                    throw new RuntimeException(result.cause());
+                }
+            }
+        });
+    }
+
+    private static String getOperationPath(String id) {
+        return OPERATIONS_PATH + "/" + id;
+    }
+
+    @Override
+    public void create(Operation operation, Handler<AsyncResult<Void>> handler) {
+        byte[] data = operation.toJson();
+        String path = getOperationPath(operation.getId());
+        LOGGER.debug("create znode {}", path);
+        zk.create(path, data, acl, CreateMode.PERSISTENT, result -> {
+            if (result.failed() && result.cause() instanceof KeeperException.NodeExistsException) {
+                // A left-over from an operation we've not cleaned up: Replace it
+                LOGGER.debug("znode {} already exists, replacing it", path);
+                zk.setData(path, data, -1, handler);
+            } else {
+                handler.handle(result);
+            }
+        });
+    }
+
+    @Override
+    public void update(Operation operation, Handler<AsyncResult<Void>> handler) {
+        String path = getOperationPath(operation.getId());
+        LOGGER.debug("update znode {}", path);
+        zk.setData(path, operation.toJson(), -1, handler);
+    }
+
+    @Override
+    public void delete(String id, Handler<AsyncResult<Void>> handler) {
+        String path = getOperationPath(id);
+        LOGGER.debug("delete znode {}", path);
+        zk.delete(path, -1, result -> {
+            if (result.failed() && result.cause() instanceof KeeperException.NoNodeException) {
+                handler.handle(Future.succeededFuture());
+            } else {
+                handler.handle(result);
+            }
+        });
+    }
+
+    @Override
+    public void list(Handler<AsyncResult<List<Operation>>> handler) {
+        zk.children(OPERATIONS_PATH, childrenResult -> {
+            if (childrenResult.failed()) {
+                if (childrenResult.cause() instanceof KeeperException.NoNodeException) {
+                    handler.handle(Future.succeededFuture(Collections.emptyList()));
+                } else {
+                    handler.handle(childrenResult.map((List<Operation>) null));
+                }
+                return;
+            }
+            List<Future> futures = new ArrayList<>();
+            for (String child : childrenResult.result()) {
+                Future<Operation> future = Future.future();
+                futures.add(future);
+                zk.getData(getOperationPath(child), dataResult -> {
+                    if (dataResult.succeeded()) {
+                        future.complete(Operation.fromJson(dataResult.result()));
+                    } else if (dataResult.cause() instanceof KeeperException.NoNodeException) {
+                        // Deleted since we listed the children
+                        future.complete(null);
+                    } else {
+                        future.fail(dataResult.cause());
+                    }
+                });
+            }
+            CompositeFuture.all(futures).setHandler(ar -> {
+                if (ar.succeeded()) {
+                    List<Operation> operations = new ArrayList<>(futures.size());
+                    for (int i = 0; i < futures.size(); i++) {
+                        Operation operation = ar.result().resultAt(i);
+                        if (operation != null) {
+                            operations.add(operation);
+                        }
+                    }
+                    handler.handle(Future.succeededFuture(operations));
+                } else {
+                    handler.handle(Future.failedFuture(ar.cause()));
+                }
+            });
+        });
+    }
+}
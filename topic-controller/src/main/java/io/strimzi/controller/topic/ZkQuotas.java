@@ -0,0 +1,243 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import io.strimzi.controller.topic.zk.AclBuilder;
+import io.strimzi.controller.topic.zk.AclBuilder.Permission;
+import io.strimzi.controller.topic.zk.Zk;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import org.apache.kafka.common.utils.Sanitizer;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.Op;
+import org.apache.zookeeper.OpResult;
+import org.apache.zookeeper.data.ACL;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads and writes quotas in ZooKeeper: both those read by the brokers, in the {@code /config/clients}
+ * and {@code /config/users} znodes, as {@code kafka-configs.sh} writes them, and the
+ * {@link QuotaController}'s private copies, under {@value #QUOTAS_PATH}.
+ *
+ * <p>Each change to the quotas read by the brokers is accompanied by a change notification,
+ * so the brokers apply it. Removing an entity's quotas leaves its znode with no configs, as Kafka does.</p>
+ */
+class ZkQuotas {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(ZkQuotas.class);
+
+    static final String QUOTAS_PATH = "/strimzi/quotas";
+    static final String CONFIG_PATH = "/config";
+    static final String CHANGES_PATH = "/config/changes";
+    static final String CHANGE_PREFIX = "config_change_";
+    private static final int MAX_WRITE_ATTEMPTS = 5;
+
+    private final Zk zk;
+    private final List<ACL> acl;
+
+    ZkQuotas(Zk zk) {
+        this.zk = zk;
+        this.acl = new AclBuilder().setWorld(Permission.values()).build();
+        createParent("/strimzi");
+        createParent(QUOTAS_PATH);
+        for (Quota.EntityType type : Quota.EntityType.values()) {
+            createParent(QUOTAS_PATH + "/" + type.path);
+        }
+    }
+
+    private void createParent(String path) {
+        zk.create(path, null, acl, CreateMode.PERSISTENT, result -> {
+            if (result.failed() && !(result.cause() instanceof KeeperException.NodeExistsException)) {
+                LOGGER.error("Error creating {}", path, result.cause());
+            }
+        });
+    }
+
+    /**
+     * Read the quota of the given entity which the brokers apply, calling the handler with null if it has none.
+     */
+    void readKafka(Quota.EntityType type, String name, Handler<AsyncResult<Quota>> handler) {
+        read(CONFIG_PATH + "/" + Quota.entityPath(type, name), type, name, handler);
+    }
+
+    /**
+     * Set the quota which the brokers apply to the given quota, and notify them of the change.
+     * Only the quota configs of the entity's znode are replaced, so that those which aren't quotas,
+     * such as a user's SCRAM credentials, are kept.
+     */
+    void writeKafka(Quota quota, Handler<AsyncResult<Void>> handler) {
+        writeKafka(quota, MAX_WRITE_ATTEMPTS, handler);
+    }
+
+    /**
+     * Read the znode and its version, and then replace it in a multi with the notification,
+     * conditional on that version, trying again if it's changed in between.
+     */
+    private void writeKafka(Quota quota, int attempts, Handler<AsyncResult<Void>> handler) {
+        String path = CONFIG_PATH + "/" + quota.getEntityPath();
+        byte[] notification = ("{\"version\":2,\"entity_path\":\"" + quota.getEntityPath() + "\"}").getBytes(StandardCharsets.UTF_8);
+        Op notify = Op.create(CHANGES_PATH + "/" + CHANGE_PREFIX, notification, acl, CreateMode.PERSISTENT_SEQUENTIAL);
+        Handler<AsyncResult<List<OpResult>>> written = ar -> {
+            if (ar.failed() && attempts > 1 && (ar.cause() instanceof KeeperException.BadVersionException
+                    || ar.cause() instanceof KeeperException.NodeExistsException
+                    || ar.cause() instanceof KeeperException.NoNodeException)) {
+                LOGGER.debug("znode {} changed while it was being written, trying again", path);
+                writeKafka(quota, attempts - 1, handler);
+            } else {
+                handler.handle(ar.mapEmpty());
+            }
+        };
+        // The version first, so that if the znode is changed before its data is read the write fails
+        zk.exists(path, statResult -> {
+            if (statResult.failed() && statResult.cause() instanceof KeeperException.NoNodeException
+                    || statResult.succeeded() && statResult.result() == null) {
+                zk.multi(Arrays.asList(Op.create(path, quota.toKafkaJson(null), acl, CreateMode.PERSISTENT), notify), written);
+            } else if (statResult.failed()) {
+                handler.handle(statResult.mapEmpty());
+            } else {
+                int version = statResult.result().getVersion();
+                zk.getData(path, dataResult -> {
+                    if (dataResult.failed()) {
+                        written.handle(dataResult.map((List<OpResult>) null));
+                    } else {
+                        byte[] data = quota.toKafkaJson(dataResult.result());
+                        zk.multi(Arrays.asList(Op.setData(path, data, version), notify), written);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Remove the quota which the brokers apply to the given entity, and notify them of the change.
+     */
+    void deleteKafka(Quota.EntityType type, String name, Handler<AsyncResult<Void>> handler) {
+        writeKafka(new Quota(type, name, null, Collections.emptyMap()), handler);
+    }
+
+    /**
+     * List the quotas which the brokers apply.
+     */
+    void listKafka(Handler<AsyncResult<List<Quota>>> handler) {
+        list(CONFIG_PATH, handler);
+    }
+
+    /**
+     * Read our private copy of the quota of the given entity, calling the handler with null if there's none.
+     */
+    void readStored(Quota.EntityType type, String name, Handler<AsyncResult<Quota>> handler) {
+        read(QUOTAS_PATH + "/" + Quota.entityPath(type, name), type, name, handler);
+    }
+
+    /**
+     * Create or update our private copy of the given quota.
+     */
+    void writeStored(Quota quota, Handler<AsyncResult<Void>> handler) {
+        String path = QUOTAS_PATH + "/" + quota.getEntityPath();
+        byte[] data = quota.toJson(true);
+        zk.setData(path, data, -1, ar -> {
+            if (ar.failed() && ar.cause() instanceof KeeperException.NoNodeException) {
+                zk.create(path, data, acl, CreateMode.PERSISTENT, handler);
+            } else {
+                handler.handle(ar);
+            }
+        });
+    }
+
+    /**
+     * Delete our private copy of the quota of the given entity, if there is one.
+     */
+    void deleteStored(Quota.EntityType type, String name, Handler<AsyncResult<Void>> handler) {
+        zk.delete(QUOTAS_PATH + "/" + Quota.entityPath(type, name), -1, ar -> {
+            if (ar.failed() && ar.cause() instanceof KeeperException.NoNodeException) {
+                handler.handle(Future.succeededFuture());
+            } else {
+                handler.handle(ar);
+            }
+        });
+    }
+
+    /**
+     * List our private copies of the quotas.
+     */
+    void listStored(Handler<AsyncResult<List<Quota>>> handler) {
+        list(QUOTAS_PATH, handler);
+    }
+
+    private void read(String path, Quota.EntityType type, String name, Handler<AsyncResult<Quota>> handler) {
+        zk.getData(path, ar -> {
+            if (ar.succeeded()) {
+                handler.handle(Future.succeededFuture(Quota.fromJson(type, name, ar.result())));
+            } else if (ar.cause() instanceof KeeperException.NoNodeException) {
+                handler.handle(Future.succeededFuture(null));
+            } else {
+                handler.handle(Future.failedFuture(ar.cause()));
+            }
+        });
+    }
+
+    @SuppressWarnings("rawtypes")
+    private void list(String root, Handler<AsyncResult<List<Quota>>> handler) {
+        List<Future> reads = new ArrayList<>();
+        for (Quota.EntityType type : Quota.EntityType.values()) {
+            Future<List<Quota>> typeFuture = Future.future();
+            reads.add(typeFuture);
+            String parent = root + "/" + type.path;
+            zk.children(parent, ar -> {
+                if (ar.failed()) {
+                    if (ar.cause() instanceof KeeperException.NoNodeException) {
+                        typeFuture.complete(Collections.emptyList());
+                    } else {
+                        typeFuture.fail(ar.cause());
+                    }
+                    return;
+                }
+                List<Future> children = new ArrayList<>();
+                for (String child : ar.result()) {
+                    String name = Quota.DEFAULT_ENTITY.equals(child) ? child : Sanitizer.desanitize(child);
+                    Future<Quota> childFuture = Future.future();
+                    children.add(childFuture);
+                    read(parent + "/" + child, type, name, childFuture);
+                }
+                CompositeFuture.all(children).setHandler(all -> {
+                    if (all.failed()) {
+                        typeFuture.fail(all.cause());
+                    } else {
+                        List<Quota> quotas = new ArrayList<>();
+                        for (int i = 0; i < children.size(); i++) {
+                            Quota quota = all.result().resultAt(i);
+                            if (quota != null) {
+                                quotas.add(quota);
+                            }
+                        }
+                        typeFuture.complete(quotas);
+                    }
+                });
+            });
+        }
+        CompositeFuture.all(reads).setHandler(all -> {
+            if (all.failed()) {
+                handler.handle(Future.failedFuture(all.cause()));
+            } else {
+                List<Quota> quotas = new ArrayList<>();
+                for (int i = 0; i < reads.size(); i++) {
+                    List<Quota> typeQuotas = all.result().resultAt(i);
+                    quotas.addAll(typeQuotas);
+                }
+                handler.handle(Future.succeededFuture(quotas));
+            }
+        });
+    }
+}
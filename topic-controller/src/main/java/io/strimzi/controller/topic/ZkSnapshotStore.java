@@ -0,0 +1,142 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import io.strimzi.controller.topic.zk.AclBuilder;
+import io.strimzi.controller.topic.zk.AclBuilder.Permission;
+import io.strimzi.controller.topic.zk.Zk;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.data.ACL;
+import org.apache.zookeeper.data.Stat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+/**
+ * Stores the {@link ControllerSnapshot} in a znode, and checks the Kafka topic znodes against it.
+ */
+public class ZkSnapshotStore {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(ZkSnapshotStore.class);
+    public static final String SNAPSHOT_PATH = "/strimzi/snapshot";
+
+    private static final String TOPICS_ZNODE = "/brokers/topics/";
+    private static final String CONFIGS_ZNODE = "/config/topics/";
+
+    /**
+     * The largest snapshot which is saved: ZooKeeper rejects requests larger than its {@code jute.maxbuffer},
+     * which is 1MB by default, and the request also holds the path.
+     */
+    static final int MAX_SNAPSHOT_BYTES = Integer.getInteger("jute.maxbuffer", 0xfffff) - 1024;
+
+    private final Zk zk;
+
+    private final List<ACL> acl;
+
+    private final int maxBytes;
+
+    public ZkSnapshotStore(Zk zk) {
+        this(zk, MAX_SNAPSHOT_BYTES);
+    }
+
+    ZkSnapshotStore(Zk zk, int maxBytes) {
+        this.zk = zk;
+        this.maxBytes = maxBytes;
+        acl = new AclBuilder().setWorld(Permission.values()).build();
+    }
+
+    /**
+     * Store the given snapshot, replacing any existing one.
+     * A snapshot too large for a znode isn't stored, and the existing one is deleted instead,
+     * so that the next controller reconciles all the topics.
+     */
+    public void save(ControllerSnapshot snapshot, Handler<AsyncResult<Void>> handler) {
+        byte[] data = snapshot.toBytes();
+        if (data.length > maxBytes) {
+            LOGGER.warn("Not saving {}, because at {} bytes it's larger than the {} bytes a znode can hold, "
+                    + "so warm restarts will reconcile all topics", snapshot, data.length, maxBytes);
+            zk.delete(SNAPSHOT_PATH, -1, result -> {
+                if (result.failed() && !(result.cause() instanceof KeeperException.NoNodeException)) {
+                    handler.handle(result);
+                } else {
+                    handler.handle(Future.succeededFuture());
+                }
+            });
+            return;
+        }
+        LOGGER.debug("Saving {} in {} bytes", snapshot, data.length);
+        zk.setData(SNAPSHOT_PATH, data, -1, result -> {
+            if (result.failed() && result.cause() instanceof KeeperException.NoNodeException) {
+                zk.create(SNAPSHOT_PATH, data, acl, CreateMode.PERSISTENT, handler);
+            } else {
+                handler.handle(result);
+            }
+        });
+    }
+
+    /**
+     * Load the stored snapshot, calling the given handler with null if there is none.
+     */
+    public void load(Handler<AsyncResult<ControllerSnapshot>> handler) {
+        // Get the zxid before the data, so that if the snapshot is being replaced the zxid can only be too old
+        zk.exists(SNAPSHOT_PATH, statResult -> {
+            if (statResult.failed() || statResult.result() == null) {
+                handler.handle(noSnapshot(statResult));
+                return;
+            }
+            long zxid = statResult.result().getMzxid();
+            zk.getData(SNAPSHOT_PATH, dataResult -> {
+                if (dataResult.failed()) {
+                    handler.handle(noSnapshot(dataResult));
+                } else {
+                    ControllerSnapshot snapshot = ControllerSnapshot.fromBytes(dataResult.result(), zxid);
+                    LOGGER.info("Loaded {}", snapshot);
+                    handler.handle(Future.succeededFuture(snapshot));
+                }
+            });
+        });
+    }
+
+    private static AsyncResult<ControllerSnapshot> noSnapshot(AsyncResult<?> result) {
+        if (result.failed() && !(result.cause() instanceof KeeperException.NoNodeException)) {
+            return Future.failedFuture(result.cause());
+        }
+        return Future.succeededFuture(null);
+    }
+
+    /**
+     * Determine whether the topic with the given name has changed in Kafka since the given zxid, that is whether it
+     * has been deleted, or its partitions or config modified, calling the given handler with the result.
+     */
+    public void changedInKafkaSince(TopicName topicName, long zxid, Handler<AsyncResult<Boolean>> handler) {
+        Future<Stat> topicStat = Future.future();
+        Future<Stat> configStat = Future.future();
+        zk.exists(TOPICS_ZNODE + topicName, topicStat.completer());
+        zk.exists(CONFIGS_ZNODE + topicName, configStat.completer());
+        CompositeFuture.join(topicStat, configStat).setHandler(ar -> {
+            if (topicStat.failed() || configStat.failed()) {
+                Throwable cause = topicStat.failed() ? topicStat.cause() : configStat.cause();
+                if (cause instanceof KeeperException.NoNodeException) {
+                    handler.handle(Future.succeededFuture(true));
+                } else {
+                    handler.handle(Future.failedFuture(cause));
+                }
+            } else {
+                handler.handle(Future.succeededFuture(modifiedSince(topicStat.result(), zxid)
+                        || modifiedSince(configStat.result(), zxid)));
+            }
+        });
+    }
+
+    private static boolean modifiedSince(Stat stat, long zxid) {
+        return stat == null || stat.getMzxid() > zxid;
+    }
+}
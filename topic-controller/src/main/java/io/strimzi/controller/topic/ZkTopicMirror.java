@@ -0,0 +1,294 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.apache.kafka.clients.admin.Config;
+import org.apache.kafka.clients.admin.ConfigEntry;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.TopicPartitionInfo;
+import org.apache.zookeeper.Watcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import static java.util.Collections.singleton;
+
+/**
+ * An in-memory mirror of the topics' znodes, {@code /brokers/topics} and its children, which hold the partition
+ * assignments, and the children of {@code /config/topics}, which hold the topic configs,
+ * which serves {@link #topicMetadata(TopicName, Handler)}, {@link #topicsMetadata(Set, Handler)} and
+ * {@link #listTopics(Handler)} from memory wherever it can, and otherwise delegates to Kafka.
+ *
+ * <p>The mirror is fed by the {@link TopicsWatcher}, {@link TopicWatcher} and {@link TopicConfigsWatcher}
+ * as their watches fire, so it's current whenever the controller is notified of a change.
+ * Kafka is asked instead when the mirror doesn't know a topic, for example because its watches haven't yet
+ * fired, or because it isn't managed individually, when the ZooKeeper connection is down, and for a while after
+ * the controller has itself changed a topic, until the change has reached the mirror.</p>
+ *
+ * <p>The metadata served from the mirror has the partitions' replicas, but not their leaders or in-sync replicas,
+ * and the topic's config overrides but not its defaults.</p>
+ */
+public class ZkTopicMirror implements Kafka {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(ZkTopicMirror.class);
+
+    /** How long to ask Kafka about a topic the controller has changed, if the change doesn't reach the mirror. */
+    static final long STALE_TIMEOUT_MS = 10_000;
+
+    private final Kafka kafka;
+    private final Metrics.Counter fromMirror;
+    private final Metrics.Counter fromKafka;
+
+    private volatile Set<String> topics;
+    private volatile boolean connected = true;
+    private final ConcurrentHashMap<String, TopicDescription> descriptions = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Config> configs = new ConcurrentHashMap<>();
+    /** The topics the controller has changed, with when to stop waiting for the change to reach the mirror. */
+    private final ConcurrentHashMap<String, Long> stale = new ConcurrentHashMap<>();
+
+    public ZkTopicMirror(Kafka kafka, Metrics metrics) {
+        this.kafka = kafka;
+        String help = "The number of topics' metadata read, by whether it was read from the mirror of ZooKeeper or from Kafka";
+        this.fromMirror = metrics.counter("topic_metadata_total", help, "source", "mirror");
+        this.fromKafka = metrics.counter("topic_metadata_total", help, "source", "kafka");
+    }
+
+    /**
+     * Update the mirror with the children of {@code /brokers/topics}.
+     */
+    public void topicsChanged(List<String> children) {
+        this.topics = Collections.unmodifiableSet(new HashSet<>(children));
+    }
+
+    /**
+     * Update the mirror with the data of the {@code /brokers/topics} child for the given topic.
+     */
+    public void partitionsChanged(String topicName, byte[] data) {
+        try {
+            JsonObject partitions = new JsonObject(new String(data, StandardCharsets.UTF_8)).getJsonObject("partitions");
+            TreeMap<Integer, TopicPartitionInfo> sorted = new TreeMap<>();
+            for (String partition : partitions.fieldNames()) {
+                JsonArray replicaIds = partitions.getJsonArray(partition);
+                List<Node> replicas = new ArrayList<>(replicaIds.size());
+                for (int i = 0; i < replicaIds.size(); i++) {
+                    replicas.add(new Node(replicaIds.getInteger(i), "", -1));
+                }
+                int p = Integer.parseInt(partition);
+                sorted.put(p, new TopicPartitionInfo(p, null, replicas, Collections.emptyList()));
+            }
+            descriptions.put(topicName, new TopicDescription(topicName, false, new ArrayList<>(sorted.values())));
+        } catch (RuntimeException e) {
+            LOGGER.warn("Unable to mirror the partitions of topic {}, reading them from Kafka instead", topicName, e);
+            descriptions.remove(topicName);
+        }
+        stale.remove(topicName);
+    }
+
+    /**
+     * Update the mirror with the data of the {@code /config/topics} child for the given topic.
+     */
+    public void configChanged(String topicName, byte[] data) {
+        try {
+            JsonObject config = new JsonObject(new String(data, StandardCharsets.UTF_8)).getJsonObject("config");
+            List<ConfigEntry> entries = new ArrayList<>(config.size());
+            for (Map.Entry<String, Object> entry : config) {
+                entries.add(new ConfigEntry(entry.getKey(), String.valueOf(entry.getValue())));
+            }
+            configs.put(topicName, new Config(entries));
+        } catch (RuntimeException e) {
+            LOGGER.warn("Unable to mirror the config of topic {}, reading it from Kafka instead", topicName, e);
+            configs.remove(topicName);
+        }
+        stale.remove(topicName);
+    }
+
+    /**
+     * Forget the partitions of the given topic, which are no longer watched.
+     */
+    public void partitionsRemoved(String topicName) {
+        descriptions.remove(topicName);
+    }
+
+    /**
+     * Forget the config of the given topic, which is no longer watched.
+     */
+    public void configRemoved(String topicName) {
+        configs.remove(topicName);
+    }
+
+    /**
+     * Update the mirror with the state of the ZooKeeper connection. While it's down changes can't reach the mirror,
+     * so everything is read from Kafka, and when the session expires the watches which fed the mirror are gone,
+     * so it forgets everything.
+     */
+    public void connectionState(Watcher.Event.KeeperState state) {
+        switch (state) {
+            case Disconnected:
+                connected = false;
+                break;
+            case SyncConnected:
+                connected = true;
+                break;
+            case Expired:
+                connected = false;
+                topics = null;
+                descriptions.clear();
+                configs.clear();
+                break;
+            default:
+                break;
+        }
+    }
+
+    private boolean isStale(String topicName) {
+        Long deadline = stale.get(topicName);
+        if (deadline == null) {
+            return false;
+        } else if (System.currentTimeMillis() < deadline) {
+            return true;
+        } else {
+            stale.remove(topicName, deadline);
+            return false;
+        }
+    }
+
+    /**
+     * @return The metadata of the given topic in the mirror, or null if Kafka needs to be asked.
+     */
+    private TopicMetadata mirrored(TopicName topicName) {
+        String name = topicName.toString();
+        Set<String> topics = this.topics;
+        if (!connected || topics == null || !topics.contains(name) || isStale(name)) {
+            return null;
+        }
+        TopicDescription description = descriptions.get(name);
+        Config config = configs.get(name);
+        return description != null && config != null ? new TopicMetadata(description, config) : null;
+    }
+
+    /**
+     * Wrap the given handler so the given topics are read from Kafka until the result of changing them
+     * has reached the mirror.
+     */
+    private Handler<AsyncResult<Void>> invalidating(Collection<String> topicNames, Handler<AsyncResult<Void>> handler) {
+        return ar -> {
+            long deadline = System.currentTimeMillis() + STALE_TIMEOUT_MS;
+            for (String topicName : topicNames) {
+                stale.put(topicName, deadline);
+            }
+            handler.handle(ar);
+        };
+    }
+
+    private static Set<String> names(Collection<Topic> topics) {
+        return topics.stream().map(topic -> topic.getTopicName().toString()).collect(Collectors.toSet());
+    }
+
+    @Override
+    public void createTopic(Topic newTopic, Handler<AsyncResult<Void>> handler) {
+        kafka.createTopic(newTopic, invalidating(names(singleton(newTopic)), handler));
+    }
+
+    @Override
+    public void deleteTopic(TopicName topicName, Handler<AsyncResult<Void>> handler) {
+        kafka.deleteTopic(topicName, invalidating(singleton(topicName.toString()), handler));
+    }
+
+    @Override
+    public void updateTopicConfig(Topic topic, Handler<AsyncResult<Void>> handler) {
+        kafka.updateTopicConfig(topic, invalidating(names(singleton(topic)), handler));
+    }
+
+    @Override
+    public void updateTopicsConfig(Collection<Topic> topics, Handler<AsyncResult<Void>> handler) {
+        kafka.updateTopicsConfig(topics, invalidating(names(topics), handler));
+    }
+
+    @Override
+    public void increasePartitions(Topic topic, Handler<AsyncResult<Void>> handler) {
+        kafka.increasePartitions(topic, invalidating(names(singleton(topic)), handler));
+    }
+
+    @Override
+    public void increaseTopicsPartitions(Collection<Topic> topics, Handler<AsyncResult<Void>> handler) {
+        kafka.increaseTopicsPartitions(topics, invalidating(names(topics), handler));
+    }
+
+    @Override
+    public void changeReplicationFactor(Topic topic, Handler<AsyncResult<Void>> handler) {
+        kafka.changeReplicationFactor(topic, invalidating(names(singleton(topic)), handler));
+    }
+
+    @Override
+    public void topicMetadata(TopicName topicName, Handler<AsyncResult<TopicMetadata>> handler) {
+        TopicMetadata metadata = mirrored(topicName);
+        if (metadata != null) {
+            fromMirror.increment();
+            handler.handle(Future.succeededFuture(metadata));
+        } else {
+            fromKafka.increment();
+            kafka.topicMetadata(topicName, handler);
+        }
+    }
+
+    @Override
+    public void topicsMetadata(Set<TopicName> topicNames, Handler<AsyncResult<Map<TopicName, TopicMetadata>>> handler) {
+        Map<TopicName, TopicMetadata> result = new HashMap<>();
+        Set<TopicName> unknown = new HashSet<>();
+        for (TopicName topicName : topicNames) {
+            TopicMetadata metadata = mirrored(topicName);
+            if (metadata != null) {
+                result.put(topicName, metadata);
+            } else {
+                unknown.add(topicName);
+            }
+        }
+        fromMirror.increment(result.size());
+        if (unknown.isEmpty()) {
+            handler.handle(Future.succeededFuture(result));
+            return;
+        }
+        fromKafka.increment(unknown.size());
+        kafka.topicsMetadata(unknown, ar -> {
+            if (ar.succeeded()) {
+                result.putAll(ar.result());
+                handler.handle(Future.succeededFuture(result));
+            } else {
+                handler.handle(ar);
+            }
+        });
+    }
+
+    @Override
+    public void listTopics(Handler<AsyncResult<Set<String>>> handler) {
+        Set<String> topics = this.topics;
+        if (connected && topics != null) {
+            // Kafka doesn't list its internal topics
+            handler.handle(Future.succeededFuture(topics.stream()
+                    .filter(name -> !org.apache.kafka.common.internals.Topic.isInternal(name))
+                    .collect(Collectors.toSet())));
+        } else {
+            kafka.listTopics(handler);
+        }
+    }
+}
@@ -10,6 +10,7 @@ import io.strimzi.controller.topic.zk.Zk;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
 import org.apache.zookeeper.CreateMode;
 import org.apache.zookeeper.KeeperException;
 import org.apache.zookeeper.data.ACL;
@@ -17,6 +18,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.List;
+import java.util.function.Predicate;
 
 /**
  * Implementation of {@link TopicStore} that stores the topic state in ZooKeeper.
@@ -48,6 +50,13 @@ public class ZkTopicStore implements TopicStore {
         });
     }
 
+    /**
+     * @return A {@link TopicStoreSweeper} for removing the orphans among the given managed topics from this store.
+     */
+    public TopicStoreSweeper sweeper(Vertx vertx, Predicate<String> managedTopics, int batchSize, long batchIntervalMs,
+                                     Metrics metrics) {
+        return new TopicStoreSweeper(vertx, zk, managedTopics, batchSize, batchIntervalMs, metrics);
+    }
 
     private static String getTopicPath(TopicName name) {
         return TOPICS_PATH + "/" + name;
@@ -11,6 +11,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
 
 /**
  * Base abstract class for a ZooKeeper watcher for child znodes
@@ -21,20 +22,24 @@ public abstract class ZkWatcher {
 
     protected final Controller controller;
     private volatile ZkWatcherState state = ZkWatcherState.NOT_STARTED;
+    private volatile boolean mirrorOnly = false;
     private volatile Zk zk;
 
     private final ConcurrentHashMap<String, Boolean> children = new ConcurrentHashMap<>();
     private final String rootZNode;
+    private final Predicate<String> topicFilter;
 
     /**
      * Constructor
      *
      * @param controller    Controller instance to notify
      * @param rootZNode     root znode to watch children
+     * @param topicFilter   filter for the children to watch
      */
-    ZkWatcher(Controller controller, String rootZNode) {
+    ZkWatcher(Controller controller, String rootZNode, Predicate<String> topicFilter) {
         this.controller = controller;
         this.rootZNode = rootZNode;
+        this.topicFilter = topicFilter;
     }
 
     /**
@@ -54,6 +59,16 @@ public abstract class ZkWatcher {
         this.state = ZkWatcherState.STOPPED;
     }
 
+    /**
+     * Set whether changes to the children are only passed to {@link #onData(String, byte[])},
+     * without notifying the controller, as they are on a standby
+     *
+     * @param mirrorOnly    whether to not notify the controller
+     */
+    protected void mirrorOnly(boolean mirrorOnly) {
+        this.mirrorOnly = mirrorOnly;
+    }
+
     /**
      * @return  if the watcher is already started
      */
@@ -62,18 +77,23 @@ public abstract class ZkWatcher {
     }
 
     /**
-     * Add a child to watch under the root znode
+     * Add a child to watch under the root znode, unless it's excluded by the topic filter
      *
      * @param child child to watch
      */
     protected void addChild(String child) {
+        if (!topicFilter.test(child)) {
+            log.debug("Not watching excluded child {}", child);
+            return;
+        }
         this.children.put(child, false);
         String path = getPath(child);
         log.debug("Watching znode {} for changes", path);
         Handler<AsyncResult<byte[]>> handler = dataResult -> {
             if (dataResult.succeeded()) {
+                onData(child, dataResult.result());
                 this.children.compute(child, (k, v) -> {
-                    if (v) {
+                    if (v && !mirrorOnly) {
                         this.notifyController(child);
                     }
                     return true;
@@ -94,6 +114,24 @@ public abstract class ZkWatcher {
         log.debug("Unwatching znode {} for changes", child);
         this.children.remove(child);
         zk.unwatchData(getPath(child));
+        onRemoved(child);
+    }
+
+    /**
+     * Called with the data of a watched child each time it's read, before the controller is notified of any change
+     *
+     * @param child child read
+     * @param data  the child's data
+     */
+    protected void onData(String child, byte[] data) {
+    }
+
+    /**
+     * Called once a child is no longer watched
+     *
+     * @param child child unwatched
+     */
+    protected void onRemoved(String child) {
     }
 
     /**
@@ -8,6 +8,9 @@ import io.vertx.core.AsyncResult;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
 import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.Op;
+import org.apache.zookeeper.OpResult;
+import org.apache.zookeeper.Watcher;
 import org.apache.zookeeper.data.ACL;
 import org.apache.zookeeper.data.Stat;
 
@@ -104,7 +107,23 @@ public interface Zk {
      */
     Zk unwatchExists(String path);
 
-    // TODO getAcl(), setAcl(), multi()
+    /**
+     * Set the handler to be called on the vertx context with the new state whenever the state of the
+     * connection to ZooKeeper changes after the initial connection (for example, to
+     * {@link Watcher.Event.KeeperState#Disconnected Disconnected}, and later back to
+     * {@link Watcher.Event.KeeperState#SyncConnected SyncConnected}).
+     */
+    Zk connectionStateHandler(Handler<Watcher.Event.KeeperState> handler);
+
+    /**
+     * Asynchronously execute the given operations as a single transaction, so that either all of them
+     * or none of them are applied, then invoke the given handler with the results.
+     * If the transaction fails the handler will be called with a failed result whose cause is the
+     * {@link org.apache.zookeeper.KeeperException} of the first operation which failed.
+     */
+    Zk multi(Iterable<Op> ops, Handler<AsyncResult<List<OpResult>>> handler);
+
+    // TODO getAcl(), setAcl()
 
 }
 
@@ -11,6 +11,8 @@ import io.vertx.core.Vertx;
 import org.apache.zookeeper.AsyncCallback;
 import org.apache.zookeeper.CreateMode;
 import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.Op;
+import org.apache.zookeeper.OpResult;
 import org.apache.zookeeper.WatchedEvent;
 import org.apache.zookeeper.Watcher;
 import org.apache.zookeeper.ZooKeeper;
@@ -40,6 +42,7 @@ public class ZkImpl implements Zk {
     private final int sessionTimeout;
     private final Vertx vertx;
     private final ZooKeeper zk;
+    private volatile Handler<Watcher.Event.KeeperState> connectionStateHandler;
 
     // Only accessed on the vertx context.
     private final ConcurrentHashMap<String, Handler<? extends AsyncResult<?>>> watches = new ConcurrentHashMap<>();
@@ -60,6 +63,10 @@ public class ZkImpl implements Zk {
                 // for state transitions
                 Watcher.Event.KeeperState state = watchedEvent.getState();
                 LOGGER.debug("In state {}", state);
+                Handler<Watcher.Event.KeeperState> stateHandler = connectionStateHandler;
+                if (stateHandler != null && watchedEvent.getType() == Watcher.Event.EventType.None) {
+                    vertx.runOnContext(ignored -> stateHandler.handle(state));
+                }
                 final Future<Zk> future;
                 final Handler<AsyncResult<Zk>> handler;
                 switch (state) {
@@ -169,6 +176,12 @@ public class ZkImpl implements Zk {
         return this;
     }
 
+    @Override
+    public Zk connectionStateHandler(Handler<Watcher.Event.KeeperState> handler) {
+        this.connectionStateHandler = handler;
+        return this;
+    }
+
     @Override
     public Zk disconnect() throws InterruptedException {
         zk.close();
@@ -263,6 +276,39 @@ public class ZkImpl implements Zk {
         return this;
     }
 
+    @Override
+    public Zk multi(Iterable<Op> ops, Handler<AsyncResult<List<OpResult>>> handler) {
+        ZooKeeper zookeeper;
+        synchronized (this) {
+            zookeeper = zk;
+        }
+        if (zookeeper == null) {
+            handler.handle(Future.failedFuture(new IllegalStateException("Not connected")));
+            return this;
+        }
+        Object ctx = null;
+        zookeeper.multi(ops, (rc, path, ctx1, opResults) -> invokeOnContext(handler, firstErrorPath(ops, opResults), rc, opResults), ctx);
+        return this;
+    }
+
+    /**
+     * The path of the first op which failed, for the exception message.
+     */
+    private static String firstErrorPath(Iterable<Op> ops, List<OpResult> opResults) {
+        if (opResults != null) {
+            int i = 0;
+            for (Op op : ops) {
+                if (i < opResults.size()
+                        && opResults.get(i) instanceof OpResult.ErrorResult
+                        && ((OpResult.ErrorResult) opResults.get(i)).getErr() != KeeperException.Code.OK.intValue()) {
+                    return op.getPath();
+                }
+                i++;
+            }
+        }
+        return null;
+    }
+
     @Override
     public Zk exists(String path, Handler<AsyncResult<Stat>> handler) {
         ZooKeeper zookeeper;
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import io.fabric8.kubernetes.api.model.ConfigMap;
+import io.fabric8.kubernetes.api.model.ConfigMapBuilder;
+import io.fabric8.kubernetes.client.Watcher;
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RunWith(VertxUnitRunner.class)
+public class ConfigMapWatcherTest {
+
+    private final LabelPredicate cmPredicate = LabelPredicate.fromString("kind=topic,app=strimzi");
+
+    private Vertx vertx = Vertx.vertx();
+    private MockKafka mockKafka;
+    private MockTopicStore mockTopicStore;
+    private MockK8s mockK8s;
+    private TopicTemplates templates;
+    private ConfigMapWatcher watcher;
+
+    @Before
+    public void setup() {
+        mockKafka = new MockKafka();
+        mockTopicStore = new MockTopicStore();
+        mockK8s = new MockK8s();
+        Map<String, String> config = new HashMap<>();
+        config.put(Config.ZOOKEEPER_CONNECT.key, "localhost:2181");
+        config.put(Config.KAFKA_BOOTSTRAP_SERVERS.key, "localhost:9092");
+        config.put(Config.NAMESPACE.key, "default");
+        Metrics metrics = new Metrics();
+        Controller controller = new Controller(vertx, mockKafka, mockK8s, mockTopicStore, cmPredicate, "default-namespace",
+                new Config(config), metrics, new PriorityScheduler(vertx, 10, metrics));
+        templates = new TopicTemplates(mockKafka, new TopicFilter("", "*-internal"));
+        watcher = new ConfigMapWatcher(controller, cmPredicate, templates, e -> { });
+    }
+
+    @After
+    public void teardown() {
+        vertx.close();
+    }
+
+    private ConfigMap configMap(String name, String... pairs) {
+        Map<String, String> data = new HashMap<>();
+        for (int i = 0; i < pairs.length; i += 2) {
+            data.put(pairs[i], pairs[i + 1]);
+        }
+        return new ConfigMapBuilder().withNewMetadata().withName(name).withLabels(cmPredicate.labels()).endMetadata()
+                .withData(data).build();
+    }
+
+    /** Test that a ConfigMap whose topic is taken over by a template is ignored, and reported by a single Event */
+    @Test
+    public void testShadowedCmReportedOnce(TestContext context) {
+        templates.update(configMap("my-template",
+                TopicSerialization.CM_KEY_PATTERN, "my-*",
+                TopicSerialization.CM_KEY_PARTITIONS, "2",
+                TopicSerialization.CM_KEY_REPLICAS, "1"));
+        ConfigMap cm = configMap("my-topic",
+                TopicSerialization.CM_KEY_NAME, "my-topic",
+                TopicSerialization.CM_KEY_PARTITIONS, "1",
+                TopicSerialization.CM_KEY_REPLICAS, "1");
+
+        watcher.eventReceived(Watcher.Action.ADDED, cm);
+        watcher.eventReceived(Watcher.Action.MODIFIED, cm);
+        Async async = context.async();
+        vertx.setTimer(100, id -> {
+            context.assertEquals(1, mockK8s.eventCount());
+            mockKafka.assertEmpty(context);
+            mockTopicStore.assertEmpty(context);
+            async.complete();
+        });
+    }
+
+    /** Test that a ConfigMap whose topic is excluded by the topic filter is ignored without an Event */
+    @Test
+    public void testFilteredCmIgnored(TestContext context) {
+        templates.update(configMap("all-template",
+                TopicSerialization.CM_KEY_PATTERN, "*",
+                TopicSerialization.CM_KEY_PARTITIONS, "2",
+                TopicSerialization.CM_KEY_REPLICAS, "1"));
+        ConfigMap cm = configMap("my-internal",
+                TopicSerialization.CM_KEY_NAME, "my-internal",
+                TopicSerialization.CM_KEY_PARTITIONS, "1",
+                TopicSerialization.CM_KEY_REPLICAS, "1");
+
+        watcher.eventReceived(Watcher.Action.ADDED, cm);
+        Async async = context.async();
+        vertx.setTimer(100, id -> {
+            context.assertEquals(0, mockK8s.eventCount());
+            mockKafka.assertEmpty(context);
+            async.complete();
+        });
+    }
+}
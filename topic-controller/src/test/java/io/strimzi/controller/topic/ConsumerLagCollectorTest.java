@@ -0,0 +1,165 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
+
+@RunWith(VertxUnitRunner.class)
+public class ConsumerLagCollectorTest {
+
+    private final TopicPartition offsets0 = new TopicPartition(ConsumerLagCollector.OFFSETS_TOPIC, 0);
+    private final TopicPartition foo0 = new TopicPartition("foo", 0);
+
+    private Vertx vertx = Vertx.vertx();
+    private Metrics metrics;
+    private MockConsumer<byte[], byte[]> consumer;
+    private ConsumerLagCollector collector;
+    private long nextOffset = 0;
+    private final Set<String> deletedTopics = new HashSet<>();
+
+    @Before
+    public void setup() {
+        metrics = new Metrics();
+        consumer = new MockConsumer<byte[], byte[]>(OffsetResetStrategy.EARLIEST) {
+            @Override
+            public Map<String, List<PartitionInfo>> listTopics() {
+                Map<String, List<PartitionInfo>> topics = new HashMap<>(super.listTopics());
+                topics.keySet().removeAll(deletedTopics);
+                return topics;
+            }
+        };
+        Node node = new Node(0, "localhost", 9092);
+        Node[] nodes = {node};
+        consumer.updatePartitions(ConsumerLagCollector.OFFSETS_TOPIC,
+                singletonList(new PartitionInfo(ConsumerLagCollector.OFFSETS_TOPIC, 0, node, nodes, nodes)));
+        consumer.updatePartitions("foo", singletonList(new PartitionInfo("foo", 0, node, nodes, nodes)));
+        consumer.updateBeginningOffsets(singletonMap(offsets0, 0L));
+        consumer.updateEndOffsets(singletonMap(offsets0, 0L));
+        collector = new ConsumerLagCollector(vertx,
+                new WorkerPool(vertx, "consumer-lag", 1, 120_000, metrics), consumer, new TopicFilter("app-*", ""), 60_000, 10, true, metrics);
+    }
+
+    @After
+    public void teardown() {
+        vertx.close();
+    }
+
+    private static void string(ByteBuffer buffer, String string) {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static byte[] key(short version, String group, TopicPartition tp) {
+        ByteBuffer buffer = ByteBuffer.allocate(128);
+        buffer.putShort(version);
+        string(buffer, group);
+        if (tp != null) {
+            string(buffer, tp.topic());
+            buffer.putInt(tp.partition());
+        }
+        byte[] key = new byte[buffer.position()];
+        System.arraycopy(buffer.array(), 0, key, 0, key.length);
+        return key;
+    }
+
+    private static byte[] value(long offset) {
+        // Version 1: offset, metadata, commit timestamp and expire timestamp
+        ByteBuffer buffer = ByteBuffer.allocate(128);
+        buffer.putShort((short) 1);
+        buffer.putLong(offset);
+        string(buffer, "");
+        buffer.putLong(System.currentTimeMillis());
+        buffer.putLong(System.currentTimeMillis());
+        return buffer.array();
+    }
+
+    private void record(byte[] key, byte[] value) {
+        consumer.addRecord(new ConsumerRecord<>(offsets0.topic(), 0, nextOffset++, key, value));
+        consumer.updateEndOffsets(singletonMap(offsets0, nextOffset));
+    }
+
+    private void collect(TestContext context) {
+        Async async = context.async();
+        collector.collect(ar -> {
+            context.assertTrue(ar.succeeded());
+            async.complete();
+        });
+        async.awaitSuccess(10_000);
+    }
+
+    private double groupLag(String group) {
+        return metrics.gauge(ConsumerLagCollector.GROUP_LAG, "", "group", group).get();
+    }
+
+    @Test
+    public void testLagCollected(TestContext context) {
+        // Nothing has been committed yet, but the offsets topic is now assigned, so records can be added to it
+        collect(context);
+        context.assertFalse(metrics.scrape().contains(ConsumerLagCollector.GROUP_LAG + "{"));
+
+        record(key((short) 1, "app-1", foo0), value(10));
+        record(key((short) 0, "app-2", foo0), value(40));
+        // Not one of the groups we want
+        record(key((short) 1, "other", foo0), value(0));
+        // About a group's members, rather than a commit
+        record(key((short) 2, "app-1", null), new byte[]{0, 1});
+        Map<TopicPartition, Long> end = new HashMap<>();
+        end.put(foo0, 50L);
+        consumer.updateEndOffsets(end);
+
+        collect(context);
+        context.assertEquals(40.0, groupLag("app-1"));
+        context.assertEquals(10.0, groupLag("app-2"));
+        context.assertEquals(40.0, metrics.gauge(ConsumerLagCollector.PARTITION_LAG, "",
+                "group", "app-1", "topic", "foo", "partition", "0").get());
+        context.assertFalse(metrics.scrape().contains("group=\"other\""));
+
+        // Only the new commits are read, and the group whose offsets have expired has gone
+        record(key((short) 1, "app-1", foo0), value(45));
+        record(key((short) 1, "app-2", foo0), null);
+        collect(context);
+        context.assertEquals(5.0, groupLag("app-1"));
+        context.assertFalse(metrics.scrape().contains("group=\"app-2\""));
+
+        // Once the topic has been deleted so has its lag
+        deletedTopics.add("foo");
+        collect(context);
+        context.assertFalse(metrics.scrape().contains(ConsumerLagCollector.GROUP_LAG + "{"));
+    }
+
+    @Test
+    public void testStop(TestContext context) {
+        collect(context);
+        collector.stop();
+        context.assertTrue(consumer.closed());
+        // Stopping again is harmless
+        collector.stop();
+    }
+}
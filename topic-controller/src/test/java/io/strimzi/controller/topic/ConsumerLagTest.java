@@ -0,0 +1,198 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import org.apache.kafka.common.TopicPartition;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ConsumerLagTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConsumerLagTest.class);
+
+    /** Keeps the lags it's told of, as gauges would. */
+    private static class Lags implements ConsumerLag.Listener {
+        private final Map<String, Long> partitions = new HashMap<>();
+        private final Map<String, Long> groups = new HashMap<>();
+        private int changes = 0;
+
+        @Override
+        public void partitionLag(String group, TopicPartition partition, long lag) {
+            partitions.put(group + "/" + partition, lag);
+            changes++;
+        }
+
+        @Override
+        public void partitionRemoved(String group, TopicPartition partition) {
+            assertTrue(partitions.remove(group + "/" + partition) != null);
+            changes++;
+        }
+
+        @Override
+        public void groupLag(String group, long lag) {
+            groups.put(group, lag);
+            changes++;
+        }
+
+        @Override
+        public void groupRemoved(String group) {
+            groups.remove(group);
+            changes++;
+        }
+    }
+
+    private final TopicPartition foo0 = new TopicPartition("foo", 0);
+    private final TopicPartition foo1 = new TopicPartition("foo", 1);
+    private final TopicPartition bar0 = new TopicPartition("bar", 0);
+
+    @Test
+    public void testLagComputedIncrementally() {
+        ConsumerLag lag = new ConsumerLag();
+        Lags lags = new Lags();
+        lag.commit("a", foo0, 10);
+        lag.commit("a", foo1, 20);
+        lag.commit("b", foo0, 5);
+        lag.endOffset(foo0, 15);
+        lag.endOffset(foo1, 20);
+        // Not consumed by any group
+        lag.endOffset(bar0, 100);
+
+        assertEquals(3, lag.update(lags));
+        assertEquals(Long.valueOf(5), lags.partitions.get("a/foo-0"));
+        assertEquals(Long.valueOf(0), lags.partitions.get("a/foo-1"));
+        assertEquals(Long.valueOf(10), lags.partitions.get("b/foo-0"));
+        assertEquals(Long.valueOf(5), lags.groups.get("a"));
+        assertEquals(Long.valueOf(10), lags.groups.get("b"));
+        assertEquals(2, lag.partitions().size());
+
+        // Nothing changed
+        lags.changes = 0;
+        assertEquals(0, lag.update(lags));
+        assertEquals(0, lags.changes);
+
+        // Only the partitions which changed are recomputed, and only the lags which changed are reported
+        lag.endOffset(foo1, 25);
+        lag.commit("a", foo0, 10);
+        assertEquals(1, lag.update(lags));
+        assertEquals(2, lags.changes);
+        assertEquals(Long.valueOf(5), lags.partitions.get("a/foo-1"));
+        assertEquals(Long.valueOf(10), lags.groups.get("a"));
+
+        // A commit past the end we last saw isn't behind
+        lag.commit("b", foo0, 17);
+        lag.update(lags);
+        assertEquals(Long.valueOf(0), lags.partitions.get("b/foo-0"));
+        assertEquals(Long.valueOf(0), lags.groups.get("b"));
+    }
+
+    @Test
+    public void testUncommit() {
+        ConsumerLag lag = new ConsumerLag();
+        Lags lags = new Lags();
+        lag.commit("a", foo0, 10);
+        lag.commit("a", foo1, 20);
+        lag.commit("b", foo0, 5);
+        lag.endOffset(foo0, 15);
+        lag.endOffset(foo1, 30);
+        lag.update(lags);
+
+        lag.uncommit("a", foo1);
+        lag.uncommit("b", foo0);
+        lag.uncommit("c", foo0);
+        lag.update(lags);
+        assertEquals(singleton("a/foo-0", 5L), lags.partitions);
+        assertEquals(singleton("a", 5L), lags.groups);
+
+        // A group's number is reused once it has gone
+        lag.commit("c", bar0, 1);
+        lag.endOffset(bar0, 3);
+        lag.update(lags);
+        assertEquals(Long.valueOf(2), lags.groups.get("c"));
+        assertEquals(Long.valueOf(5), lags.groups.get("a"));
+    }
+
+    @Test
+    public void testRetainTopics() {
+        ConsumerLag lag = new ConsumerLag();
+        Lags lags = new Lags();
+        lag.commit("a", foo0, 10);
+        lag.commit("a", bar0, 20);
+        lag.endOffset(foo0, 15);
+        lag.endOffset(bar0, 30);
+        lag.update(lags);
+
+        lag.retainTopics("foo"::equals);
+        lag.update(lags);
+        assertEquals(singleton("a/foo-0", 5L), lags.partitions);
+        assertEquals(singleton("a", 5L), lags.groups);
+        assertFalse(lag.partitions().contains(bar0));
+    }
+
+    private static Map<String, Long> singleton(String key, long value) {
+        Map<String, Long> map = new HashMap<>();
+        map.put(key, value);
+        return map;
+    }
+
+    /**
+     * Each of 200 groups consuming all of 10k partitions, with 1% of the partitions changing between updates.
+     */
+    @Test
+    public void test10kPartitions200Groups() {
+        int partitions = 10_000;
+        int groups = 200;
+        TopicPartition[] tps = new TopicPartition[partitions];
+        for (int p = 0; p < partitions; p++) {
+            tps[p] = new TopicPartition("topic-" + (p / 100), p % 100);
+        }
+        String[] groupNames = new String[groups];
+        for (int g = 0; g < groups; g++) {
+            groupNames[g] = "group-" + g;
+        }
+
+        long t0 = System.nanoTime();
+        ConsumerLag lag = new ConsumerLag();
+        Lags lags = new Lags();
+        for (int g = 0; g < groups; g++) {
+            for (int p = 0; p < partitions; p++) {
+                lag.commit(groupNames[g], tps[p], 1_000);
+            }
+        }
+        for (int p = 0; p < partitions; p++) {
+            lag.endOffset(tps[p], 1_000 + p % 10);
+        }
+        long t1 = System.nanoTime();
+        assertEquals(partitions * groups, lag.update(lags));
+        long t2 = System.nanoTime();
+
+        long incrementalNanos = Long.MAX_VALUE;
+        for (int round = 1; round <= 5; round++) {
+            long t3 = System.nanoTime();
+            for (int p = 0; p < partitions; p += 100) {
+                lag.endOffset(tps[p], 1_000 + round);
+                lag.commit(groupNames[round], tps[p], 1_000 + round);
+            }
+            assertEquals(partitions / 100 * groups, lag.update(lags));
+            incrementalNanos = Math.min(incrementalNanos, System.nanoTime() - t3);
+        }
+        // Every 100th partition ends at 1005, which group-0 never committed beyond 1000, and group-5 has reached
+        long expected = 0;
+        for (int p = 0; p < partitions; p++) {
+            expected += p % 100 == 0 ? 5 : p % 10;
+        }
+        assertEquals(Long.valueOf(expected), lags.groups.get("group-0"));
+        assertEquals(Long.valueOf(expected - partitions / 100 * 5), lags.groups.get("group-5"));
+        LOGGER.info("Committed {} offsets in {}ms, computed their lag in {}ms, and recomputed 1% of them in {}ms",
+                partitions * groups, (t1 - t0) / 1_000_000.0, (t2 - t1) / 1_000_000.0, incrementalNanos / 1_000_000.0);
+    }
+}
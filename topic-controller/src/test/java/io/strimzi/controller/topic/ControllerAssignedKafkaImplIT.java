@@ -0,0 +1,164 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import io.strimzi.controller.topic.zk.ZkImpl;
+import io.strimzi.test.EmbeddedKafkaCluster;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.common.TopicPartitionInfo;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static java.util.Collections.emptyMap;
+
+/**
+ * Runs {@link ControllerAssignedKafkaImpl} and {@link ZkTopicStore} against real, in-process Kafka brokers and ZooKeeper,
+ * measuring how long they take under load.
+ */
+@RunWith(VertxUnitRunner.class)
+public class ControllerAssignedKafkaImplIT {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ControllerAssignedKafkaImplIT.class);
+
+    private static final int TOPICS = 200;
+
+    private static EmbeddedKafkaCluster cluster;
+
+    private final Vertx vertx = Vertx.vertx();
+    private final Metrics metrics = new Metrics();
+    private AdminClient adminClient;
+    private ZkImpl zk;
+    private ControllerAssignedKafkaImpl kafka;
+    private ZkTopicStore topicStore;
+
+    @BeforeClass
+    public static void startCluster() throws Exception {
+        cluster = new EmbeddedKafkaCluster(3).start();
+    }
+
+    @AfterClass
+    public static void stopCluster() {
+        if (cluster != null) {
+            cluster.close();
+        }
+    }
+
+    @Before
+    public void setup() {
+        Map<String, String> map = new HashMap<>();
+        map.put(Config.ZOOKEEPER_CONNECT.key, cluster.zkConnectString());
+        map.put(Config.KAFKA_BOOTSTRAP_SERVERS.key, cluster.bootstrapServers());
+        map.put(Config.NAMESPACE.key, "default");
+        map.put(Config.REASSIGN_VERIFY_INTERVAL_MS.key, "1000");
+        Config config = new Config(map);
+        adminClient = AdminClient.create(Collections.<String, Object>singletonMap(
+                AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, cluster.bootstrapServers()));
+        zk = new ZkImpl(vertx, cluster.zkConnectString(), 60000, false);
+        kafka = new ControllerAssignedKafkaImpl(adminClient, vertx, config, new ZkOperationStore(zk),
+                new ReassignmentProgressReporter(new MockK8s(), metrics, 0),
+                new WorkerPool(vertx, "reassignments", 2, 600_000, metrics));
+        topicStore = new ZkTopicStore(zk);
+    }
+
+    @After
+    public void teardown() throws InterruptedException {
+        kafka.stop();
+        adminClient.close();
+        zk.disconnect();
+        vertx.close();
+    }
+
+    private static <T> T await(TestContext context, Consumer<Handler<AsyncResult<T>>> operation) {
+        Async async = context.async();
+        Future<T> future = Future.future();
+        operation.accept(ar -> {
+            future.handle(ar);
+            async.complete();
+        });
+        async.awaitSuccess(120_000);
+        if (future.failed()) {
+            throw new RuntimeException(future.cause());
+        }
+        return future.result();
+    }
+
+    private static void run(TestContext context, Consumer<Handler<AsyncResult<Void>>> operation) {
+        ControllerAssignedKafkaImplIT.<Void>await(context, operation);
+    }
+
+    @Test
+    public void testCreateTopicsUnderLoad(TestContext context) {
+        List<Topic> topics = new ArrayList<>();
+        for (int i = 0; i < TOPICS; i++) {
+            topics.add(new Topic.Builder("load-" + i, 3, (short) 2, emptyMap()).build());
+        }
+
+        // Create them all at once, as a full reconciliation of new ConfigMaps would
+        long t0 = System.nanoTime();
+        run(context, h -> {
+            List<Future> created = new ArrayList<>();
+            for (Topic topic : topics) {
+                Future<Void> inKafka = Future.future();
+                Future<Void> inStore = Future.future();
+                kafka.createTopic(topic, inKafka.completer());
+                topicStore.create(topic, inStore.completer());
+                created.add(inKafka);
+                created.add(inStore);
+            }
+            CompositeFuture.all(created).setHandler(ar -> h.handle(ar.mapEmpty()));
+        });
+        LOGGER.info("Created {} topics in Kafka and the topic store in {}ms", TOPICS, (System.nanoTime() - t0) / 1_000_000);
+
+        t0 = System.nanoTime();
+        Set<String> listed = await(context, kafka::listTopics);
+        for (Topic topic : topics) {
+            context.assertTrue(listed.contains(topic.getTopicName().toString()));
+            context.assertEquals(topic, await(context,
+                (Handler<AsyncResult<Topic>> h) -> topicStore.read(topic.getTopicName(), h)));
+        }
+        LOGGER.info("Listed and read back {} topics in {}ms", TOPICS, (System.nanoTime() - t0) / 1_000_000);
+    }
+
+    @Test
+    public void testReassignment(TestContext context) {
+        Topic topic = new Topic.Builder("reassign", 6, (short) 2, emptyMap()).build();
+        run(context, h -> kafka.createTopic(topic, h));
+
+        // Runs the real kafka-reassign-partitions, in a subprocess, and waits for the reassignment to complete.
+        // This doesn't check the resulting replication factor, only that the reassignment completed and was cleaned up.
+        long t0 = System.nanoTime();
+        run(context, h -> kafka.changeReplicationFactor(new Topic.Builder(topic).withNumReplicas((short) 3).build(), h));
+        LOGGER.info("Reassigned the partitions in {}ms", (System.nanoTime() - t0) / 1_000_000);
+
+        TopicMetadata metadata = await(context, h -> kafka.topicMetadata(topic.getTopicName(), h));
+        for (TopicPartitionInfo partition : metadata.getDescription().partitions()) {
+            context.assertEquals(partition.replicas().size(), partition.isr().size());
+        }
+        context.assertTrue(await(context, (Handler<AsyncResult<List<Operation>>> h) -> new ZkOperationStore(zk).list(h)).isEmpty());
+    }
+}
@@ -9,6 +9,7 @@ import io.vertx.ext.unit.Async;
 import io.vertx.ext.unit.TestContext;
 import io.vertx.ext.unit.junit.VertxUnitRunner;
 import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.common.TopicPartition;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
@@ -19,6 +20,8 @@ import java.util.Map;
 
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
 
 @RunWith(VertxUnitRunner.class)
 public class ControllerAssignedKafkaImplTest {
@@ -84,9 +87,15 @@ public class ControllerAssignedKafkaImplTest {
             return asList("--execute-running");
         }
 
+        static List<String> hang(int seconds) {
+            return asList("--hang", Integer.toString(seconds));
+        }
+
         public static final String SCRIPT = "src/test/scripts/reassign.sh";
         private final List<List<String>> args;
         private final String script;
+        private final MockOperationStore operationStore;
+        private final Metrics metrics;
         private int i = 0;
 
         public Subclass(AdminClient adminClient, Vertx vertx, Config config, List<List<String>> args) {
@@ -94,7 +103,18 @@ public class ControllerAssignedKafkaImplTest {
         }
 
         public Subclass(AdminClient adminClient, Vertx vertx, Config config, String script, List<List<String>> args) {
-            super(adminClient, vertx, config);
+            this(adminClient, vertx, config, new MockOperationStore(), script, args);
+        }
+
+        public Subclass(AdminClient adminClient, Vertx vertx, Config config, MockOperationStore operationStore, String script, List<List<String>> args) {
+            this(adminClient, vertx, config, operationStore, new Metrics(), script, args);
+        }
+
+        public Subclass(AdminClient adminClient, Vertx vertx, Config config, MockOperationStore operationStore, Metrics metrics, String script, List<List<String>> args) {
+            super(adminClient, vertx, config, operationStore, new ReassignmentProgressReporter(new MockK8s(), metrics, 0),
+                    new WorkerPool(vertx, "reassignments", 2, 60_000, metrics));
+            this.operationStore = operationStore;
+            this.metrics = metrics;
             this.script = script;
             this.args = args;
         }
@@ -106,6 +126,16 @@ public class ControllerAssignedKafkaImplTest {
         }
     }
 
+    @Test
+    public void targetReplicas() throws Exception {
+        Map<TopicPartition, List<Integer>> targets = ControllerAssignedKafkaImpl.targetReplicas(
+                "{\"version\":1,\"partitions\":[{\"topic\":\"t\",\"partition\":0,\"replicas\":[0,1],\"log_dirs\":[\"any\",\"any\"]},"
+                        + "{\"topic\":\"t\",\"partition\":1,\"replicas\":[1,2],\"log_dirs\":[\"any\",\"any\"]}]}");
+        assertEquals(2, targets.size());
+        assertEquals(asList(0, 1), targets.get(new TopicPartition("t", 0)));
+        assertEquals(asList(1, 2), targets.get(new TopicPartition("t", 1)));
+    }
+
     @Test
     public void changeReplicationFactor_missingExecutable(TestContext context) {
         MockAdminClient adminClient = new MockAdminClient();
@@ -166,10 +196,46 @@ public class ControllerAssignedKafkaImplTest {
         Async async = context.async();
         sub.changeReplicationFactor(topic, ar -> {
             context.assertTrue(ar.succeeded());
+            // The operation was persisted while in progress, and removed once complete
+            sub.operationStore.assertCreated(context, "changeReplicationFactor");
+            sub.operationStore.assertEmpty(context);
+            // The progress metrics were removed once complete
+            context.assertFalse(sub.metrics.scrape().contains("changeReplicationFactor"));
             async.complete();
         });
     }
 
+    /**
+     * Test that a reassignment which was in progress when the controller stopped
+     * is verified to completion (and so has its throttles removed) after a restart.
+     */
+    @Test
+    public void resumeOperations(TestContext context) {
+        MockAdminClient adminClient = new MockAdminClient();
+        Vertx vertx = Vertx.vertx();
+        String[] partitions = new String[]{"resumeOperations-0", "resumeOperations-1"};
+        MockOperationStore operationStore = new MockOperationStore();
+        Async created = context.async();
+        operationStore.create(new Operation(Operation.Type.CHANGE_REPLICATION_FACTOR,
+                singletonList("resumeOperations"), 1000L, System.currentTimeMillis(),
+                "{\"version\":1,\"partitions\":[{\"topic\":\"resumeOperations\",\"partition\":0,\"replicas\":[0],\"log_dirs\":[\"any\"]}]}",
+                0, 2), ar -> created.complete());
+        created.await();
+        Subclass sub = new Subclass(adminClient, vertx, config, operationStore, Subclass.SCRIPT, asList(
+                Subclass.verifyInProgress(partitions),
+                Subclass.verifySuccess(partitions)));
+        Async async = context.async();
+        sub.resumeOperations(ar -> {
+            context.assertTrue(ar.succeeded());
+            vertx.setPeriodic(100, timerId -> operationStore.list(listResult -> {
+                if (listResult.result().isEmpty()) {
+                    vertx.cancelTimer(timerId);
+                    async.complete();
+                }
+            }));
+        });
+    }
+
     /**
      * Test the case where an error happens during --verify execution.
      * We should retry until we succeed (or (TODO) a timeout happens).
@@ -196,23 +262,94 @@ public class ControllerAssignedKafkaImplTest {
         });
     }
 
+    /**
+     * Test the case where a run of --verify hangs: it should be killed after the command timeout,
+     * and verification retried.
+     */
+    @Test
+    public void changeReplicationFactor_VerifyHangs(TestContext context) {
+        MockAdminClient adminClient = new MockAdminClient();
+        Vertx vertx = Vertx.vertx();
+        Map<String, String> map = new HashMap<>();
+        map.put(Config.ZOOKEEPER_CONNECT.key, "localhost:2181");
+        map.put(Config.KAFKA_BOOTSTRAP_SERVERS.key, "localhost:9092");
+        map.put(Config.NAMESPACE.key, "default");
+        map.put(Config.REASSIGN_VERIFY_INTERVAL_MS.key, "100");
+        map.put(Config.REASSIGN_COMMAND_TIMEOUT_MS.key, "500");
+        Topic topic = new Topic.Builder("changeReplicationFactor", 2, (short) 2, emptyMap()).build();
+        Subclass sub = new Subclass(adminClient, vertx, new Config(map), asList(
+                Subclass.generate("{\"version\":1,\"partitions\":[{\"topic\":\"test-topic\",\"partition\":0,\"replicas\":[0],\"log_dirs\":[\"any\"]}]}",
+                        "{\"version\":1,\"partitions\":[{\"topic\":\"test-topic\",\"partition\":0,\"replicas\":[0],\"log_dirs\":[\"any\"]}]}"),
+                Subclass.executeStarted(),
+                Subclass.hang(60),
+                Subclass.verifySuccess("changeReplicationFactor-0")));
+        Async async = context.async();
+        long t0 = System.currentTimeMillis();
+        sub.changeReplicationFactor(topic, ar -> {
+            context.assertTrue(ar.succeeded());
+            context.assertTrue(System.currentTimeMillis() - t0 < 30_000);
+            async.complete();
+        });
+    }
+
+    /**
+     * Test the case where --verify reports that a partition failed to move.
+     * We should carry on verifying while the other partitions move, so that --verify removes the throttles,
+     * and then fail the handler and forget the operation.
+     */
     @Test
     public void changeReplicationFactor_ErrorInVerify(TestContext context) {
         MockAdminClient adminClient = new MockAdminClient();
         Vertx vertx = Vertx.vertx();
         Topic topic = new Topic.Builder("changeReplicationFactor", 2, (short) 2, emptyMap()).build();
-        String[] partitions = new String[]{"changeReplicationFactor-0", "changeReplicationFactor-1"};
-        Subclass sub = new Subclass(adminClient, vertx, config, asList(
+        MockOperationStore operationStore = new MockOperationStore();
+        List<String> failedAndInProgress = new ArrayList<>(Subclass.verifyFail("changeReplicationFactor-0"));
+        failedAndInProgress.addAll(Subclass.verifyInProgress("changeReplicationFactor-1"));
+        List<String> failedAndComplete = new ArrayList<>(Subclass.verifyFail("changeReplicationFactor-0"));
+        failedAndComplete.addAll(Subclass.verifySuccess("changeReplicationFactor-1"));
+        Subclass sub = new Subclass(adminClient, vertx, config, operationStore, Subclass.SCRIPT, asList(
                 Subclass.generate("{\"version\":1,\"partitions\":[{\"topic\":\"test-topic\",\"partition\":0,\"replicas\":[0],\"log_dirs\":[\"any\"]},{\"topic\":\"test-topic\",\"partition\":1,\"replicas\":[0],\"log_dirs\":[\"any\"]}]}",
                         "{\"version\":1,\"partitions\":[{\"topic\":\"test-topic\",\"partition\":0,\"replicas\":[0],\"log_dirs\":[\"any\"]},{\"topic\":\"test-topic\",\"partition\":1,\"replicas\":[0],\"log_dirs\":[\"any\"]}]}"),
                 Subclass.executeStarted(),
-                Subclass.verifyInProgress(partitions),
-                Subclass.verifyFail("Bang!"),
-                Subclass.verifySuccess(partitions)));
+                failedAndInProgress,
+                failedAndComplete));
         Async async = context.async();
         sub.changeReplicationFactor(topic, ar -> {
-            // We should retry anf ultimately succeed
-            context.assertTrue(ar.succeeded());
+            context.assertTrue(ar.failed());
+            context.assertTrue(ar.cause().getMessage().contains("1 partitions failed"), ar.cause().getMessage());
+            operationStore.assertEmpty(context);
+            async.complete();
+        });
+    }
+
+    /**
+     * Test the case where --verify keeps failing to run.
+     * We should give up after a bounded number of attempts, rather than verifying for ever.
+     */
+    @Test
+    public void changeReplicationFactor_RepeatedErrorsInVerify(TestContext context) {
+        MockAdminClient adminClient = new MockAdminClient();
+        Vertx vertx = Vertx.vertx();
+        Map<String, String> map = new HashMap<>();
+        map.put(Config.ZOOKEEPER_CONNECT.key, "localhost:2181");
+        map.put(Config.KAFKA_BOOTSTRAP_SERVERS.key, "localhost:9092");
+        map.put(Config.NAMESPACE.key, "default");
+        map.put(Config.REASSIGN_VERIFY_INTERVAL_MS.key, "100");
+        Topic topic = new Topic.Builder("changeReplicationFactor", 2, (short) 2, emptyMap()).build();
+        MockOperationStore operationStore = new MockOperationStore();
+        List<List<String>> args = new ArrayList<>();
+        args.add(Subclass.generate("{\"version\":1,\"partitions\":[{\"topic\":\"test-topic\",\"partition\":0,\"replicas\":[0],\"log_dirs\":[\"any\"]}]}",
+                "{\"version\":1,\"partitions\":[{\"topic\":\"test-topic\",\"partition\":0,\"replicas\":[0],\"log_dirs\":[\"any\"]}]}"));
+        args.add(Subclass.executeStarted());
+        for (int i = 0; i < 20; i++) {
+            args.add(Subclass.fail("Bang!"));
+        }
+        Subclass sub = new Subclass(adminClient, vertx, new Config(map), operationStore, Subclass.SCRIPT, args);
+        Async async = context.async();
+        sub.changeReplicationFactor(topic, ar -> {
+            context.assertTrue(ar.failed());
+            context.assertTrue(ar.cause() instanceof TransientControllerException);
+            operationStore.assertEmpty(context);
             async.complete();
         });
     }
@@ -264,6 +401,8 @@ public class ControllerAssignedKafkaImplTest {
         sub.changeReplicationFactor(topic, ar -> {
             context.assertFalse(ar.succeeded());
             context.assertTrue(ar.cause().getMessage().contains("Failed to reassign partitions"));
+            // The reassignment never started, so there's nothing to resume
+            sub.operationStore.assertEmpty(context);
             async.complete();
         });
     }
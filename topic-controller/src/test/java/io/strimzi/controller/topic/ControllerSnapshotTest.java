@@ -0,0 +1,77 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import io.fabric8.kubernetes.api.model.ConfigMap;
+import io.fabric8.kubernetes.api.model.ConfigMapBuilder;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonMap;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ControllerSnapshotTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ControllerSnapshotTest.class);
+
+    private static final LabelPredicate CM_PREDICATE = LabelPredicate.fromString("strimzi.io/kind=topic");
+
+    private static ConfigMap configMap(String topicName, int partitions) {
+        return TopicSerialization.toConfigMap(new Topic.Builder(topicName, partitions, (short) 1,
+                singletonMap("cleanup.policy", "compact")).build(), CM_PREDICATE);
+    }
+
+    @Test
+    public void testRoundTrip() {
+        ConfigMap invalid = new ConfigMapBuilder().editOrNewMetadata().withName("invalid").endMetadata()
+                .withData(singletonMap(TopicSerialization.CM_KEY_PARTITIONS, "x")).build();
+        ControllerSnapshot snapshot = ControllerSnapshot.of("42",
+                asList(configMap("foo", 1), configMap("bar", 2), configMap("excluded", 1), invalid),
+            name -> !name.equals("excluded"));
+        assertEquals(2, snapshot.size());
+        assertEquals(-1, snapshot.getZxid());
+
+        ControllerSnapshot read = ControllerSnapshot.fromBytes(snapshot.toBytes(), 99);
+        assertEquals("42", read.getResourceVersion());
+        assertEquals(99, read.getZxid());
+        assertEquals(2, read.size());
+        assertTrue(read.unchanged(configMap("foo", 1)));
+        assertTrue(read.unchanged(configMap("bar", 2)));
+        assertFalse(read.unchanged(configMap("bar", 3)));
+        assertFalse(read.unchanged(configMap("excluded", 1)));
+        assertFalse(read.unchanged(configMap("new", 1)));
+        assertFalse(read.unchanged(invalid));
+    }
+
+    @Test
+    public void testUnreadable() {
+        assertNull(ControllerSnapshot.fromBytes("not gzip".getBytes(StandardCharsets.UTF_8), 1));
+    }
+
+    /**
+     * The snapshot must fit comfortably in a znode, whose default maximum size is 1MB.
+     */
+    @Test
+    public void testCompact() {
+        int numTopics = 20_000;
+        List<ConfigMap> cms = new ArrayList<>(numTopics);
+        for (int i = 0; i < numTopics; i++) {
+            cms.add(configMap("my-application-events-" + i, 12));
+        }
+        byte[] bytes = ControllerSnapshot.of("123456", cms, name -> true).toBytes();
+        LOGGER.info("Snapshot of {} topics: {} bytes", numTopics, bytes.length);
+        assertTrue("Expected " + bytes.length + " to be less than 1MB", bytes.length < 1024 * 1024);
+        assertEquals(numTopics, ControllerSnapshot.fromBytes(bytes, 1).size());
+    }
+}
@@ -39,6 +39,7 @@ public class ControllerTest {
     private MockTopicStore mockTopicStore = new MockTopicStore();
     private MockK8s mockK8s = new MockK8s();
     private Controller controller;
+    private Metrics metrics;
     private io.strimzi.controller.topic.Config config;
 
     private static final Map<String, String> MANDATORY_CONFIG = new HashMap<>();
@@ -55,7 +56,9 @@ public class ControllerTest {
         mockTopicStore = new MockTopicStore();
         mockK8s = new MockK8s();
         config = new io.strimzi.controller.topic.Config(new HashMap<>(MANDATORY_CONFIG));
-        controller = new Controller(vertx, mockKafka, mockK8s, mockTopicStore, cmPredicate, "default-namespace", config);
+        metrics = new Metrics();
+        controller = new Controller(vertx, mockKafka, mockK8s, mockTopicStore, cmPredicate, "default-namespace", config, metrics,
+                new PriorityScheduler(vertx, 10, metrics));
     }
 
     @After
@@ -115,6 +118,25 @@ public class ControllerTest {
         });
     }
 
+    /** Test that an invalid ConfigMap is reported by a single Event until its problem changes */
+    @Test
+    public void testInvalidCmReportedOnce(TestContext context) {
+        ConfigMap cm = new ConfigMapBuilder().withNewMetadata().withName("invalid").withLabels(cmPredicate.labels()).endMetadata().
+                withData(map(TopicSerialization.CM_KEY_REPLICAS, "1",
+                        TopicSerialization.CM_KEY_PARTITIONS, "1",
+                        TopicSerialization.CM_KEY_CONFIG, "{\"retention.mins\":\"10\"}")).build();
+        InvalidConfigMapException e = new InvalidConfigMapException(cm, "The key 'retention.mins' is not a topic config");
+
+        controller.reportInvalidConfigMap(cm, e);
+        controller.reportInvalidConfigMap(cm, e);
+        controller.reportInvalidConfigMap(cm, new InvalidConfigMapException(cm, "The key 'foo' is not a topic config"));
+        Async async = context.async();
+        vertx.setTimer(100, id -> {
+            context.assertEquals(2, mockK8s.eventCount());
+            async.complete();
+        });
+    }
+
     /**
      * Trigger {@link Controller#onConfigMapAdded(ConfigMap, Handler)}
      * and have the Kafka and TopicStore respond with the given exceptions.
@@ -308,8 +330,8 @@ public class ControllerTest {
      */
     @Test
     public void testOnTopicChanged(TestContext context) {
-        Topic kubeTopic = new Topic.Builder(topicName.toString(), 10, (short) 2, map("cleanup.policy", "bar")).build();
-        Topic kafkaTopic = new Topic.Builder(topicName.toString(), 10, (short) 2, map("cleanup.policy", "baz")).build();
+        Topic kubeTopic = new Topic.Builder(topicName.toString(), 10, (short) 2, map("cleanup.policy", "compact")).build();
+        Topic kafkaTopic = new Topic.Builder(topicName.toString(), 10, (short) 2, map("cleanup.policy", "delete")).build();
         Topic privateTopic = kubeTopic;
         ConfigMap cm = TopicSerialization.toConfigMap(kubeTopic, cmPredicate);
 
@@ -329,21 +351,62 @@ public class ControllerTest {
         Async async = context.async(3);
         controller.onTopicConfigChanged(topicName, ar -> {
             assertSucceeded(context, ar);
-            context.assertEquals("baz", mockKafka.getTopicState(topicName).getConfig().get("cleanup.policy"));
+            context.assertEquals("delete", mockKafka.getTopicState(topicName).getConfig().get("cleanup.policy"));
             mockTopicStore.read(topicName, ar2 -> {
                 assertSucceeded(context, ar2);
-                context.assertEquals("baz", ar2.result().getConfig().get("cleanup.policy"));
+                context.assertEquals("delete", ar2.result().getConfig().get("cleanup.policy"));
                 async.countDown();
             });
             mockK8s.getFromName(mapName, ar2 -> {
                 assertSucceeded(context, ar2);
-                context.assertEquals("baz", TopicSerialization.fromConfigMap(ar2.result()).getConfig().get("cleanup.policy"));
+                context.assertEquals("delete", TopicSerialization.fromConfigMap(ar2.result()).getConfig().get("cleanup.policy"));
                 async.countDown();
             });
             async.countDown();
         });
     }
 
+    /**
+     * Test the resync of a topic whose ConfigMap events were dropped, which has a ConfigMap not named after it
+     */
+    @Test
+    public void testResync(TestContext context) {
+        MapName otherMapName = new MapName("other-map");
+        Topic kubeTopic = new Topic.Builder(topicName, otherMapName, 10, (short) 2, map("cleanup.policy", "compact")).build();
+
+        mockKafka.setTopicMetadataResponse(topicName, null, null);
+        mockKafka.setCreateTopicResponse(topicName.toString(), null);
+        mockTopicStore.setCreateTopicResponse(topicName, null);
+        mockK8s.setCreateResponse(otherMapName, null)
+                .createConfigMap(TopicSerialization.toConfigMap(kubeTopic, cmPredicate), ar -> { });
+
+        Async async = context.async();
+        controller.resync(topicName, otherMapName, ar -> {
+            assertSucceeded(context, ar);
+            mockKafka.assertExists(context, topicName);
+            mockTopicStore.read(topicName, readResult -> {
+                assertSucceeded(context, readResult);
+                context.assertEquals(otherMapName, readResult.result().getMapName());
+                async.complete();
+            });
+        });
+    }
+
+    @Test
+    public void testDrain(TestContext context) {
+        mockKafka.setTopicMetadataResponse(topicName, null, null);
+        mockTopicStore.setCreateTopicResponse(topicName, null);
+        Async resynced = context.async();
+        controller.resync(topicName, null, ar -> resynced.complete());
+        Async async = context.async();
+        controller.drain(10_000, ar -> {
+            context.assertTrue(resynced.isCompleted(), "Drained before the resync completed");
+            context.assertTrue(ar.result().isEmpty());
+            context.assertFalse(controller.isWorkInflight());
+            async.complete();
+        });
+    }
+
     // TODO error getting full topic metadata, and then reconciliation
     // TODO error creating config map (exists), and then reconciliation
 
@@ -353,7 +416,7 @@ public class ControllerTest {
     @Test
     public void testReconcile_withCm_noKafka_noPrivate(TestContext context) {
 
-        Topic kubeTopic = new Topic.Builder(topicName.toString(), 10, (short) 2, map("cleanup.policy", "bar")).build();
+        Topic kubeTopic = new Topic.Builder(topicName.toString(), 10, (short) 2, map("cleanup.policy", "compact")).build();
         Topic kafkaTopic = null;
         Topic privateTopic = null;
 
@@ -385,7 +448,7 @@ public class ControllerTest {
     @Test
     public void testReconcile_withCm_noKafka_withPrivate(TestContext context) {
 
-        Topic kubeTopic = new Topic.Builder(topicName.toString(), 10, (short) 2, map("cleanup.policy", "bar")).build();
+        Topic kubeTopic = new Topic.Builder(topicName.toString(), 10, (short) 2, map("cleanup.policy", "compact")).build();
         Topic kafkaTopic = null;
         Topic privateTopic = kubeTopic;
 
@@ -416,7 +479,7 @@ public class ControllerTest {
     public void testReconcile_noCm_withKafka_noPrivate(TestContext context) {
 
         Topic kubeTopic = null;
-        Topic kafkaTopic = new Topic.Builder(topicName.toString(), 10, (short) 2, map("cleanup.policy", "bar")).build();
+        Topic kafkaTopic = new Topic.Builder(topicName.toString(), 10, (short) 2, map("cleanup.policy", "compact")).build();
         Topic privateTopic = null;
 
         Async async0 = context.async();
@@ -454,7 +517,7 @@ public class ControllerTest {
     @Test
     public void testReconcile_noCm_withKafka_withPrivate(TestContext context) {
         Topic kubeTopic = null;
-        Topic kafkaTopic = new Topic.Builder(topicName.toString(), 10, (short) 2, map("cleanup.policy", "bar")).build();
+        Topic kafkaTopic = new Topic.Builder(topicName.toString(), 10, (short) 2, map("cleanup.policy", "compact")).build();
         Topic privateTopic = kafkaTopic;
 
         Async async0 = context.async(2);
@@ -482,7 +545,7 @@ public class ControllerTest {
      */
     @Test
     public void testReconcile_withCm_withKafka_noPrivate_matching(TestContext context) {
-        Topic kubeTopic = new Topic.Builder(topicName.toString(), 10, (short) 2, map("cleanup.policy", "bar")).build();
+        Topic kubeTopic = new Topic.Builder(topicName.toString(), 10, (short) 2, map("cleanup.policy", "compact")).build();
         Topic kafkaTopic = kubeTopic;
         Topic privateTopic = null;
 
@@ -517,10 +580,10 @@ public class ControllerTest {
      */
     @Test
     public void testReconcile_withCm_withKafka_noPrivate_configsReconcilable(TestContext context) {
-        Topic kubeTopic = new Topic.Builder(topicName.toString(), 10, (short) 2, map("cleanup.policy", "bar")).build();
+        Topic kubeTopic = new Topic.Builder(topicName.toString(), 10, (short) 2, map("cleanup.policy", "compact")).build();
         Topic kafkaTopic = new Topic.Builder(topicName.toString(), 10, (short) 2, map("unclean.leader.election.enable", "true")).build();
         Topic privateTopic = null;
-        Topic mergedTopic = new Topic.Builder(topicName.toString(), 10, (short) 2, map("unclean.leader.election.enable", "true", "cleanup.policy", "bar")).build();
+        Topic mergedTopic = new Topic.Builder(topicName.toString(), 10, (short) 2, map("unclean.leader.election.enable", "true", "cleanup.policy", "compact")).build();
 
         Async async0 = context.async(2);
         mockKafka.setCreateTopicResponse(topicName -> Future.succeededFuture());
@@ -560,8 +623,8 @@ public class ControllerTest {
      */
     @Test
     public void testReconcile_withCm_withKafka_noPrivate_irreconcilable(TestContext context) {
-        Topic kubeTopic = new Topic.Builder(topicName.toString(), 10, (short) 2, map("cleanup.policy", "bar")).build();
-        Topic kafkaTopic = new Topic.Builder(topicName.toString(), 12, (short) 2, map("cleanup.policy", "baz")).build();
+        Topic kubeTopic = new Topic.Builder(topicName.toString(), 10, (short) 2, map("cleanup.policy", "compact")).build();
+        Topic kafkaTopic = new Topic.Builder(topicName.toString(), 12, (short) 2, map("cleanup.policy", "delete")).build();
         Topic privateTopic = null;
 
         Async async0 = context.async(2);
@@ -604,10 +667,10 @@ public class ControllerTest {
      */
     @Test
     public void testReconcile_withCm_withKafka_withPrivate_3WayMerge(TestContext context) {
-        Topic kubeTopic = new Topic.Builder(topicName, mapName, 10, (short) 2, map("cleanup.policy", "bar")).build();
-        Topic kafkaTopic = new Topic.Builder(topicName, mapName, 12, (short) 2, map("cleanup.policy", "baz")).build();
-        Topic privateTopic = new Topic.Builder(topicName, mapName, 10, (short) 2, map("cleanup.policy", "baz")).build();
-        Topic resultTopic = new Topic.Builder(topicName, mapName, 12, (short) 2, map("cleanup.policy", "bar")).build();
+        Topic kubeTopic = new Topic.Builder(topicName, mapName, 10, (short) 2, map("cleanup.policy", "compact")).build();
+        Topic kafkaTopic = new Topic.Builder(topicName, mapName, 12, (short) 2, map("cleanup.policy", "delete")).build();
+        Topic privateTopic = new Topic.Builder(topicName, mapName, 10, (short) 2, map("cleanup.policy", "delete")).build();
+        Topic resultTopic = new Topic.Builder(topicName, mapName, 12, (short) 2, map("cleanup.policy", "compact")).build();
 
         Async async0 = context.async(3);
         mockKafka.setCreateTopicResponse(topicName -> Future.succeededFuture());
@@ -637,12 +700,62 @@ public class ControllerTest {
                 async.countDown();
             });
             context.assertEquals(resultTopic, mockKafka.getTopicState(topicName));
+            context.assertEquals(0.0, metrics.gauge("reconciliation_skip_ratio", "").get());
             async.countDown();
         });
     }
 
+    /**
+     * Test reconciliation when all three versions of the topic are identical, which is skipped using the content hash.
+     */
+    @Test
+    public void testReconcile_withCm_withKafka_withPrivate_unchanged(TestContext context) {
+        Topic kubeTopic = new Topic.Builder(topicName, mapName, 10, (short) 2, map("cleanup.policy", "compact")).build();
+        Topic kafkaTopic = new Topic.Builder(topicName, mapName, 10, (short) 2, map("cleanup.policy", "compact")).build();
+        Topic privateTopic = new Topic.Builder(topicName, mapName, 10, (short) 2, map("cleanup.policy", "compact")).build();
+        ConfigMap cm = TopicSerialization.toConfigMap(kubeTopic, cmPredicate);
+
+        Async async = context.async();
+        controller.reconcile(cm, kubeTopic, kafkaTopic, privateTopic, reconcileResult -> {
+            assertSucceeded(context, reconcileResult);
+            mockK8s.assertNoEvents(context);
+            // Nothing was touched, so none of them exist in the mocks
+            mockKafka.assertEmpty(context);
+            mockTopicStore.assertNotExists(context, topicName);
+            context.assertEquals(1.0, metrics.gauge("reconciliation_skip_ratio", "").get());
+            async.complete();
+        });
+    }
+
+    @Test
+    public void testFullReconcile_reportsDrift(TestContext context) {
+        Topic topic = new Topic.Builder(topicName, mapName, 10, (short) 2, map("cleanup.policy", "compact")).build();
+        mockKafka.setCreateTopicResponse(topicName.toString(), null)
+                .createTopic(topic, ar -> { });
+        mockKafka.setTopicMetadataResponse(topicName, Utils.getTopicMetadata(topic), null);
+        mockTopicStore.setCreateTopicResponse(topicName, null)
+                .create(topic, ar -> { });
+
+        Async unchanged = context.async();
+        controller.reconcile(TopicSerialization.toConfigMap(topic, cmPredicate), topicName, reconcileResult -> {
+            assertSucceeded(context, reconcileResult);
+            context.assertFalse(reconcileResult.result());
+            unchanged.complete();
+        });
+        unchanged.await();
+
+        Topic changed = new Topic.Builder(topicName, mapName, 10, (short) 2, map("cleanup.policy", "delete")).build();
+        mockKafka.setUpdateTopicResponse(topicName -> Future.succeededFuture());
+        mockTopicStore.setUpdateTopicResponse(topicName, null);
+        Async drifted = context.async();
+        controller.reconcile(TopicSerialization.toConfigMap(changed, cmPredicate), topicName, reconcileResult -> {
+            assertSucceeded(context, reconcileResult);
+            context.assertTrue(reconcileResult.result());
+            drifted.complete();
+        });
+    }
+
     // TODO 3way reconcilation where kafka and kube agree
-    // TODO 3way reconcilation where all three agree
     // TODO 3way reconcilation with conflict
     // TODO reconciliation where only private state exists => delete the private state
 
@@ -651,7 +764,7 @@ public class ControllerTest {
     // + error cases
 
     private void configMapRemoved(TestContext context, Exception deleteTopicException, Exception storeException) {
-        Topic kubeTopic = new Topic.Builder(topicName.toString(), 10, (short) 2, map("cleanup.policy", "bar")).build();
+        Topic kubeTopic = new Topic.Builder(topicName.toString(), 10, (short) 2, map("cleanup.policy", "compact")).build();
         Topic kafkaTopic = kubeTopic;
         Topic privateTopic = kubeTopic;
 
@@ -689,8 +802,8 @@ public class ControllerTest {
 
     @Test
     public void testOnConfigMapChanged(TestContext context) {
-        Topic kubeTopic = new Topic.Builder(topicName, mapName, 10, (short) 2, map("cleanup.policy", "baz")).build();
-        Topic kafkaTopic = new Topic.Builder(topicName, mapName, 10, (short) 2, map("cleanup.policy", "bar")).build();
+        Topic kubeTopic = new Topic.Builder(topicName, mapName, 10, (short) 2, map("cleanup.policy", "delete")).build();
+        Topic kafkaTopic = new Topic.Builder(topicName, mapName, 10, (short) 2, map("cleanup.policy", "compact")).build();
         Topic privateTopic = kafkaTopic;
         ConfigMap cm = TopicSerialization.toConfigMap(kubeTopic, cmPredicate);
 
@@ -708,15 +821,15 @@ public class ControllerTest {
         Async async = context.async(3);
         controller.onConfigMapModified(cm, ar -> {
             assertSucceeded(context, ar);
-            context.assertEquals("baz", mockKafka.getTopicState(topicName).getConfig().get("cleanup.policy"));
+            context.assertEquals("delete", mockKafka.getTopicState(topicName).getConfig().get("cleanup.policy"));
             mockTopicStore.read(topicName, ar2 -> {
                 assertSucceeded(context, ar2);
-                context.assertEquals("baz", ar2.result().getConfig().get("cleanup.policy"));
+                context.assertEquals("delete", ar2.result().getConfig().get("cleanup.policy"));
                 async.countDown();
             });
             mockK8s.getFromName(mapName, ar2 -> {
                 assertSucceeded(context, ar2);
-                context.assertEquals("baz", TopicSerialization.fromConfigMap(ar2.result()).getConfig().get("cleanup.policy"));
+                context.assertEquals("delete", TopicSerialization.fromConfigMap(ar2.result()).getConfig().get("cleanup.policy"));
                 async.countDown();
             });
             async.countDown();
@@ -745,7 +858,7 @@ public class ControllerTest {
     }
 
     private void topicDeleted(TestContext context, Exception storeException, Exception k8sException) {
-        Topic kubeTopic = new Topic.Builder(topicName.toString(), 10, (short) 2, map("cleanup.policy", "bar")).withMapName(mapName).build();
+        Topic kubeTopic = new Topic.Builder(topicName.toString(), 10, (short) 2, map("cleanup.policy", "compact")).withMapName(mapName).build();
         Topic kafkaTopic = kubeTopic;
         Topic privateTopic = kubeTopic;
 
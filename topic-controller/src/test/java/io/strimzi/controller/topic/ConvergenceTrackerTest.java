@@ -0,0 +1,65 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ConvergenceTrackerTest {
+
+    private final Metrics metrics = new Metrics();
+    private final ConvergenceTracker tracker = new ConvergenceTracker(metrics);
+
+    private Metrics.Histogram histogram(String event) {
+        return metrics.histogram("convergence_seconds", "", Metrics.DEFAULT_SECONDS_BUCKETS, "event", event);
+    }
+
+    @Test
+    public void testConvergenceRecorded() throws InterruptedException {
+        List<AsyncResult<Void>> results = new ArrayList<>();
+        Handler<AsyncResult<Void>> slow = tracker.track("configmap_modified", new TopicName("slow"), "42", results::add);
+        Handler<AsyncResult<Void>> fast = tracker.track("topic_config_changed", new TopicName("fast"), null, results::add);
+        Handler<AsyncResult<Void>> failed = tracker.track("configmap_modified", new TopicName("failed"), "43", results::add);
+        fast.handle(Future.succeededFuture());
+        Thread.sleep(20);
+        slow.handle(Future.succeededFuture());
+        failed.handle(Future.failedFuture(new ControllerException("test")));
+
+        assertEquals(3, results.size());
+        assertEquals(1, histogram("configmap_modified").getCount());
+        assertEquals(1, histogram("topic_config_changed").getCount());
+        assertEquals(1.0, metrics.counter("convergence_failures_total", "", "event", "configmap_modified").get(), 0.0);
+
+        // Only those which converged are described, slowest first
+        JsonArray slowest = tracker.describeSlowest();
+        assertEquals(2, slowest.size());
+        JsonObject first = slowest.getJsonObject(0);
+        assertEquals("slow", first.getString("topic"));
+        assertEquals("configmap_modified", first.getString("event"));
+        assertEquals("42", first.getString("resourceVersion"));
+        assertTrue(first.getDouble("seconds") >= 0.02);
+        assertEquals("fast", slowest.getJsonObject(1).getString("topic"));
+        assertFalse(slowest.getJsonObject(1).containsKey("resourceVersion"));
+    }
+
+    @Test
+    public void testRecentBounded() {
+        for (int i = 0; i < ConvergenceTracker.RECENT + 10; i++) {
+            tracker.track("topic_created", new TopicName("topic-" + i), null, ar -> { }).handle(Future.succeededFuture());
+        }
+        assertEquals(ConvergenceTracker.SLOWEST, tracker.describeSlowest().size());
+    }
+}
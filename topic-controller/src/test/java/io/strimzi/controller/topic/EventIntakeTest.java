@@ -0,0 +1,136 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class EventIntakeTest {
+
+    private final Metrics metrics = new Metrics();
+    /** The events which have been delivered, but not completed. */
+    private final List<Future<Void>> delivered = new ArrayList<>();
+    private final List<String> log = new ArrayList<>();
+    private final List<Handler<AsyncResult<Void>>> resyncs = new ArrayList<>();
+    private final EventIntake intake = new EventIntake(2, 1, (topicName, mapName, handler) -> {
+        log.add("resync " + topicName + " " + mapName);
+        resyncs.add(handler);
+    }, metrics);
+
+    private boolean offer(String topic, String map) {
+        return intake.offer(new TopicName(topic), map != null ? new MapName(map) : null, fut -> {
+            log.add("deliver " + topic);
+            delivered.add(fut);
+        });
+    }
+
+    private double metric(String name) {
+        return metrics.gauge(name, "").get();
+    }
+
+    @Test
+    public void testOverflowMarksDirty() {
+        // One is delivered, two are queued, and the rest are dropped
+        assertTrue(offer("a", null));
+        assertTrue(offer("b", null));
+        assertTrue(offer("c", null));
+        assertFalse(offer("d", "map-d"));
+        assertFalse(offer("e", null));
+        assertEquals(2.0, metric("event_queue_depth"), 0);
+        assertEquals(2.0, metric("event_queue_dirty_topics"), 0);
+        assertEquals(2.0, metrics.counter("event_queue_overflow_total", "").get(), 0);
+        assertEquals(5, intake.size());
+
+        // The dirty topics are resynced first, and then the queued events are delivered
+        delivered.remove(0).complete();
+        resyncs.remove(0).handle(Future.succeededFuture());
+        resyncs.remove(0).handle(Future.failedFuture("oops"));
+        delivered.remove(0).complete();
+        delivered.remove(0).complete();
+        assertEquals("[deliver a, resync d map-d, resync e null, deliver b, deliver c]", log.toString());
+        assertEquals(0, intake.size());
+        assertEquals(0.0, metric("event_queue_depth"), 0);
+    }
+
+    @Test
+    public void testEventsForDirtyTopicsCoalesced() {
+        offer("a", null);
+        offer("b", null);
+        offer("c", null);
+        offer("d", null);
+        // The resync of d covers this, and will use the name of its ConfigMap
+        assertFalse(offer("d", "map-d"));
+        assertFalse(offer("d", null));
+        assertEquals(2.0, metrics.counter("event_queue_coalesced_total", "").get(), 0);
+        assertEquals(1.0, metric("event_queue_dirty_topics"), 0);
+
+        delivered.remove(0).complete();
+        assertEquals("[deliver a, resync d map-d]", log.toString());
+    }
+
+    @Test
+    public void testResyncAfterQueuedEvents() {
+        List<String> applied = new ArrayList<>();
+        List<Future<Void>> pending = new ArrayList<>();
+        EventIntake intake = new EventIntake(2, 1, (topicName, mapName, handler) -> {
+            applied.add("resync " + topicName + " " + mapName);
+            handler.handle(Future.succeededFuture());
+        }, metrics);
+        intake.offer(new TopicName("a"), null, pending::add);
+        // An event holding an old ConfigMap of b is queued, then b's next event overflows the queue
+        intake.offer(new TopicName("b"), new MapName("map-b"), fut -> {
+            applied.add("old b");
+            fut.complete();
+        });
+        intake.offer(new TopicName("c"), null, fut -> {
+            applied.add("c");
+            fut.complete();
+        });
+        assertFalse(intake.offer(new TopicName("b"), new MapName("map-b"), fut -> applied.add("new b")));
+
+        // The resync of b comes after its old event, so the state it reads is the one b is left with
+        pending.remove(0).complete();
+        assertEquals("[old b, resync b map-b, c]", applied.toString());
+        assertEquals(0, intake.size());
+    }
+
+    @Test
+    public void testClose() {
+        offer("a", null);
+        offer("b", null);
+        offer("c", "map-c");
+        offer("d", "map-d");
+        assertFalse(offer("e", null));
+
+        // The queued and dirty topics are handed back, and the event already delivered is left to complete
+        assertEquals("{d=map-d, e=null, b=null, c=map-c}", intake.close().toString());
+        assertEquals(1, intake.size());
+        assertFalse(offer("f", "map-f"));
+        delivered.remove(0).complete();
+        assertEquals("[deliver a]", log.toString());
+        assertEquals("{f=map-f}", intake.close().toString());
+        assertEquals(0, intake.size());
+    }
+
+    @Test
+    public void testFailingDelivery() {
+        EventIntake intake = new EventIntake(10, 1, (topicName, mapName, handler) -> { }, metrics);
+        intake.offer(new TopicName("a"), null, fut -> {
+            throw new RuntimeException("oops");
+        });
+        // The failure doesn't hold up the events behind it
+        intake.offer(new TopicName("b"), null, Future::complete);
+        assertEquals(0, intake.size());
+    }
+}
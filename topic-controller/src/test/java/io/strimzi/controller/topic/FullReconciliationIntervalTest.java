@@ -0,0 +1,71 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FullReconciliationIntervalTest {
+
+    private final Metrics metrics = new Metrics();
+
+    @Test
+    public void testBackOffWithoutDrift() {
+        FullReconciliationInterval interval = new FullReconciliationInterval(1_000, 5_000, metrics);
+        assertEquals(1_000, interval.current());
+        interval.started();
+        assertEquals(2_000, interval.completed(0));
+        interval.started();
+        assertEquals(4_000, interval.completed(0));
+        interval.started();
+        assertEquals(5_000, interval.completed(0));
+        interval.started();
+        assertEquals(5_000, interval.completed(0));
+        assertEquals(5.0, metrics.gauge("full_reconciliation_interval_seconds", "").get(), 0.0);
+    }
+
+    @Test
+    public void testDriftFoundByReconciliation() {
+        FullReconciliationInterval interval = new FullReconciliationInterval(1_000, 5_000, metrics);
+        interval.started();
+        interval.completed(0);
+        interval.started();
+        assertEquals(1_000, interval.completed(3));
+        assertEquals(3.0, metrics.counter("drift_total", "", "source", FullReconciliationInterval.RECONCILIATION).get(), 0.0);
+    }
+
+    @Test
+    public void testDriftBetweenReconciliations() {
+        FullReconciliationInterval interval = new FullReconciliationInterval(1_000, 5_000, metrics);
+        interval.started();
+        interval.completed(0);
+        assertEquals(1_000, interval.drift(FullReconciliationInterval.ZK_RECONNECT));
+        assertEquals(1.0, metrics.counter("drift_total", "", "source", FullReconciliationInterval.ZK_RECONNECT).get(), 0.0);
+        interval.started();
+        assertEquals(2_000, interval.completed(0));
+    }
+
+    @Test
+    public void testDriftDuringReconciliation() {
+        FullReconciliationInterval interval = new FullReconciliationInterval(1_000, 5_000, metrics);
+        interval.started();
+        interval.completed(0);
+        interval.started();
+        interval.drift(FullReconciliationInterval.WATCH_RECONNECT);
+        // The reconciliation which was in progress might have missed it
+        assertEquals(1_000, interval.completed(0));
+    }
+
+    @Test
+    public void testFixedInterval() {
+        FullReconciliationInterval interval = new FullReconciliationInterval(60_000, 5_000, metrics);
+        assertEquals(5_000, interval.current());
+        interval.started();
+        assertEquals(5_000, interval.completed(1));
+        assertTrue(metrics.scrape().contains("drift_total{source=\"zk_session_expired\"} 0\n"));
+    }
+}
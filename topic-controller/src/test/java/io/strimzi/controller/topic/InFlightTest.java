@@ -4,6 +4,8 @@
  */
 package io.strimzi.controller.topic;
 
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
 import io.vertx.ext.unit.Async;
 import io.vertx.ext.unit.TestContext;
@@ -13,6 +15,10 @@ import org.junit.runner.RunWith;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.List;
+
+import static java.util.Collections.singleton;
+
 @RunWith(VertxUnitRunner.class)
 public class InFlightTest {
 
@@ -114,6 +120,86 @@ public class InFlightTest {
         });
     }
 
+    @Test
+    public void testStuckTaskTimesOut(TestContext context) {
+        Async firstFailed = context.async();
+        Async secondCompleted = context.async();
+        InFlight<String> inflight = new InFlight<>(vertx, 200);
+        Future<Void>[] stuck = new Future[1];
+        inflight.enqueue("test", fut -> {
+            LOGGER.debug("1st task never completing");
+            stuck[0] = fut;
+        }, v -> {
+                context.assertTrue(v.failed());
+                context.assertTrue(v.cause().getMessage().contains("timed out"));
+                firstFailed.complete();
+            });
+        inflight.enqueue("test", fut -> {
+            // The stuck task completing late must not affect us
+            stuck[0].complete();
+            fut.complete();
+        }, v -> {
+                context.assertTrue(v.succeeded());
+                secondCompleted.complete();
+            });
+        firstFailed.await();
+        secondCompleted.await();
+    }
+
+    @Test
+    public void testDescribe(TestContext context) {
+        Async bothEnqueued = context.async();
+        Async described = context.async();
+        InFlight<String> inflight = new InFlight<>(vertx);
+        inflight.enqueue("test", named("first", fut -> {
+            bothEnqueued.await();
+            List<InFlight.ActionState> queue = inflight.describe().get("test");
+            context.assertEquals(2, queue.size());
+            context.assertEquals("first", queue.get(0).action);
+            context.assertTrue(queue.get(0).running);
+            context.assertEquals("second", queue.get(1).action);
+            context.assertFalse(queue.get(1).running);
+            fut.complete();
+        }), v -> { });
+        inflight.enqueue("test", named("second", Future::complete), v -> described.complete());
+        bothEnqueued.complete();
+    }
+
+    @Test
+    public void testWhenDrained(TestContext context) {
+        Async drained = context.async();
+        InFlight<String> inflight = new InFlight<>(vertx);
+        Future<Void>[] running = new Future[1];
+        inflight.enqueue("test", fut -> running[0] = fut, v -> { });
+        inflight.whenDrained(v -> {
+            context.assertNotNull(running[0], "Drained before the action completed");
+            context.assertEquals(0, inflight.size());
+            drained.complete();
+        });
+        context.assertEquals(singleton("test"), inflight.keys());
+        vertx.setTimer(100, id -> running[0].complete());
+        drained.await();
+
+        // With nothing inflight it's called at once
+        boolean[] called = {false};
+        inflight.whenDrained(v -> called[0] = true);
+        context.assertTrue(called[0]);
+    }
+
+    private static Handler<Future<Void>> named(String name, Handler<Future<Void>> action) {
+        return new Handler<Future<Void>>() {
+            @Override
+            public void handle(Future<Void> fut) {
+                action.handle(fut);
+            }
+
+            @Override
+            public String toString() {
+                return name;
+            }
+        };
+    }
+
     @Test
     public void test0(TestContext context) {
         testSingleTask(context);
@@ -48,7 +48,9 @@ public class K8sImplTest {
                 .addNewItem().endItem()
                 .build());
 
-        K8sImpl k8s = new K8sImpl(vertx, mockClient, new LabelPredicate("foo", "bar"), "default");
+        Metrics metrics = new Metrics();
+        K8sImpl k8s = new K8sImpl(mockClient, new LabelPredicate("foo", "bar"), "default",
+                new WorkerPool(vertx, "k8s-reads", 1, 60_000, metrics), new WorkerPool(vertx, "k8s-writes", 1, 60_000, metrics));
 
         k8s.listMaps(ar -> {
             List<ConfigMap> list = ar.result();
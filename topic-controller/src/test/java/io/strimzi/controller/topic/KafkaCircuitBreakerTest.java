@@ -0,0 +1,152 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.apache.kafka.common.errors.TopicExistsException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(VertxUnitRunner.class)
+public class KafkaCircuitBreakerTest {
+
+    /** A Kafka whose topicMetadata() calls complete only when the test completes them. */
+    static class HeldKafka extends MockKafka {
+        final List<Handler<AsyncResult<TopicMetadata>>> held = new ArrayList<>();
+
+        @Override
+        public void topicMetadata(TopicName topicName, Handler<AsyncResult<TopicMetadata>> handler) {
+            held.add(handler);
+        }
+
+        void completeNext(AsyncResult<TopicMetadata> result) {
+            held.remove(0).handle(result);
+        }
+    }
+
+    private Vertx vertx = Vertx.vertx();
+    private Metrics metrics;
+    private HeldKafka kafka;
+
+    @Before
+    public void setup() {
+        metrics = new Metrics();
+        kafka = new HeldKafka();
+    }
+
+    @After
+    public void teardown() {
+        vertx.close();
+    }
+
+    private KafkaCircuitBreaker breaker(long callTimeoutMs, long openMs) {
+        return new KafkaCircuitBreaker(vertx, kafka, 2, 1, callTimeoutMs, openMs, metrics);
+    }
+
+    private List<AsyncResult<TopicMetadata>> call(KafkaCircuitBreaker breaker, int times) {
+        List<AsyncResult<TopicMetadata>> results = new ArrayList<>();
+        for (int i = 0; i < times; i++) {
+            breaker.topicMetadata(new TopicName("foo"), results::add);
+        }
+        return results;
+    }
+
+    private double metric(String name) {
+        return metrics.counter(name, "").get();
+    }
+
+    @Test
+    public void testInFlightLimit(TestContext context) {
+        KafkaCircuitBreaker breaker = breaker(60_000, 60_000);
+        List<AsyncResult<TopicMetadata>> results = call(breaker, 4);
+
+        // Two are made, one is queued and the last is rejected
+        context.assertEquals(2, kafka.held.size());
+        context.assertEquals(1, results.size());
+        context.assertTrue(results.get(0).cause() instanceof TransientControllerException);
+        context.assertEquals(2.0, metrics.gauge("kafka_calls_in_flight", "").get());
+        context.assertEquals(1.0, metrics.gauge("kafka_calls_queued", "").get());
+        context.assertEquals(1.0, metric("kafka_calls_rejected_total"));
+
+        // Once one completes the queued one is made
+        kafka.completeNext(Future.succeededFuture());
+        context.assertEquals(2, kafka.held.size());
+        context.assertEquals(0.0, metrics.gauge("kafka_calls_queued", "").get());
+        kafka.completeNext(Future.succeededFuture());
+        kafka.completeNext(Future.succeededFuture());
+        context.assertEquals(0.0, metrics.gauge("kafka_calls_in_flight", "").get());
+        context.assertEquals(4, results.size());
+    }
+
+    @Test
+    public void testOpensAndCloses(TestContext context) throws InterruptedException {
+        KafkaCircuitBreaker breaker = breaker(60_000, 100);
+        // Errors caused by the requests themselves don't open the breaker
+        for (int i = 0; i < KafkaCircuitBreaker.WINDOW; i++) {
+            call(breaker, 1);
+            kafka.completeNext(Future.failedFuture(new TopicExistsException("foo")));
+        }
+        context.assertEquals(KafkaCircuitBreaker.State.CLOSED, breaker.state());
+
+        for (int i = 0; i < KafkaCircuitBreaker.MIN_CALLS - 1; i++) {
+            call(breaker, 1);
+            kafka.completeNext(Future.failedFuture(new TimeoutException()));
+        }
+        context.assertEquals(KafkaCircuitBreaker.State.CLOSED, breaker.state());
+        // Two in flight and one queued when it opens
+        List<AsyncResult<TopicMetadata>> results = call(breaker, 3);
+        kafka.completeNext(Future.failedFuture(new TimeoutException()));
+        context.assertEquals(KafkaCircuitBreaker.State.OPEN, breaker.state());
+        context.assertEquals(2.0, metrics.gauge("kafka_circuit_state", "").get());
+        context.assertEquals(1.0, metric("kafka_circuit_opened_total"));
+        // The queued call is shed
+        context.assertEquals(2, results.size());
+        context.assertTrue(results.get(1).cause() instanceof TransientControllerException);
+        context.assertEquals(1, kafka.held.size());
+
+        // While open calls aren't made
+        context.assertTrue(call(breaker, 1).get(0).cause() instanceof TransientControllerException);
+
+        // Once half-open, only the probe is made
+        Thread.sleep(150);
+        context.assertEquals(KafkaCircuitBreaker.State.HALF_OPEN, breaker.state());
+        call(breaker, 1);
+        context.assertTrue(call(breaker, 1).get(0).cause() instanceof TransientControllerException);
+        context.assertEquals(2, kafka.held.size());
+
+        // A call made before the breaker opened doesn't count as the probe
+        kafka.completeNext(Future.succeededFuture());
+        context.assertEquals(KafkaCircuitBreaker.State.HALF_OPEN, breaker.state());
+        kafka.completeNext(Future.succeededFuture());
+        context.assertEquals(KafkaCircuitBreaker.State.CLOSED, breaker.state());
+        context.assertEquals(0.0, metrics.gauge("kafka_circuit_state", "").get());
+    }
+
+    @Test
+    public void testCallTimeout(TestContext context) {
+        KafkaCircuitBreaker breaker = breaker(50, 60_000);
+        Async async = context.async();
+        breaker.topicMetadata(new TopicName("foo"), ar -> {
+            context.assertTrue(ar.cause() instanceof TimeoutException);
+            context.assertEquals(1.0, metric("kafka_calls_timed_out_total"));
+            context.assertEquals(0.0, metrics.gauge("kafka_calls_in_flight", "").get());
+            // The late result is ignored
+            kafka.completeNext(Future.succeededFuture());
+            async.complete();
+        });
+    }
+}
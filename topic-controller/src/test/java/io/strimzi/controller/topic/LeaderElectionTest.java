@@ -0,0 +1,78 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import io.strimzi.controller.topic.zk.ZkImpl;
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.nio.charset.StandardCharsets;
+
+@RunWith(VertxUnitRunner.class)
+public class LeaderElectionTest {
+
+    private EmbeddedZooKeeper zkServer;
+
+    private Vertx vertx = Vertx.vertx();
+
+    private ZkImpl zk1;
+    private ZkImpl zk2;
+
+    @Before
+    public void setup() throws Exception {
+        this.zkServer = new EmbeddedZooKeeper();
+        zk1 = new ZkImpl(vertx, zkServer.getZkConnectString(), 60000, false);
+        zk2 = new ZkImpl(vertx, zkServer.getZkConnectString(), 60000, false);
+    }
+
+    @After
+    public void teardown() throws InterruptedException {
+        zk1.disconnect();
+        zk2.disconnect();
+        if (this.zkServer != null) {
+            this.zkServer.close();
+        }
+        vertx.close();
+    }
+
+    @Test
+    public void testStandbyTakesOver(TestContext context) throws InterruptedException {
+        Metrics metrics1 = new Metrics();
+        Metrics metrics2 = new Metrics();
+        LeaderElection election1 = new LeaderElection(vertx, zk1, "replica-1", metrics1);
+        LeaderElection election2 = new LeaderElection(vertx, zk2, "replica-2", metrics2);
+
+        Async elected1 = context.async();
+        election1.start(v -> elected1.complete());
+        elected1.await();
+        context.assertTrue(election1.isLeader());
+        context.assertEquals(1.0, metrics1.gauge("leader", "").get());
+
+        Async elected2 = context.async();
+        election2.start(v -> elected2.complete());
+        // Give the standby the chance to wrongly think it's the leader
+        Thread.sleep(500);
+        context.assertFalse(election2.isLeader());
+        context.assertEquals(0.0, metrics2.gauge("leader", "").get());
+
+        Async leader = context.async();
+        zk2.getData(LeaderElection.LEADER_PATH, ar -> {
+            context.assertEquals("replica-1", new String(ar.result(), StandardCharsets.UTF_8));
+            leader.complete();
+        });
+        leader.await();
+
+        // Closing the leader's session deletes its znode, and the standby takes over
+        zk1.disconnect();
+        elected2.await(10_000);
+        context.assertTrue(election2.isLeader());
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+
+public class MainTest {
+
+    private static Map<String, String> env(String tenants) {
+        Map<String, String> env = new HashMap<>();
+        env.put("PATH", "/usr/bin");
+        env.put(Config.TC_NAMESPACE, "default-namespace");
+        env.put(Config.TC_KAFKA_BOOTSTRAP_SERVERS, "kafka:9092");
+        env.put(Config.TC_ZK_CONNECT, "zookeeper:2181");
+        if (tenants != null) {
+            env.put(Main.TC_TENANTS, tenants);
+        }
+        return env;
+    }
+
+    @Test
+    public void testSingleTenant() {
+        Map<String, Config> configs = Main.tenantConfigs(env(null));
+        assertEquals(asList(Main.DEFAULT_TENANT), asList(configs.keySet().toArray()));
+        assertEquals("default-namespace", configs.get(Main.DEFAULT_TENANT).get(Config.NAMESPACE));
+    }
+
+    @Test
+    public void testMultipleTenants() {
+        Map<String, Config> configs = Main.tenantConfigs(env("{" +
+                "\"orders\": {\"STRIMZI_NAMESPACE\": \"orders\", \"STRIMZI_KAFKA_BOOTSTRAP_SERVERS\": \"orders-kafka:9092\"}," +
+                "\"payments\": {\"STRIMZI_NAMESPACE\": \"payments\", \"STRIMZI_ZOOKEEPER_CONNECT\": \"zookeeper:2181/payments\"," +
+                "\"STRIMZI_RECONCILIATION_CONCURRENCY\": 2}" +
+                "}"));
+        assertEquals(asList("orders", "payments"), asList(configs.keySet().toArray()));
+        Config orders = configs.get("orders");
+        assertEquals("orders", orders.get(Config.NAMESPACE));
+        assertEquals("orders-kafka:9092", orders.get(Config.KAFKA_BOOTSTRAP_SERVERS));
+        assertEquals("zookeeper:2181", orders.get(Config.ZOOKEEPER_CONNECT));
+        assertEquals(Integer.valueOf(10), orders.get(Config.RECONCILIATION_CONCURRENCY));
+        Config payments = configs.get("payments");
+        assertEquals("kafka:9092", payments.get(Config.KAFKA_BOOTSTRAP_SERVERS));
+        assertEquals("zookeeper:2181/payments", payments.get(Config.ZOOKEEPER_CONNECT));
+        assertEquals(Integer.valueOf(2), payments.get(Config.RECONCILIATION_CONCURRENCY));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownKey() {
+        Main.tenantConfigs(env("{\"orders\": {\"STRIMZI_NO_SUCH_THING\": \"x\"}}"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDuplicateTenants() {
+        Main.tenantConfigs(env("{\"orders\": {\"STRIMZI_NAMESPACE\": \"orders\"}, \"orders2\": {\"STRIMZI_NAMESPACE\": \"orders\"}}"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTenantsSharingZooKeeper() {
+        // Different namespaces and Kafka clusters, but the same /strimzi znodes
+        Main.tenantConfigs(env("{" +
+                "\"orders\": {\"STRIMZI_NAMESPACE\": \"orders\", \"STRIMZI_KAFKA_BOOTSTRAP_SERVERS\": \"orders-kafka:9092\"}," +
+                "\"payments\": {\"STRIMZI_NAMESPACE\": \"payments\", \"STRIMZI_KAFKA_BOOTSTRAP_SERVERS\": \"payments-kafka:9092\"}" +
+                "}"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTenantsSharingKafka() {
+        Main.tenantConfigs(env("{" +
+                "\"orders\": {\"STRIMZI_NAMESPACE\": \"orders\", \"STRIMZI_ZOOKEEPER_CONNECT\": \"orders-zookeeper:2181\"}," +
+                "\"payments\": {\"STRIMZI_NAMESPACE\": \"payments\", \"STRIMZI_ZOOKEEPER_CONNECT\": \"payments-zookeeper:2181\"}" +
+                "}"));
+    }
+}
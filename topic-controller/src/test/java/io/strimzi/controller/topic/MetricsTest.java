@@ -0,0 +1,98 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class MetricsTest {
+
+    @Test
+    public void testCounter() {
+        Metrics metrics = new Metrics();
+        metrics.counter("events_total", "The number of events", "kind", "a").increment();
+        metrics.counter("events_total", "The number of events", "kind", "a").increment(2);
+        metrics.counter("events_total", "The number of events", "kind", "b").increment();
+        assertEquals("# HELP strimzi_topic_controller_events_total The number of events\n" +
+                "# TYPE strimzi_topic_controller_events_total counter\n" +
+                "strimzi_topic_controller_events_total{kind=\"a\"} 3\n" +
+                "strimzi_topic_controller_events_total{kind=\"b\"} 1\n", metrics.scrape());
+        try {
+            metrics.counter("events_total", "The number of events").increment(-1);
+            fail("Expected an exception");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testGauge() {
+        Metrics metrics = new Metrics();
+        Metrics.Gauge gauge = metrics.gauge("ratio", "A ratio");
+        assertSame(gauge, metrics.gauge("ratio", "A ratio"));
+        gauge.set(0.5);
+        gauge.increment();
+        assertEquals(1.5, gauge.get(), 0.0);
+        metrics.gauge("unknown", "Not known", "topic", "a\"b").set(Double.NaN);
+        metrics.gauge("supplied", "Supplied").setSupplier(() -> 42);
+        assertEquals("# HELP strimzi_topic_controller_ratio A ratio\n" +
+                "# TYPE strimzi_topic_controller_ratio gauge\n" +
+                "strimzi_topic_controller_ratio 1.5\n" +
+                "# HELP strimzi_topic_controller_supplied Supplied\n" +
+                "# TYPE strimzi_topic_controller_supplied gauge\n" +
+                "strimzi_topic_controller_supplied 42\n" +
+                "# HELP strimzi_topic_controller_unknown Not known\n" +
+                "# TYPE strimzi_topic_controller_unknown gauge\n" +
+                "strimzi_topic_controller_unknown{topic=\"a\\\"b\"} NaN\n", metrics.scrape());
+
+        metrics.remove("ratio");
+        metrics.remove("supplied");
+        metrics.remove("unknown", "topic", "a\"b");
+        assertEquals("", metrics.scrape());
+    }
+
+    @Test
+    public void testHistogram() {
+        Metrics metrics = new Metrics();
+        Metrics.Histogram histogram = metrics.histogram("latency_seconds", "Latency", new double[]{1, 0.1}, "lane", "x");
+        histogram.observe(0.05);
+        histogram.observe(0.5);
+        histogram.observe(5);
+        assertEquals(3, histogram.getCount());
+        assertEquals("# HELP strimzi_topic_controller_latency_seconds Latency\n" +
+                "# TYPE strimzi_topic_controller_latency_seconds histogram\n" +
+                "strimzi_topic_controller_latency_seconds_bucket{lane=\"x\",le=\"0.1\"} 1\n" +
+                "strimzi_topic_controller_latency_seconds_bucket{lane=\"x\",le=\"1\"} 2\n" +
+                "strimzi_topic_controller_latency_seconds_bucket{lane=\"x\",le=\"+Inf\"} 3\n" +
+                "strimzi_topic_controller_latency_seconds_sum{lane=\"x\"} 5.55\n" +
+                "strimzi_topic_controller_latency_seconds_count{lane=\"x\"} 3\n", metrics.scrape());
+    }
+
+    @Test
+    public void testWithLabels() {
+        Metrics metrics = new Metrics();
+        Metrics orders = metrics.withLabels("tenant", "orders");
+        Metrics payments = metrics.withLabels("tenant", "payments");
+        orders.counter("events_total", "The number of events", "kind", "a").increment();
+        payments.counter("events_total", "The number of events", "kind", "a").increment(2);
+        payments.counter("events_total", "The number of events", "kind", "b").increment();
+        payments.remove("events_total", "kind", "b");
+        assertEquals("# HELP strimzi_topic_controller_events_total The number of events\n" +
+                "# TYPE strimzi_topic_controller_events_total counter\n" +
+                "strimzi_topic_controller_events_total{tenant=\"orders\",kind=\"a\"} 1\n" +
+                "strimzi_topic_controller_events_total{tenant=\"payments\",kind=\"a\"} 2\n", metrics.scrape());
+        assertEquals(metrics.scrape(), orders.scrape());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTypeMismatch() {
+        Metrics metrics = new Metrics();
+        metrics.counter("x", "X");
+        metrics.gauge("x", "X");
+    }
+}
@@ -5,6 +5,7 @@
 package io.strimzi.controller.topic;
 
 import io.fabric8.kubernetes.api.model.ConfigMap;
+import io.fabric8.kubernetes.api.model.ConfigMapBuilder;
 import io.fabric8.kubernetes.api.model.Event;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
@@ -126,6 +127,21 @@ public class MockK8s implements K8s {
         handler.handle(Future.succeededFuture());
     }
 
+    @Override
+    public void annotateConfigMap(MapName mapName, String key, String value, Handler<AsyncResult<Void>> handler) {
+        ConfigMap cm = byName.get(mapName);
+        if (cm != null) {
+            ConfigMapBuilder builder = new ConfigMapBuilder(cm);
+            if (value != null) {
+                builder.editOrNewMetadata().addToAnnotations(key, value).endMetadata();
+            } else {
+                builder.editOrNewMetadata().removeFromAnnotations(key).endMetadata();
+            }
+            byName.put(mapName, builder.build());
+        }
+        handler.handle(Future.succeededFuture());
+    }
+
     public void assertExists(TestContext context, MapName mapName) {
         context.assertTrue(byName.containsKey(mapName));
     }
@@ -148,6 +164,10 @@ public class MockK8s implements K8s {
         context.fail("Missing event");
     }
 
+    public int eventCount() {
+        return events.size();
+    }
+
     public void assertNoEvents(TestContext context) {
         context.assertTrue(events.isEmpty());
     }
@@ -11,10 +11,12 @@ import io.vertx.ext.unit.TestContext;
 import org.apache.kafka.clients.admin.NewTopic;
 
 import java.lang.reflect.Field;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.BiConsumer;
 import java.util.function.Function;
 
 import static io.vertx.core.Future.failedFuture;
@@ -23,6 +25,7 @@ import static io.vertx.core.Future.succeededFuture;
 public class MockKafka implements Kafka {
 
     private Map<TopicName, Topic> topics = new HashMap<>();
+    private int batchRequests = 0;
 
     private AsyncResult<Set<String>> topicsListResponse = Future.succeededFuture(Collections.emptySet());
     private Function<TopicName, AsyncResult<TopicMetadata>> topicMetadataRespose =
@@ -157,6 +160,25 @@ public class MockKafka implements Kafka {
         handler.handle(event);
     }
 
+    @Override
+    public void updateTopicsConfig(Collection<Topic> topics, Handler<AsyncResult<Void>> handler) {
+        batchRequests++;
+        batch(topics, this::updateTopicConfig, handler);
+    }
+
+    private void batch(Collection<Topic> topics, BiConsumer<Topic, Handler<AsyncResult<Void>>> op,
+                       Handler<AsyncResult<Void>> handler) {
+        AsyncResult<Void>[] failure = new AsyncResult[1];
+        for (Topic topic : topics) {
+            op.accept(topic, ar -> {
+                if (ar.failed() && failure[0] == null) {
+                    failure[0] = ar;
+                }
+            });
+        }
+        handler.handle(failure[0] != null ? failure[0] : succeededFuture());
+    }
+
     @Override
     public void increasePartitions(Topic topic, Handler<AsyncResult<Void>> handler) {
         AsyncResult<Void> event = updateTopicResponse.apply(topic.getTopicName());
@@ -171,6 +193,12 @@ public class MockKafka implements Kafka {
         handler.handle(event);
     }
 
+    @Override
+    public void increaseTopicsPartitions(Collection<Topic> topics, Handler<AsyncResult<Void>> handler) {
+        batchRequests++;
+        batch(topics, this::increasePartitions, handler);
+    }
+
     @Override
     public void changeReplicationFactor(Topic topic, Handler<AsyncResult<Void>> handler) {
         AsyncResult<Void> event = updateTopicResponse.apply(topic.getTopicName());
@@ -190,6 +218,29 @@ public class MockKafka implements Kafka {
         handler.handle(topicMetadataRespose.apply(topicName));
     }
 
+    @Override
+    public void topicsMetadata(Set<TopicName> topicNames, Handler<AsyncResult<Map<TopicName, TopicMetadata>>> handler) {
+        batchRequests++;
+        Map<TopicName, TopicMetadata> result = new HashMap<>();
+        for (TopicName topicName : topicNames) {
+            AsyncResult<TopicMetadata> ar = topicMetadataRespose.apply(topicName);
+            if (ar.failed()) {
+                handler.handle(failedFuture(ar.cause()));
+                return;
+            } else if (ar.result() != null) {
+                result.put(topicName, ar.result());
+            }
+        }
+        handler.handle(succeededFuture(result));
+    }
+
+    /**
+     * @return The number of batched requests (for many topics at once) which have been made.
+     */
+    public int getBatchRequests() {
+        return batchRequests;
+    }
+
     @Override
     public void listTopics(Handler<AsyncResult<Set<String>>> handler) {
         handler.handle(topicsListResponse);
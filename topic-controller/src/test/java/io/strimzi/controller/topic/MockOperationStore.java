@@ -0,0 +1,53 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.ext.unit.TestContext;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class MockOperationStore implements OperationStore {
+
+    private final Map<String, Operation> operations = new LinkedHashMap<>();
+    private final List<String> created = new ArrayList<>();
+
+    @Override
+    public synchronized void create(Operation operation, Handler<AsyncResult<Void>> handler) {
+        operations.put(operation.getId(), operation);
+        created.add(operation.getId());
+        handler.handle(Future.succeededFuture());
+    }
+
+    @Override
+    public synchronized void update(Operation operation, Handler<AsyncResult<Void>> handler) {
+        operations.put(operation.getId(), operation);
+        handler.handle(Future.succeededFuture());
+    }
+
+    @Override
+    public synchronized void delete(String id, Handler<AsyncResult<Void>> handler) {
+        operations.remove(id);
+        handler.handle(Future.succeededFuture());
+    }
+
+    @Override
+    public synchronized void list(Handler<AsyncResult<List<Operation>>> handler) {
+        handler.handle(Future.succeededFuture(new ArrayList<>(operations.values())));
+    }
+
+    public synchronized void assertCreated(TestContext context, String id) {
+        context.assertTrue(created.contains(id), "Operation " + id + " was never created");
+    }
+
+    public synchronized void assertEmpty(TestContext context) {
+        context.assertTrue(operations.isEmpty(), "Expected no operations, but got " + operations);
+    }
+}
@@ -9,6 +9,9 @@ import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.Op;
+import org.apache.zookeeper.OpResult;
+import org.apache.zookeeper.Watcher;
 import org.apache.zookeeper.data.ACL;
 import org.apache.zookeeper.data.Stat;
 
@@ -22,6 +25,7 @@ class MockZk implements Zk {
     public AsyncResult<Void> setDataResult = Future.failedFuture("Unexpected mock interaction. Configure " + getClass().getSimpleName() + ".setDataResult");
     public AsyncResult<List<String>> childrenResult = Future.failedFuture("Unexpected mock interaction. Configure " + getClass().getSimpleName() + ".childrenResult");
     public AsyncResult<byte[]> dataResult = Future.failedFuture("Unexpected mock interaction. Configure " + getClass().getSimpleName() + ".dataResult");
+    public AsyncResult<List<OpResult>> multiResult = Future.failedFuture("Unexpected mock interaction. Configure " + getClass().getSimpleName() + ".multiResult");
     private Handler<AsyncResult<List<String>>> childrenHandler;
     private Map<String, Handler<AsyncResult<byte[]>>> dataHandlers = new HashMap<>();
 
@@ -39,6 +43,11 @@ class MockZk implements Zk {
         }
     }
 
+    @Override
+    public Zk connectionStateHandler(Handler<Watcher.Event.KeeperState> handler) {
+        return this;
+    }
+
     @Override
     public Zk disconnect() {
         return this;
@@ -97,6 +106,12 @@ class MockZk implements Zk {
         return null;
     }
 
+    @Override
+    public Zk multi(Iterable<Op> ops, Handler<AsyncResult<List<OpResult>>> handler) {
+        handler.handle(multiResult);
+        return this;
+    }
+
     @Override
     public Zk watchExists(String path, Handler<AsyncResult<Stat>> watcher) {
         return null;
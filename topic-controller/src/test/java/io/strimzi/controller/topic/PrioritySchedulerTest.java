@@ -0,0 +1,163 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import io.strimzi.controller.topic.PriorityScheduler.Lane;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+@RunWith(VertxUnitRunner.class)
+public class PrioritySchedulerTest {
+
+    private final Vertx vertx = Vertx.vertx();
+    private final Metrics metrics = new Metrics();
+    private final List<String> started = new CopyOnWriteArrayList<>();
+    private final List<Future<Void>> running = new CopyOnWriteArrayList<>();
+
+    @After
+    public void teardown() {
+        vertx.close();
+    }
+
+    /** Submit a job which records that it started and then runs until its future is completed by the test. */
+    private void submit(PriorityScheduler scheduler, Lane lane, String name, Async completed) {
+        scheduler.submit(lane, fut -> {
+            started.add(name);
+            running.add(fut);
+        }, ar -> completed.countDown());
+    }
+
+    /** Wait until the given job has started. */
+    private void awaitStarted(TestContext context, String name) {
+        Async async = context.async();
+        vertx.setPeriodic(10, timerId -> {
+            if (started.contains(name)) {
+                vertx.cancelTimer(timerId);
+                async.complete();
+            }
+        });
+        async.awaitSuccess(10_000);
+    }
+
+    private void complete(String name) {
+        running.get(started.indexOf(name)).complete();
+    }
+
+    @Test
+    public void testBackgroundConcurrencyIsBounded(TestContext context) {
+        PriorityScheduler scheduler = new PriorityScheduler(vertx, 2, metrics);
+        Async completed = context.async(3);
+        submit(scheduler, Lane.BACKGROUND, "b1", completed);
+        submit(scheduler, Lane.BACKGROUND, "b2", completed);
+        submit(scheduler, Lane.BACKGROUND, "b3", completed);
+
+        context.assertEquals(2, scheduler.running(Lane.BACKGROUND));
+        context.assertEquals(1, scheduler.queued());
+        context.assertFalse(started.contains("b3"));
+
+        complete("b1");
+        awaitStarted(context, "b3");
+        context.assertEquals(0, scheduler.queued());
+        complete("b2");
+        complete("b3");
+        completed.awaitSuccess(10_000);
+        context.assertEquals(0, scheduler.running(Lane.BACKGROUND));
+    }
+
+    @Test
+    public void testUserWorkPreemptsQueuedBackgroundWork(TestContext context) {
+        PriorityScheduler scheduler = new PriorityScheduler(vertx, 3, metrics);
+        Async completed = context.async(6);
+        submit(scheduler, Lane.BACKGROUND, "b1", completed);
+        submit(scheduler, Lane.BACKGROUND, "b2", completed);
+        submit(scheduler, Lane.BACKGROUND, "b3", completed);
+        submit(scheduler, Lane.BACKGROUND, "b4", completed);
+        // User work starts immediately, even though the concurrency limit has been reached
+        submit(scheduler, Lane.USER, "u1", completed);
+        submit(scheduler, Lane.USER, "u2", completed);
+        context.assertTrue(started.contains("u1"));
+        context.assertTrue(started.contains("u2"));
+        context.assertEquals(2, scheduler.running(Lane.USER));
+
+        // So while it's running the queued background work has to wait
+        complete("b1");
+        complete("b2");
+        context.assertEquals(1, scheduler.running(Lane.BACKGROUND));
+        context.assertEquals(1, scheduler.queued());
+
+        complete("u1");
+        complete("u2");
+        awaitStarted(context, "b4");
+        complete("b3");
+        complete("b4");
+        completed.awaitSuccess(10_000);
+    }
+
+    @Test
+    public void testBackgroundWorkIsNotStarved(TestContext context) {
+        PriorityScheduler scheduler = new PriorityScheduler(vertx, 1, metrics);
+        Async completed = context.async(4);
+        submit(scheduler, Lane.USER, "u1", completed);
+        submit(scheduler, Lane.USER, "u2", completed);
+        submit(scheduler, Lane.BACKGROUND, "b1", completed);
+        submit(scheduler, Lane.BACKGROUND, "b2", completed);
+
+        // One background job runs however much user work there is...
+        context.assertTrue(started.contains("b1"));
+        context.assertEquals(1, scheduler.queued());
+        // ...and the next starts when it completes
+        complete("b1");
+        awaitStarted(context, "b2");
+
+        complete("b2");
+        complete("u1");
+        complete("u2");
+        completed.awaitSuccess(10_000);
+    }
+
+    @Test
+    public void testFailures(TestContext context) {
+        PriorityScheduler scheduler = new PriorityScheduler(vertx, 1, metrics);
+        Async failed = context.async(2);
+        scheduler.submit(Lane.BACKGROUND, fut -> fut.fail("Boom"), ar -> {
+            context.assertEquals("Boom", ar.cause().getMessage());
+            failed.countDown();
+        });
+        scheduler.submit(Lane.USER, fut -> {
+            throw new RuntimeException("Bang");
+        }, ar -> {
+                context.assertEquals("Bang", ar.cause().getMessage());
+                failed.countDown();
+            });
+        failed.awaitSuccess(10_000);
+        context.assertEquals(0, scheduler.running(Lane.BACKGROUND));
+        context.assertEquals(0, scheduler.running(Lane.USER));
+    }
+
+    @Test
+    public void testWrapAndMetrics(TestContext context) {
+        PriorityScheduler scheduler = new PriorityScheduler(vertx, 1, metrics);
+        Async async = context.async();
+        Future<Void> outer = Future.future();
+        outer.setHandler(ar -> async.complete());
+        scheduler.wrap(Lane.USER, fut -> fut.complete()).handle(outer);
+        async.awaitSuccess(10_000);
+
+        String scrape = metrics.scrape();
+        context.assertTrue(scrape.contains("strimzi_topic_controller_scheduler_wait_seconds_count{lane=\"user\"} 1\n"), scrape);
+        context.assertTrue(scrape.contains("strimzi_topic_controller_scheduler_latency_seconds_count{lane=\"user\"} 1\n"), scrape);
+        context.assertTrue(scrape.contains("strimzi_topic_controller_scheduler_running{lane=\"background\"} 0\n"), scrape);
+        context.assertTrue(scrape.contains("strimzi_topic_controller_scheduler_queued{lane=\"background\"} 0\n"), scrape);
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import io.fabric8.kubernetes.api.model.ConfigMap;
+import io.fabric8.kubernetes.client.Watcher;
+import io.strimzi.controller.topic.zk.AclBuilder;
+import io.strimzi.controller.topic.zk.ZkImpl;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.apache.zookeeper.CreateMode;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonMap;
+
+@RunWith(VertxUnitRunner.class)
+public class QuotaControllerTest {
+
+    private final LabelPredicate cmPredicate = new LabelPredicate("strimzi.io/kind", "quota");
+
+    private EmbeddedZooKeeper zkServer;
+    private Vertx vertx = Vertx.vertx();
+    private ZkImpl zk;
+    private ZkQuotas zkQuotas;
+    private MockK8s k8s;
+    private QuotaController controller;
+
+    @Before
+    public void setup(TestContext context) throws Exception {
+        zkServer = new EmbeddedZooKeeper();
+        zk = new ZkImpl(vertx, zkServer.getZkConnectString(), 60000, false);
+        // The znodes Kafka creates
+        for (String path : new String[]{"/config", "/config/clients", "/config/users", "/config/changes"}) {
+            run(context, h -> zk.create(path, null, new AclBuilder().setWorld(AclBuilder.Permission.values()).build(),
+                    CreateMode.PERSISTENT, h));
+        }
+        k8s = new MockK8s();
+        controller = new QuotaController(vertx, k8s, zk, cmPredicate, "default");
+        zkQuotas = new ZkQuotas(zk);
+    }
+
+    @After
+    public void teardown() throws InterruptedException {
+        controller.stop();
+        zk.disconnect();
+        if (zkServer != null) {
+            zkServer.close();
+        }
+        vertx.close();
+    }
+
+    private static <T> T await(TestContext context, Consumer<Handler<AsyncResult<T>>> operation) {
+        Async async = context.async();
+        Future<T> future = Future.future();
+        operation.accept(ar -> {
+            future.handle(ar);
+            async.complete();
+        });
+        async.awaitSuccess(10_000);
+        if (future.failed()) {
+            throw new RuntimeException(future.cause());
+        }
+        return future.result();
+    }
+
+    private static void run(TestContext context, Consumer<Handler<AsyncResult<Void>>> operation) {
+        QuotaControllerTest.<Void>await(context, operation);
+    }
+
+    private Quota quota(String name, String key, String value) {
+        return new Quota(Quota.EntityType.CLIENTS, name, null, singletonMap(key, value));
+    }
+
+    /** Let the ConfigMap of the given quota be created, updated and deleted. */
+    private Quota allow(Quota quota) {
+        k8s.setCreateResponse(quota.getMapName(), null)
+                .setModifyResponse(quota.getMapName(), null)
+                .setDeleteResponse(quota.getMapName(), null);
+        return quota;
+    }
+
+    private void reconcile(TestContext context, Quota quota) {
+        run(context, h -> controller.reconcile(quota.getType(), quota.getName(), quota.getMapName(), h));
+    }
+
+    private List<String> notifications(TestContext context) {
+        return await(context, h -> zk.children(ZkQuotas.CHANGES_PATH, h));
+    }
+
+    @Test
+    public void testConfigMapCreated(TestContext context) {
+        Quota quota = allow(quota("my-client", Quota.PRODUCER_BYTE_RATE, "1024"));
+        run(context, h -> k8s.createConfigMap(quota.toConfigMap(cmPredicate), h));
+        controller.eventReceived(Watcher.Action.ADDED, quota.toConfigMap(cmPredicate));
+        reconcile(context, quota);
+
+        context.assertEquals(quota.getConfig(), await(context,
+            (Handler<AsyncResult<Quota>> h) -> zkQuotas.readKafka(Quota.EntityType.CLIENTS, "my-client", h)).getConfig());
+        context.assertEquals(quota, await(context,
+            (Handler<AsyncResult<Quota>> h) -> zkQuotas.readStored(Quota.EntityType.CLIENTS, "my-client", h)));
+        // The brokers are told of the change
+        List<String> notifications = notifications(context);
+        context.assertEquals(1, notifications.size());
+        byte[] notification = await(context, h -> zk.getData(ZkQuotas.CHANGES_PATH + "/" + notifications.get(0), h));
+        context.assertEquals("{\"version\":2,\"entity_path\":\"clients/my-client\"}", new String(notification, StandardCharsets.UTF_8));
+
+        // Reconciling again changes nothing
+        reconcile(context, quota);
+        context.assertEquals(1, notifications(context).size());
+    }
+
+    @Test
+    public void testCreatedInKafka(TestContext context) {
+        Quota quota = allow(quota("CN=alice", Quota.CONSUMER_BYTE_RATE, "2048"));
+        controller.start();
+        // Wait until the controller has seen the existing notifications
+        await(context, h -> vertx.setTimer(500, id -> h.handle(Future.succeededFuture())));
+        run(context, h -> zkQuotas.writeKafka(quota, h));
+
+        Async async = context.async();
+        vertx.setPeriodic(100, id -> k8s.getFromName(quota.getMapName(), ar -> {
+            if (ar.result() != null) {
+                vertx.cancelTimer(id);
+                context.assertEquals(quota, Quota.fromConfigMap(ar.result()));
+                async.complete();
+            }
+        }));
+        async.awaitSuccess(10_000);
+    }
+
+    @Test
+    public void testConfigMapDeleted(TestContext context) {
+        Quota quota = allow(quota("my-client", Quota.PRODUCER_BYTE_RATE, "1024"));
+        ConfigMap cm = quota.toConfigMap(cmPredicate);
+        run(context, h -> k8s.createConfigMap(cm, h));
+        reconcile(context, quota);
+
+        run(context, h -> k8s.deleteConfigMap(quota.getMapName(), h));
+        reconcile(context, quota);
+        context.assertNull(await(context,
+            (Handler<AsyncResult<Quota>> h) -> zkQuotas.readKafka(Quota.EntityType.CLIENTS, "my-client", h)));
+        context.assertNull(await(context,
+            (Handler<AsyncResult<Quota>> h) -> zkQuotas.readStored(Quota.EntityType.CLIENTS, "my-client", h)));
+        context.assertEquals(2, notifications(context).size());
+    }
+
+    @Test
+    public void testNonConflictingChangesMerged(TestContext context) {
+        Quota quota = allow(quota("my-client", Quota.PRODUCER_BYTE_RATE, "1024"));
+        run(context, h -> k8s.createConfigMap(quota.toConfigMap(cmPredicate), h));
+        reconcile(context, quota);
+
+        run(context, h -> k8s.updateConfigMap(quota.withConfig(emptyMap()).toConfigMap(cmPredicate), h));
+        Map<String, String> kafkaConfig = new HashMap<>(quota.getConfig());
+        kafkaConfig.put(Quota.REQUEST_PERCENTAGE, "50.0");
+        run(context, h -> zkQuotas.writeKafka(quota.withConfig(kafkaConfig), h));
+        reconcile(context, quota);
+
+        // The ConfigMap removed the byte rate, and Kafka added the request percentage
+        Quota expected = quota.withConfig(singletonMap(Quota.REQUEST_PERCENTAGE, "50.0"));
+        ConfigMap cm = await(context, h -> k8s.getFromName(quota.getMapName(), h));
+        context.assertEquals(expected, Quota.fromConfigMap(cm));
+        context.assertEquals(expected.getConfig(), await(context,
+            (Handler<AsyncResult<Quota>> h) -> zkQuotas.readKafka(Quota.EntityType.CLIENTS, "my-client", h)).getConfig());
+    }
+
+    @Test
+    public void testConflictingChanges(TestContext context) {
+        Quota quota = allow(quota("my-client", Quota.PRODUCER_BYTE_RATE, "1024"));
+        run(context, h -> k8s.createConfigMap(quota.toConfigMap(cmPredicate), h));
+        reconcile(context, quota);
+
+        run(context, h -> k8s.updateConfigMap(quota("my-client", Quota.PRODUCER_BYTE_RATE, "1").toConfigMap(cmPredicate), h));
+        run(context, h -> zkQuotas.writeKafka(quota("my-client", Quota.PRODUCER_BYTE_RATE, "2"), h));
+        Async async = context.async();
+        controller.reconcile(quota.getType(), quota.getName(), quota.getMapName(), ar -> {
+            context.assertTrue(ar.failed());
+            async.complete();
+        });
+        async.awaitSuccess(10_000);
+        k8s.assertContainsEvent(context, e -> e.getMessage().contains("conflicting"));
+    }
+
+    @Test
+    public void testInvalidConfigMap(TestContext context) {
+        ConfigMap cm = quota("my-client", Quota.PRODUCER_BYTE_RATE, "1024").toConfigMap(cmPredicate);
+        cm.getData().put(Quota.CM_KEY_CONFIG, "{\"producer_byte_rate\": \"fast\"}");
+        controller.eventReceived(Watcher.Action.ADDED, cm);
+        k8s.assertContainsEvent(context, e -> e.getMessage().contains("producer_byte_rate"));
+    }
+
+    @Test
+    public void testReconcileAll(TestContext context) {
+        Quota fromKafka = allow(quota("from-kafka", Quota.PRODUCER_BYTE_RATE, "1024"));
+        Quota fromK8s = allow(new Quota(Quota.EntityType.USERS, "<default>", null, singletonMap(Quota.CONSUMER_BYTE_RATE, "2048")));
+        run(context, h -> zkQuotas.writeKafka(fromKafka, h));
+        run(context, h -> k8s.createConfigMap(fromK8s.toConfigMap(cmPredicate), h));
+
+        await(context, controller::reconcileAll);
+        k8s.assertExists(context, fromKafka.getMapName());
+        context.assertEquals(fromK8s.getConfig(), await(context,
+            (Handler<AsyncResult<Quota>> h) -> zkQuotas.readKafka(Quota.EntityType.USERS, "<default>", h)).getConfig());
+        context.assertEquals(2, await(context, zkQuotas::listStored).size());
+    }
+
+    @Test
+    public void testScramCredentialsKept(TestContext context) {
+        String scram = "\"SCRAM-SHA-256\":\"salt=c2FsdA==,stored_key=c3RvcmVk,server_key=c2VydmVy,iterations=4096\"";
+        byte[] alice = ("{\"version\":1,\"config\":{" + scram + ",\"producer_byte_rate\":\"1024\"}}").getBytes(StandardCharsets.UTF_8);
+        byte[] bob = ("{\"version\":1,\"config\":{" + scram + "}}").getBytes(StandardCharsets.UTF_8);
+        run(context, h -> zk.create("/config/users/alice", alice, new AclBuilder().setWorld(AclBuilder.Permission.values()).build(),
+            CreateMode.PERSISTENT, h));
+        run(context, h -> zk.create("/config/users/bob", bob, new AclBuilder().setWorld(AclBuilder.Permission.values()).build(),
+            CreateMode.PERSISTENT, h));
+        Quota quota = allow(new Quota(Quota.EntityType.USERS, "alice", null, singletonMap(Quota.PRODUCER_BYTE_RATE, "1024")));
+
+        // Only the quotas are copied, and a user with only credentials has no quota
+        await(context, controller::reconcileAll);
+        ConfigMap cm = await(context, h -> k8s.getFromName(quota.getMapName(), h));
+        context.assertEquals(quota, Quota.fromConfigMap(cm));
+        context.assertEquals(quota.getConfig(), await(context,
+            (Handler<AsyncResult<Quota>> h) -> zkQuotas.readStored(Quota.EntityType.USERS, "alice", h)).getConfig());
+        context.assertEquals(1, await(context, zkQuotas::listStored).size());
+
+        // Changing the quota keeps the credentials
+        Quota changed = quota.withConfig(singletonMap(Quota.PRODUCER_BYTE_RATE, "2048"));
+        run(context, h -> k8s.updateConfigMap(changed.toConfigMap(cmPredicate), h));
+        reconcile(context, quota);
+        String data = new String(await(context, h -> zk.getData("/config/users/alice", h)), StandardCharsets.UTF_8);
+        context.assertTrue(data.contains(scram), data);
+        context.assertTrue(data.contains("\"producer_byte_rate\":\"2048\""), data);
+        context.assertEquals(changed.getConfig(), await(context,
+            (Handler<AsyncResult<Quota>> h) -> zkQuotas.readKafka(Quota.EntityType.USERS, "alice", h)).getConfig());
+    }
+}
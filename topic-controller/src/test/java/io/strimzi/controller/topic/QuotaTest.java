@@ -0,0 +1,94 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import io.fabric8.kubernetes.api.model.ConfigMap;
+import io.fabric8.kubernetes.api.model.ConfigMapBuilder;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonMap;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class QuotaTest {
+
+    private final LabelPredicate cmPredicate = new LabelPredicate("strimzi.io/kind", "quota");
+
+    private static ConfigMap configMap(String type, String name, String config) {
+        Map<String, String> data = new HashMap<>();
+        data.put(Quota.CM_KEY_TYPE, type);
+        data.put(Quota.CM_KEY_NAME, name);
+        data.put(Quota.CM_KEY_CONFIG, config);
+        return new ConfigMapBuilder().withNewMetadata().withName("my-quota").endMetadata().withData(data).build();
+    }
+
+    @Test
+    public void testConfigMapRoundTrip() {
+        Map<String, String> config = new HashMap<>();
+        config.put(Quota.PRODUCER_BYTE_RATE, "1024");
+        config.put(Quota.REQUEST_PERCENTAGE, "12.5");
+        Quota quota = new Quota(Quota.EntityType.USERS, "CN=alice", null, config);
+
+        ConfigMap cm = quota.toConfigMap(cmPredicate);
+        // Names which aren't valid resource names get a hash, to keep them distinct
+        assertTrue(cm.getMetadata().getName(), cm.getMetadata().getName().startsWith("quota-users-cnalice-"));
+        assertEquals(singletonMap("strimzi.io/kind", "quota"), cm.getMetadata().getLabels());
+        assertEquals("users", cm.getData().get(Quota.CM_KEY_TYPE));
+        assertEquals("CN=alice", cm.getData().get(Quota.CM_KEY_NAME));
+        assertEquals(quota, Quota.fromConfigMap(cm));
+    }
+
+    @Test
+    public void testNumbersInConfigMap() {
+        Quota quota = Quota.fromConfigMap(configMap("clients", "my-client", "{\"consumer_byte_rate\": 2048}"));
+        assertEquals(singletonMap(Quota.CONSUMER_BYTE_RATE, "2048"), quota.getConfig());
+        assertEquals(new MapName("my-quota"), quota.getMapName());
+    }
+
+    @Test
+    public void testInvalidConfigMaps() {
+        assertInvalid(configMap("topics", "my-client", "{}"), "lacks required key 'type'");
+        assertInvalid(configMap("clients", "", "{}"), "lacks required key 'name'");
+        assertInvalid(configMap("clients", "my-client", "{"), "has invalid key 'config'");
+        assertInvalid(configMap("clients", "my-client", "{\"retention.ms\": 1}"), "is not a quota config");
+        assertInvalid(configMap("clients", "my-client", "{\"producer_byte_rate\": \"fast\"}"), "producer_byte_rate");
+        assertInvalid(configMap("clients", "my-client", "{\"producer_byte_rate\": null}"), "is null");
+    }
+
+    private static void assertInvalid(ConfigMap cm, String message) {
+        try {
+            Quota.fromConfigMap(cm);
+            fail("Should throw");
+        } catch (InvalidConfigMapException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(message));
+        }
+    }
+
+    @Test
+    public void testEntityPath() {
+        assertEquals("clients/my-client", Quota.entityPath(Quota.EntityType.CLIENTS, "my-client"));
+        assertEquals("users/CN%3Dalice", Quota.entityPath(Quota.EntityType.USERS, "CN=alice"));
+        assertEquals("users/<default>", Quota.entityPath(Quota.EntityType.USERS, "<default>"));
+    }
+
+    @Test
+    public void testJson() {
+        Quota quota = new Quota(Quota.EntityType.CLIENTS, "my-client", new MapName("my-quota"),
+                singletonMap(Quota.PRODUCER_BYTE_RATE, "1024"));
+        assertEquals("{\"version\":1,\"config\":{\"producer_byte_rate\":\"1024\"}}",
+                new String(quota.toJson(false), StandardCharsets.UTF_8));
+        assertEquals(quota, Quota.fromJson(Quota.EntityType.CLIENTS, "my-client", quota.toJson(true)));
+        // Kafka leaves an empty config when the quota is removed
+        assertNull(Quota.fromJson(Quota.EntityType.CLIENTS, "my-client",
+                quota.withConfig(emptyMap()).toJson(false)));
+    }
+}
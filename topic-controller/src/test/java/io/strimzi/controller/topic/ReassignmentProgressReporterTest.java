@@ -0,0 +1,76 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import io.fabric8.kubernetes.api.model.ConfigMap;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ReassignmentProgressReporterTest {
+
+    private final Operation operation = new Operation(Operation.Type.CHANGE_REPLICATION_FACTOR,
+            Collections.singletonList("my-topic"), 1000L, 0, "{}", 0, 2);
+
+    @Test
+    public void testEta() {
+        // 25% done in 10s since the first sample at 0%: 30s to go
+        assertEquals(30.0, ReassignmentProgressReporter.etaSeconds(0, 0.0, 10_000, 0.25), 0.001);
+        // No progress since the first sample: no basis for an estimate
+        assertTrue(Double.isNaN(ReassignmentProgressReporter.etaSeconds(0, 0.25, 10_000, 0.25)));
+        assertEquals(0.0, ReassignmentProgressReporter.etaSeconds(0, 0.25, 10_000, 1.0), 0.0);
+    }
+
+    @Test
+    public void testRatio() {
+        assertEquals(0.5, new ReassignmentProgress(1, 1).getRatio(), 0.0);
+        assertEquals(0.25, new ReassignmentProgress(1, 1).withBytes(400, 100, 7).getRatio(), 0.0);
+        assertEquals(300, new ReassignmentProgress(1, 1).withBytes(400, 100, 7).getBytesRemaining());
+        assertEquals(1.0, new ReassignmentProgress(2, 0).getRatio(), 0.0);
+    }
+
+    @Test
+    public void testProgressAndComplete() {
+        MockK8s k8s = new MockK8s();
+        MapName mapName = new TopicName("my-topic").asMapName();
+        k8s.setCreateResponse(mapName, null);
+        k8s.createConfigMap(TopicSerialization.toConfigMap(
+                new Topic.Builder("my-topic", 2, (short) 1, Collections.emptyMap()).build(),
+                new LabelPredicate("strimzi.io/kind", "topic")), ar -> { });
+        Metrics metrics = new Metrics();
+        ReassignmentProgressReporter reporter = new ReassignmentProgressReporter(k8s, metrics, 60_000);
+
+        reporter.progress(operation, new ReassignmentProgress(1, 1).withBytes(400, 100, 7));
+        String scrape = metrics.scrape();
+        assertTrue(scrape, scrape.contains("strimzi_topic_controller_reassignment_progress_ratio{topic=\"my-topic\"} 0.25\n"));
+        assertTrue(scrape, scrape.contains("strimzi_topic_controller_reassignment_bytes_remaining{topic=\"my-topic\"} 300\n"));
+        assertTrue(scrape, scrape.contains("strimzi_topic_controller_reassignment_throttle_bytes_per_second{topic=\"my-topic\"} 1000\n"));
+        String annotation = annotation(k8s, mapName);
+        assertTrue(annotation, annotation.contains("\"partitionsComplete\":1"));
+        assertTrue(annotation, annotation.contains("\"bytesRemaining\":300"));
+
+        // The annotation is rate limited, but the metrics are not
+        reporter.progress(operation, new ReassignmentProgress(1, 1).withBytes(400, 200, 7));
+        assertEquals(annotation, annotation(k8s, mapName));
+        assertTrue(metrics.scrape().contains("strimzi_topic_controller_reassignment_bytes_remaining{topic=\"my-topic\"} 200\n"));
+
+        reporter.complete(operation);
+        assertEquals("", metrics.scrape());
+        assertEquals(null, annotation(k8s, mapName));
+    }
+
+    private static String annotation(MockK8s k8s, MapName mapName) {
+        String[] result = new String[1];
+        k8s.getFromName(mapName, ar -> {
+            ConfigMap cm = ar.result();
+            result[0] = cm.getMetadata().getAnnotations() == null ? null
+                    : cm.getMetadata().getAnnotations().get(ReassignmentProgressReporter.ANNOTATION);
+        });
+        return result[0];
+    }
+}
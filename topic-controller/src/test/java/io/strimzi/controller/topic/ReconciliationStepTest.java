@@ -0,0 +1,75 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ReconciliationStepTest {
+
+    private static final String EVENT_NAME = "io.strimzi.controller.topic.ReconciliationStep";
+
+    private List<RecordedEvent> record(Runnable steps) throws IOException {
+        Path file = Files.createTempFile(getClass().getSimpleName(), ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(EVENT_NAME);
+            recording.start();
+            steps.run();
+            recording.stop();
+            recording.dump(file);
+            return RecordingFile.readAllEvents(file).stream()
+                    .filter(event -> event.getEventType().getName().equals(EVENT_NAME))
+                    .collect(Collectors.toList());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testStepsRecorded() throws IOException {
+        List<AsyncResult<Void>> results = new ArrayList<>();
+        List<RecordedEvent> events = record(() -> {
+            Handler<AsyncResult<Void>> created = ReconciliationStep.traced("CreateKafkaTopic", new TopicName("foo"), results::add);
+            created.handle(Future.succeededFuture());
+            Handler<AsyncResult<Void>> stored = ReconciliationStep.traced("CreateInTopicStore", new TopicName("foo"), results::add);
+            stored.handle(Future.failedFuture(new ControllerException("test")));
+            ReconciliationStep.begin("InFlight.wait", new TopicName("bar"), "reconcile-1").end("started");
+        });
+
+        assertEquals(2, results.size());
+        assertEquals(3, events.size());
+        assertEquals("foo", events.get(0).getString("topic"));
+        assertEquals("CreateKafkaTopic", events.get(0).getString("step"));
+        assertEquals("success", events.get(0).getString("outcome"));
+        assertTrue(events.get(0).getDuration().toNanos() >= 0);
+        assertEquals(ControllerException.class.getName(), events.get(1).getString("outcome"));
+        assertEquals("bar", events.get(2).getString("topic"));
+        assertEquals("reconcile-1", events.get(2).getString("action"));
+        assertEquals("started", events.get(2).getString("outcome"));
+    }
+
+    @Test
+    public void testNothingRecordedWhenDisabled() {
+        List<AsyncResult<Void>> results = new ArrayList<>();
+        Handler<AsyncResult<Void>> handler = results::add;
+        // Without a recording the handler isn't even wrapped
+        assertTrue(handler == ReconciliationStep.traced("CreateKafkaTopic", new TopicName("foo"), handler));
+    }
+}
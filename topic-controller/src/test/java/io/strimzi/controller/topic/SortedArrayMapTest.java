@@ -0,0 +1,140 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SortedArrayMapTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SortedArrayMapTest.class);
+
+    private static Map<String, String> hashMap(String... keysAndValues) {
+        Map<String, String> map = new HashMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            map.put(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return map;
+    }
+
+    @Test
+    public void testMapSemantics() {
+        Map<String, String> hashMap = hashMap("segment.ms", "100", "cleanup.policy", "compact", "retention.ms", "200");
+        Map<String, String> map = SortedArrayMap.copyOf(hashMap);
+
+        assertEquals(hashMap, map);
+        assertEquals(map, hashMap);
+        assertEquals(hashMap.hashCode(), map.hashCode());
+        assertEquals(3, map.size());
+        assertEquals("compact", map.get("cleanup.policy"));
+        assertNull(map.get("min.insync.replicas"));
+        assertNull(map.get(42));
+        assertTrue(map.containsKey("segment.ms"));
+        assertFalse(map.containsKey("min.insync.replicas"));
+        assertEquals(asList("cleanup.policy", "retention.ms", "segment.ms"), new ArrayList<>(map.keySet()));
+        assertEquals("{cleanup.policy=compact, retention.ms=200, segment.ms=100}", map.toString());
+
+        assertSame(map, SortedArrayMap.copyOf(map));
+        assertSame(SortedArrayMap.copyOf(Collections.emptyMap()), SortedArrayMap.copyOf(new HashMap<>()));
+    }
+
+    @Test
+    public void testImmutable() {
+        Map<String, String> map = SortedArrayMap.copyOf(hashMap("cleanup.policy", "compact"));
+        try {
+            map.put("retention.ms", "200");
+            fail("Should throw");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        try {
+            map.entrySet().iterator().next().setValue("delete");
+            fail("Should throw");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testInterning() {
+        Map<String, String> a = SortedArrayMap.copyOf(hashMap(new String("cleanup.policy"), new String("compact")));
+        Map<String, String> b = SortedArrayMap.copyOf(hashMap(new String("cleanup.policy"), new String("compact")));
+        assertSame(a.keySet().iterator().next(), b.keySet().iterator().next());
+        assertSame(a.get("cleanup.policy"), b.get("cleanup.policy"));
+
+        String longValue = new String(new char[100]).replace('\0', 'x');
+        assertSame(longValue, SortedArrayMap.intern(longValue));
+    }
+
+    @Test
+    public void testTopicDoesNotAliasBuilder() {
+        Topic.Builder builder = new Topic.Builder("my-topic", 1).withConfigEntry("cleanup.policy", "compact");
+        Topic topic = builder.build();
+        builder.withConfigEntry("retention.ms", "200");
+        assertEquals(Collections.singletonMap("cleanup.policy", "compact"), topic.getConfig());
+    }
+
+    /**
+     * @return The number of distinct String instances among the keys and values of the given maps.
+     */
+    private static int distinctStrings(List<Map<String, String>> maps) {
+        Set<String> strings = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Map<String, String> map : maps) {
+            for (Map.Entry<String, String> entry : map.entrySet()) {
+                strings.add(entry.getKey());
+                strings.add(entry.getValue());
+            }
+        }
+        return strings.size();
+    }
+
+    private static List<Map<String, String>> configs(int numTopics, boolean compact) {
+        List<Map<String, String>> result = new ArrayList<>(numTopics);
+        for (int topic = 0; topic < numTopics; topic++) {
+            // As if each topic's config had been freshly deserialized, so nothing is shared
+            Map<String, String> config = new HashMap<>();
+            config.put(new String("cleanup.policy"), new String("compact"));
+            config.put(new String("retention.ms"), new String("604800000"));
+            config.put(new String("segment.bytes"), new String("1073741824"));
+            config.put(new String("min.insync.replicas"), new String("2"));
+            config.put(new String("compression.type"), new String("producer"));
+            config.put(new String("max.message.bytes"), new String("1000012"));
+            result.add(compact ? SortedArrayMap.copyOf(config) : Collections.unmodifiableMap(config));
+        }
+        return result;
+    }
+
+    /**
+     * The configs of many topics, each freshly deserialized, share the instances of their keys and values
+     * once they're compact, rather than each topic holding its own copies.
+     */
+    @Test
+    public void testSharedStrings() {
+        int numTopics = 20_000;
+        int hashMapStrings = distinctStrings(configs(numTopics, false));
+        int compactStrings = distinctStrings(configs(numTopics, true));
+        LOGGER.info("Configs of {} topics: HashMap {} distinct strings, SortedArrayMap {} distinct strings",
+                numTopics, hashMapStrings, compactStrings);
+        assertEquals(12 * numTopics, hashMapStrings);
+        assertEquals(12, compactStrings);
+    }
+}
@@ -7,11 +7,13 @@ package io.strimzi.controller.topic;
 import org.junit.Test;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import static java.util.Collections.emptyMap;
 import static java.util.Collections.singletonMap;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 
 public class TopicBuilderTest {
 
@@ -100,4 +102,33 @@ public class TopicBuilderTest {
         assertEquals(-1, topic.getNumReplicas());
         assertEquals(emptyMap(), topic.getConfig());
     }
+
+    @Test
+    public void testContentHash() {
+        Topic topic = new Topic.Builder("my_topic", 2, (short) 3, singletonMap("cleanup.policy", "compact")).build();
+        // Stable across JVMs, so it can be persisted
+        assertEquals(topic.getContentHashString(),
+                new Topic.Builder("my_topic", 2, (short) 3, singletonMap("cleanup.policy", "compact")).build().getContentHashString());
+        assertEquals(16, topic.getContentHashString().length());
+        // The map name isn't content
+        assertEquals(topic.getContentHash(), new Topic.Builder(topic).withMapName("other").build().getContentHash());
+
+        assertNotEquals(topic.getContentHash(), new Topic.Builder(topic).withNumPartitions(3).build().getContentHash());
+        assertNotEquals(topic.getContentHash(), new Topic.Builder(topic).withNumReplicas((short) 2).build().getContentHash());
+        assertNotEquals(topic.getContentHash(), new Topic.Builder(topic).withConfigEntry("cleanup.policy", "delete").build().getContentHash());
+        assertNotEquals(topic.getContentHash(), new Topic.Builder(topic).withoutConfigEntry("cleanup.policy").build().getContentHash());
+        assertNotEquals(new Topic.Builder("t", 1, singletonMap("ab", "c")).build().getContentHash(),
+                new Topic.Builder("t", 1, singletonMap("a", "bc")).build().getContentHash());
+
+        Map<String, String> config1 = new HashMap<>();
+        Map<String, String> config2 = new LinkedHashMap<>();
+        for (int i = 0; i < 20; i++) {
+            config1.put("key" + i, "value" + i);
+        }
+        for (int i = 19; i >= 0; i--) {
+            config2.put("key" + i, "value" + i);
+        }
+        assertEquals(new Topic.Builder("my_topic", 1, config1).build().getContentHash(),
+                new Topic.Builder("my_topic", 1, config2).build().getContentHash());
+    }
 }
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import kafka.log.LogConfig;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Properties;
+
+import static java.util.Collections.singletonMap;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static scala.collection.JavaConverters.seqAsJavaListConverter;
+
+public class TopicConfigValidatorTest {
+
+    @Test
+    public void testSameNamesAsLogConfig() {
+        assertEquals(new HashSet<>(seqAsJavaListConverter(LogConfig.configNames()).asJava()), TopicConfigValidator.names());
+    }
+
+    /** Whether the broker's LogConfig accepts the given config. */
+    private static boolean brokerAccepts(String name, String value) {
+        Properties props = new Properties();
+        props.setProperty(name, value);
+        try {
+            LogConfig.validate(props);
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private static void assertAgrees(String name, String value) {
+        String invalid = TopicConfigValidator.validate(singletonMap(name, value));
+        assertEquals(name + "=" + value + ": " + invalid, brokerAccepts(name, value), invalid == null);
+    }
+
+    @Test
+    public void testAgreesWithLogConfig() {
+        assertAgrees("segment.bytes", "1048576");
+        assertAgrees("segment.bytes", "13");
+        assertAgrees("segment.bytes", "1GB");
+        assertAgrees("retention.ms", "-1");
+        assertAgrees("retention.bytes", "-1");
+        assertAgrees("delete.retention.ms", "-1");
+        assertAgrees("min.cleanable.dirty.ratio", "0.25");
+        assertAgrees("min.cleanable.dirty.ratio", "2");
+        assertAgrees("cleanup.policy", "compact,delete");
+        assertAgrees("cleanup.policy", "compacted");
+        assertAgrees("unclean.leader.election.enable", "true");
+        assertAgrees("unclean.leader.election.enable", "yes");
+        assertAgrees("min.insync.replicas", "0");
+        assertAgrees("compression.type", "lz4");
+        assertAgrees("compression.type", "zstd");
+        assertAgrees("leader.replication.throttled.replicas", "0:1,1:2");
+        assertAgrees("leader.replication.throttled.replicas", "*");
+        assertAgrees("follower.replication.throttled.replicas", "0-1");
+        assertAgrees("foo", "bar");
+    }
+
+    @Test
+    public void testValid() {
+        assertNull(TopicConfigValidator.validate(singletonMap("message.timestamp.type", "LogAppendTime")));
+        assertEquals("Invalid value Now for configuration message.timestamp.type: String must be one of: CreateTime, LogAppendTime",
+                TopicConfigValidator.validate(singletonMap("message.timestamp.type", "Now")));
+    }
+}
@@ -23,7 +23,9 @@ import java.util.Map;
 
 import static java.util.Collections.singletonMap;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 public class TopicSerializationTest {
@@ -38,7 +40,7 @@ public class TopicSerializationTest {
         builder.withTopicName("tom");
         builder.withNumReplicas((short) 1);
         builder.withNumPartitions(2);
-        builder.withConfigEntry("cleanup.policy", "bar");
+        builder.withConfigEntry("cleanup.policy", "compact");
         Topic wroteTopic = builder.build();
         ConfigMap cm = TopicSerialization.toConfigMap(wroteTopic, cmPredicate);
 
@@ -49,10 +51,11 @@ public class TopicSerializationTest {
         assertEquals(wroteTopic.getTopicName().toString(), cm.getData().get(TopicSerialization.CM_KEY_NAME));
         assertEquals("2", cm.getData().get(TopicSerialization.CM_KEY_PARTITIONS));
         assertEquals("1", cm.getData().get(TopicSerialization.CM_KEY_REPLICAS));
-        assertEquals("{\"cleanup.policy\":\"bar\"}", cm.getData().get(TopicSerialization.CM_KEY_CONFIG));
+        assertEquals("{\"cleanup.policy\":\"compact\"}", cm.getData().get(TopicSerialization.CM_KEY_CONFIG));
 
         Topic readTopic = TopicSerialization.fromConfigMap(cm);
         assertEquals(wroteTopic, readTopic);
+        assertEquals(wroteTopic.getContentHash(), readTopic.getContentHash());
     }
 
 
@@ -299,5 +302,100 @@ public class TopicSerializationTest {
         }
     }
 
-}
+    @Test
+    public void testErrorInConfigUnknownKey() {
+        Map<String, String> data = new HashMap<>();
+        data.put(TopicSerialization.CM_KEY_REPLICAS, "1");
+        data.put(TopicSerialization.CM_KEY_PARTITIONS, "1");
+        data.put(TopicSerialization.CM_KEY_CONFIG, "{\"retention.mins\":\"10\"}");
+
+        ConfigMap cm = new ConfigMapBuilder().editOrNewMetadata().withName("my-topic")
+                .endMetadata().withData(data).build();
+
+        try {
+            TopicSerialization.fromConfigMap(cm);
+            fail("Should throw");
+        } catch (InvalidConfigMapException e) {
+            assertEquals("ConfigMap's 'data' section has invalid key 'config': " +
+                    "The key 'retention.mins' is not a topic config",
+                    e.getMessage());
+        }
+    }
+
+    @Test
+    public void testErrorInConfigValueOutOfRange() {
+        Map<String, String> data = new HashMap<>();
+        data.put(TopicSerialization.CM_KEY_REPLICAS, "1");
+        data.put(TopicSerialization.CM_KEY_PARTITIONS, "1");
+        data.put(TopicSerialization.CM_KEY_CONFIG, "{\"min.cleanable.dirty.ratio\":\"1.5\"}");
+
+        ConfigMap cm = new ConfigMapBuilder().editOrNewMetadata().withName("my-topic")
+                .endMetadata().withData(data).build();
 
+        try {
+            TopicSerialization.fromConfigMap(cm);
+            fail("Should throw");
+        } catch (InvalidConfigMapException e) {
+            assertEquals("ConfigMap's 'data' section has invalid key 'config': " +
+                    "Invalid value 1.5 for configuration min.cleanable.dirty.ratio: Value must be no more than 1",
+                    e.getMessage());
+        }
+    }
+
+    @Test
+    public void testTemplateConfigMap() {
+        Map<String, String> data = new HashMap<>();
+        data.put(TopicSerialization.CM_KEY_PATTERN, "orders-*, /payments-[0-9]+/");
+        data.put(TopicSerialization.CM_KEY_REPLICAS, "3");
+        data.put(TopicSerialization.CM_KEY_PARTITIONS, "12");
+        data.put(TopicSerialization.CM_KEY_CONFIG, "{\"cleanup.policy\":\"compact\"}");
+
+        ConfigMap cm = new ConfigMapBuilder().editOrNewMetadata().withName("orders-template")
+                .endMetadata().withData(data).build();
+
+        TopicTemplate template = TopicSerialization.fromTemplateConfigMap(cm);
+        assertEquals(new MapName("orders-template"), template.getMapName());
+        assertEquals(12, template.getNumPartitions());
+        assertEquals(3, template.getNumReplicas());
+        assertEquals(singletonMap("cleanup.policy", "compact"), template.getConfig());
+        assertTrue(template.matches("orders-eu-1"));
+        assertTrue(template.matches("payments-42"));
+        assertFalse(template.matches("payments-eu"));
+
+        Topic topic = template.toTopic(new TopicName("orders-eu-1"));
+        assertEquals(new TopicName("orders-eu-1"), topic.getTopicName());
+        assertEquals(12, topic.getNumPartitions());
+        assertEquals(3, topic.getNumReplicas());
+        assertEquals(singletonMap("cleanup.policy", "compact"), topic.getConfig());
+    }
+
+    @Test
+    public void testErrorInTemplatePattern() {
+        Map<String, String> data = new HashMap<>();
+        data.put(TopicSerialization.CM_KEY_REPLICAS, "1");
+        data.put(TopicSerialization.CM_KEY_PARTITIONS, "1");
+
+        ConfigMap cm = new ConfigMapBuilder().editOrNewMetadata().withName("my-template")
+                .endMetadata().withData(data).build();
+
+        try {
+            TopicSerialization.fromTemplateConfigMap(cm);
+            fail("Should throw");
+        } catch (InvalidConfigMapException e) {
+            assertEquals("ConfigMap's 'data' section lacks required key 'pattern', " +
+                    "which should be a comma-separated list of topic name patterns",
+                    e.getMessage());
+        }
+
+        data.put(TopicSerialization.CM_KEY_PATTERN, "orders-*-eu");
+        cm = new ConfigMapBuilder().editOrNewMetadata().withName("my-template")
+                .endMetadata().withData(data).build();
+        try {
+            TopicSerialization.fromTemplateConfigMap(cm);
+            fail("Should throw");
+        } catch (InvalidConfigMapException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("ConfigMap's 'data' section has invalid key 'pattern': "));
+        }
+    }
+
+}
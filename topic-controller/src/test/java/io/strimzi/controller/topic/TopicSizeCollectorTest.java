@@ -0,0 +1,154 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import io.fabric8.kubernetes.api.model.ConfigMap;
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.DescribeClusterResult;
+import org.apache.kafka.clients.admin.DescribeLogDirsResult;
+import org.apache.kafka.common.KafkaFuture;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.apache.kafka.common.internals.KafkaFutureImpl;
+import org.apache.kafka.common.protocol.Errors;
+import org.apache.kafka.common.requests.DescribeLogDirsResponse.LogDirInfo;
+import org.apache.kafka.common.requests.DescribeLogDirsResponse.ReplicaInfo;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonMap;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith(VertxUnitRunner.class)
+public class TopicSizeCollectorTest {
+
+    private final LabelPredicate cmPredicate = LabelPredicate.fromString("kind=topic");
+
+    private Vertx vertx = Vertx.vertx();
+    private Metrics metrics;
+    private MockK8s k8s;
+    private AdminClient adminClient;
+    private TopicSizeCollector collector;
+
+    @Before
+    public void setup() {
+        metrics = new Metrics();
+        k8s = new MockK8s();
+        k8s.setCreateResponse(new MapName("foo"), null);
+        k8s.createConfigMap(TopicSerialization.toConfigMap(new Topic.Builder("foo", 2).build(), cmPredicate), ar -> { });
+        adminClient = mock(AdminClient.class);
+        DescribeClusterResult cluster = mock(DescribeClusterResult.class);
+        Collection<Node> nodes = asList(new Node(1, "", -1), new Node(0, "", -1));
+        when(cluster.nodes()).thenReturn(KafkaFuture.completedFuture(nodes));
+        when(adminClient.describeCluster()).thenReturn(cluster);
+        collector = new TopicSizeCollector(vertx, adminClient, k8s, name -> true, 60_000, 1, 1, true, metrics);
+    }
+
+    @After
+    public void teardown() {
+        vertx.close();
+    }
+
+    private static Map<Integer, Map<String, LogDirInfo>> logDirs(int broker, Map<TopicPartition, ReplicaInfo> replicas) {
+        Map<String, LogDirInfo> dirs = new HashMap<>();
+        dirs.put("/data1", new LogDirInfo(Errors.NONE, replicas));
+        dirs.put("/data2", new LogDirInfo(Errors.KAFKA_STORAGE_ERROR, emptyMap()));
+        return singletonMap(broker, dirs);
+    }
+
+    private void describing(int broker, KafkaFuture<Map<Integer, Map<String, LogDirInfo>>> result) {
+        DescribeLogDirsResult logDirsResult = mock(DescribeLogDirsResult.class);
+        when(logDirsResult.all()).thenReturn(result);
+        when(adminClient.describeLogDirs(eq(asList(broker)))).thenReturn(logDirsResult);
+    }
+
+    private void describing(int broker, Map<TopicPartition, ReplicaInfo> replicas) {
+        describing(broker, KafkaFuture.completedFuture(logDirs(broker, replicas)));
+    }
+
+    private void collect(TestContext context) {
+        Async async = context.async();
+        collector.collect(ar -> {
+            context.assertTrue(ar.succeeded());
+            async.complete();
+        });
+        async.awaitSuccess(10_000);
+    }
+
+    private double size(String topic, int broker) {
+        return metrics.gauge(TopicSizeCollector.SIZE, "", "topic", topic, "broker", String.valueOf(broker)).get();
+    }
+
+    private String annotation(String topic) {
+        AtomicReference<ConfigMap> cm = new AtomicReference<>();
+        k8s.getFromName(new MapName(topic), ar -> cm.set(ar.result()));
+        return cm.get().getMetadata().getAnnotations().get(TopicSizeCollector.ANNOTATION);
+    }
+
+    @Test
+    public void testSizesCollected(TestContext context) {
+        Map<TopicPartition, ReplicaInfo> broker0 = new HashMap<>();
+        broker0.put(new TopicPartition("foo", 0), new ReplicaInfo(100, 0, false));
+        broker0.put(new TopicPartition("foo", 1), new ReplicaInfo(50, 0, false));
+        // Being moved between log dirs, so not counted
+        broker0.put(new TopicPartition("bar", 0), new ReplicaInfo(1000, 0, true));
+        describing(0, broker0);
+        Map<TopicPartition, ReplicaInfo> broker1 = new HashMap<>();
+        broker1.put(new TopicPartition("foo", 0), new ReplicaInfo(100, 0, false));
+        broker1.put(new TopicPartition("bar", 0), new ReplicaInfo(10, 0, false));
+        describing(1, broker1);
+
+        collect(context);
+        context.assertEquals(150.0, size("foo", 0));
+        context.assertEquals(100.0, size("foo", 1));
+        context.assertEquals(10.0, size("bar", 1));
+        context.assertFalse(metrics.scrape().contains("topic=\"bar\",broker=\"0\""));
+        context.assertEquals("250", annotation("foo"));
+
+        // A small change isn't annotated, and a broker which can't be described keeps its last sizes
+        broker0.put(new TopicPartition("foo", 1), new ReplicaInfo(60, 0, false));
+        describing(0, broker0);
+        KafkaFutureImpl<Map<Integer, Map<String, LogDirInfo>>> failed = new KafkaFutureImpl<>();
+        failed.completeExceptionally(new TimeoutException());
+        describing(1, failed);
+        collect(context);
+        context.assertEquals(160.0, size("foo", 0));
+        context.assertEquals(100.0, size("foo", 1));
+        context.assertEquals(10.0, size("bar", 1));
+        context.assertEquals("250", annotation("foo"));
+        context.assertEquals(1.0, metrics.counter("topic_size_errors_total", "").get());
+
+        // Once topics have gone so have their gauges
+        describing(0, emptyMap());
+        describing(1, emptyMap());
+        collect(context);
+        context.assertFalse(metrics.scrape().contains(TopicSizeCollector.SIZE + "{"));
+    }
+
+    @Test
+    public void testAdd() {
+        Map<String, Map<Integer, Long>> sizes = new HashMap<>();
+        TopicSizeCollector.add(sizes, logDirs(2, singletonMap(new TopicPartition("foo", 3), new ReplicaInfo(7, 0, false))));
+        TopicSizeCollector.add(sizes, logDirs(2, singletonMap(new TopicPartition("foo", 4), new ReplicaInfo(8, 0, false))));
+        assertEquals(singletonMap("foo", singletonMap(2, 15L)), sizes);
+    }
+}
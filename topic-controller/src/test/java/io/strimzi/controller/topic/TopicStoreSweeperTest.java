@@ -0,0 +1,131 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import io.strimzi.controller.topic.zk.AclBuilder;
+import io.strimzi.controller.topic.zk.ZkImpl;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.apache.zookeeper.CreateMode;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static java.util.Arrays.asList;
+
+@RunWith(VertxUnitRunner.class)
+public class TopicStoreSweeperTest {
+
+    private EmbeddedZooKeeper zkServer;
+
+    private Vertx vertx = Vertx.vertx();
+
+    private ZkImpl zk;
+    private Metrics metrics;
+    private TopicStoreSweeper sweeper;
+
+    @Before
+    public void setup(TestContext context) throws Exception {
+        this.zkServer = new EmbeddedZooKeeper();
+        zk = new ZkImpl(vertx, zkServer.getZkConnectString(), 60000, false);
+        metrics = new Metrics();
+        sweeper = new TopicStoreSweeper(vertx, zk, name -> !name.startsWith("excluded"), 2, 10, metrics);
+        create(context, "/strimzi", ZkTopicStore.TOPICS_PATH);
+    }
+
+    @After
+    public void teardown() throws InterruptedException {
+        zk.disconnect();
+        if (this.zkServer != null) {
+            this.zkServer.close();
+        }
+        vertx.close();
+    }
+
+    /** Call the given operation, wait for its result and return it. */
+    private <T> T await(TestContext context, Consumer<Handler<AsyncResult<T>>> operation) {
+        Async async = context.async();
+        AtomicReference<T> result = new AtomicReference<>();
+        operation.accept(ar -> {
+            context.assertTrue(ar.succeeded(), ar.cause() != null ? ar.cause().toString() : "");
+            result.set(ar.result());
+            async.complete();
+        });
+        async.await();
+        return result.get();
+    }
+
+    private void create(TestContext context, String... paths) {
+        for (String path : paths) {
+            this.<Void>await(context, h -> zk.create(path, new byte[0], AclBuilder.PUBLIC, CreateMode.PERSISTENT, h));
+        }
+    }
+
+    private void createEntries(TestContext context, String... topicNames) {
+        for (String topicName : topicNames) {
+            create(context, ZkTopicStore.TOPICS_PATH + "/" + topicName);
+        }
+    }
+
+    private Set<String> entries(TestContext context) {
+        List<String> children = await(context, h -> zk.children(ZkTopicStore.TOPICS_PATH, h));
+        return new HashSet<>(children);
+    }
+
+    private int sweep(TestContext context, String... liveTopics) {
+        return await(context, h -> sweeper.sweep(new HashSet<>(asList(liveTopics)), h));
+    }
+
+    private double counter(String name) {
+        return metrics.counter(name, "").get();
+    }
+
+    @Test
+    public void testOrphansRemovedOnSecondSweep(TestContext context) {
+        createEntries(context, "live", "orphan1", "orphan2", "orphan3", "excluded");
+
+        // The first sweep only finds them
+        context.assertEquals(0, sweep(context, "live"));
+        context.assertEquals(3.0, counter("topic_store_orphans_found_total"));
+        context.assertEquals(5, entries(context).size());
+
+        // The second removes them, in two batches
+        context.assertEquals(3, sweep(context, "live"));
+        context.assertEquals(new HashSet<>(asList("live", "excluded")), entries(context));
+        context.assertEquals(3.0, counter("topic_store_orphans_found_total"));
+        context.assertEquals(3.0, counter("topic_store_orphans_removed_total"));
+
+        context.assertEquals(0, sweep(context, "live"));
+    }
+
+    @Test
+    public void testOrphansWhichComeBackAreNotRemoved(TestContext context) {
+        createEntries(context, "revived", "rewritten", "orphan");
+        context.assertEquals(0, sweep(context));
+
+        // One topic is recreated, and the entry of another rewritten, between the sweeps
+        this.<Void>await(context, h -> zk.setData(ZkTopicStore.TOPICS_PATH + "/rewritten", new byte[] {1}, -1, h));
+        context.assertEquals(1, sweep(context, "revived"));
+        context.assertEquals(new HashSet<>(asList("revived", "rewritten")), entries(context));
+
+        // Once orphaned again, it takes two more sweeps to remove them
+        context.assertEquals(1, sweep(context));
+        context.assertEquals(new HashSet<>(asList("revived")), entries(context));
+        context.assertEquals(1, sweep(context));
+        context.assertTrue(entries(context).isEmpty());
+        context.assertEquals(3.0, counter("topic_store_orphans_removed_total"));
+    }
+}
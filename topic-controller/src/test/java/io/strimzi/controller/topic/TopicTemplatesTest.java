@@ -0,0 +1,167 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import io.fabric8.kubernetes.api.model.ConfigMap;
+import io.fabric8.kubernetes.api.model.ConfigMapBuilder;
+import io.fabric8.kubernetes.client.Watcher;
+import io.vertx.core.Future;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class TopicTemplatesTest {
+
+    private MockKafka mockKafka;
+    private TopicTemplates templates;
+
+    @Before
+    public void setup() {
+        mockKafka = new MockKafka();
+        mockKafka.setTopicMetadataResponse(topicName -> {
+            Topic topic = mockKafka.getTopicState(topicName);
+            return Future.succeededFuture(topic != null ? Utils.getTopicMetadata(topic) : null);
+        });
+        mockKafka.setUpdateTopicResponse(topicName -> Future.succeededFuture());
+        mockKafka.setCreateTopicResponse(topicName -> Future.succeededFuture());
+        templates = new TopicTemplates(mockKafka, new TopicFilter("", "*-internal"));
+    }
+
+    private static ConfigMap template(String name, String pattern, int partitions, int replicas, String config) {
+        Map<String, String> data = new HashMap<>();
+        data.put(TopicSerialization.CM_KEY_PATTERN, pattern);
+        data.put(TopicSerialization.CM_KEY_PARTITIONS, Integer.toString(partitions));
+        data.put(TopicSerialization.CM_KEY_REPLICAS, Integer.toString(replicas));
+        data.put(TopicSerialization.CM_KEY_CONFIG, config);
+        return new ConfigMapBuilder().editOrNewMetadata().withName(name)
+                .addToLabels("strimzi.io/kind", "topic-template")
+                .endMetadata().withData(data).build();
+    }
+
+    private void createTopic(String name, int partitions, Map<String, String> config) {
+        mockKafka.createTopic(new Topic.Builder(name, partitions, (short) 1, config).build(), ar -> { });
+    }
+
+    private void apply(String... topicNames) {
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        templates.apply(asList(topicNames), ar -> failure.set(ar.failed() ? ar.cause() : null));
+        assertNull(failure.get());
+    }
+
+    @Test
+    public void testPrecedence() {
+        templates.update(template("b-orders", "orders-*", 4, 1, ""));
+        templates.update(template("a-orders-eu", "orders-eu-*", 8, 1, ""));
+
+        assertEquals(new MapName("a-orders-eu"), templates.templateFor("orders-eu-1").getMapName());
+        assertEquals(new MapName("b-orders"), templates.templateFor("orders-us-1").getMapName());
+        assertNull(templates.templateFor("payments"));
+        assertFalse(templates.matches("payments"));
+
+        templates.remove(template("a-orders-eu", "orders-eu-*", 8, 1, ""));
+        assertEquals(new MapName("b-orders"), templates.templateFor("orders-eu-1").getMapName());
+    }
+
+    @Test
+    public void testReplaceAll() {
+        templates.update(template("old", "old-*", 1, 1, ""));
+        TopicTemplate kept = templates.update(template("kept", "kept-*", 1, 1, ""));
+        ConfigMap invalid = template("invalid", "x", 0, 1, "");
+
+        templates.replaceAll(asList(template("kept", "kept-*", 2, 1, ""), invalid));
+
+        assertFalse(templates.matches("old-1"));
+        assertFalse(templates.matches("x"));
+        TopicTemplate replaced = templates.templateFor("kept-1");
+        assertEquals(2, replaced.getNumPartitions());
+        assertFalse(kept == replaced);
+    }
+
+    @Test
+    public void testApplyInOneBatch() {
+        templates.update(template("orders", "orders-*", 4, 1, "{\"cleanup.policy\":\"compact\"}"));
+        createTopic("orders-1", 4, singletonMap("cleanup.policy", "compact"));
+        createTopic("orders-2", 2, singletonMap("cleanup.policy", "compact"));
+        createTopic("orders-3", 4, emptyMap());
+        createTopic("orders-4", 1, emptyMap());
+        createTopic("orders-internal", 1, emptyMap());
+        createTopic("payments", 1, emptyMap());
+
+        apply("orders-1", "orders-2", "orders-3", "orders-4", "orders-internal", "payments", "orders-deleted");
+
+        for (String name : asList("orders-1", "orders-2", "orders-3", "orders-4")) {
+            Topic topic = mockKafka.getTopicState(new TopicName(name));
+            assertEquals(name, 4, topic.getNumPartitions());
+            assertEquals(name, singletonMap("cleanup.policy", "compact"), topic.getConfig());
+        }
+        // Excluded and unmatched topics are left alone
+        assertEquals(1, mockKafka.getTopicState(new TopicName("orders-internal")).getNumPartitions());
+        assertEquals(1, mockKafka.getTopicState(new TopicName("payments")).getNumPartitions());
+        // One request for the metadata, one for the configs and one for the partitions
+        assertEquals(3, mockKafka.getBatchRequests());
+    }
+
+    @Test
+    public void testApplyWhenConverged() {
+        templates.update(template("orders", "orders-*", 4, 1, ""));
+        createTopic("orders-1", 4, emptyMap());
+        createTopic("orders-2", 6, emptyMap());
+
+        apply("orders-1", "orders-2");
+
+        // Only the metadata is needed; partitions are never decreased
+        assertEquals(1, mockKafka.getBatchRequests());
+        assertEquals(6, mockKafka.getTopicState(new TopicName("orders-2")).getNumPartitions());
+    }
+
+    @Test
+    public void testApplyWithoutMatches() {
+        apply("orders-1");
+        assertEquals(0, mockKafka.getBatchRequests());
+    }
+
+    @Test
+    public void testApplyFailure() {
+        templates.update(template("orders", "orders-*", 1, 1, "{\"cleanup.policy\":\"compact\"}"));
+        createTopic("orders-1", 1, emptyMap());
+        mockKafka.setUpdateTopicResponse(topicName -> Future.failedFuture("Boom"));
+
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        templates.apply(singletonList("orders-1"), ar -> failure.set(ar.cause()));
+        assertEquals("Boom", failure.get().getMessage());
+    }
+
+    @Test
+    public void testWatchEvents() {
+        mockKafka.setTopicsList(new HashSet<>(asList("orders-1", "payments")));
+        createTopic("orders-1", 1, emptyMap());
+        createTopic("payments", 1, emptyMap());
+
+        templates.eventReceived(Watcher.Action.ADDED, template("orders", "orders-*", 3, 1, ""));
+        assertSame(templates.templateFor("orders-1"), templates.templateFor("orders-2"));
+        assertEquals(3, mockKafka.getTopicState(new TopicName("orders-1")).getNumPartitions());
+        assertEquals(1, mockKafka.getTopicState(new TopicName("payments")).getNumPartitions());
+
+        // An invalid modification leaves the existing template in place
+        templates.eventReceived(Watcher.Action.MODIFIED, template("orders", "orders-*", 0, 1, ""));
+        assertEquals(3, templates.templateFor("orders-1").getNumPartitions());
+
+        templates.eventReceived(Watcher.Action.DELETED, template("orders", "orders-*", 3, 1, ""));
+        assertFalse(templates.matches("orders-1"));
+    }
+}
@@ -10,6 +10,8 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.nio.charset.StandardCharsets;
+
 import static java.util.Arrays.asList;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -37,9 +39,9 @@ public class TopicsWatcherTest {
         mockZk = new MockZk();
         mockZk.childrenResult = Future.succeededFuture(asList("foo", "bar"));
         mockZk.dataResult = Future.succeededFuture(new byte[0]);
-        TopicConfigsWatcher topicConfigsWatcher = new TopicConfigsWatcher(controller);
-        TopicWatcher topicWatcher = new TopicWatcher(controller);
-        TopicsWatcher topicsWatcher = new TopicsWatcher(controller, topicConfigsWatcher, topicWatcher);
+        TopicConfigsWatcher topicConfigsWatcher = new TopicConfigsWatcher(controller, TopicFilter.ALL);
+        TopicWatcher topicWatcher = new TopicWatcher(controller, TopicFilter.ALL);
+        TopicsWatcher topicsWatcher = new TopicsWatcher(controller, topicConfigsWatcher, topicWatcher, TopicFilter.ALL);
         topicsWatcher.start(mockZk);
         mockZk.triggerChildren(Future.succeededFuture(asList("foo", "bar", "baz")));
         assertEquals(asList(new MockController.MockControllerEvent(
@@ -67,13 +69,86 @@ public class TopicsWatcherTest {
         controller.topicDeletedResult = Future.succeededFuture();
         mockZk = new MockZk();
         mockZk.childrenResult = Future.succeededFuture(asList("foo", "bar"));
-        TopicConfigsWatcher topicConfigsWatcher = new TopicConfigsWatcher(controller);
-        TopicWatcher topicWatcher = new TopicWatcher(controller);
-        TopicsWatcher topicsWatcher = new TopicsWatcher(controller, topicConfigsWatcher, topicWatcher);
+        TopicConfigsWatcher topicConfigsWatcher = new TopicConfigsWatcher(controller, TopicFilter.ALL);
+        TopicWatcher topicWatcher = new TopicWatcher(controller, TopicFilter.ALL);
+        TopicsWatcher topicsWatcher = new TopicsWatcher(controller, topicConfigsWatcher, topicWatcher, TopicFilter.ALL);
         topicsWatcher.start(mockZk);
         mockZk.triggerChildren(Future.succeededFuture(asList("foo")));
         assertEquals(asList(new MockController.MockControllerEvent(
                 MockController.MockControllerEvent.Type.DELETE, new TopicName("bar"))), controller.getMockControllerEvents());
         assertFalse(topicConfigsWatcher.watching("baz"));
     }
+
+    @Test
+    public void testExcludedTopicAdd() {
+        controller = new MockController();
+        controller.topicCreatedResult = Future.succeededFuture();
+        mockZk = new MockZk();
+        mockZk.childrenResult = Future.succeededFuture(asList("foo", "bar"));
+        mockZk.dataResult = Future.succeededFuture(new byte[0]);
+        TopicFilter topicFilter = new TopicFilter("", "*-changelog");
+        TopicConfigsWatcher topicConfigsWatcher = new TopicConfigsWatcher(controller, topicFilter);
+        TopicWatcher topicWatcher = new TopicWatcher(controller, topicFilter);
+        TopicsWatcher topicsWatcher = new TopicsWatcher(controller, topicConfigsWatcher, topicWatcher, topicFilter);
+        topicsWatcher.start(mockZk);
+        mockZk.triggerChildren(Future.succeededFuture(asList("foo", "bar", "baz", "app-store-changelog")));
+        assertEquals(asList(new MockController.MockControllerEvent(
+                MockController.MockControllerEvent.Type.CREATE, new TopicName("baz"))), controller.getMockControllerEvents());
+        assertTrue(topicWatcher.watching("baz"));
+        assertFalse(topicConfigsWatcher.watching("app-store-changelog"));
+        assertFalse(topicWatcher.watching("app-store-changelog"));
+    }
+
+    @Test
+    public void testExistingTopicsMirrored() {
+        controller = new MockController();
+        mockZk = new MockZk();
+        mockZk.childrenResult = Future.succeededFuture(asList("foo"));
+        // The same data serves as both the partitions and the config znodes
+        mockZk.dataResult = Future.succeededFuture(
+                "{\"version\":1,\"partitions\":{\"0\":[0]},\"config\":{}}".getBytes(StandardCharsets.UTF_8));
+        ZkTopicMirror mirror = new ZkTopicMirror(new MockKafka(), new Metrics());
+        TopicConfigsWatcher topicConfigsWatcher = new TopicConfigsWatcher(controller, TopicFilter.ALL, mirror);
+        TopicWatcher topicWatcher = new TopicWatcher(controller, TopicFilter.ALL, mirror);
+        TopicsWatcher topicsWatcher = new TopicsWatcher(controller, topicConfigsWatcher, topicWatcher, TopicFilter.ALL, null, mirror);
+        topicsWatcher.start(mockZk);
+        assertTrue(topicConfigsWatcher.watching("foo"));
+        assertTrue(topicWatcher.watching("foo"));
+        assertTrue(controller.getMockControllerEvents().isEmpty());
+        mirror.topicMetadata(new TopicName("foo"), ar -> {
+            assertTrue(ar.succeeded());
+            assertEquals(1, ar.result().getDescription().partitions().size());
+        });
+    }
+
+    @Test
+    public void testStandbyOnlyMirrors() {
+        controller = new MockController();
+        controller.topicCreatedResult = Future.succeededFuture();
+        mockZk = new MockZk();
+        mockZk.childrenResult = Future.succeededFuture(asList("foo"));
+        mockZk.dataResult = Future.succeededFuture(
+                "{\"version\":1,\"partitions\":{\"0\":[0]},\"config\":{}}".getBytes(StandardCharsets.UTF_8));
+        ZkTopicMirror mirror = new ZkTopicMirror(new MockKafka(), new Metrics());
+        TopicConfigsWatcher topicConfigsWatcher = new TopicConfigsWatcher(controller, TopicFilter.ALL, mirror);
+        TopicWatcher topicWatcher = new TopicWatcher(controller, TopicFilter.ALL, mirror);
+        TopicsWatcher topicsWatcher = new TopicsWatcher(controller, topicConfigsWatcher, topicWatcher, TopicFilter.ALL, null, mirror);
+        topicsWatcher.startMirroring(mockZk);
+
+        // Created and changed topics are mirrored, but the controller isn't told
+        mockZk.triggerChildren(Future.succeededFuture(asList("foo", "bar")));
+        mockZk.triggerData(mockZk.dataResult);
+        assertTrue(topicWatcher.watching("bar"));
+        assertTrue(controller.getMockControllerEvents().isEmpty());
+        mirror.topicMetadata(new TopicName("bar"), ar -> {
+            assertTrue(ar.succeeded());
+            assertEquals(1, ar.result().getDescription().partitions().size());
+        });
+
+        // Once activated, without watching again, it is
+        topicsWatcher.start(mockZk);
+        mockZk.triggerChildren(Future.succeededFuture(asList("foo", "bar", "baz")));
+        assertEquals(asList(new MockController.MockControllerEvent(
+                MockController.MockControllerEvent.Type.CREATE, new TopicName("baz"))), controller.getMockControllerEvents());
+    }
 }
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(VertxUnitRunner.class)
+public class WorkerPoolTest {
+
+    private final Vertx vertx = Vertx.vertx();
+    private final Metrics metrics = new Metrics();
+
+    @After
+    public void teardown() {
+        vertx.close();
+    }
+
+    private double gauge(String name) {
+        return metrics.gauge(name, "", "pool", "test").get();
+    }
+
+    @Test
+    public void testCallsRunUnorderedAndAreMeasured(TestContext context) throws InterruptedException {
+        WorkerPool pool = new WorkerPool(vertx, "test", 2, 60_000, metrics);
+        CountDownLatch bothRunning = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        Async async = context.async(3);
+        Handler<Future<Void>> blockingCode = fut -> {
+            bothRunning.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            fut.complete();
+        };
+        for (int i = 0; i < 3; i++) {
+            pool.executeBlocking(blockingCode, ar -> {
+                context.assertTrue(ar.succeeded());
+                async.countDown();
+            });
+        }
+
+        // Two calls run at once, however long they block, and the third waits for a thread
+        context.assertTrue(bothRunning.await(10, TimeUnit.SECONDS));
+        context.assertEquals(2.0, gauge("worker_pool_active"));
+        context.assertEquals(1.0, gauge("worker_pool_queued"));
+        context.assertEquals(1.0, gauge("worker_pool_saturation_ratio"));
+
+        release.countDown();
+        async.awaitSuccess(10_000);
+        context.assertEquals(0.0, gauge("worker_pool_queued"));
+        context.assertEquals(3L, metrics.histogram("worker_pool_wait_seconds", "",
+                Metrics.DEFAULT_SECONDS_BUCKETS, "pool", "test").getCount());
+        pool.close();
+    }
+
+    @Test
+    public void testFailure(TestContext context) {
+        WorkerPool pool = new WorkerPool(vertx, "test", 1, 60_000, metrics);
+        Async async = context.async();
+        Handler<Future<Void>> blockingCode = fut -> {
+            throw new RuntimeException("oops");
+        };
+        pool.executeBlocking(blockingCode, ar -> {
+            context.assertTrue(ar.failed());
+            context.assertEquals(0.0, gauge("worker_pool_active"));
+            async.complete();
+        });
+    }
+
+    @Test
+    public void testSharedExecutorsPerTenant(TestContext context) {
+        WorkerPool orders = new WorkerPool(vertx, "orders", "test", 2, 60_000, new Metrics());
+        WorkerPool payments = new WorkerPool(vertx, "payments", "test", 3, 60_000, new Metrics());
+        context.assertEquals("WorkerPool(strimzi-orders-test, size=2)", orders.toString());
+        context.assertEquals("WorkerPool(strimzi-payments-test, size=3)", payments.toString());
+
+        // Vert.x shares the open executor, whatever size is asked for
+        WorkerPool again = new WorkerPool(vertx, "orders", "test", 5, 60_000, new Metrics());
+        context.assertEquals("WorkerPool(strimzi-orders-test, size=2)", again.toString());
+        orders.close();
+        again.close();
+        WorkerPool reopened = new WorkerPool(vertx, "orders", "test", 5, 60_000, new Metrics());
+        context.assertEquals("WorkerPool(strimzi-orders-test, size=5)", reopened.toString());
+        reopened.close();
+        payments.close();
+    }
+}
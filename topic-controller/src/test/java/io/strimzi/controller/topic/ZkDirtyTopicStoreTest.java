@@ -0,0 +1,83 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import io.strimzi.controller.topic.zk.ZkImpl;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static java.util.Collections.singletonMap;
+
+@RunWith(VertxUnitRunner.class)
+public class ZkDirtyTopicStoreTest {
+
+    private EmbeddedZooKeeper zkServer;
+
+    private Vertx vertx = Vertx.vertx();
+
+    private ZkDirtyTopicStore store;
+    private ZkImpl zk;
+
+    @Before
+    public void setup() throws Exception {
+        this.zkServer = new EmbeddedZooKeeper();
+        zk = new ZkImpl(vertx, zkServer.getZkConnectString(), 60000, false);
+        this.store = new ZkDirtyTopicStore(zk);
+    }
+
+    @After
+    public void teardown() throws InterruptedException {
+        zk.disconnect();
+        if (this.zkServer != null) {
+            this.zkServer.close();
+        }
+        vertx.close();
+    }
+
+    /** Call the given operation, wait for its result and return it. */
+    private <T> T await(TestContext context, Consumer<Handler<AsyncResult<T>>> operation) {
+        Async async = context.async();
+        AtomicReference<T> result = new AtomicReference<>();
+        operation.accept(ar -> {
+            context.assertTrue(ar.succeeded(), ar.cause() != null ? ar.cause().toString() : "");
+            result.set(ar.result());
+            async.complete();
+        });
+        async.await();
+        return result.get();
+    }
+
+    @Test
+    public void testAddReadAndRemove(TestContext context) {
+        context.assertTrue(await(context, store::read).isEmpty());
+
+        Map<TopicName, MapName> topics = new HashMap<>();
+        topics.put(new TopicName("foo"), new MapName("foo-map"));
+        topics.put(new TopicName("bar"), null);
+        this.<Void>await(context, h -> store.add(topics, h));
+        context.assertEquals(topics, await(context, store::read));
+
+        // Adding a topic again replaces its ConfigMap name
+        this.<Void>await(context, h -> store.add(singletonMap(new TopicName("bar"), new MapName("bar-map")), h));
+        context.assertEquals(new MapName("bar-map"), await(context, store::read).get(new TopicName("bar")));
+
+        this.<Void>await(context, h -> store.remove(new TopicName("foo"), h));
+        this.<Void>await(context, h -> store.remove(new TopicName("foo"), h));
+        context.assertEquals(singletonMap(new TopicName("bar"), new MapName("bar-map")), await(context, store::read));
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import io.strimzi.controller.topic.zk.ZkImpl;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(VertxUnitRunner.class)
+public class ZkOperationStoreTest {
+
+    private EmbeddedZooKeeper zkServer;
+
+    private Vertx vertx = Vertx.vertx();
+
+    private ZkOperationStore store;
+    private ZkImpl zk;
+
+    @Before
+    public void setup()
+            throws IOException, InterruptedException,
+            TimeoutException, ExecutionException {
+        this.zkServer = new EmbeddedZooKeeper();
+        zk = new ZkImpl(vertx, zkServer.getZkConnectString(), 60000, false);
+        this.store = new ZkOperationStore(zk);
+    }
+
+    @After
+    public void teardown() throws InterruptedException {
+        zk.disconnect();
+        if (this.zkServer != null) {
+            this.zkServer.close();
+        }
+        vertx.close();
+    }
+
+    private List<Operation> list(TestContext context) {
+        Async async = context.async();
+        Future<List<Operation>> future = Future.future();
+        store.list(ar -> {
+            if (ar.failed()) {
+                context.fail(ar.cause());
+            }
+            future.complete(ar.result());
+            async.complete();
+        });
+        async.await();
+        return future.result();
+    }
+
+    @Test
+    public void testCrud(TestContext context) {
+        Operation operation = new Operation(Operation.Type.CHANGE_REPLICATION_FACTOR,
+                Collections.singletonList("my_topic"), 1000L, 1234L,
+                "{\"version\":1,\"partitions\":[]}", 0, 0);
+
+        // Nothing there initially
+        assertEquals(0, list(context).size());
+
+        // Create the operation
+        Async async0 = context.async();
+        store.create(operation, ar -> {
+            context.assertTrue(ar.succeeded());
+            async0.complete();
+        });
+        async0.await();
+
+        List<Operation> operations = list(context);
+        assertEquals(1, operations.size());
+        Operation read = operations.get(0);
+        assertEquals(operation.getType(), read.getType());
+        assertEquals(operation.getTopics(), read.getTopics());
+        assertEquals(operation.getThrottle(), read.getThrottle());
+        assertEquals(operation.getStartTime(), read.getStartTime());
+        assertEquals(operation.getReassignment(), read.getReassignment());
+
+        // Update the progress
+        Async async1 = context.async();
+        store.update(operation.withProgress(1, 2), ar -> {
+            context.assertTrue(ar.succeeded());
+            async1.complete();
+        });
+        async1.await();
+
+        read = list(context).get(0);
+        assertEquals(1, read.getPartitionsComplete());
+        assertEquals(2, read.getPartitionsInProgress());
+
+        // Creating it again replaces it
+        Async async2 = context.async();
+        store.create(operation, ar -> {
+            context.assertTrue(ar.succeeded());
+            async2.complete();
+        });
+        async2.await();
+        operations = list(context);
+        assertEquals(1, operations.size());
+        assertEquals(0, operations.get(0).getPartitionsInProgress());
+
+        // Delete it
+        Async async3 = context.async();
+        store.delete(operation.getId(), ar -> {
+            context.assertTrue(ar.succeeded());
+            async3.complete();
+        });
+        async3.await();
+        assertEquals(0, list(context).size());
+
+        // Deleting it again is not an error
+        Async async4 = context.async();
+        store.delete(operation.getId(), ar -> {
+            context.assertTrue(ar.succeeded());
+            async4.complete();
+        });
+        async4.await();
+    }
+
+    @Test
+    public void testJsonRoundTripWithoutThrottle() {
+        Operation operation = new Operation(Operation.Type.CHANGE_REPLICATION_FACTOR,
+                Collections.singletonList("my_topic"), null, 1234L, "{}", 3, 4);
+        Operation read = Operation.fromJson(operation.toJson());
+        assertEquals(null, read.getThrottle());
+        assertEquals(3, read.getPartitionsComplete());
+        assertEquals(4, read.getPartitionsInProgress());
+    }
+}
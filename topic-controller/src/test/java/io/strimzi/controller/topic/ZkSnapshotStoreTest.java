@@ -0,0 +1,131 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import io.fabric8.kubernetes.api.model.ConfigMap;
+import io.strimzi.controller.topic.zk.AclBuilder;
+import io.strimzi.controller.topic.zk.ZkImpl;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.apache.zookeeper.CreateMode;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static java.util.Arrays.asList;
+
+@RunWith(VertxUnitRunner.class)
+public class ZkSnapshotStoreTest {
+
+    private static final LabelPredicate CM_PREDICATE = LabelPredicate.fromString("strimzi.io/kind=topic");
+
+    private EmbeddedZooKeeper zkServer;
+
+    private Vertx vertx = Vertx.vertx();
+
+    private ZkSnapshotStore store;
+    private ZkImpl zk;
+
+    @Before
+    public void setup() throws Exception {
+        this.zkServer = new EmbeddedZooKeeper();
+        zk = new ZkImpl(vertx, zkServer.getZkConnectString(), 60000, false);
+        this.store = new ZkSnapshotStore(zk);
+    }
+
+    @After
+    public void teardown() throws InterruptedException {
+        zk.disconnect();
+        if (this.zkServer != null) {
+            this.zkServer.close();
+        }
+        vertx.close();
+    }
+
+    /** Call the given operation, wait for its result and return it. */
+    private <T> T await(TestContext context, Consumer<Handler<AsyncResult<T>>> operation) {
+        Async async = context.async();
+        AtomicReference<T> result = new AtomicReference<>();
+        operation.accept(ar -> {
+            context.assertTrue(ar.succeeded(), ar.cause() != null ? ar.cause().toString() : "");
+            result.set(ar.result());
+            async.complete();
+        });
+        async.await();
+        return result.get();
+    }
+
+    private void create(TestContext context, String... paths) {
+        for (String path : paths) {
+            this.<Void>await(context, h -> zk.create(path, new byte[0], AclBuilder.PUBLIC, CreateMode.PERSISTENT, h));
+        }
+    }
+
+    private static ConfigMap configMap(String topicName, String retention) {
+        return TopicSerialization.toConfigMap(new Topic.Builder(topicName, 1, (short) 1,
+                Collections.singletonMap("retention.ms", retention)).build(), CM_PREDICATE);
+    }
+
+    @Test
+    public void testSaveAndLoad(TestContext context) {
+        context.assertNull(await(context, store::load));
+
+        create(context, "/strimzi");
+        ControllerSnapshot saved = ControllerSnapshot.of("1234", asList(configMap("foo", "100"), configMap("bar", "100")),
+            name -> true);
+        this.<Void>await(context, h -> store.save(saved, h));
+        ControllerSnapshot loaded = await(context, store::load);
+        context.assertEquals("1234", loaded.getResourceVersion());
+        context.assertEquals(2, loaded.size());
+        context.assertTrue(loaded.getZxid() > 0);
+        context.assertTrue(loaded.unchanged(configMap("foo", "100")));
+        context.assertFalse(loaded.unchanged(configMap("foo", "200")));
+
+        // Saving again replaces it
+        this.<Void>await(context, h -> store.save(ControllerSnapshot.of("5678", Collections.emptyList(), name -> true), h));
+        ControllerSnapshot reloaded = await(context, store::load);
+        context.assertEquals("5678", reloaded.getResourceVersion());
+        context.assertTrue(reloaded.getZxid() > loaded.getZxid());
+    }
+
+    @Test
+    public void testTooLargeNotSaved(TestContext context) {
+        create(context, "/strimzi");
+        this.<Void>await(context, h -> store.save(ControllerSnapshot.of("1234", asList(configMap("foo", "100")), name -> true), h));
+        context.assertNotNull(await(context, store::load));
+
+        // One which won't fit replaces the existing one with none, rather than leaving it stale
+        ZkSnapshotStore small = new ZkSnapshotStore(zk, 10);
+        this.<Void>await(context, h -> small.save(ControllerSnapshot.of("5678", asList(configMap("foo", "200")), name -> true), h));
+        context.assertNull(await(context, store::load));
+        this.<Void>await(context, h -> small.save(ControllerSnapshot.of("5678", asList(configMap("foo", "200")), name -> true), h));
+    }
+
+    @Test
+    public void testChangedInKafkaSince(TestContext context) {
+        create(context, "/strimzi", "/brokers", "/brokers/topics", "/config", "/config/topics",
+                "/brokers/topics/foo", "/config/topics/foo", "/brokers/topics/bar", "/config/topics/bar");
+        this.<Void>await(context, h -> store.save(ControllerSnapshot.of("1", Collections.emptyList(), name -> true), h));
+        long zxid = await(context, store::load).getZxid();
+
+        context.assertFalse(await(context, h -> store.changedInKafkaSince(new TopicName("foo"), zxid, h)));
+
+        this.<Void>await(context, h -> zk.setData("/config/topics/bar", new byte[] {1}, -1, h));
+        context.assertTrue(await(context, h -> store.changedInKafkaSince(new TopicName("bar"), zxid, h)));
+
+        context.assertTrue(await(context, h -> store.changedInKafkaSince(new TopicName("baz"), zxid, h)));
+        create(context, "/brokers/topics/baz", "/config/topics/baz");
+        context.assertTrue(await(context, h -> store.changedInKafkaSince(new TopicName("baz"), zxid, h)));
+    }
+}
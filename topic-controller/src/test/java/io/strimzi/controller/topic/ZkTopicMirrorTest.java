@@ -0,0 +1,135 @@
+/*
+ * Copyright 2017-2018, Strimzi authors.
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.strimzi.controller.topic;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import org.apache.zookeeper.Watcher;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonMap;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ZkTopicMirrorTest {
+
+    private static final byte[] PARTITIONS = "{\"version\":1,\"partitions\":{\"1\":[2,0],\"0\":[0,1]}}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] CONFIG = "{\"version\":1,\"config\":{\"cleanup.policy\":\"compact\"}}".getBytes(StandardCharsets.UTF_8);
+
+    private final Topic kafkaTopic = new Topic.Builder("foo", 3, (short) 3, singletonMap("cleanup.policy", "delete")).build();
+
+    private Metrics metrics;
+    private MockKafka kafka;
+    private ZkTopicMirror mirror;
+
+    @Before
+    public void setup() {
+        metrics = new Metrics();
+        kafka = new MockKafka();
+        kafka.setTopicMetadataResponse(new TopicName("foo"), Utils.getTopicMetadata(kafkaTopic), null);
+        mirror = new ZkTopicMirror(kafka, metrics);
+    }
+
+    private void mirrorFoo() {
+        mirror.topicsChanged(asList("foo", "__consumer_offsets"));
+        mirror.partitionsChanged("foo", PARTITIONS);
+        mirror.configChanged("foo", CONFIG);
+    }
+
+    private Topic topic(String name) {
+        AtomicReference<AsyncResult<TopicMetadata>> result = new AtomicReference<>();
+        mirror.topicMetadata(new TopicName(name), result::set);
+        assertTrue(result.get().succeeded());
+        return TopicSerialization.fromTopicMetadata(result.get().result());
+    }
+
+    private double read(String source) {
+        return metrics.counter("topic_metadata_total", "", "source", source).get();
+    }
+
+    @Test
+    public void testMetadataFromMirror() {
+        mirrorFoo();
+        assertEquals(new Topic.Builder("foo", 2, (short) 2, singletonMap("cleanup.policy", "compact")).build(), topic("foo"));
+        assertEquals(1.0, read("mirror"), 0.0);
+        assertEquals(0.0, read("kafka"), 0.0);
+
+        AtomicReference<AsyncResult<Set<String>>> topics = new AtomicReference<>();
+        mirror.listTopics(topics::set);
+        assertEquals(new HashSet<>(asList("foo")), topics.get().result());
+    }
+
+    @Test
+    public void testUnmirroredFromKafka() {
+        // Only the partitions have been mirrored
+        mirror.topicsChanged(asList("foo"));
+        mirror.partitionsChanged("foo", PARTITIONS);
+        assertEquals(kafkaTopic, topic("foo"));
+        mirror.configChanged("foo", CONFIG);
+        assertEquals(2, topic("foo").getNumPartitions());
+
+        // Once the topic's znodes have been unwatched
+        mirror.partitionsRemoved("foo");
+        assertEquals(kafkaTopic, topic("foo"));
+        assertEquals(1.0, read("mirror"), 0.0);
+        assertEquals(2.0, read("kafka"), 0.0);
+    }
+
+    @Test
+    public void testChangedTopicFromKafkaUntilMirrored() {
+        mirrorFoo();
+        kafka.setUpdateTopicResponse(topicName -> Future.succeededFuture());
+        kafka.setCreateTopicResponse("foo", null);
+        kafka.createTopic(kafkaTopic, ar -> { });
+        mirror.updateTopicConfig(kafkaTopic, ar -> assertTrue(ar.succeeded()));
+        assertEquals(kafkaTopic, topic("foo"));
+
+        mirror.configChanged("foo", CONFIG);
+        assertEquals(2, topic("foo").getNumPartitions());
+    }
+
+    @Test
+    public void testTopicsMetadata() {
+        mirrorFoo();
+        mirror.topicsChanged(asList("foo", "bar"));
+        kafka.setTopicMetadataResponse(new TopicName("bar"), null, null);
+        AtomicReference<AsyncResult<Map<TopicName, TopicMetadata>>> result = new AtomicReference<>();
+        mirror.topicsMetadata(new HashSet<>(asList(new TopicName("foo"), new TopicName("bar"))), result::set);
+        assertEquals(new HashSet<>(asList(new TopicName("foo"))), result.get().result().keySet());
+        assertEquals(1, kafka.getBatchRequests());
+        assertEquals(1.0, read("mirror"), 0.0);
+        assertEquals(1.0, read("kafka"), 0.0);
+    }
+
+    @Test
+    public void testConnectionState() {
+        mirrorFoo();
+        kafka.setTopicsList(new HashSet<>(asList("foo", "bar")));
+        AtomicReference<AsyncResult<Set<String>>> topics = new AtomicReference<>();
+
+        mirror.connectionState(Watcher.Event.KeeperState.Disconnected);
+        assertEquals(kafkaTopic, topic("foo"));
+        mirror.listTopics(topics::set);
+        assertEquals(2, topics.get().result().size());
+
+        mirror.connectionState(Watcher.Event.KeeperState.SyncConnected);
+        assertEquals(2, topic("foo").getNumPartitions());
+
+        // The session's watches have gone, so the mirror can't be trusted even once there's a new session
+        mirror.connectionState(Watcher.Event.KeeperState.Expired);
+        mirror.connectionState(Watcher.Event.KeeperState.SyncConnected);
+        assertEquals(kafkaTopic, topic("foo"));
+        mirror.listTopics(topics::set);
+        assertEquals(2, topics.get().result().size());
+    }
+}
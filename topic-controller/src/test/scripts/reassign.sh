@@ -9,6 +9,7 @@
 # --execute-running
 # --execute-started
 # --execute-fail STR
+# --hang SECONDS
 
 echo "Random logging-like rubbish"
 
@@ -54,6 +55,10 @@ while [ $# -gt 0 ]; do
       echo "Reassignment of partition $2 is still in progress"
       shift 2
       ;;
+    --hang)
+      sleep $2
+      shift 2
+      ;;
     *)
       shift
       ;;